@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+#
+# Measures time-to-first-request of the API: the time between launching the JVM
+# and the first successful GET /api/books. Each mode is started RUNS times and
+# the individual and median timings are written to target/startup-benchmark.txt.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+# Needs a JDK 13+ on JAVA (default: java on the PATH) and a previous
+# "./mvnw -Pcds package -DskipTests" so target/cds/app, target/cds/lib and
+# target/cds/library-api.jsa exist.
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+JAVA=${JAVA:-java}
+PORT=${PORT:-18080}
+CLASSPATH="target/cds/app/*:target/cds/lib/*"
+MAIN=com.knoxx.libraryapi.LibraryApiApplication
+REPORT=target/startup-benchmark.txt
+
+now_ms() {
+	date +%s%3N
+}
+
+measure() {
+	local start pid elapsed
+	start=$(now_ms)
+	"$JAVA" "$@" -Dserver.port="$PORT" -Dlogging.file.name= -cp "$CLASSPATH" "$MAIN" > /dev/null 2>&1 &
+	pid=$!
+	until curl -sf "http://localhost:$PORT/api/books" > /dev/null; do
+		if ! kill -0 "$pid" 2> /dev/null; then
+			echo "application exited before serving a request" >&2
+			exit 1
+		fi
+		sleep 0.02
+	done
+	elapsed=$(( $(now_ms) - start ))
+	kill "$pid"
+	wait "$pid" 2> /dev/null || true
+	echo "$elapsed"
+}
+
+run_mode() {
+	local name=$1
+	shift
+	local timings=()
+	for _ in $(seq "$RUNS"); do
+		timings+=("$(measure "$@")")
+	done
+	local median
+	median=$(printf '%s\n' "${timings[@]}" | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+	echo "$name: median ${median} ms (runs: ${timings[*]})" | tee -a "$REPORT"
+}
+
+mkdir -p target
+echo "# $(date -u +%Y-%m-%dT%H:%M:%SZ) $("$JAVA" -version 2>&1 | head -1)" | tee -a "$REPORT"
+run_mode "default" -Xshare:auto
+run_mode "fast-startup" -Dspring.profiles.active=fast-startup
+if [ -f target/cds/library-api.jsa ]; then
+	run_mode "fast-startup+cds" -Dspring.profiles.active=fast-startup -XX:SharedArchiveFile=target/cds/library-api.jsa
+fi
@@ -1,5 +1,6 @@
 package com.knoxx.libraryapi;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.knoxx.libraryapi.api.exception.ApiErrors;
+import com.knoxx.libraryapi.bulkhead.BulkheadFullException;
 import com.knoxx.libraryapi.exception.BusinessException;
 
 @RestControllerAdvice
@@ -30,6 +32,12 @@ public class ApplicationControllerAdvice {
 		return new ApiErrors(ex);
 	}
 	
+	@ExceptionHandler(BulkheadFullException.class)
+	public ResponseEntity<ApiErrors> handleBulkheadFullException(BulkheadFullException ex) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+				.body(new ApiErrors(ex.getMessage()));
+	}
+
 	@ExceptionHandler(ResponseStatusException.class)
 	@ResponseStatus
 	public ResponseEntity<ApiErrors> handleResponseStatusException(ResponseStatusException ex) {
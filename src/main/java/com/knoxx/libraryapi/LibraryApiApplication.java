@@ -6,6 +6,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
 @SpringBootApplication
 @EnableScheduling
 public class LibraryApiApplication {
@@ -15,6 +17,11 @@ public class LibraryApiApplication {
 	public ModelMapper modelMapper() {
 		return new ModelMapper();
 	}
+
+	@Bean
+	public AfterburnerModule afterburnerModule() {
+		return new AfterburnerModule();
+	}
 	
 
 	public static void main(String[] args) {
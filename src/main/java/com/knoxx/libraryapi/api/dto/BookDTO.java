@@ -1,6 +1,7 @@
 package com.knoxx.libraryapi.api.dto;
 
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -23,6 +24,9 @@ public class BookDTO {
 	
 	@NotEmpty
 	private String ISBN;
+
+	@Positive
+	private Integer loanDays;
 	
 
 }
@@ -0,0 +1,40 @@
+package com.knoxx.libraryapi.api.dto;
+
+import java.time.LocalDate;
+
+import javax.validation.constraints.NotEmpty;
+
+import com.knoxx.libraryapi.entity.Hold;
+import com.knoxx.libraryapi.entity.HoldStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldDTO {
+
+	private Long id;
+
+	@NotEmpty
+	private String customer;
+
+	@NotEmpty
+	private String email;
+
+	private HoldStatus status;
+
+	private Integer position;
+
+	private LocalDate readyUntil;
+
+	public static HoldDTO of(Hold hold, int position) {
+		return HoldDTO.builder().id(hold.getId()).customer(hold.getCustomer()).email(hold.getCustomerEmail())
+				.status(hold.getStatus()).position(position).readyUntil(hold.getReadyUntil()).build();
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.knoxx.libraryapi.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LateLoanDigestDTO {
+
+	private String customer;
+
+	private String email;
+
+	private List<LateLoanItemDTO> items;
+
+}
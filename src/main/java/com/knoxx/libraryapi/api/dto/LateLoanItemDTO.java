@@ -0,0 +1,22 @@
+package com.knoxx.libraryapi.api.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LateLoanItemDTO {
+
+	private String title;
+
+	private String isbn;
+
+	private LocalDate dueDate;
+
+}
@@ -0,0 +1,46 @@
+package com.knoxx.libraryapi.api.dto;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Page of a list endpoint: the items, the page number and size asked for,
+ * whether a next page exists and, when the client asks for it with
+ * {@code count=true}, the total number of items. A {@link Slice} has no total,
+ * so endpoints pass one when the client does not want it counted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({ "content", "page", "size", "hasNext", "totalElements" })
+public class PageResponse<T> {
+
+	private List<T> content;
+
+	private int page;
+
+	private int size;
+
+	private boolean hasNext;
+
+	private Long totalElements;
+
+	public static <T> PageResponse<T> of(Slice<T> page, boolean count) {
+		Long total = count && page instanceof Page ? ((Page<T>) page).getTotalElements() : null;
+		return PageResponse.<T>builder().content(page.getContent()).page(page.getNumber()).size(page.getSize())
+				.hasNext(page.hasNext()).totalElements(total).build();
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.knoxx.libraryapi.api.dto;
 
+import com.knoxx.libraryapi.entity.LoanStatus;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,5 +14,7 @@ import lombok.NoArgsConstructor;
 public class ReturnedBookDTO {
 	
 	private Boolean returned;
+
+	private LoanStatus status;
 	
 }
@@ -0,0 +1,20 @@
+package com.knoxx.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+
+	private String text;
+
+	private String field;
+
+	private Integer books;
+
+}
@@ -0,0 +1,24 @@
+package com.knoxx.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopBookDTO {
+
+	private Long id;
+
+	private String title;
+
+	private String author;
+
+	private String ISBN;
+
+	private Long loans;
+
+}
@@ -0,0 +1,18 @@
+package com.knoxx.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopCustomerDTO {
+
+	private String customer;
+
+	private Long loans;
+
+}
@@ -0,0 +1,219 @@
+package com.knoxx.libraryapi.api.filter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knoxx.libraryapi.api.exception.ApiErrors;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+	static final String API_KEY_HEADER = "X-API-Key";
+
+	public enum EndpointClass {
+		READ, CHECKOUT, STREAM, OTHER
+	}
+
+	private final long permitsPerSecond;
+
+	private final int burst;
+
+	private final int maxClients;
+
+	private final Set<String> apiKeys;
+
+	private final ObjectMapper objectMapper;
+
+	private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+	private final AtomicInteger clients = new AtomicInteger();
+
+	private final Map<EndpointClass, ConcurrencyLimiter> limiters = new EnumMap<>(EndpointClass.class);
+
+	private final Map<EndpointClass, Counter> admitted = new EnumMap<>(EndpointClass.class);
+
+	private final Map<EndpointClass, Counter> rateLimited = new EnumMap<>(EndpointClass.class);
+
+	private final Map<EndpointClass, Counter> shed = new EnumMap<>(EndpointClass.class);
+
+	public AdmissionControlFilter(long permitsPerSecond, int burst, int maxClients, Set<String> apiKeys,
+			int readConcurrency, int checkoutConcurrency, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.maxClients = maxClients;
+		this.apiKeys = apiKeys;
+		this.objectMapper = objectMapper;
+		this.limiters.put(EndpointClass.READ, new ConcurrencyLimiter(readConcurrency));
+		this.limiters.put(EndpointClass.CHECKOUT, new ConcurrencyLimiter(checkoutConcurrency));
+
+		for (EndpointClass endpoint : EndpointClass.values()) {
+			String tag = endpoint.name().toLowerCase();
+			admitted.put(endpoint, counter(meterRegistry, tag, "admitted"));
+			rateLimited.put(endpoint, counter(meterRegistry, tag, "rate_limited"));
+			shed.put(endpoint, counter(meterRegistry, tag, "shed"));
+		}
+		limiters.forEach((endpoint, limiter) -> Gauge
+				.builder("library.admission.in_flight", limiter, ConcurrencyLimiter::getInFlight)
+				.tag("endpoint", endpoint.name().toLowerCase()).register(meterRegistry));
+		Gauge.builder("library.admission.clients", clients, AtomicInteger::get).register(meterRegistry);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !request.getRequestURI().startsWith("/api/");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		EndpointClass endpoint = classify(request);
+
+		TokenBucket bucket = bucketFor(client(request));
+		if (bucket == null) {
+			rateLimited.get(endpoint).increment();
+			reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many clients, try again later");
+			return;
+		}
+		if (!bucket.tryAcquire()) {
+			rateLimited.get(endpoint).increment();
+			reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests, slow down");
+			return;
+		}
+
+		ConcurrencyLimiter limiter = limiters.get(endpoint);
+		if (limiter != null && !limiter.tryAcquire()) {
+			shed.get(endpoint).increment();
+			reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Server busy, try again later");
+			return;
+		}
+
+		admitted.get(endpoint).increment();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			if (limiter != null) {
+				releaseOnCompletion(request, limiter);
+			}
+		}
+	}
+
+	// Requests never evict, a new client over the limit waits for the next sweep
+	@Scheduled(fixedDelayString = "${application.admission.eviction-interval:10000}")
+	public void evictIdleClients() {
+		buckets.forEach((client, bucket) -> {
+			if (bucket.isFull() && buckets.remove(client, bucket)) {
+				clients.decrementAndGet();
+			}
+		});
+	}
+
+	// Requests handed to a bulkhead keep their permit until the response is sent
+	private static void releaseOnCompletion(HttpServletRequest request, ConcurrencyLimiter limiter) {
+		if (!request.isAsyncStarted()) {
+			limiter.release();
+			return;
+		}
+		request.getAsyncContext().addListener(new AsyncListener() {
+			@Override
+			public void onComplete(AsyncEvent event) {
+				limiter.release();
+			}
+
+			@Override
+			public void onTimeout(AsyncEvent event) {
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+			}
+		});
+	}
+
+	static EndpointClass classify(HttpServletRequest request) {
+		String method = request.getMethod();
+		// event streams stay open for minutes, their broadcaster bounds them instead of a limiter
+		if (HttpMethod.GET.matches(method) && request.getRequestURI().startsWith("/api/events/")) {
+			return EndpointClass.STREAM;
+		}
+		if (HttpMethod.GET.matches(method)) {
+			return EndpointClass.READ;
+		}
+		if (HttpMethod.POST.matches(method) && request.getRequestURI().matches("/api/loans/?")) {
+			return EndpointClass.CHECKOUT;
+		}
+		return EndpointClass.OTHER;
+	}
+
+	static String clientKey(HttpServletRequest request) {
+		String apiKey = request.getHeader(API_KEY_HEADER);
+		return apiKey != null && !apiKey.isEmpty() ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+	}
+
+	// Only configured API keys get a bucket of their own, anything else a
+	// client could vary per request to get a fresh one
+	private String client(HttpServletRequest request) {
+		String apiKey = request.getHeader(API_KEY_HEADER);
+		return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+	}
+
+	// Null when the client is new and every slot is taken by an active client
+	private TokenBucket bucketFor(String client) {
+		TokenBucket bucket = buckets.get(client);
+		if (bucket != null) {
+			return bucket;
+		}
+		return buckets.computeIfAbsent(client,
+				key -> reserveClient() ? new TokenBucket(permitsPerSecond, burst) : null);
+	}
+
+	private boolean reserveClient() {
+		while (true) {
+			int current = clients.get();
+			if (current >= maxClients) {
+				return false;
+			}
+			if (clients.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), new ApiErrors(message));
+	}
+
+	private static Counter counter(MeterRegistry meterRegistry, String endpoint, String outcome) {
+		return Counter.builder("library.admission.requests").tag("endpoint", endpoint).tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+
+}
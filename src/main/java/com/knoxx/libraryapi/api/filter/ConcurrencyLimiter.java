@@ -0,0 +1,42 @@
+package com.knoxx.libraryapi.api.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrencyLimiter {
+
+	private final int limit;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	public ConcurrencyLimiter(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Concurrency limit must be positive.");
+		}
+		this.limit = limit;
+	}
+
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+}
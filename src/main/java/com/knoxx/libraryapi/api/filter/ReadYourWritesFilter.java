@@ -0,0 +1,33 @@
+package com.knoxx.libraryapi.api.filter;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.knoxx.libraryapi.datasource.ReadYourWritesTracker;
+
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+	private final ReadYourWritesTracker readYourWrites;
+
+	public ReadYourWritesFilter(ReadYourWritesTracker readYourWrites) {
+		this.readYourWrites = readYourWrites;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		readYourWrites.bind(AdmissionControlFilter.clientKey(request));
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			readYourWrites.unbind();
+		}
+	}
+
+}
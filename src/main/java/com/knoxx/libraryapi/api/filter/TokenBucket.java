@@ -0,0 +1,72 @@
+package com.knoxx.libraryapi.api.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class TokenBucket {
+
+	private static final int TOKEN_BITS = 24;
+
+	private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+
+	private static final long MILLIS_PER_TOKEN = 1000;
+
+	static final int MAX_BURST = (int) (TOKEN_MASK / MILLIS_PER_TOKEN);
+
+	private final long permitsPerSecond;
+
+	private final long capacity;
+
+	private final LongSupplier clock;
+
+	private final long origin;
+
+	// elapsed millis since origin in the high bits, milli-tokens in the low 24 bits
+	private final AtomicLong state;
+
+	public TokenBucket(long permitsPerSecond, int burst) {
+		this(permitsPerSecond, burst, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+	}
+
+	public TokenBucket(long permitsPerSecond, int burst, LongSupplier clock) {
+		if (permitsPerSecond < 1 || burst < 1 || burst > MAX_BURST) {
+			throw new IllegalArgumentException("Rate must be positive and burst between 1 and " + MAX_BURST);
+		}
+		this.permitsPerSecond = permitsPerSecond;
+		this.capacity = burst * MILLIS_PER_TOKEN;
+		this.clock = clock;
+		this.origin = clock.getAsLong();
+		this.state = new AtomicLong(capacity);
+	}
+
+	public boolean tryAcquire() {
+		while (true) {
+			long current = state.get();
+			long now = clock.getAsLong() - origin;
+			long tokens = refill(current, now);
+			if (tokens < MILLIS_PER_TOKEN) {
+				return false;
+			}
+			long next = (Math.max(now, current >>> TOKEN_BITS) << TOKEN_BITS) | (tokens - MILLIS_PER_TOKEN);
+			if (state.compareAndSet(current, next)) {
+				return true;
+			}
+		}
+	}
+
+	public boolean isFull() {
+		return refill(state.get(), clock.getAsLong() - origin) == capacity;
+	}
+
+	private long refill(long current, long now) {
+		long last = current >>> TOKEN_BITS;
+		long tokens = current & TOKEN_MASK;
+		long elapsed = Math.max(0, now - last);
+		if (elapsed >= capacity / permitsPerSecond + 1) {
+			return capacity;
+		}
+		return Math.min(capacity, tokens + elapsed * permitsPerSecond);
+	}
+
+}
@@ -1,14 +1,14 @@
 package com.knoxx.libraryapi.api.resource;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 import javax.validation.Valid;
 
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,15 +17,25 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.knoxx.libraryapi.api.dto.BookDTO;
+import com.knoxx.libraryapi.api.dto.HoldDTO;
 import com.knoxx.libraryapi.api.dto.LoanDTO;
+import com.knoxx.libraryapi.api.dto.PageResponse;
+import com.knoxx.libraryapi.api.dto.SuggestionDTO;
+import com.knoxx.libraryapi.api.dto.TopBookDTO;
 import com.knoxx.libraryapi.api.service.BookService;
+import com.knoxx.libraryapi.api.service.BookSuggestionService;
+import com.knoxx.libraryapi.api.service.HoldService;
 import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.api.service.PopularityService;
+import com.knoxx.libraryapi.bulkhead.Bulkhead;
 import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Hold;
 import com.knoxx.libraryapi.entity.Loan;
 
 import io.swagger.annotations.Api;
@@ -45,26 +55,51 @@ public class BookController {
 	ModelMapper modelMapper;
 	
 	LoanService loanService;
+
+	PopularityService popularityService;
+
+	BookSuggestionService suggestionService;
+
+	Bulkhead reportingBulkhead;
+
+	HoldService holdService;
 	
 	
-	 public BookController(BookService service, LoanService loanService, ModelMapper modelMapper) {
+	 public BookController(BookService service, LoanService loanService, ModelMapper modelMapper,
+			PopularityService popularityService, BookSuggestionService suggestionService,
+			Bulkhead reportingBulkhead, HoldService holdService) {
 		this.service = service;
 		this.loanService = loanService;
 		this.modelMapper = modelMapper;
+		this.popularityService = popularityService;
+		this.suggestionService = suggestionService;
+		this.reportingBulkhead = reportingBulkhead;
+		this.holdService = holdService;
 	}
 	
 
 	@GetMapping
 	@ApiOperation("Finds a book by paramters")
-	public Page<BookDTO> find(BookDTO dto, Pageable pageRequest) {
+	public PageResponse<BookDTO> find(BookDTO dto, Pageable pageRequest,
+			@RequestParam(defaultValue = "true") boolean count) {
 		Book filter = modelMapper.map(dto, Book.class);
 
-		Page<Book> result = service.find(filter, pageRequest);
+		Slice<Book> result = count ? service.find(filter, pageRequest) : service.findSlice(filter, pageRequest);
 
-		List<BookDTO> list = result.getContent().stream().map(entity -> modelMapper.map(entity, BookDTO.class))
-				.collect(Collectors.toList());
+		return PageResponse.of(result.map(entity -> modelMapper.map(entity, BookDTO.class)), count);
+	}
 
-		return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+	@GetMapping("top")
+	@ApiOperation("Gets the most borrowed books in a window such as 7d")
+	public List<TopBookDTO> top(@RequestParam(defaultValue = "7d") String window,
+			@RequestParam(defaultValue = "10") int limit) {
+		return popularityService.getTopBooks(window, limit);
+	}
+
+	@GetMapping("suggest")
+	@ApiOperation("Suggests titles and authors starting with a prefix")
+	public List<SuggestionDTO> suggest(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+		return suggestionService.suggest(prefix, limit);
 	}
 
 	@GetMapping("{id}")
@@ -79,9 +114,12 @@ public class BookController {
 	@ApiOperation("Updates a book by id")
 	public BookDTO updateBook(@PathVariable Long id, @RequestBody @Valid BookDTO dto) {
 		log.info("Updating book id {}", id);
-		return service.getById(id).map(book -> {
-			book.setAuthor(dto.getAuthor());
-			book.setTitle(book.getTitle());
+		// the found book may be the managed entity, which update reads the
+		// previous title and author from, so the changes go on a copy
+		return service.getById(id).map(found -> {
+			Book book = Book.builder().id(found.getId()).title(found.getTitle()).author(dto.getAuthor())
+					.isbn(found.getIsbn()).isbnKey(found.getIsbnKey())
+					.loanDays(dto.getLoanDays() != null ? dto.getLoanDays() : found.getLoanDays()).build();
 			book = service.update(book);
 			return modelMapper.map(book, BookDTO.class);
 		}).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
@@ -114,19 +152,55 @@ public class BookController {
 	
 	@GetMapping("{id}/loans")
 	@ApiOperation("Gets all loans from a book")
-	public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
+	public CompletableFuture<PageResponse<LoanDTO>> loansByBook(@PathVariable Long id, Pageable pageable,
+			@RequestParam(defaultValue = "true") boolean count){
+		return reportingBulkhead.submit(() -> {
+			Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+			Slice<Loan> result = count ? loanService.getLoansByBook(book, pageable)
+					: loanService.getLoansByBookSlice(book, pageable);
+			Slice<LoanDTO> list = result
+			.map(entity -> {
+				Book loanBook = entity.getBook();
+				BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
+				LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
+				loanDTO.setBook(bookDTO);
+				loanDTO.setISBN(bookDTO.getISBN());
+				return loanDTO;
+			});
+			return PageResponse.of(list, count);
+		});
+	}
+
+	@PostMapping("{id}/holds")
+	@ResponseStatus(HttpStatus.CREATED)
+	@ApiOperation("Places a hold on a book, the customer is mailed when it is reserved for them")
+	public HoldDTO placeHold(@PathVariable Long id, @RequestBody @Valid HoldDTO dto) {
+		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		Hold hold = holdService.place(book, dto.getCustomer(), dto.getEmail());
+		List<Hold> queue = holdService.getQueue(book);
+		return HoldDTO.of(hold, queue.indexOf(hold) + 1);
+	}
+
+	@GetMapping("{id}/holds")
+	@ApiOperation("Gets the hold queue of a book, the reserved hold first")
+	public List<HoldDTO> holds(@PathVariable Long id) {
+		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		List<Hold> queue = holdService.getQueue(book);
+		List<HoldDTO> holds = new ArrayList<>(queue.size());
+		for (int i = 0; i < queue.size(); i++) {
+			holds.add(HoldDTO.of(queue.get(i), i + 1));
+		}
+		return holds;
+	}
+
+	@DeleteMapping("{id}/holds/{holdId}")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	@ApiOperation("Cancels a hold on a book")
+	public void cancelHold(@PathVariable Long id, @PathVariable Long holdId) {
 		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-		Page<Loan> result = loanService.getLoansByBook(book, pageable);
-		List<LoanDTO> list = result.getContent()
-		.stream()
-		.map(entity -> {
-			Book loanBook = entity.getBook();
-			BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-			LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-			loanDTO.setBook(bookDTO);
-			return loanDTO;
-		}).collect(Collectors.toList());
-		return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
+		if (!holdService.cancel(book, holdId)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+		}
 	}
 
 }
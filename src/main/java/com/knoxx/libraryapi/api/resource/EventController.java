@@ -0,0 +1,38 @@
+package com.knoxx.libraryapi.api.resource;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.knoxx.libraryapi.events.AvailabilityBroadcaster;
+import com.knoxx.libraryapi.events.AvailabilityEvent;
+
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+public class EventController {
+
+	private final AvailabilityBroadcaster availabilityBroadcaster;
+
+	@GetMapping(path = "availability", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@ApiOperation(value = "Streams checkouts and returns as server-sent events, resuming after Last-Event-ID",
+			response = AvailabilityEvent.class)
+	public ResponseEntity<SseEmitter> availability(
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		return availabilityBroadcaster.subscribe(lastEventId)
+				.map(emitter -> ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(emitter))
+				.orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.header(HttpHeaders.RETRY_AFTER, "1").build());
+	}
+
+}
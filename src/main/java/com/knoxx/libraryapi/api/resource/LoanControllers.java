@@ -2,31 +2,41 @@ package com.knoxx.libraryapi.api.resource;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.knoxx.libraryapi.api.dto.BookDTO;
 import com.knoxx.libraryapi.api.dto.LoanDTO;
+import com.knoxx.libraryapi.api.dto.PageResponse;
 import com.knoxx.libraryapi.api.dto.LoanFilterDTO;
 import com.knoxx.libraryapi.api.dto.ReturnedBookDTO;
+import com.knoxx.libraryapi.api.dto.TopCustomerDTO;
 import com.knoxx.libraryapi.api.service.BookService;
+import com.knoxx.libraryapi.api.service.LoanReturnJournalService;
+import com.knoxx.libraryapi.api.service.LoanReturnJournalService.Submission;
 import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.api.service.PopularityService;
+import com.knoxx.libraryapi.bulkhead.Bulkhead;
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.events.AvailabilityBroadcaster;
+import com.knoxx.libraryapi.events.AvailabilityEvent;
 
 import lombok.RequiredArgsConstructor;
 
@@ -41,42 +51,72 @@ public class LoanControllers {
 	
 	private final ModelMapper modelMapper;
 
+	private final PopularityService popularityService;
+
+	private final LoanReturnJournalService returnJournalService;
+
+	private final Bulkhead reportingBulkhead;
+
+	private final AvailabilityBroadcaster availabilityBroadcaster;
+
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
 	public Long create(@RequestBody LoanDTO dto) {
 		Book book = bookService.getBookByISBN(dto.getISBN())
 				.orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for this ISBN"));
 
-		Loan entity = Loan.builder().ISBN(dto.getISBN()).customer(dto.getCustomer()).book(book)
+		Loan entity = Loan.builder().customer(dto.getCustomer()).customerEmail(dto.getEmail()).book(book)
 				.loanDate(LocalDate.now()).build();
 
 		entity = loanService.save(entity);
+		availabilityBroadcaster.publish(AvailabilityEvent.Type.CHECKED_OUT, entity.getId(), book.getId());
 
 		return entity.getId();
 	}
 
+	// 202 when the journal took the return but did not confirm it durable in time
 	@PatchMapping("{id}")
-	public void returnBook(@PathVariable Long id, @RequestBody ReturnedBookDTO dto) {
+	public ResponseEntity<Void> returnBook(@PathVariable Long id, @RequestBody ReturnedBookDTO dto) {
+		LoanStatus status = dto.getStatus() != null ? dto.getStatus() : LoanStatus.of(dto.getReturned());
+		if (returnJournalService.isEnabled() && status != LoanStatus.LOST) {
+			loanService.getBookId(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+			// the availability event is published when the journal applies the return
+			Submission submission = returnJournalService.submit(id, status == LoanStatus.RETURNED);
+			if (submission != Submission.FULL) {
+				return submission == Submission.DURABLE ? ResponseEntity.ok().build()
+						: ResponseEntity.accepted().build();
+			}
+		}
 		Loan loan = loanService.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-		loan.setReturned(dto.getReturned());
+		loan.setStatus(status);
 		loanService.update(loan);
+		availabilityBroadcaster.publish(AvailabilityEvent.statusType(status), id, loan.getBook().getId());
+		return ResponseEntity.ok().build();
 	}
 	
 	
 	@GetMapping
-	public Page<LoanDTO> find(LoanFilterDTO filter, Pageable pageable){
-		Page<Loan> result = loanService.find(filter, pageable);
-		List<LoanDTO> loans = result
-		.getContent()
-		.stream()
-		.map(entity ->  {
-			Book book = entity.getBook();
-			BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-			LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-			loanDTO.setBook(bookDTO);
-			return loanDTO;
-		}).collect(Collectors.toList());
-		return new PageImpl<LoanDTO>(loans, pageable, result.getTotalElements());
+	public CompletableFuture<PageResponse<LoanDTO>> find(LoanFilterDTO filter, Pageable pageable,
+			@RequestParam(defaultValue = "true") boolean count){
+		return reportingBulkhead.submit(() -> {
+			Slice<Loan> result = count ? loanService.find(filter, pageable) : loanService.findSlice(filter, pageable);
+			Slice<LoanDTO> loans = result
+			.map(entity ->  {
+				Book book = entity.getBook();
+				BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
+				LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
+				loanDTO.setBook(bookDTO);
+				loanDTO.setISBN(bookDTO.getISBN());
+				return loanDTO;
+			});
+			return PageResponse.of(loans, count);
+		});
+	}
+
+	@GetMapping("top-customers")
+	public List<TopCustomerDTO> topCustomers(@RequestParam(defaultValue = "7d") String window,
+			@RequestParam(defaultValue = "10") int limit) {
+		return popularityService.getTopCustomers(window, limit);
 	}
 	
 
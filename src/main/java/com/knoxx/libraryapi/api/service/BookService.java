@@ -4,6 +4,7 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.knoxx.libraryapi.entity.Book;
 
@@ -19,6 +20,8 @@ public interface BookService {
 
 	Page<Book> find(Book filter, Pageable pageRequest);
 
+	Slice<Book> findSlice(Book filter, Pageable pageRequest);
+
 	Optional<Book> getBookByISBN(String isbn);
 
 }
@@ -0,0 +1,20 @@
+package com.knoxx.libraryapi.api.service;
+
+import java.util.List;
+
+import com.knoxx.libraryapi.api.dto.SuggestionDTO;
+import com.knoxx.libraryapi.entity.Book;
+
+public interface BookSuggestionService {
+
+	List<SuggestionDTO> suggest(String prefix, int limit);
+
+	void index(Book book);
+
+	void remove(Book book);
+
+	void rebuild();
+
+	void rebuild(List<Object[]> titlesAndAuthors);
+
+}
@@ -0,0 +1,19 @@
+package com.knoxx.libraryapi.api.service;
+
+import java.util.Optional;
+
+import com.knoxx.libraryapi.entity.Book;
+
+public interface CatalogueSnapshotService {
+
+	boolean isServing();
+
+	Optional<Book> findById(Long id);
+
+	Optional<Book> findByIsbnKey(Long isbnKey);
+
+	void changed(Long bookId);
+
+	int write();
+
+}
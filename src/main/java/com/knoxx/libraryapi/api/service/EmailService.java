@@ -6,4 +6,8 @@ public interface EmailService {
 
 	public void sendEmails(String message, List<String> mailsList);
 
+	public void sendEmail(String message, String mail);
+
+	public void sendEmail(String subject, String message, String mail);
+
 }
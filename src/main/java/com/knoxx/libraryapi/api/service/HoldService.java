@@ -0,0 +1,21 @@
+package com.knoxx.libraryapi.api.service;
+
+import java.util.List;
+
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Hold;
+import com.knoxx.libraryapi.entity.Loan;
+
+public interface HoldService {
+
+	Hold place(Book book, String customer, String customerEmail);
+
+	List<Hold> getQueue(Book book);
+
+	boolean cancel(Book book, Long holdId);
+
+	void checkout(Loan loan);
+
+	int expireReadyHolds();
+
+}
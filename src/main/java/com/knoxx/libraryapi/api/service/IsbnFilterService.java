@@ -0,0 +1,17 @@
+package com.knoxx.libraryapi.api.service;
+
+public interface IsbnFilterService {
+
+	boolean isReady();
+
+	boolean mightExist(Long isbnKey);
+
+	void added(Long isbnKey);
+
+	void removed(Long isbnKey);
+
+	void falsePositive();
+
+	void rebuild();
+
+}
@@ -0,0 +1,11 @@
+package com.knoxx.libraryapi.api.service;
+
+public interface JobLeaseService {
+
+	/**
+	 * Takes or renews the named lease for this instance. Returns false while
+	 * another instance holds it.
+	 */
+	boolean tryAcquire(String name, long leaseMillis);
+
+}
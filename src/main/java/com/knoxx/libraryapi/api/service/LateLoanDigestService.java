@@ -0,0 +1,14 @@
+package com.knoxx.libraryapi.api.service;
+
+import java.util.List;
+
+import com.knoxx.libraryapi.api.dto.LateLoanDigestDTO;
+import com.knoxx.libraryapi.entity.Loan;
+
+public interface LateLoanDigestService {
+
+	List<LateLoanDigestDTO> groupByCustomer(List<Loan> lateLoans);
+
+	String render(LateLoanDigestDTO digest);
+
+}
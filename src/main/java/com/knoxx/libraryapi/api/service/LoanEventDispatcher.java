@@ -0,0 +1,7 @@
+package com.knoxx.libraryapi.api.service;
+
+public interface LoanEventDispatcher {
+
+	int dispatchPending();
+
+}
@@ -0,0 +1,9 @@
+package com.knoxx.libraryapi.api.service;
+
+import com.knoxx.libraryapi.entity.LoanEvent;
+
+public interface LoanEventListener {
+
+	void onLoanEvent(LoanEvent event);
+
+}
@@ -0,0 +1,20 @@
+package com.knoxx.libraryapi.api.service;
+
+public interface LoanReturnJournalService {
+
+	enum Submission {
+		// forced to disk before the ack timeout
+		DURABLE,
+		// written to the journal but not yet acknowledged, it is still applied
+		ACCEPTED,
+		// not written, the journal has no room left
+		FULL
+	}
+
+	boolean isEnabled();
+
+	Submission submit(Long loanId, Boolean returned);
+
+	int applyPending();
+
+}
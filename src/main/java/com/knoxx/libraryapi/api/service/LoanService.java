@@ -1,14 +1,18 @@
 package com.knoxx.libraryapi.api.service;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.knoxx.libraryapi.api.dto.LoanFilterDTO;
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanEvent;
 
 public interface LoanService  {
 
@@ -16,12 +20,28 @@ public interface LoanService  {
 
 	Optional<Loan> getById(Long id);
 
+	Optional<Long> getBookId(Long id);
+
 	Loan update(Loan loan);
 
+	List<LoanEvent> applyReturns(Map<Long, Boolean> returns);
+
 	Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
 
+	Slice<Loan> findSlice(LoanFilterDTO filter, Pageable pageable);
+
 	Page<Loan> getLoansByBook(Book book, Pageable pageable);
+
+	Slice<Loan> getLoansByBookSlice(Book book, Pageable pageable);
 	
 	List<Loan> getAllLateLoans();
 
+	LocalDate getDueDate(Loan loan);
+
+	List<Loan> getLateLoansSince(LocalDate lastRun);
+
+	List<Loan> getLoansDueForReminder(Integer reminderDays);
+
+	void markNotified(List<Loan> loans, LocalDate notifiedAt);
+
 }
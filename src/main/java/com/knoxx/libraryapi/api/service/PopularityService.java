@@ -0,0 +1,21 @@
+package com.knoxx.libraryapi.api.service;
+
+import java.util.List;
+
+import com.knoxx.libraryapi.api.dto.TopBookDTO;
+import com.knoxx.libraryapi.api.dto.TopCustomerDTO;
+import com.knoxx.libraryapi.entity.Loan;
+
+public interface PopularityService {
+
+	void recordLoan(Loan loan);
+
+	void flush();
+
+	void refreshRankings();
+
+	List<TopBookDTO> getTopBooks(String window, int limit);
+
+	List<TopCustomerDTO> getTopCustomers(String window, int limit);
+
+}
@@ -0,0 +1,111 @@
+package com.knoxx.libraryapi.bulkhead;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.core.task.TaskDecorator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Runs one class of requests on its own fixed pool with a bounded queue, so a
+ * burst of them waits in, or is turned away from, that queue instead of
+ * holding servlet threads and database connections the other requests need.
+ * A thread holds at most one connection at a time, so the thread count is
+ * also the connection quota of the bulkhead.
+ */
+public class Bulkhead implements MeterBinder {
+
+	private final String name;
+
+	private final ThreadPoolExecutor executor;
+
+	private final TaskDecorator decorator;
+
+	private final LongAdder rejected = new LongAdder();
+
+	private volatile Timer queueWait;
+
+	public Bulkhead(String name, int threads, int queueCapacity, TaskDecorator decorator) {
+		this.name = name;
+		this.decorator = decorator;
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, name + "-bulkhead-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("library.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount).tag("bulkhead", name)
+				.register(registry);
+		Gauge.builder("library.bulkhead.queued", executor, pool -> pool.getQueue().size()).tag("bulkhead", name)
+				.register(registry);
+		Gauge.builder("library.bulkhead.saturation", this, Bulkhead::getSaturation).tag("bulkhead", name)
+				.description("Busy threads and queued requests over the bulkhead capacity").register(registry);
+		FunctionCounter.builder("library.bulkhead.rejected", rejected, LongAdder::sum).tag("bulkhead", name)
+				.register(registry);
+		FunctionCounter.builder("library.bulkhead.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+				.tag("bulkhead", name).register(registry);
+		queueWait = Timer.builder("library.bulkhead.queue_wait").tag("bulkhead", name).register(registry);
+	}
+
+	/**
+	 * Queues the task, or throws {@link BulkheadFullException} when every
+	 * thread is busy and the queue is full.
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		long queuedAt = System.nanoTime();
+		Runnable run = decorator.decorate(() -> {
+			Timer timer = queueWait;
+			if (timer != null) {
+				timer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+			}
+			try {
+				result.complete(task.get());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		try {
+			executor.execute(run);
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new BulkheadFullException(name);
+		}
+		return result;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getThreads() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public double getSaturation() {
+		int capacity = executor.getMaximumPoolSize() + executor.getQueue().size()
+				+ executor.getQueue().remainingCapacity();
+		return (double) (executor.getActiveCount() + executor.getQueue().size()) / capacity;
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.knoxx.libraryapi.bulkhead;
+
+public class BulkheadFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public BulkheadFullException(String bulkhead) {
+		super("Server busy with " + bulkhead + " requests, try again later");
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.knoxx.libraryapi.config;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knoxx.libraryapi.api.filter.AdmissionControlFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnProperty(name = "application.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+	@Bean
+	public AdmissionControlFilter admissionControlFilter(
+			@Value("${application.admission.rate-per-second:50}") long permitsPerSecond,
+			@Value("${application.admission.burst:100}") int burst,
+			@Value("${application.admission.max-clients:10000}") int maxClients,
+			@Value("${application.admission.api-keys:}") Set<String> apiKeys,
+			@Value("${application.admission.read-concurrency:64}") int readConcurrency,
+			@Value("${application.admission.checkout-concurrency:32}") int checkoutConcurrency,
+			ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+		return new AdmissionControlFilter(permitsPerSecond, burst, maxClients, apiKeys, readConcurrency,
+				checkoutConcurrency, objectMapper, meterRegistry);
+	}
+
+	@Bean
+	public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilterRegistration(
+			AdmissionControlFilter admissionControlFilter) {
+		FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+				admissionControlFilter);
+		registration.addUrlPatterns("/api/*");
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+		return registration;
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.knoxx.libraryapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.knoxx.libraryapi.events.AvailabilityBroadcaster;
+
+@Configuration
+public class AvailabilityEventsConfig {
+
+	@Bean(destroyMethod = "shutdown")
+	public AvailabilityBroadcaster availabilityBroadcaster(
+			@Value("${application.events.availability.history-size:4096}") int historySize,
+			@Value("${application.events.availability.buffer-size:256}") int bufferSize,
+			@Value("${application.events.availability.max-subscribers:10000}") int maxSubscribers,
+			@Value("${application.events.availability.sender-threads:2}") int senderThreads,
+			@Value("${application.events.availability.timeout-ms:1800000}") long timeoutMillis,
+			@Value("${application.events.availability.heartbeat-ms:15000}") long heartbeatMillis,
+			@Value("${application.events.availability.send-timeout-ms:10000}") long sendTimeoutMillis) {
+		return new AvailabilityBroadcaster(historySize, bufferSize, maxSubscribers, senderThreads, timeoutMillis,
+				heartbeatMillis, sendTimeoutMillis);
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.knoxx.libraryapi.config;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import com.knoxx.libraryapi.bulkhead.Bulkhead;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk reads run on the reporting bulkhead; checkouts and every other request
+ * keep the servlet threads. The reporting threads are the most connections
+ * reports can hold, so they are kept below the pool size.
+ */
+@Configuration
+@Slf4j
+public class BulkheadConfig {
+
+	@Bean(destroyMethod = "shutdown")
+	public Bulkhead reportingBulkhead(@Value("${application.bulkhead.reporting.threads:2}") int threads,
+			@Value("${application.bulkhead.reporting.queue-capacity:16}") int queueCapacity,
+			@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+			ObjectProvider<TaskDecorator> decorators) {
+		if (threads >= poolSize) {
+			log.warn("Reporting bulkhead has {} threads for a pool of {} connections, reports can starve checkouts",
+					threads, poolSize);
+		}
+		List<TaskDecorator> chain = decorators.orderedStream().collect(Collectors.toList());
+		return new Bulkhead("reporting", threads, queueCapacity, runnable -> {
+			Runnable decorated = runnable;
+			for (TaskDecorator decorator : chain) {
+				decorated = decorator.decorate(decorated);
+			}
+			return decorated;
+		});
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.knoxx.libraryapi.config;
+
+import java.time.LocalDate;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.knoxx.libraryapi.dataset.DatasetGenerator;
+import com.knoxx.libraryapi.dataset.DatasetSpec;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Configuration
+@ConditionalOnProperty(name = "application.dataset.seed.enabled", havingValue = "true")
+@Slf4j
+public class DatasetSeedConfig {
+
+	@Bean
+	@ConfigurationProperties("application.dataset.seed")
+	public DatasetSpec datasetSpec() {
+		return new DatasetSpec();
+	}
+
+	@Bean
+	public ApplicationRunner datasetSeeder(DataSource dataSource, PlatformTransactionManager transactionManager,
+			DatasetSpec datasetSpec, @Value("${application.loans.default-days:4}") int defaultLoanDays) {
+		return args -> {
+			Long books = new JdbcTemplate(dataSource).queryForObject("select count(*) from book", Long.class);
+			if (books > 0) {
+				log.info("Skipping dataset generation, the database already has {} books", books);
+				return;
+			}
+			new DatasetGenerator(dataSource, transactionManager, LocalDate.now(), defaultLoanDays)
+					.generate(datasetSpec);
+		};
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.knoxx.libraryapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.knoxx.libraryapi.job.JobRunner;
+
+/**
+ * Scheduled jobs run on the scheduler pool sized by
+ * {@code spring.task.scheduling.pool.size}; the partitions they split their
+ * work into run on the job worker pool, one worker per core by default.
+ */
+@Configuration
+public class JobConfig {
+
+	@Bean(destroyMethod = "shutdown")
+	public JobRunner jobRunner(@Value("${application.jobs.parallelism:0}") int parallelism,
+			@Value("${application.jobs.partition-size:500}") int partitionSize) {
+		return new JobRunner(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+				partitionSize);
+	}
+
+}
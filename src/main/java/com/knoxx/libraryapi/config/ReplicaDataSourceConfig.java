@@ -0,0 +1,95 @@
+package com.knoxx.libraryapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.knoxx.libraryapi.api.filter.ReadYourWritesFilter;
+import com.knoxx.libraryapi.datasource.ReadYourWritesTracker;
+import com.knoxx.libraryapi.datasource.ReplicaLagMonitor;
+import com.knoxx.libraryapi.datasource.ReplicaPools;
+import com.knoxx.libraryapi.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+@ConditionalOnProperty("application.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+	@Bean
+	public ReplicaPools replicaPools(DataSourceProperties properties, Environment environment,
+			@Value("${application.datasource.replica.url}") String replicaUrl,
+			@Value("${application.datasource.replica.username:sa}") String replicaUsername,
+			@Value("${application.datasource.replica.password:}") String replicaPassword) {
+		HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class).url(replicaUrl)
+				.username(replicaUsername).password(replicaPassword).build();
+		Binder binder = Binder.get(environment);
+		binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+		binder.bind("application.datasource.replica.hikari", Bindable.ofInstance(replica));
+		primary.setPoolName("primary");
+		replica.setPoolName("replica");
+		return new ReplicaPools(primary, replica);
+	}
+
+	@Bean
+	public ReadYourWritesTracker readYourWritesTracker() {
+		return new ReadYourWritesTracker(System::currentTimeMillis);
+	}
+
+	@Bean
+	public TaskDecorator readYourWritesTaskDecorator(ReadYourWritesTracker readYourWritesTracker) {
+		return readYourWritesTracker::propagate;
+	}
+
+	@Bean(initMethod = "initialize")
+	public ReplicaLagMonitor replicaLagMonitor(ReplicaPools replicaPools, ReadYourWritesTracker readYourWritesTracker,
+			@Value("${application.datasource.replica.max-lag-ms:1000}") long maxLagMillis) {
+		return new ReplicaLagMonitor(replicaPools.getPrimary(), replicaPools.getReplica(), readYourWritesTracker,
+				maxLagMillis, System::currentTimeMillis);
+	}
+
+	@Bean
+	public LazyConnectionDataSourceProxy dataSource(ReplicaPools replicaPools, ReplicaLagMonitor replicaLagMonitor,
+			ReadYourWritesTracker readYourWritesTracker) {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaPools.getPrimary(),
+				replicaPools.getReplica(), replicaLagMonitor, readYourWritesTracker);
+		routing.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(routing);
+	}
+
+	@Bean
+	public MeterBinder replicaMetrics(LazyConnectionDataSourceProxy dataSource, ReplicaLagMonitor replicaLagMonitor,
+			ReadYourWritesTracker readYourWritesTracker) {
+		return registry -> {
+			((ReplicaRoutingDataSource) dataSource.getTargetDataSource()).bindTo(registry);
+			Gauge.builder("library.datasource.replica.lag", replicaLagMonitor, ReplicaLagMonitor::getLagMillis)
+					.baseUnit("milliseconds").register(registry);
+			Gauge.builder("library.datasource.read_your_writes.clients", readYourWritesTracker,
+					ReadYourWritesTracker::getPinnedClients).register(registry);
+		};
+	}
+
+	@Bean
+	public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilterRegistration(
+			ReadYourWritesTracker readYourWritesTracker) {
+		FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+				new ReadYourWritesFilter(readYourWritesTracker));
+		registration.addUrlPatterns("/api/*");
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+		return registration;
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.knoxx.libraryapi.config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+
+@Configuration
+@Slf4j
+public class StartupConfig {
+
+	// gauges hold their state object weakly, the configuration keeps it alive
+	private final AtomicLong readyMillis = new AtomicLong();
+
+	// scheduled jobs and @PostConstruct warmers must not wait for the first request
+	@Bean
+	public static LazyInitializationExcludeFilter eagerBeansLazyInitializationExcludeFilter() {
+		return (beanName, beanDefinition, beanType) -> beanType != null && !MethodIntrospector.selectMethods(beanType,
+				(MethodIntrospector.MetadataLookup<Boolean>) method -> eager(method) ? Boolean.TRUE : null).isEmpty();
+	}
+
+	private static boolean eager(Method method) {
+		return AnnotatedElementUtils.hasAnnotation(method, PostConstruct.class) || !AnnotatedElementUtils
+				.getMergedRepeatableAnnotations(method, Scheduled.class, Schedules.class).isEmpty();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady(ApplicationReadyEvent event) {
+		long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+		log.info("Library API ready to serve requests {} ms after JVM start", uptime);
+
+		MeterRegistry registry = event.getApplicationContext().getBeanProvider(MeterRegistry.class).getIfAvailable();
+		if (registry != null) {
+			readyMillis.set(uptime);
+			TimeGauge.builder("library.startup.ready.time", readyMillis, TimeUnit.MILLISECONDS, AtomicLong::doubleValue)
+					.register(registry);
+		}
+
+		if (event.getApplicationContext().getEnvironment().getProperty("application.startup.exit-on-ready",
+				Boolean.class, false)) {
+			log.info("Exiting after startup as requested by application.startup.exit-on-ready");
+			System.exit(SpringApplication.exit(event.getApplicationContext()));
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.knoxx.libraryapi.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Answers the discovery calls of the bundled swagger-ui while runtime Springfox
+ * scanning is off, so {@code /swagger-ui.html} shows the pre-generated
+ * specification instead of failing to load.
+ */
+@RestController
+@ConditionalOnProperty(name = "application.swagger.enabled", havingValue = "false")
+public class StaticSwaggerResourcesController {
+
+	static final String SPECIFICATION = "/api-docs/library-api.json";
+
+	@GetMapping("/swagger-resources")
+	public List<Map<String, String>> resources() {
+		Map<String, String> resource = new LinkedHashMap<>();
+		resource.put("name", "default");
+		resource.put("location", SPECIFICATION);
+		resource.put("swaggerVersion", "2.0");
+		return Collections.singletonList(resource);
+	}
+
+	@GetMapping("/swagger-resources/configuration/ui")
+	public Map<String, Object> ui() {
+		Map<String, Object> configuration = new LinkedHashMap<>();
+		// the UI parses jsonEditor and would call the public validator without a null url
+		configuration.put("jsonEditor", false);
+		configuration.put("validatorUrl", null);
+		return configuration;
+	}
+
+	@GetMapping("/swagger-resources/configuration/security")
+	public Map<String, Object> security() {
+		return Collections.emptyMap();
+	}
+
+}
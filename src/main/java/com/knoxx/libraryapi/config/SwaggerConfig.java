@@ -1,5 +1,8 @@
 package com.knoxx.libraryapi.config;
 
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -14,6 +17,7 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @EnableSwagger2
 @Configuration
+@ConditionalOnProperty(name = "application.swagger.enabled", havingValue = "true", matchIfMissing = true)
 public class SwaggerConfig {
 
 	@Bean
@@ -23,6 +27,7 @@ public class SwaggerConfig {
 				.apis(RequestHandlerSelectors.basePackage("com.knoxx.libraryapi.api.resource"))
 				.paths(PathSelectors.any())
 				.build()
+				.genericModelSubstitutes(CompletableFuture.class)
 				.apiInfo(apiInfo());
 	}
 
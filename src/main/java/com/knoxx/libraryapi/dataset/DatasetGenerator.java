@@ -0,0 +1,175 @@
+package com.knoxx.libraryapi.dataset;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.util.Isbn;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk-loads a deterministic synthetic catalogue with batched JDBC inserts.
+ * 
+ * Books are borrowed with Zipfian popularity and customers return with a
+ * Zipfian frequency. Loan dates advance through the history window, only the
+ * latest loan of a book can still be open, and a share of the open loans is
+ * overdue. Due dates use the loan period the application defaults to, and
+ * books are left without a period of their own. The same spec and seed always
+ * produce the same rows.
+ */
+@Slf4j
+public class DatasetGenerator {
+
+	private static final String INSERT_BOOK = "insert into book (title, author, isbn, isbn_key) values (?, ?, ?, ?)";
+
+	private static final int[] BOOK_TYPES = { Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT };
+
+	private static final String INSERT_LOAN = "insert into loan (id_book, customer, customer_email, loan_date, due_date, "
+			+ "status, returned_date, last_notification) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final int[] LOAN_TYPES = { Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.DATE, Types.DATE,
+			Types.VARCHAR, Types.DATE, Types.DATE };
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final LocalDate today;
+
+	private final int loanDays;
+
+	public DatasetGenerator(DataSource dataSource, PlatformTransactionManager transactionManager, LocalDate today,
+			int loanDays) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.today = today;
+		this.loanDays = loanDays;
+	}
+
+	public DatasetSummary generate(DatasetSpec spec) {
+		long start = System.currentTimeMillis();
+		long firstNumber = jdbcTemplate.queryForObject("select count(*) from book", Long.class);
+		long[] bookIds = insertBooks(spec, firstNumber);
+		long[] counts = insertLoans(spec, bookIds);
+		long elapsed = System.currentTimeMillis() - start;
+		log.info("Generated {} books and {} loans ({} open, {} overdue) in {} ms", bookIds.length, spec.getLoans(),
+				counts[0], counts[1], elapsed);
+		return new DatasetSummary(bookIds.length, spec.getLoans(), counts[0], counts[1], elapsed);
+	}
+
+	public static String isbn13(long number) {
+		return Isbn.format(isbnKey(number));
+	}
+
+	static long isbnKey(long number) {
+		return Isbn.withCheckDigit(978_000_000_000L + number % 1_000_000_000L);
+	}
+
+	private long[] insertBooks(DatasetSpec spec, long firstNumber) {
+		long lastId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from book", Long.class);
+		List<Object[]> batch = new ArrayList<>(spec.getBatchSize());
+		for (int n = 0; n < spec.getBooks(); n++) {
+			long number = firstNumber + n;
+			long isbnKey = isbnKey(number);
+			batch.add(new Object[] { "Title " + number, "Author " + number % Math.max(1, spec.getBooks() / 10),
+					Isbn.format(isbnKey), isbnKey });
+			if (batch.size() == spec.getBatchSize() || n == spec.getBooks() - 1) {
+				flush(INSERT_BOOK, batch, BOOK_TYPES);
+			}
+		}
+		return jdbcTemplate.queryForList("select id from book where id > ? order by id", Long.class, lastId).stream()
+				.mapToLong(Long::longValue).toArray();
+	}
+
+	private long[] insertLoans(DatasetSpec spec, long[] bookIds) {
+		int books = bookIds.length;
+		int[] bookByRank = shuffledIndexes(books, new Random(spec.getSeed()));
+		ZipfSampler bookPopularity = new ZipfSampler(books, spec.getBookSkew());
+		ZipfSampler customerFrequency = new ZipfSampler(spec.getCustomers(), spec.getCustomerSkew());
+
+		long[] lastLoan = new long[books];
+		Random bookDraws = new Random(spec.getSeed() + 1);
+		for (long i = 0; i < spec.getLoans(); i++) {
+			lastLoan[bookByRank[bookPopularity.sample(bookDraws)]] = i;
+		}
+
+		bookDraws = new Random(spec.getSeed() + 1);
+		Random attributes = new Random(spec.getSeed() + 2);
+		long open = 0;
+		long overdue = 0;
+		List<Object[]> batch = new ArrayList<>(spec.getBatchSize());
+		List<List<Object[]>> transaction = new ArrayList<>();
+		long inTransaction = 0;
+		for (long i = 0; i < spec.getLoans(); i++) {
+			int book = bookByRank[bookPopularity.sample(bookDraws)];
+			int customer = customerFrequency.sample(attributes);
+			LocalDate loanDate = today.minusDays(spec.getHistoryDays())
+					.plusDays(i * spec.getHistoryDays() / spec.getLoans());
+			boolean returned = true;
+			LocalDate lastNotification = null;
+			if (lastLoan[book] == i && attributes.nextDouble() < spec.getOpenRatio()) {
+				returned = false;
+				open++;
+				if (attributes.nextDouble() < spec.getOverdueRatio()) {
+					overdue++;
+					loanDate = today.minusDays(loanDays + attributes.nextInt(30));
+					if (attributes.nextBoolean()) {
+						lastNotification = today.minusDays(attributes.nextInt(14));
+					}
+				} else {
+					loanDate = today.minusDays(attributes.nextInt(loanDays));
+				}
+			}
+			LocalDate dueDate = loanDate.plusDays(loanDays);
+			batch.add(new Object[] { bookIds[book], "customer" + customer,
+					"customer" + customer + "@example.com", Date.valueOf(loanDate),
+					Date.valueOf(dueDate), returned ? "RETURNED" : "OPEN",
+					returned ? Date.valueOf(dueDate.isAfter(today) ? today : dueDate) : null,
+					lastNotification != null ? Date.valueOf(lastNotification) : null });
+
+			if (batch.size() == spec.getBatchSize() || i == spec.getLoans() - 1) {
+				transaction.add(batch);
+				inTransaction += batch.size();
+				batch = new ArrayList<>(spec.getBatchSize());
+				if (inTransaction >= spec.getRowsPerTransaction() || i == spec.getLoans() - 1) {
+					List<List<Object[]>> batches = transaction;
+					transactionTemplate.executeWithoutResult(
+							status -> batches.forEach(rows -> jdbcTemplate.batchUpdate(INSERT_LOAN, rows, LOAN_TYPES)));
+					transaction = new ArrayList<>();
+					inTransaction = 0;
+				}
+			}
+		}
+		return new long[] { open, overdue };
+	}
+
+	private void flush(String sql, List<Object[]> batch, int[] types) {
+		transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batch, types));
+		batch.clear();
+	}
+
+	private static int[] shuffledIndexes(int n, Random random) {
+		int[] indexes = new int[n];
+		for (int i = 0; i < n; i++) {
+			indexes[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = indexes[i];
+			indexes[i] = indexes[j];
+			indexes[j] = swap;
+		}
+		return indexes;
+	}
+
+}
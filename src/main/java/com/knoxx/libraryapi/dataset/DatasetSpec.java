@@ -0,0 +1,47 @@
+package com.knoxx.libraryapi.dataset;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatasetSpec {
+
+	@Builder.Default
+	private long seed = 42;
+
+	@Builder.Default
+	private int books = 100_000;
+
+	@Builder.Default
+	private long loans = 1_000_000;
+
+	@Builder.Default
+	private int customers = 50_000;
+
+	@Builder.Default
+	private double bookSkew = 1.0;
+
+	@Builder.Default
+	private double customerSkew = 0.8;
+
+	@Builder.Default
+	private int historyDays = 730;
+
+	@Builder.Default
+	private double openRatio = 0.3;
+
+	@Builder.Default
+	private double overdueRatio = 0.25;
+
+	@Builder.Default
+	private int batchSize = 5_000;
+
+	@Builder.Default
+	private int rowsPerTransaction = 20_000;
+
+}
@@ -0,0 +1,20 @@
+package com.knoxx.libraryapi.dataset;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DatasetSummary {
+
+	private long books;
+
+	private long loans;
+
+	private long openLoans;
+
+	private long overdueLoans;
+
+	private long elapsedMillis;
+
+}
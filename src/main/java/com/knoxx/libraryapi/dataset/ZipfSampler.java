@@ -0,0 +1,35 @@
+package com.knoxx.libraryapi.dataset;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^skew
+ * by binary search over the cumulative distribution.
+ */
+public class ZipfSampler {
+
+	private final double[] cumulative;
+
+	public ZipfSampler(int n, double skew) {
+		if (n <= 0) {
+			throw new IllegalArgumentException("Zipf sampler needs at least one item");
+		}
+		cumulative = new double[n];
+		double sum = 0;
+		for (int rank = 0; rank < n; rank++) {
+			sum += 1 / Math.pow(rank + 1, skew);
+			cumulative[rank] = sum;
+		}
+		for (int rank = 0; rank < n; rank++) {
+			cumulative[rank] /= sum;
+		}
+	}
+
+	public int sample(Random random) {
+		int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		int rank = index >= 0 ? index : -index - 1;
+		return Math.min(rank, cumulative.length - 1);
+	}
+
+}
@@ -0,0 +1,5 @@
+package com.knoxx.libraryapi.datasource;
+
+public enum DataSourceRole {
+	PRIMARY, REPLICA
+}
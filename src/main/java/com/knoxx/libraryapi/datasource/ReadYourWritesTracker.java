@@ -0,0 +1,77 @@
+package com.knoxx.libraryapi.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers when each client last committed a write so its reads stay on the
+ * primary until the replica has caught up with that write.
+ */
+public class ReadYourWritesTracker {
+
+	private final ThreadLocal<String> currentClient = new ThreadLocal<>();
+
+	private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+	private final LongSupplier clock;
+
+	public ReadYourWritesTracker(LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	public void bind(String client) {
+		currentClient.set(client);
+	}
+
+	public void unbind() {
+		currentClient.remove();
+	}
+
+	/**
+	 * Carries the current client over to a task run on another thread.
+	 */
+	public Runnable propagate(Runnable task) {
+		String client = currentClient.get();
+		return () -> {
+			bind(client);
+			try {
+				task.run();
+			} finally {
+				unbind();
+			}
+		};
+	}
+
+	public void recordWrite() {
+		String client = currentClient.get();
+		if (client != null) {
+			lastWrites.put(client, clock.getAsLong());
+		}
+	}
+
+	public boolean mustReadPrimary(ReplicaLagMonitor lagMonitor) {
+		String client = currentClient.get();
+		if (client == null) {
+			return false;
+		}
+		Long writtenAt = lastWrites.get(client);
+		if (writtenAt == null) {
+			return false;
+		}
+		if (lagMonitor.hasReplicated(writtenAt)) {
+			lastWrites.remove(client, writtenAt);
+			return false;
+		}
+		return true;
+	}
+
+	public void evictReplicated(ReplicaLagMonitor lagMonitor) {
+		lastWrites.values().removeIf(lagMonitor::hasReplicated);
+	}
+
+	public int getPinnedClients() {
+		return lastWrites.size();
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.knoxx.libraryapi.datasource;
+
+import java.util.function.LongSupplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Measures replica lag with a heartbeat row: the primary stamps it with its
+ * clock, the replica is read back, and the lag is how far the replicated
+ * stamp trails the latest one written.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+	private final JdbcTemplate primary;
+
+	private final JdbcTemplate replica;
+
+	private final ReadYourWritesTracker readYourWrites;
+
+	private final long maxLagMillis;
+
+	private final LongSupplier clock;
+
+	private volatile long lastBeat = -1;
+
+	private volatile long replicatedBeat = -1;
+
+	public ReplicaLagMonitor(DataSource primary, DataSource replica, ReadYourWritesTracker readYourWrites,
+			long maxLagMillis, LongSupplier clock) {
+		this.primary = new JdbcTemplate(primary);
+		this.replica = new JdbcTemplate(replica);
+		this.readYourWrites = readYourWrites;
+		this.maxLagMillis = maxLagMillis;
+		this.clock = clock;
+	}
+
+	public void initialize() {
+		primary.execute("create table if not exists replica_heartbeat (id int primary key, beat bigint not null)");
+		heartbeat();
+	}
+
+	@Scheduled(fixedDelayString = "${application.datasource.replica.heartbeat-interval-ms:200}")
+	public void heartbeat() {
+		try {
+			long beat = clock.getAsLong();
+			if (primary.update("update replica_heartbeat set beat = ? where id = 1", beat) == 0) {
+				primary.update("insert into replica_heartbeat (id, beat) values (1, ?)", beat);
+			}
+			lastBeat = beat;
+		} catch (DataAccessException e) {
+			log.warn("Could not write the replica heartbeat: {}", e.getMessage());
+		}
+		try {
+			Long beat = replica.queryForObject("select beat from replica_heartbeat where id = 1", Long.class);
+			replicatedBeat = beat != null ? beat : -1;
+		} catch (DataAccessException e) {
+			replicatedBeat = -1;
+		}
+		readYourWrites.evictReplicated(this);
+	}
+
+	public long getLagMillis() {
+		if (replicatedBeat < 0 || lastBeat < 0) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0, lastBeat - replicatedBeat);
+	}
+
+	public boolean isReplicaUsable() {
+		return getLagMillis() <= maxLagMillis;
+	}
+
+	public boolean hasReplicated(long writtenAt) {
+		return replicatedBeat > writtenAt;
+	}
+
+}
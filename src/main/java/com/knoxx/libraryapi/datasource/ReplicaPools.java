@@ -0,0 +1,37 @@
+package com.knoxx.libraryapi.datasource;
+
+import java.io.Closeable;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Owns the primary and replica connection pools. They are deliberately not
+ * exposed as {@code DataSource} beans so the routing data source stays the
+ * only one the rest of the application sees.
+ */
+public class ReplicaPools implements Closeable {
+
+	private final HikariDataSource primary;
+
+	private final HikariDataSource replica;
+
+	public ReplicaPools(HikariDataSource primary, HikariDataSource replica) {
+		this.primary = primary;
+		this.replica = replica;
+	}
+
+	public HikariDataSource getPrimary() {
+		return primary;
+	}
+
+	public HikariDataSource getReplica() {
+		return replica;
+	}
+
+	@Override
+	public void close() {
+		replica.close();
+		primary.close();
+	}
+
+}
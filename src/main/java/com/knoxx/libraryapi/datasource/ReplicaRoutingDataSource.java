@@ -0,0 +1,75 @@
+package com.knoxx.libraryapi.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Sends connections of read-only transactions to the replica while it is
+ * within the lag tolerance and the current client has no unreplicated write;
+ * everything else goes to the primary. Must be wrapped in a
+ * {@code LazyConnectionDataSourceProxy} so the read-only flag is known when
+ * the connection is fetched.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+	private final ReplicaLagMonitor lagMonitor;
+
+	private final ReadYourWritesTracker readYourWrites;
+
+	private final LongAdder primaryConnections = new LongAdder();
+
+	private final LongAdder replicaConnections = new LongAdder();
+
+	public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+			ReadYourWritesTracker readYourWrites) {
+		this.lagMonitor = lagMonitor;
+		this.readYourWrites = readYourWrites;
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(DataSourceRole.PRIMARY, primary);
+		targets.put(DataSourceRole.REPLICA, replica);
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		connections(registry, DataSourceRole.PRIMARY, primaryConnections);
+		connections(registry, DataSourceRole.REPLICA, replicaConnections);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if (lagMonitor.isReplicaUsable() && !readYourWrites.mustReadPrimary(lagMonitor)) {
+				replicaConnections.increment();
+				return DataSourceRole.REPLICA;
+			}
+		} else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					readYourWrites.recordWrite();
+				}
+			});
+		}
+		primaryConnections.increment();
+		return DataSourceRole.PRIMARY;
+	}
+
+	private static void connections(MeterRegistry registry, DataSourceRole role, LongAdder count) {
+		FunctionCounter.builder("library.datasource.connections", count, LongAdder::sum)
+				.tag("target", role.name().toLowerCase()).register(registry);
+	}
+
+}
@@ -7,6 +7,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 
@@ -20,7 +21,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_book_isbn_key", columnList = "isbn_key", unique = true))
 public class Book {
 	
 	@Id
@@ -33,8 +34,14 @@ public class Book {
 	@Column
 	private String author;
 	
-	@Column
+	@Column(length = 13)
 	private String isbn;
+
+	@Column(name = "isbn_key")
+	private Long isbnKey;
+
+	@Column(name = "loan_days")
+	private Integer loanDays;
 	
 	@OneToMany(mappedBy = "book")
 	private List<Loan> loans;
@@ -0,0 +1,56 @@
+package com.knoxx.libraryapi.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "book_hold", indexes = { @Index(name = "idx_book_hold_status", columnList = "status, id"),
+		@Index(name = "idx_book_hold_book_status", columnList = "id_book, status") })
+public class Hold {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@JoinColumn(name = "id_book")
+	@ManyToOne
+	private Book book;
+
+	@Column
+	private String customer;
+
+	@Column(name = "customer_email")
+	private String customerEmail;
+
+	@Column(nullable = false, length = 9)
+	@Enumerated(EnumType.STRING)
+	private HoldStatus status;
+
+	@Column(name = "created_at")
+	private LocalDateTime createdAt;
+
+	@Column(name = "ready_until")
+	private LocalDate readyUntil;
+
+}
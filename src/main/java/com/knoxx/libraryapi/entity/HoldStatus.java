@@ -0,0 +1,16 @@
+package com.knoxx.libraryapi.entity;
+
+/**
+ * Where a hold stands. Waiting holds queue for a book in the order they were
+ * placed; a ready hold reserves the returned book for its customer until it
+ * is checked out, cancelled or expires.
+ */
+public enum HoldStatus {
+
+	WAITING, READY, FULFILLED, CANCELLED, EXPIRED;
+
+	public boolean isActive() {
+		return this == WAITING || this == READY;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.knoxx.libraryapi.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_lease")
+public class JobLease {
+
+	@Id
+	@Column(length = 100)
+	private String name;
+
+	@Column(length = 36)
+	private String owner;
+
+	@Column(name = "lease_until")
+	private LocalDateTime leaseUntil;
+
+}
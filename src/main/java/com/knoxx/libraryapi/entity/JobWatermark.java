@@ -0,0 +1,30 @@
+package com.knoxx.libraryapi.entity;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_watermark")
+public class JobWatermark {
+
+	@Id
+	@Column(length = 100)
+	private String name;
+
+	@Column(name = "last_run")
+	private LocalDate lastRun;
+
+}
@@ -4,31 +4,44 @@ import java.time.LocalDate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = { @Index(name = "idx_loan_book_status", columnList = "id_book, status"),
+		@Index(name = "idx_loan_status_returned_date", columnList = "status, returned_date"),
+		@Index(name = "idx_loan_status_due_date", columnList = "status, due_date"),
+		@Index(name = "idx_loan_last_notification", columnList = "last_notification") })
 public class Loan {
 
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 
-	@Column(length = 100)
-	private String ISBN;
-
 	@Column
 	private String customer;
 	
@@ -42,7 +55,31 @@ public class Loan {
 	@Column(name = "loan_date")
 	private LocalDate loanDate;
 
-	@Column
-	private Boolean returned;
+	@Column(name = "due_date")
+	private LocalDate dueDate;
+
+	@Column(nullable = false, length = 8)
+	@Enumerated(EnumType.STRING)
+	private LoanStatus status;
+
+	@Column(name = "returned_date")
+	private LocalDate returnedDate;
+
+	@Column(name = "last_notification")
+	private LocalDate lastNotification;
+
+	// the status as last read or written, so an update can tell a change from a repeat
+	@Transient
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private LoanStatus storedStatus;
+
+	@PostLoad
+	@PostPersist
+	@PostUpdate
+	void stored() {
+		storedStatus = status;
+	}
 
 }
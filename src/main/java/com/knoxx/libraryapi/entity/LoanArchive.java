@@ -0,0 +1,73 @@
+package com.knoxx.libraryapi.entity;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_archive", indexes = @Index(name = "idx_loan_archive_book", columnList = "id_book"))
+public class LoanArchive {
+
+	@Id
+	private Long id;
+
+	@Column
+	private String customer;
+
+	@Column(name = "customer_email")
+	private String customerEmail;
+
+	@JoinColumn(name = "id_book")
+	@ManyToOne
+	private Book book;
+
+	@Column(name = "loan_date")
+	private LocalDate loanDate;
+
+	@Column(name = "due_date")
+	private LocalDate dueDate;
+
+	@Column(nullable = false, length = 8)
+	@Enumerated(EnumType.STRING)
+	private LoanStatus status;
+
+	@Column(name = "returned_date")
+	private LocalDate returnedDate;
+
+	@Column(name = "last_notification")
+	private LocalDate lastNotification;
+
+	@Column(name = "archived_at")
+	private LocalDate archivedAt;
+
+	public static LoanArchive of(Loan loan, LocalDate archivedAt) {
+		return LoanArchive.builder().id(loan.getId()).customer(loan.getCustomer())
+				.customerEmail(loan.getCustomerEmail()).book(loan.getBook()).loanDate(loan.getLoanDate())
+				.dueDate(loan.getDueDate()).status(loan.getStatus()).returnedDate(loan.getReturnedDate())
+				.lastNotification(loan.getLastNotification()).archivedAt(archivedAt).build();
+	}
+
+	public Loan toLoan() {
+		return Loan.builder().id(id).customer(customer).customerEmail(customerEmail).book(book)
+				.loanDate(loanDate).dueDate(dueDate).status(status).returnedDate(returnedDate)
+				.lastNotification(lastNotification).build();
+	}
+
+}
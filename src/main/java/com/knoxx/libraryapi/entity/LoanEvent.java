@@ -0,0 +1,70 @@
+package com.knoxx.libraryapi.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_event")
+public class LoanEvent {
+
+	public enum Type {
+		CREATED, RETURNED, REOPENED, LOST
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(length = 20)
+	@Enumerated(EnumType.STRING)
+	private Type type;
+
+	@Column(name = "loan_id")
+	private Long loanId;
+
+	@Column(name = "book_id")
+	private Long bookId;
+
+	@Column(name = "created_at")
+	private LocalDateTime createdAt;
+
+	// failed deliveries, retried from next_attempt_at
+	@Column(nullable = false)
+	private int attempts;
+
+	@Column(name = "next_attempt_at")
+	private LocalDateTime nextAttemptAt;
+
+	public static LoanEvent of(Type type, Long loanId, Long bookId) {
+		return LoanEvent.builder().type(type).loanId(loanId).bookId(bookId).createdAt(LocalDateTime.now()).build();
+	}
+
+	public static Type statusType(LoanStatus status) {
+		switch (status) {
+		case RETURNED:
+			return Type.RETURNED;
+		case LOST:
+			return Type.LOST;
+		default:
+			return Type.REOPENED;
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.knoxx.libraryapi.entity;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_statistic", indexes = @Index(name = "idx_loan_statistic_kind_day", columnList = "kind, day, subject", unique = true))
+public class LoanStatistic {
+
+	public enum Kind {
+		BOOK, CUSTOMER
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column
+	private LocalDate day;
+
+	@Column(length = 20)
+	@Enumerated(EnumType.STRING)
+	private Kind kind;
+
+	@Column
+	private String subject;
+
+	@Column
+	private Long total;
+
+}
@@ -0,0 +1,19 @@
+package com.knoxx.libraryapi.entity;
+
+/**
+ * Where a loan stands. Only an open loan keeps its book from being loaned
+ * again and can become overdue; a lost loan is closed like a returned one.
+ */
+public enum LoanStatus {
+
+	OPEN, RETURNED, LOST;
+
+	public static LoanStatus of(Boolean returned) {
+		return Boolean.TRUE.equals(returned) ? RETURNED : OPEN;
+	}
+
+	public boolean isClosed() {
+		return this != OPEN;
+	}
+
+}
@@ -0,0 +1,411 @@
+package com.knoxx.libraryapi.events;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fans availability events out to server-sent event subscribers.
+ *
+ * Publishing never touches a socket: each event is stored in a ring of recent
+ * events and offered to a bounded buffer per subscriber, and a small sender
+ * pool drains the buffers. An idle subscriber costs an async request and an
+ * empty buffer, not a thread. A subscriber whose buffer fills up is too slow
+ * and is disconnected; it reconnects with {@code Last-Event-ID} and the
+ * events it missed are replayed from the ring, or it is told to resync when
+ * they are no longer there. Event ids are {@code <epoch>-<sequence>} with an
+ * epoch per startup, so an id from before a restart asks for a resync instead
+ * of matching an unrelated event of the new sequence.
+ *
+ * A client that stops reading leaves its write blocked in the socket. A
+ * watchdog thread disconnects a subscriber whose send has run longer than
+ * {@code send-timeout-ms}, interrupts the write and lends the sender pool a
+ * thread until the write gives up, so the other subscribers keep their
+ * senders. Only the subscriber's own send task completes its emitter, since
+ * completing it elsewhere would wait for the blocked write.
+ */
+@Slf4j
+public class AvailabilityBroadcaster implements MeterBinder {
+
+	private final AvailabilityEvent[] history;
+
+	private final int bufferSize;
+
+	private final int maxSubscribers;
+
+	private final long timeoutMillis;
+
+	private final ScheduledExecutorService senders;
+
+	private final long sendTimeoutNanos;
+
+	private final ScheduledExecutorService watchdog;
+
+	private final LongFunction<SseEmitter> emitters;
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	// subscribers in a send, including evicted ones whose send has not returned
+	private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger reserved = new AtomicInteger();
+
+	private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+	private final LongAdder published = new LongAdder();
+
+	private final LongAdder evicted = new LongAdder();
+
+	private long lastId;
+
+	public AvailabilityBroadcaster(int historySize, int bufferSize, int maxSubscribers, int senderThreads,
+			long timeoutMillis, long heartbeatMillis, long sendTimeoutMillis) {
+		this(historySize, bufferSize, maxSubscribers, timeoutMillis, senders(senderThreads), heartbeatMillis,
+				sendTimeoutMillis, SseEmitter::new);
+	}
+
+	AvailabilityBroadcaster(int historySize, int bufferSize, int maxSubscribers, long timeoutMillis,
+			ScheduledExecutorService senders, long heartbeatMillis, long sendTimeoutMillis,
+			LongFunction<SseEmitter> emitters) {
+		this.history = new AvailabilityEvent[historySize];
+		this.bufferSize = bufferSize;
+		this.maxSubscribers = maxSubscribers;
+		this.timeoutMillis = timeoutMillis;
+		this.senders = senders;
+		this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+		this.emitters = emitters;
+		if (heartbeatMillis > 0) {
+			senders.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+		}
+		if (sendTimeoutMillis > 0) {
+			long period = Math.max(1, sendTimeoutMillis / 2);
+			this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "availability-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+			watchdog.scheduleWithFixedDelay(this::checkSends, period, period, TimeUnit.MILLISECONDS);
+		} else {
+			this.watchdog = null;
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("library.events.availability.subscribers", subscribers, Set::size).register(registry);
+		FunctionCounter.builder("library.events.availability.published", published, LongAdder::sum)
+				.register(registry);
+		FunctionCounter.builder("library.events.availability.evicted", evicted, LongAdder::sum)
+				.description("Subscribers disconnected because they fell behind").register(registry);
+	}
+
+	public AvailabilityEvent publish(AvailabilityEvent.Type type, Long loanId, Long bookId) {
+		AvailabilityEvent event;
+		// ids are assigned and offered under one lock so every subscriber
+		// sees them in order and Last-Event-ID never skips one
+		synchronized (history) {
+			event = AvailabilityEvent.builder().id(id(++lastId)).sequence(lastId).type(type).loanId(loanId)
+					.bookId(bookId).createdAt(LocalDateTime.now()).build();
+			history[slot(event.getSequence())] = event;
+			for (Subscriber subscriber : subscribers) {
+				subscriber.offer(event);
+			}
+		}
+		published.increment();
+		return event;
+	}
+
+	/**
+	 * Opens a stream that starts after {@code lastEventId}, or with new events
+	 * when it is null. Empty when the subscriber limit is reached.
+	 */
+	public Optional<SseEmitter> subscribe(String lastEventId) {
+		if (reserved.incrementAndGet() > maxSubscribers) {
+			reserved.decrementAndGet();
+			return Optional.empty();
+		}
+		Subscriber subscriber = new Subscriber(emitters.apply(timeoutMillis));
+		subscriber.emitter.onCompletion(() -> remove(subscriber));
+		subscriber.emitter.onTimeout(() -> remove(subscriber));
+		subscriber.emitter.onError(error -> remove(subscriber));
+		synchronized (history) {
+			if (lastEventId != null) {
+				missedEvents(lastEventId).forEach(subscriber::offer);
+			}
+			subscribers.add(subscriber);
+		}
+		return Optional.of(subscriber.emitter);
+	}
+
+	public int getSubscribers() {
+		return subscribers.size();
+	}
+
+	public void shutdown() {
+		if (watchdog != null) {
+			watchdog.shutdownNow();
+		}
+		senders.shutdownNow();
+		subscribers.forEach(subscriber -> {
+			subscriber.closed = true;
+			if (!subscriber.sending()) {
+				subscriber.complete();
+			}
+		});
+		subscribers.clear();
+		reserved.set(0);
+	}
+
+	void heartbeat() {
+		subscribers.forEach(Subscriber::heartbeat);
+	}
+
+	void checkSends() {
+		long now = System.nanoTime();
+		for (Subscriber subscriber : sending) {
+			if (subscriber.sendingLongerThan(now, sendTimeoutNanos)) {
+				if (release(subscriber)) {
+					evicted.increment();
+					log.debug("Disconnected an availability subscriber whose send did not finish in time");
+				}
+				subscriber.abandon();
+			}
+		}
+	}
+
+	private List<AvailabilityEvent> missedEvents(String lastEventId) {
+		List<AvailabilityEvent> missed = new ArrayList<>();
+		long last = sequence(lastEventId);
+		long first = Math.max(1, lastId - history.length + 1);
+		if (last < 0 || last > lastId || last + 1 < first || lastId - last > bufferSize) {
+			missed.add(AvailabilityEvent.builder().id(id(lastId)).sequence(lastId)
+					.type(AvailabilityEvent.Type.RESYNC).createdAt(LocalDateTime.now()).build());
+			return missed;
+		}
+		for (long sequence = last + 1; sequence <= lastId; sequence++) {
+			missed.add(history[slot(sequence)]);
+		}
+		return missed;
+	}
+
+	private String id(long sequence) {
+		return epoch + "-" + sequence;
+	}
+
+	/**
+	 * The sequence of an id of this epoch, or -1 for an id from another
+	 * startup or one that is not ours.
+	 */
+	private long sequence(String eventId) {
+		String prefix = epoch + "-";
+		if (!eventId.startsWith(prefix)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(eventId.substring(prefix.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private int slot(long id) {
+		return (int) (id % history.length);
+	}
+
+	private void remove(Subscriber subscriber) {
+		subscriber.closed = true;
+		release(subscriber);
+	}
+
+	private void evict(Subscriber subscriber) {
+		if (release(subscriber)) {
+			evicted.increment();
+			log.debug("Disconnected a slow availability subscriber");
+			subscriber.closed = true;
+			subscriber.schedule();
+		}
+	}
+
+	// a sender thread stuck in a write is replaced until the write returns
+	private void lendSender(int threads) {
+		if (senders instanceof ThreadPoolExecutor) {
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) senders;
+			synchronized (pool) {
+				pool.setCorePoolSize(pool.getCorePoolSize() + threads);
+			}
+		}
+	}
+
+	private boolean release(Subscriber subscriber) {
+		if (subscribers.remove(subscriber)) {
+			reserved.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	private static ScheduledExecutorService senders(int threads) {
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newScheduledThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "availability-sender-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private final class Subscriber implements Runnable {
+
+		private final SseEmitter emitter;
+
+		private final ArrayBlockingQueue<AvailabilityEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private final AtomicBoolean completed = new AtomicBoolean();
+
+		private volatile boolean heartbeatDue;
+
+		private volatile boolean closed;
+
+		// the thread in a send and when the send started, guarded by this
+		private Thread sender;
+
+		private long sendingSince;
+
+		// disconnected while its send was stuck, holding a lent sender thread
+		private boolean abandoned;
+
+		private Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		private void offer(AvailabilityEvent event) {
+			if (closed) {
+				return;
+			}
+			if (!buffer.offer(event)) {
+				evict(this);
+				return;
+			}
+			schedule();
+		}
+
+		private void heartbeat() {
+			if (!closed) {
+				heartbeatDue = true;
+				schedule();
+			}
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					senders.execute(this);
+				} catch (RejectedExecutionException e) {
+					scheduled.set(false);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (!closed && heartbeatDue) {
+					heartbeatDue = false;
+					send(SseEmitter.event().comment("heartbeat"));
+				}
+				AvailabilityEvent event;
+				while (!closed && (event = buffer.poll()) != null) {
+					send(SseEmitter.event().id(event.getId()).name(event.getType().name())
+							.data(event, MediaType.APPLICATION_JSON));
+				}
+			} catch (IOException | IllegalStateException e) {
+				remove(this);
+			} finally {
+				scheduled.set(false);
+			}
+			if (closed) {
+				complete();
+			} else if (!buffer.isEmpty() || heartbeatDue) {
+				schedule();
+			}
+		}
+
+		private void send(SseEmitter.SseEventBuilder event) throws IOException {
+			synchronized (this) {
+				sender = Thread.currentThread();
+				sendingSince = System.nanoTime();
+			}
+			sending.add(this);
+			try {
+				emitter.send(event);
+			} finally {
+				sending.remove(this);
+				boolean lent;
+				synchronized (this) {
+					sender = null;
+					lent = abandoned;
+					abandoned = false;
+					// an interrupt from the watchdog was meant for this send only
+					Thread.interrupted();
+				}
+				if (lent) {
+					lendSender(-1);
+				}
+			}
+		}
+
+		private synchronized boolean sending() {
+			return sender != null;
+		}
+
+		private synchronized boolean sendingLongerThan(long now, long timeoutNanos) {
+			return sender != null && !abandoned && now - sendingSince > timeoutNanos;
+		}
+
+		private synchronized void abandon() {
+			closed = true;
+			if (sender != null) {
+				abandoned = true;
+				lendSender(1);
+				sender.interrupt();
+			}
+		}
+
+		private void complete() {
+			if (!completed.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				emitter.complete();
+			} catch (IllegalStateException e) {
+				log.debug("Availability subscriber was already closed", e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.knoxx.libraryapi.events;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.knoxx.libraryapi.entity.LoanStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityEvent {
+
+	public enum Type {
+		CHECKED_OUT, RETURNED, LOST, REOPENED, RESYNC
+	}
+
+	private String id;
+
+	@JsonIgnore
+	private long sequence;
+
+	private Type type;
+
+	private Long loanId;
+
+	private Long bookId;
+
+	private LocalDateTime createdAt;
+
+	public static Type statusType(LoanStatus status) {
+		switch (status) {
+		case RETURNED:
+			return Type.RETURNED;
+		case LOST:
+			return Type.LOST;
+		default:
+			return Type.REOPENED;
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.knoxx.libraryapi.job;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs background jobs with per-job duration, item and failure metrics, and
+ * lets a job split its items into partitions that are processed in parallel on
+ * a shared fork-join pool. Jobs themselves are triggered by the scheduler
+ * pool, so a long run keeps one scheduler thread and the partitions never
+ * compete with it for the others.
+ */
+@Slf4j
+public class JobRunner implements MeterBinder {
+
+	private final ForkJoinPool pool;
+
+	private final int partitionSize;
+
+	private volatile MeterRegistry registry;
+
+	public JobRunner(int parallelism, int partitionSize) {
+		this.pool = new ForkJoinPool(parallelism, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("job-worker-" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+		this.partitionSize = partitionSize;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("library.jobs.workers.active", pool, ForkJoinPool::getActiveThreadCount).register(registry);
+		Gauge.builder("library.jobs.workers.parallelism", pool, ForkJoinPool::getParallelism).register(registry);
+		FunctionCounter.builder("library.jobs.workers.steals", pool, ForkJoinPool::getStealCount)
+				.description("Partitions taken over by an idle worker").register(registry);
+		this.registry = registry;
+	}
+
+	/**
+	 * Runs the job on the calling thread and records how long it took and the
+	 * number of items it reports, or a failure when it throws.
+	 */
+	public long run(String job, LongSupplier task) {
+		long start = System.nanoTime();
+		long items;
+		try {
+			items = task.getAsLong();
+		} catch (RuntimeException | Error e) {
+			record(job, start, 0, true);
+			throw e;
+		}
+		record(job, start, items, false);
+		log.debug("Job {} processed {} items in {} ms", job, items,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return items;
+	}
+
+	/**
+	 * Applies the action to every item, in partitions of at most
+	 * {@code partitionSize} items spread over the worker pool. Returns once
+	 * every item is processed; the first failure is rethrown.
+	 */
+	public <T> void forEachPartitioned(List<T> items, Consumer<? super T> action) {
+		if (items.size() <= partitionSize) {
+			items.forEach(action);
+			return;
+		}
+		pool.invoke(new Partition<>(items, action, partitionSize));
+	}
+
+	/**
+	 * Counts items a job gave up on without failing the whole run.
+	 */
+	public void failed(String job, long items) {
+		MeterRegistry current = registry;
+		if (current != null && items > 0) {
+			Counter.builder("library.jobs.failures").tag("job", job).register(current).increment(items);
+		}
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private void record(String job, long start, long items, boolean failed) {
+		MeterRegistry current = registry;
+		if (current == null) {
+			return;
+		}
+		Timer.builder("library.jobs.duration").tag("job", job).register(current)
+				.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		Counter.builder("library.jobs.items").tag("job", job).register(current).increment(items);
+		if (failed) {
+			failed(job, 1);
+		}
+	}
+
+	private static final class Partition<T> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<T> items;
+
+		private final transient Consumer<? super T> action;
+
+		private final int partitionSize;
+
+		private Partition(List<T> items, Consumer<? super T> action, int partitionSize) {
+			this.items = items;
+			this.action = action;
+			this.partitionSize = partitionSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (items.size() <= partitionSize) {
+				items.forEach(action);
+				return;
+			}
+			int middle = items.size() >>> 1;
+			invokeAll(new Partition<>(items.subList(0, middle), action, partitionSize),
+					new Partition<>(items.subList(middle, items.size()), action, partitionSize));
+		}
+
+	}
+
+}
@@ -0,0 +1,264 @@
+package com.knoxx.libraryapi.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped journal of loan returns.
+ * 
+ * Appends are acknowledged once a background flusher has forced them to disk,
+ * so one fsync covers every return that arrived during a flush interval.
+ * Records stay in the journal until {@link #markApplied(long)} confirms they
+ * reached the database; {@link #open} replays everything after that point.
+ */
+public class ReturnJournal implements Closeable {
+
+	static final int MAGIC = 0x4C524A31;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 64;
+
+	static final int RECORD_SIZE = 32;
+
+	private static final int APPLIED_SEQ_OFFSET = 8;
+
+	private static final int CRC_OFFSET = 28;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final int capacity;
+
+	private final long flushIntervalNanos;
+
+	private final Object lock = new Object();
+
+	private final Object flushLock = new Object();
+
+	private final Deque<Pending> unflushed = new ArrayDeque<>();
+
+	private final ConcurrentLinkedQueue<ReturnRecord> durable = new ConcurrentLinkedQueue<>();
+
+	private final Thread flusher;
+
+	private int position;
+
+	private long lastSeq;
+
+	private long appliedSeq;
+
+	private volatile boolean closed;
+
+	private ReturnJournal(FileChannel channel, MappedByteBuffer buffer, int capacity, long flushIntervalMillis) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = capacity;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		recover();
+		this.flusher = new Thread(this::flushLoop, "return-journal-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	public static ReturnJournal open(Path path, int capacity, long flushIntervalMillis) throws IOException {
+		if (capacity < HEADER_SIZE + RECORD_SIZE) {
+			throw new IllegalArgumentException("Journal capacity is too small: " + capacity);
+		}
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		boolean created = channel.size() == 0;
+		if (!created && channel.size() != capacity) {
+			capacity = (int) channel.size();
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		if (created) {
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putLong(APPLIED_SEQ_OFFSET, 0);
+			buffer.force();
+		} else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			channel.close();
+			throw new IOException("Not a return journal: " + path);
+		}
+		return new ReturnJournal(channel, buffer, capacity, flushIntervalMillis);
+	}
+
+	/**
+	 * Returns a future completed with the record sequence once the record is
+	 * durable, or {@code null} when the journal has no room left.
+	 */
+	public CompletableFuture<Long> append(long loanId, boolean returned) {
+		synchronized (lock) {
+			if (closed) {
+				throw new IllegalStateException("Return journal is closed");
+			}
+			if (position + RECORD_SIZE > capacity) {
+				return null;
+			}
+			ReturnRecord record = new ReturnRecord(++lastSeq, loanId, returned, System.currentTimeMillis());
+			write(position, record);
+			position += RECORD_SIZE;
+
+			Pending pending = new Pending(record);
+			unflushed.add(pending);
+			return pending.future;
+		}
+	}
+
+	public List<ReturnRecord> drain(int max) {
+		List<ReturnRecord> records = new ArrayList<>();
+		ReturnRecord record;
+		while (records.size() < max && (record = durable.poll()) != null) {
+			records.add(record);
+		}
+		return records;
+	}
+
+	public void markApplied(long seq) {
+		synchronized (lock) {
+			if (seq <= appliedSeq) {
+				return;
+			}
+			appliedSeq = seq;
+			buffer.putLong(APPLIED_SEQ_OFFSET, seq);
+			buffer.force();
+			if (seq == lastSeq && unflushed.isEmpty()) {
+				position = HEADER_SIZE;
+			}
+		}
+	}
+
+	public long getAppliedSeq() {
+		synchronized (lock) {
+			return appliedSeq;
+		}
+	}
+
+	public int getUsedBytes() {
+		synchronized (lock) {
+			return position;
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Forces every return appended so far to disk. Waits for a flush already
+	 * in progress, so the returns it took are durable when this returns too.
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			List<Pending> batch;
+			synchronized (lock) {
+				if (unflushed.isEmpty()) {
+					return;
+				}
+				batch = new ArrayList<>(unflushed);
+				unflushed.clear();
+			}
+			buffer.force();
+			for (Pending pending : batch) {
+				durable.add(pending.record);
+				pending.future.complete(pending.record.getSeq());
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		LockSupport.unpark(flusher);
+		try {
+			flusher.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+		channel.close();
+	}
+
+	private void flushLoop() {
+		while (!closed) {
+			LockSupport.parkNanos(this, flushIntervalNanos);
+			flush();
+		}
+	}
+
+	private void recover() {
+		appliedSeq = buffer.getLong(APPLIED_SEQ_OFFSET);
+		long previous = -1;
+		int offset = HEADER_SIZE;
+		while (offset + RECORD_SIZE <= capacity) {
+			ReturnRecord record = read(offset);
+			if (record == null || (previous != -1 && record.getSeq() != previous + 1)) {
+				break;
+			}
+			if (record.getSeq() > appliedSeq) {
+				durable.add(record);
+			}
+			previous = record.getSeq();
+			offset += RECORD_SIZE;
+		}
+		position = offset;
+		lastSeq = Math.max(appliedSeq, previous);
+	}
+
+	private void write(int offset, ReturnRecord record) {
+		ByteBuffer bytes = ByteBuffer.allocate(RECORD_SIZE);
+		bytes.putLong(record.getSeq()).putLong(record.getLoanId()).putLong(record.getTimestamp())
+				.put((byte) (record.isReturned() ? 1 : 0));
+		bytes.putInt(CRC_OFFSET, checksum(bytes));
+		for (int i = 0; i < RECORD_SIZE; i++) {
+			buffer.put(offset + i, bytes.get(i));
+		}
+	}
+
+	private ReturnRecord read(int offset) {
+		ByteBuffer bytes = ByteBuffer.allocate(RECORD_SIZE);
+		for (int i = 0; i < RECORD_SIZE; i++) {
+			bytes.put(i, buffer.get(offset + i));
+		}
+		long seq = bytes.getLong(0);
+		if (seq <= 0 || bytes.getInt(CRC_OFFSET) != checksum(bytes)) {
+			return null;
+		}
+		return new ReturnRecord(seq, bytes.getLong(8), bytes.get(24) == 1, bytes.getLong(16));
+	}
+
+	private static int checksum(ByteBuffer bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes.array(), 0, CRC_OFFSET);
+		return (int) crc.getValue();
+	}
+
+	private static class Pending {
+
+		private final ReturnRecord record;
+
+		private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+		private Pending(ReturnRecord record) {
+			this.record = record;
+		}
+
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.knoxx.libraryapi.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ReturnRecord {
+
+	private final long seq;
+
+	private final long loanId;
+
+	private final boolean returned;
+
+	private final long timestamp;
+
+}
@@ -1,15 +1,34 @@
 package com.knoxx.libraryapi.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.knoxx.libraryapi.entity.Book;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
-	
-	boolean existsByIsbn(String isbn);
+public interface BookRepository extends JpaRepository<Book, Long>, BookSearchRepository {
 
-	Optional<Book> findByIsbn(String isbn);
+	// read-write so it stays on the primary: updates and deletes act on what it returns
+	@Override
+	@Transactional
+	Optional<Book> findById(Long id);
+
+	boolean existsByIsbnKey(Long isbnKey);
+
+	Optional<Book> findByIsbnKey(Long isbnKey);
+
+	@Query("select b.title, b.author from Book b")
+	List<Object[]> findAllTitlesAndAuthors();
+
+	@Query("select b.id, b.isbnKey from Book b where b.id > :after order by b.id")
+	List<Object[]> findIsbnKeysAfter(@Param("after") Long after, Pageable pageable);
+
+	@Query("select b.id, b.isbnKey, b.title, b.author, b.loanDays from Book b where b.id > :after order by b.id")
+	List<Object[]> findCatalogueAfter(@Param("after") Long after, Pageable pageable);
 
 }
@@ -0,0 +1,17 @@
+package com.knoxx.libraryapi.repository;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import com.knoxx.libraryapi.entity.Book;
+
+/**
+ * Book searches by example that read one row past the page to fill
+ * {@code hasNext} instead of counting the matches.
+ */
+public interface BookSearchRepository {
+
+	Slice<Book> findSlice(Example<Book> example, Pageable pageable);
+
+}
@@ -0,0 +1,49 @@
+package com.knoxx.libraryapi.repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.knoxx.libraryapi.entity.Book;
+
+public class BookSearchRepositoryImpl implements BookSearchRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Slice<Book> findSlice(Example<Book> example, Pageable pageable) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Book> query = builder.createQuery(Book.class);
+		Root<Book> root = query.from(Book.class);
+		Predicate predicate = QueryByExamplePredicateBuilder.getPredicate(root, builder, example);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+		query.select(root).orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+		TypedQuery<Book> typed = entityManager.createQuery(query);
+		if (pageable.isUnpaged()) {
+			return new SliceImpl<>(typed.getResultList());
+		}
+		typed.setFirstResult((int) pageable.getOffset());
+		typed.setMaxResults(pageable.getPageSize() + 1);
+		List<Book> books = typed.getResultList();
+		boolean hasNext = books.size() > pageable.getPageSize();
+		return new SliceImpl<>(hasNext ? books.subList(0, pageable.getPageSize()) : books, pageable, hasNext);
+	}
+
+}
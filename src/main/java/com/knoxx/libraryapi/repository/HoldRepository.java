@@ -0,0 +1,33 @@
+package com.knoxx.libraryapi.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.knoxx.libraryapi.entity.Hold;
+import com.knoxx.libraryapi.entity.HoldStatus;
+
+public interface HoldRepository extends JpaRepository<Hold, Long> {
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select h from Hold h where h.book.id = :bookId and (h.status = com.knoxx.libraryapi.entity.HoldStatus.WAITING "
+			+ "or h.status = com.knoxx.libraryapi.entity.HoldStatus.READY) order by h.id")
+	List<Hold> lockQueue(@Param("bookId") Long bookId);
+
+	@Query("select h from Hold h where h.book.id = :bookId and (h.status = com.knoxx.libraryapi.entity.HoldStatus.WAITING "
+			+ "or h.status = com.knoxx.libraryapi.entity.HoldStatus.READY) order by h.id")
+	List<Hold> findQueue(@Param("bookId") Long bookId);
+
+	@Query("select distinct h.book.id from Hold h where h.status = com.knoxx.libraryapi.entity.HoldStatus.READY "
+			+ "and h.readyUntil < :date")
+	List<Long> findBooksWithReadyHoldsBefore(@Param("date") LocalDate date);
+
+	long countByStatus(HoldStatus status);
+
+}
@@ -0,0 +1,20 @@
+package com.knoxx.libraryapi.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.knoxx.libraryapi.entity.JobLease;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+	@Modifying
+	@Query("update JobLease l set l.owner = :owner, l.leaseUntil = :until "
+			+ "where l.name = :name and (l.owner = :owner or l.leaseUntil < :now)")
+	int renew(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now,
+			@Param("until") LocalDateTime until);
+
+}
@@ -0,0 +1,9 @@
+package com.knoxx.libraryapi.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.knoxx.libraryapi.entity.JobWatermark;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+
+}
@@ -0,0 +1,27 @@
+package com.knoxx.libraryapi.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.LoanArchive;
+
+public interface LoanArchiveRepository extends JpaRepository<LoanArchive, Long> {
+
+	@Query(value = "select l from LoanArchive as l join l.book as b where b.isbnKey = :isbnKey or l.customer =:customer")
+	Page<LoanArchive> findByBookIsbnOrCustomer(@Param("isbnKey") Long isbnKey, @Param("customer") String customer,
+			Pageable pageRequest);
+
+	@Query(value = "select l from LoanArchive as l join l.book as b where b.isbnKey = :isbnKey or l.customer =:customer")
+	Slice<LoanArchive> findSliceByBookIsbnOrCustomer(@Param("isbnKey") Long isbnKey,
+			@Param("customer") String customer, Pageable pageRequest);
+
+	Page<LoanArchive> findByBook(Book book, Pageable pageable);
+
+	Slice<LoanArchive> findSliceByBook(Book book, Pageable pageable);
+
+}
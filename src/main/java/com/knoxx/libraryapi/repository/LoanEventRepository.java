@@ -0,0 +1,34 @@
+package com.knoxx.libraryapi.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.knoxx.libraryapi.entity.LoanEvent;
+
+public interface LoanEventRepository extends JpaRepository<LoanEvent, Long> {
+
+	@Query("select new com.knoxx.libraryapi.entity.LoanEvent(e.id, e.type, e.loanId, e.bookId, e.createdAt, "
+			+ "e.attempts, e.nextAttemptAt) from LoanEvent e where e.id > :after and e.attempts < :maxAttempts "
+			+ "order by e.id")
+	List<LoanEvent> findPending(@Param("after") Long after, @Param("maxAttempts") int maxAttempts,
+			Pageable pageable);
+
+	@Modifying
+	@Query("update LoanEvent e set e.attempts = e.attempts + 1, e.nextAttemptAt = :next where e.id in :ids")
+	int markFailed(@Param("ids") List<Long> ids, @Param("next") LocalDateTime next);
+
+	@Modifying
+	@Query("delete from LoanEvent e where e.id in :ids")
+	int deleteByIds(@Param("ids") List<Long> ids);
+
+	@Modifying
+	@Query("delete from LoanEvent e where e.id between :first and :last")
+	int deleteRange(@Param("first") Long first, @Param("last") Long last);
+
+}
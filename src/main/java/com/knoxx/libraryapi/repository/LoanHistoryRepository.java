@@ -0,0 +1,17 @@
+package com.knoxx.libraryapi.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Sorted pages over the hot and archived loans of one history. Each row is
+ * {@code [id, archived]}, in page order; the caller loads the loans by id.
+ */
+public interface LoanHistoryRepository {
+
+	List<Object[]> findHistoryByBook(Long bookId, Pageable pageable);
+
+	List<Object[]> findHistoryByBookIsbnOrCustomer(Long isbnKey, String customer, Pageable pageable);
+
+}
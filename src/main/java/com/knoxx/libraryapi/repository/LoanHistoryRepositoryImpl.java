@@ -0,0 +1,96 @@
+package com.knoxx.libraryapi.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+public class LoanHistoryRepositoryImpl implements LoanHistoryRepository {
+
+	// the loan properties a history can be sorted by and their columns
+	private static final Map<String, String> COLUMNS = new HashMap<>();
+
+	static {
+		COLUMNS.put("id", "id");
+		COLUMNS.put("customer", "customer");
+		COLUMNS.put("customerEmail", "customer_email");
+		COLUMNS.put("book.id", "id_book");
+		COLUMNS.put("loanDate", "loan_date");
+		COLUMNS.put("dueDate", "due_date");
+		COLUMNS.put("status", "status");
+		COLUMNS.put("returnedDate", "returned_date");
+		COLUMNS.put("lastNotification", "last_notification");
+	}
+
+	private static final String SELECT = "select l.id, %d as archived, "
+			+ "l.customer, l.customer_email, l.id_book, l.loan_date, l.due_date, l.status, l.returned_date, "
+			+ "l.last_notification from %s l ";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Object[]> findHistoryByBook(Long bookId, Pageable pageable) {
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("bookId", bookId);
+		return find("where l.id_book = :bookId", parameters, pageable);
+	}
+
+	@Override
+	public List<Object[]> findHistoryByBookIsbnOrCustomer(Long isbnKey, String customer, Pageable pageable) {
+		Map<String, Object> parameters = new HashMap<>();
+		List<String> conditions = new ArrayList<>();
+		if (isbnKey != null) {
+			conditions.add("b.isbn_key = :isbnKey");
+			parameters.put("isbnKey", isbnKey);
+		}
+		if (customer != null) {
+			conditions.add("l.customer = :customer");
+			parameters.put("customer", customer);
+		}
+		if (conditions.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return find("join book b on b.id = l.id_book where " + String.join(" or ", conditions), parameters,
+				pageable);
+	}
+
+	// both tables are merged, sorted and cut to the page by the database
+	@SuppressWarnings("unchecked")
+	private List<Object[]> find(String where, Map<String, Object> parameters, Pageable pageable) {
+		String sql = "select h.id, h.archived from (" + String.format(SELECT, 0, "loan") + where + " union all "
+				+ String.format(SELECT, 1, "loan_archive") + where + ") h order by " + orderBy(pageable.getSort());
+		Query query = entityManager.createNativeQuery(sql);
+		parameters.forEach(query::setParameter);
+		if (pageable.isPaged()) {
+			query.setFirstResult((int) pageable.getOffset());
+			query.setMaxResults(pageable.getPageSize());
+		}
+		return ((List<Object[]>) query.getResultList()).stream()
+				.map(row -> new Object[] { ((Number) row[0]).longValue(), ((Number) row[1]).intValue() == 1 })
+				.collect(Collectors.toList());
+	}
+
+	private static String orderBy(Sort sort) {
+		List<String> orders = new ArrayList<>();
+		for (Sort.Order order : sort) {
+			String column = COLUMNS.get(order.getProperty());
+			if (column == null) {
+				throw new IllegalArgumentException("Loans cannot be sorted by " + order.getProperty());
+			}
+			orders.add("h." + column + (order.isAscending() ? " asc" : " desc"));
+		}
+		// ties keep one order from page to page
+		orders.add("h.id");
+		return String.join(", ", orders);
+	}
+
+}
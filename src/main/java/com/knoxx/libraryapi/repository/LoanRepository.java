@@ -2,31 +2,92 @@ package com.knoxx.libraryapi.repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanStatus;
 
 @Repository
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanHistoryRepository {
+
+	// id lookups and the open-loan check feed writes, so they are read-write and stay on the primary
+	@Override
+	@Transactional
+	Optional<Loan> findById(Long id);
 
+	@Transactional
 	@Query(value = " select case when ( count(l.id) > 0 ) then true else false end "
-			+ "from Loan l where l.book =:book and ( l.returned is null or l.returned is false ) ")
-	boolean existsByBookAndNotReturned(@Param("book") Book book);
+			+ "from Loan l where l.book =:book and l.status = com.knoxx.libraryapi.entity.LoanStatus.OPEN ")
+	boolean existsByBookAndOpen(@Param("book") Book book);
+
+	@Query(value = "select l from Loan as l join l.book as b where b.isbnKey = :isbnKey or l.customer =:customer")
+	Page<Loan> findByBookIsbnOrCustomer(@Param("isbnKey") Long isbnKey, @Param("customer") String customer,
+			Pageable pageRequest);
 
-	@Query(value = "select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer =:customer")
-	Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer,
+	// the Slice variants read one row more than the page instead of counting
+	@Query(value = "select l from Loan as l join l.book as b where b.isbnKey = :isbnKey or l.customer =:customer")
+	Slice<Loan> findSliceByBookIsbnOrCustomer(@Param("isbnKey") Long isbnKey, @Param("customer") String customer,
 			Pageable pageRequest);
 
 	Page<Loan> findByBook(Book book, Pageable pageable);
 
-	@Query("select l from Loan l where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false )")
-	List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+	Slice<Loan> findSliceByBook(Book book, Pageable pageable);
+
+	@Query("select l from Loan l join fetch l.book where l.status = com.knoxx.libraryapi.entity.LoanStatus.OPEN "
+			+ "and l.dueDate <= :dueBy")
+	List<Loan> findByDueDateLessThanEqualAndOpen(@Param("dueBy") LocalDate dueBy);
+
+	@Query("select l from Loan l join fetch l.book where l.status = com.knoxx.libraryapi.entity.LoanStatus.OPEN "
+			+ "and l.dueDate > :from and l.dueDate <= :to")
+	List<Loan> findByDueDateBetweenAndOpen(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+	@Query("select l from Loan l join fetch l.book where l.status = com.knoxx.libraryapi.entity.LoanStatus.OPEN "
+			+ "and l.lastNotification <= :remindBefore")
+	List<Loan> findByLastNotificationLessThanAndOpen(@Param("remindBefore") LocalDate remindBefore);
+
+	// loans closed before the migration to statuses have no returned date and age from their loan date
+	@Query("select l from Loan l where l.status in (com.knoxx.libraryapi.entity.LoanStatus.RETURNED, "
+			+ "com.knoxx.libraryapi.entity.LoanStatus.LOST) and (l.returnedDate < :before "
+			+ "or (l.returnedDate is null and l.loanDate < :before)) order by l.id")
+	List<Loan> findClosedBefore(@Param("before") LocalDate before, Pageable pageable);
+
+	@Modifying
+	@Query("delete from Loan l where l.id in :ids")
+	int deleteByIds(@Param("ids") List<Long> ids);
+
+	// the loans a status change would change, locked until the update so each change gets exactly one event
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select l.id, l.book.id from Loan l where l.id in :ids and l.status <> :status "
+			+ "and l.status <> com.knoxx.libraryapi.entity.LoanStatus.LOST")
+	List<Object[]> lockStatusChanges(@Param("ids") List<Long> ids, @Param("status") LoanStatus status);
+
+	@Query("select l.book.id from Loan l where l.id = :id")
+	Optional<Long> findBookIdById(@Param("id") Long id);
+
+	// A lost book is written directly, a journaled return applied after it must not undo it; a repeated
+	// return leaves the row and its returned date as they are
+	@Modifying
+	@Query("update Loan l set l.status = :status, l.returnedDate = :returnedDate "
+			+ "where l.id in :ids and l.status <> :status and l.status <> com.knoxx.libraryapi.entity.LoanStatus.LOST")
+	int updateStatusUnlessLost(@Param("ids") List<Long> ids, @Param("status") LoanStatus status,
+			@Param("returnedDate") LocalDate returnedDate);
+
+	@Modifying
+	@Query("update Loan l set l.lastNotification = :notifiedAt where l.id in :ids")
+	int updateLastNotification(@Param("ids") List<Long> ids, @Param("notifiedAt") LocalDate notifiedAt);
 
 }
@@ -0,0 +1,26 @@
+package com.knoxx.libraryapi.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.knoxx.libraryapi.entity.LoanStatistic;
+import com.knoxx.libraryapi.entity.LoanStatistic.Kind;
+
+public interface LoanStatisticRepository extends JpaRepository<LoanStatistic, Long> {
+
+	@Modifying
+	@Query("update LoanStatistic s set s.total = s.total + :delta where s.kind = :kind and s.day = :day and s.subject = :subject")
+	int increment(@Param("kind") Kind kind, @Param("day") LocalDate day, @Param("subject") String subject,
+			@Param("delta") Long delta);
+
+	@Query("select s.subject, sum(s.total) from LoanStatistic s where s.kind = :kind and s.day >= :from "
+			+ "group by s.subject order by sum(s.total) desc")
+	List<Object[]> findTopSubjects(@Param("kind") Kind kind, @Param("from") LocalDate from, Pageable pageable);
+
+}
@@ -2,37 +2,97 @@ package com.knoxx.libraryapi.service.impl;
 
 import java.util.Optional;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.knoxx.libraryapi.api.service.BookService;
+import com.knoxx.libraryapi.api.service.BookSuggestionService;
+import com.knoxx.libraryapi.api.service.CatalogueSnapshotService;
+import com.knoxx.libraryapi.api.service.IsbnFilterService;
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.exception.BusinessException;
 import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.util.Isbn;
+import com.knoxx.libraryapi.util.SingleFlight;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 @Service
-public class BookServiceImpl implements BookService {
+public class BookServiceImpl implements BookService, MeterBinder {
 
 	private BookRepository repository;
 
-	public BookServiceImpl(BookRepository repository) {
+	private final BookSuggestionService suggestionService;
+
+	private final CatalogueSnapshotService snapshotService;
+
+	private final IsbnFilterService isbnFilter;
+
+	private final SingleFlight<Long, Optional<Book>> byIdLookups = new SingleFlight<>("book-by-id",
+			BookServiceImpl::copyOf);
+
+	private final SingleFlight<Long, Optional<Book>> byIsbnLookups = new SingleFlight<>("book-by-isbn",
+			BookServiceImpl::copyOf);
+
+	public BookServiceImpl(BookRepository repository, BookSuggestionService suggestionService,
+			CatalogueSnapshotService snapshotService, IsbnFilterService isbnFilter) {
 		this.repository = repository;
+		this.suggestionService = suggestionService;
+		this.snapshotService = snapshotService;
+		this.isbnFilter = isbnFilter;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		byIdLookups.bindTo(registry);
+		byIsbnLookups.bindTo(registry);
 	}
 
 	@Override
 	public Book save(Book book) {
-		if (repository.existsByIsbn(book.getIsbn())) {
+		Long isbnKey = Isbn.toKey(book.getIsbn());
+		if (isbnKey == null) {
+			throw new BusinessException("Invalid ISBN");
+		}
+		if (isbnFilter.mightExist(isbnKey)) {
+			if (repository.existsByIsbnKey(isbnKey)) {
+				throw new BusinessException("ISBN Ja cadastrado!");
+			}
+			isbnFilter.falsePositive();
+		}
+		book.setIsbn(Isbn.format(isbnKey));
+		book.setIsbnKey(isbnKey);
+		isbnFilter.added(isbnKey);
+		Book saved;
+		try {
+			saved = this.repository.save(book);
+		} catch (DataIntegrityViolationException e) {
+			// a concurrent insert of the same ISBN got past the check above and
+			// tripped the unique isbn_key index
 			throw new BusinessException("ISBN Ja cadastrado!");
 		}
-		return this.repository.save(book);
+		snapshotService.changed(saved.getId());
+		suggestionService.index(saved);
+		return saved;
 	}
 
 	@Override
 	public Optional<Book> getById(Long id) {
-		return this.repository.findById(id);
+		if (id == null) {
+			return this.repository.findById(id);
+		}
+		Optional<Book> snapshotted = snapshotService.findById(id);
+		if (snapshotted.isPresent()) {
+			return snapshotted;
+		}
+		return byIdLookups.execute(id, () -> this.repository.findById(id));
 	}
 
 	@Override
@@ -41,6 +101,9 @@ public class BookServiceImpl implements BookService {
 			throw new IllegalArgumentException("Book Id cant be null.");
 		}
 		this.repository.delete(book);
+		snapshotService.changed(book.getId());
+		isbnFilter.removed(book.getIsbnKey());
+		suggestionService.remove(book);
 
 	}
 
@@ -49,20 +112,70 @@ public class BookServiceImpl implements BookService {
 		if (book == null || book.getId() == null) {
 			throw new IllegalArgumentException("Book Id cant be null.");
 		}
-		return this.repository.save(book);
+		Long isbnKey = Isbn.toKey(book.getIsbn());
+		if (isbnKey == null) {
+			throw new BusinessException("Invalid ISBN");
+		}
+		book.setIsbn(Isbn.format(isbnKey));
+		book.setIsbnKey(isbnKey);
+		// callers pass a changed copy, so the stored book still holds what the
+		// suggestions were indexed under
+		Optional<Book> previous = this.repository.findById(book.getId()).map(found -> Book.builder()
+				.title(found.getTitle()).author(found.getAuthor()).isbnKey(found.getIsbnKey()).build());
+		isbnFilter.added(isbnKey);
+		Book saved;
+		try {
+			saved = this.repository.save(book);
+		} catch (DataIntegrityViolationException e) {
+			throw new BusinessException("ISBN Ja cadastrado!");
+		}
+		snapshotService.changed(saved.getId());
+		previous.filter(found -> found.getIsbnKey() != null && !found.getIsbnKey().equals(isbnKey))
+				.ifPresent(found -> isbnFilter.removed(found.getIsbnKey()));
+		previous.ifPresent(suggestionService::remove);
+		suggestionService.index(saved);
+		return saved;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Page<Book> find(Book filter, Pageable pageRequest) {
-		Example<Book> example = Example.of(filter, ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
-				.withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+		// listings are never served from the catalogue snapshot, it only covers
+		// lookups by id and ISBN
+		return repository.findAll(example(filter), pageRequest);
+	}
 
-		return repository.findAll(example, pageRequest);
+	@Override
+	@Transactional(readOnly = true)
+	public Slice<Book> findSlice(Book filter, Pageable pageRequest) {
+		return repository.findSlice(example(filter), pageRequest);
 	}
 
 	@Override
 	public Optional<Book> getBookByISBN(String isbn) {
-		return repository.findByIsbn(isbn);
+		Long isbnKey = Isbn.toKey(isbn);
+		if (isbnKey == null || !isbnFilter.mightExist(isbnKey)) {
+			return Optional.empty();
+		}
+		Optional<Book> snapshotted = snapshotService.findByIsbnKey(isbnKey);
+		if (snapshotted.isPresent()) {
+			return snapshotted;
+		}
+		Optional<Book> book = byIsbnLookups.execute(isbnKey, () -> repository.findByIsbnKey(isbnKey));
+		if (!book.isPresent()) {
+			isbnFilter.falsePositive();
+		}
+		return book;
+	}
+
+	private static Example<Book> example(Book filter) {
+		return Example.of(filter, ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+				.withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+	}
+
+	private static Optional<Book> copyOf(Optional<Book> book) {
+		return book.map(found -> Book.builder().id(found.getId()).title(found.getTitle()).author(found.getAuthor())
+				.isbn(found.getIsbn()).isbnKey(found.getIsbnKey()).loanDays(found.getLoanDays()).build());
 	}
  
 }
@@ -0,0 +1,263 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.knoxx.libraryapi.api.dto.SuggestionDTO;
+import com.knoxx.libraryapi.api.service.BookSuggestionService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.repository.BookRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps distinct titles and authors in a sorted in-memory index keyed by
+ * their normalized form (lower case, accents and repeated spaces removed), so
+ * a prefix lookup is a range scan over the matching keys. Each entry counts
+ * the books carrying it and disappears with the last of them; matches are
+ * ranked by that count, exact and then alphabetical order breaking ties. The
+ * rankings of short prefixes, which match the most keys, are kept until the
+ * next write.
+ *
+ * Reads are lock-free; writes are serialized and stop adding new entries once
+ * {@code max-entries} is reached.
+ */
+@Service
+@Slf4j
+public class BookSuggestionServiceImpl implements BookSuggestionService, MeterBinder {
+
+	static final String TITLE = "title";
+
+	static final String AUTHOR = "author";
+
+	// Rough per-entry cost of the skip list node, index levels and entry object
+	private static final int ENTRY_OVERHEAD_BYTES = 120;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	private static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry entry) -> -entry.books)
+			.thenComparing(entry -> entry.key);
+
+	// Prefixes up to this length match too many keys to rank on every call
+	private static final int CACHED_PREFIX_LENGTH = 3;
+
+	private final BookRepository repository;
+
+	private final int maxEntries;
+
+	private final int maxLimit;
+
+	private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+	private final ConcurrentHashMap<String, Ranking> rankings = new ConcurrentHashMap<>();
+
+	// Bumped after every write, a ranking computed before it is stale
+	private volatile long generation;
+
+	private final LongAdder dropped = new LongAdder();
+
+	// ConcurrentSkipListMap.size() walks the whole map
+	private volatile int size;
+
+	private volatile long estimatedBytes;
+
+	public BookSuggestionServiceImpl(BookRepository repository,
+			@Value("${application.books.suggest.max-entries:200000}") int maxEntries,
+			@Value("${application.books.suggest.max-limit:20}") int maxLimit) {
+		this.repository = repository;
+		this.maxEntries = maxEntries;
+		this.maxLimit = maxLimit;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("library.books.suggest.entries", this, service -> service.size).register(registry);
+		Gauge.builder("library.books.suggest.memory", this, service -> service.estimatedBytes)
+				.baseUnit("bytes").description("Estimated heap used by the suggestion index").register(registry);
+		FunctionCounter.builder("library.books.suggest.dropped", dropped, LongAdder::sum)
+				.description("Titles and authors left out because the index was full").register(registry);
+	}
+
+	@Override
+	public List<SuggestionDTO> suggest(String prefix, int limit) {
+		String key = normalize(prefix);
+		int size = Math.min(limit, maxLimit);
+		if (key.isEmpty() || size < 1) {
+			return Collections.emptyList();
+		}
+		List<Entry> ranked;
+		if (key.length() <= CACHED_PREFIX_LENGTH) {
+			long current = generation;
+			Ranking ranking = rankings.get(key);
+			if (ranking == null || ranking.generation != current) {
+				ranking = new Ranking(current, top(key, maxLimit));
+				rankings.put(key, ranking);
+			}
+			ranked = ranking.entries.subList(0, Math.min(size, ranking.entries.size()));
+		} else {
+			ranked = top(key, size);
+		}
+		List<SuggestionDTO> suggestions = new ArrayList<>(ranked.size());
+		for (Entry entry : ranked) {
+			suggestions.add(SuggestionDTO.builder().text(entry.text).field(entry.field).books(entry.books).build());
+		}
+		return suggestions;
+	}
+
+	@Override
+	public synchronized void index(Book book) {
+		add(book.getTitle(), TITLE);
+		add(book.getAuthor(), AUTHOR);
+		generation++;
+	}
+
+	@Override
+	public synchronized void remove(Book book) {
+		subtract(book.getTitle(), TITLE);
+		subtract(book.getAuthor(), AUTHOR);
+		generation++;
+	}
+
+	// The rows are read under the write lock, an index() or remove() running
+	// during the read would otherwise be lost when the rows are swapped in
+	@Override
+	public synchronized void rebuild() {
+		rebuild(repository.findAllTitlesAndAuthors());
+	}
+
+	@Override
+	public synchronized void rebuild(List<Object[]> rows) {
+		entries.clear();
+		rankings.clear();
+		size = 0;
+		estimatedBytes = 0;
+		for (Object[] row : rows) {
+			add((String) row[0], TITLE);
+			add((String) row[1], AUTHOR);
+		}
+		generation++;
+		log.info("Indexed {} suggestions from {} books, about {} KB", size, rows.size(),
+				estimatedBytes / 1024);
+	}
+
+	private List<Entry> top(String key, int size) {
+		ConcurrentNavigableMap<String, Entry> matches = entries.subMap(key, true, key + Character.MAX_VALUE, false);
+		// keeps the best so far with the weakest on top; the range is walked in
+		// key order, so on equal counts the earlier key wins
+		PriorityQueue<Entry> best = new PriorityQueue<>(size + 1, RANKING.reversed());
+		for (Entry entry : matches.values()) {
+			if (best.size() < size) {
+				best.add(entry);
+			} else if (entry.books > best.peek().books) {
+				best.poll();
+				best.add(entry);
+			}
+		}
+		List<Entry> ranked = new ArrayList<>(best);
+		ranked.sort(RANKING);
+		return ranked;
+	}
+
+	private void add(String text, String field) {
+		String key = key(text, field);
+		if (key == null) {
+			return;
+		}
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			entries.put(key, new Entry(key, entry.text, field, entry.books + 1));
+		} else if (size < maxEntries) {
+			String display = text.trim();
+			entries.put(key, new Entry(key, display, field, 1));
+			size++;
+			estimatedBytes += sizeOf(key, display);
+		} else {
+			dropped.increment();
+		}
+	}
+
+	private void subtract(String text, String field) {
+		String key = key(text, field);
+		Entry entry = key == null ? null : entries.get(key);
+		if (entry == null) {
+			return;
+		}
+		if (entry.books > 1) {
+			entries.put(key, new Entry(key, entry.text, field, entry.books - 1));
+		} else {
+			entries.remove(key);
+			size--;
+			estimatedBytes -= sizeOf(key, entry.text);
+		}
+	}
+
+	// The separator sorts below any character, so an exact match comes first
+	private static String key(String text, String field) {
+		String normalized = normalize(text);
+		return normalized.isEmpty() ? null : normalized + '\u0000' + field;
+	}
+
+	static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		return SPACES.matcher(stripped.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+	}
+
+	private static long sizeOf(String key, String text) {
+		return ENTRY_OVERHEAD_BYTES + 2L * (key.length() + text.length());
+	}
+
+	private static final class Ranking {
+
+		private final long generation;
+
+		private final List<Entry> entries;
+
+		private Ranking(long generation, List<Entry> entries) {
+			this.generation = generation;
+			this.entries = entries;
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final String key;
+
+		private final String text;
+
+		private final String field;
+
+		private final int books;
+
+		private Entry(String key, String text, String field, int books) {
+			this.key = key;
+			this.text = text;
+			this.field = field;
+			this.books = books;
+		}
+
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.knoxx.libraryapi.api.service.BookSuggestionService;
+import com.knoxx.libraryapi.api.service.CatalogueSnapshotService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.snapshot.CatalogueSnapshot;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Warms the catalogue lookups at startup. When a snapshot file exists it is
+ * mapped before the web server starts, book lookups by id and ISBN are served
+ * from it and the suggestion index is built from it; once the application is
+ * ready the suggestions are rebuilt from the database in the background,
+ * lookups go back to the database and a fresh snapshot is written. Books
+ * written in the meantime are never served from the snapshot. Only point
+ * lookups are served: the snapshot is only indexed by id and ISBN, so filtered,
+ * sorted and paged listings always go to the database.
+ */
+@Service
+@Slf4j
+public class CatalogueSnapshotServiceImpl implements CatalogueSnapshotService, MeterBinder {
+
+	private final BookRepository repository;
+
+	private final BookSuggestionService suggestionService;
+
+	private final boolean enabled;
+
+	private final Path path;
+
+	private final Integer batchSize;
+
+	private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder hits = new LongAdder();
+
+	private volatile CatalogueSnapshot serving;
+
+	private volatile long lastWriteNanos;
+
+	public CatalogueSnapshotServiceImpl(BookRepository repository, BookSuggestionService suggestionService,
+			@Value("${application.books.snapshot.enabled:false}") boolean enabled,
+			@Value("${application.books.snapshot.path:data/catalogue.snapshot}") String path,
+			@Value("${application.books.snapshot.batch-size:5000}") Integer batchSize) {
+		this.repository = repository;
+		this.suggestionService = suggestionService;
+		this.enabled = enabled;
+		this.path = Paths.get(path);
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("library.books.snapshot.serving", this,
+				service -> service.serving == null ? 0 : service.serving.size())
+				.description("Books answered from the catalogue snapshot until it is reconciled").register(registry);
+		FunctionCounter.builder("library.books.snapshot.hits", hits, LongAdder::sum).register(registry);
+		TimeGauge.builder("library.books.snapshot.write.duration", this, TimeUnit.NANOSECONDS,
+				service -> service.lastWriteNanos).register(registry);
+	}
+
+	@PostConstruct
+	public void open() {
+		if (!enabled || !Files.exists(path)) {
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			CatalogueSnapshot snapshot = CatalogueSnapshot.open(path);
+			List<Object[]> titlesAndAuthors = new ArrayList<>(snapshot.size());
+			snapshot.forEach(book -> titlesAndAuthors.add(new Object[] { book.getTitle(), book.getAuthor() }));
+			suggestionService.rebuild(titlesAndAuthors);
+			serving = snapshot;
+			log.info("Serving {} books from the catalogue snapshot {} written {} s ago, warmed in {} ms",
+					snapshot.size(), path, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()
+							- snapshot.getCreatedAt()), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		} catch (IOException | RuntimeException e) {
+			log.warn("Ignoring catalogue snapshot {}, warming from the database", path, e);
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		if (serving == null) {
+			suggestionService.rebuild();
+			return;
+		}
+		Thread thread = new Thread(this::reconcile, "catalogue-reconcile");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public boolean isServing() {
+		return serving != null;
+	}
+
+	@Override
+	public Optional<Book> findById(Long id) {
+		CatalogueSnapshot snapshot = serving;
+		if (snapshot == null || id == null || changed.contains(id)) {
+			return Optional.empty();
+		}
+		return counted(snapshot.findById(id));
+	}
+
+	@Override
+	public Optional<Book> findByIsbnKey(Long isbnKey) {
+		CatalogueSnapshot snapshot = serving;
+		if (snapshot == null || isbnKey == null) {
+			return Optional.empty();
+		}
+		return counted(snapshot.findByIsbnKey(isbnKey).filter(book -> !changed.contains(book.getId())));
+	}
+
+	@Override
+	public void changed(Long bookId) {
+		if (serving != null && bookId != null) {
+			changed.add(bookId);
+		}
+	}
+
+	@Override
+	@Scheduled(initialDelayString = "${application.books.snapshot.interval-ms:900000}",
+			fixedDelayString = "${application.books.snapshot.interval-ms:900000}")
+	public synchronized int write() {
+		if (!enabled) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		int books = 0;
+		try {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			try (CatalogueSnapshot.Writer writer = CatalogueSnapshot.create(path, System.currentTimeMillis())) {
+				long after = 0;
+				List<Object[]> batch;
+				do {
+					batch = repository.findCatalogueAfter(after, PageRequest.of(0, batchSize));
+					for (Object[] row : batch) {
+						writer.add((Long) row[0], (Long) row[1], (String) row[2], (String) row[3], (Integer) row[4]);
+						after = (Long) row[0];
+					}
+					books += batch.size();
+				} while (batch.size() == batchSize);
+				writer.commit();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write the catalogue snapshot " + path, e);
+		}
+		lastWriteNanos = System.nanoTime() - start;
+		log.info("Wrote {} books to the catalogue snapshot {}", books, path);
+		return books;
+	}
+
+	private void reconcile() {
+		try {
+			suggestionService.rebuild();
+		} catch (RuntimeException e) {
+			log.error("Could not rebuild the suggestions from the database", e);
+		} finally {
+			serving = null;
+			changed.clear();
+			log.info("Catalogue lookups are served from the database again");
+		}
+		try {
+			write();
+		} catch (RuntimeException e) {
+			log.error("Could not refresh the catalogue snapshot", e);
+		}
+	}
+
+	private Optional<Book> counted(Optional<Book> book) {
+		if (book.isPresent()) {
+			hits.increment();
+		}
+		return book;
+	}
+
+}
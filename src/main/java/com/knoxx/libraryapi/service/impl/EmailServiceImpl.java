@@ -1,5 +1,6 @@
 package com.knoxx.libraryapi.service.impl;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -22,12 +23,23 @@ public class EmailServiceImpl implements EmailService {
 
 	@Override
 	public void sendEmails(String message, List<String> mailsList) {
-		String[] mails = mailsList.toArray(new String[mailsList.size()]);
-		
-		
+		send("Delayed loan", message, mailsList.toArray(new String[mailsList.size()]));
+	}
+
+	@Override
+	public void sendEmail(String message, String mail) {
+		sendEmails(message, Collections.singletonList(mail));
+	}
+
+	@Override
+	public void sendEmail(String subject, String message, String mail) {
+		send(subject, message, mail);
+	}
+
+	private void send(String subject, String message, String... mails) {
 		SimpleMailMessage mailMessage =  new SimpleMailMessage();
 		mailMessage.setFrom(sender); 
-		mailMessage.setSubject("Delayed loan");
+		mailMessage.setSubject(subject);
 		mailMessage.setText(message);
 		mailMessage.setTo(mails);
 		
@@ -0,0 +1,220 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.api.service.EmailService;
+import com.knoxx.libraryapi.api.service.HoldService;
+import com.knoxx.libraryapi.api.service.LoanEventListener;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Hold;
+import com.knoxx.libraryapi.entity.HoldStatus;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.exception.BusinessException;
+import com.knoxx.libraryapi.job.JobRunner;
+import com.knoxx.libraryapi.repository.HoldRepository;
+import com.knoxx.libraryapi.repository.LoanRepository;
+import com.knoxx.libraryapi.util.AfterCommit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the hold queue of every book in {@code book_hold}. Each change reads
+ * the book's active holds with a row lock in a transaction on the primary, so
+ * changes to one book's queue are serialized across instances. When a loan
+ * is returned the next waiting hold becomes ready: the book is reserved for
+ * its customer for {@code ready-days} and the customer is mailed once the
+ * change commits.
+ */
+@Service
+@Slf4j
+public class HoldServiceImpl implements HoldService, LoanEventListener, MeterBinder {
+
+	static final String EXPIRY_JOB = "hold-expiry";
+
+	// the ready hold first, then the waiting holds in the order they were placed
+	private static final Comparator<Hold> QUEUE_ORDER = Comparator
+			.comparing((Hold hold) -> hold.getStatus() != HoldStatus.READY).thenComparing(Hold::getId);
+
+	private final HoldRepository repository;
+
+	private final LoanRepository loanRepository;
+
+	private final EmailService emailService;
+
+	private final JobRunner jobRunner;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final Integer readyDays;
+
+	private final String subject;
+
+	private final String message;
+
+	public HoldServiceImpl(HoldRepository repository, LoanRepository loanRepository, EmailService emailService,
+			JobRunner jobRunner, PlatformTransactionManager transactionManager,
+			@Value("${application.holds.ready-days:3}") Integer readyDays,
+			@Value("${application.mail.holds.subject:Your hold is ready}") String subject,
+			@Value("${application.mail.holds.message:The book you placed a hold on is waiting for you}") String message) {
+		this.repository = repository;
+		this.loanRepository = loanRepository;
+		this.emailService = emailService;
+		this.jobRunner = jobRunner;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.readyDays = readyDays;
+		this.subject = subject;
+		this.message = message;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("library.holds.waiting", repository, holds -> holds.countByStatus(HoldStatus.WAITING))
+				.register(registry);
+		Gauge.builder("library.holds.ready", repository, holds -> holds.countByStatus(HoldStatus.READY))
+				.register(registry);
+	}
+
+	@Override
+	public Hold place(Book book, String customer, String customerEmail) {
+		return transactionTemplate.execute(status -> {
+			List<Hold> queue = lockQueue(book.getId());
+			if (queue.stream().anyMatch(hold -> Objects.equals(hold.getCustomer(), customer))) {
+				throw new BusinessException("Customer already holds this book");
+			}
+			Hold hold = repository.save(Hold.builder().book(book).customer(customer).customerEmail(customerEmail)
+					.status(HoldStatus.WAITING).createdAt(LocalDateTime.now()).build());
+			queue.add(hold);
+			promote(queue);
+			return hold;
+		});
+	}
+
+	@Override
+	public List<Hold> getQueue(Book book) {
+		List<Hold> queue = transactionTemplate.execute(status -> repository.findQueue(book.getId()));
+		queue.sort(QUEUE_ORDER);
+		return queue;
+	}
+
+	@Override
+	public boolean cancel(Book book, Long holdId) {
+		return transactionTemplate.execute(status -> {
+			List<Hold> queue = lockQueue(book.getId());
+			Hold hold = queue.stream().filter(active -> active.getId().equals(holdId)).findFirst().orElse(null);
+			if (hold == null) {
+				return false;
+			}
+			hold.setStatus(HoldStatus.CANCELLED);
+			promote(queue);
+			return true;
+		});
+	}
+
+	/**
+	 * Only the first hold may check the book out, whether it is ready or still
+	 * waiting because the return has not been delivered yet. The hold is
+	 * fulfilled in the loan's transaction, and the queue stays locked until it
+	 * ends, so the book is not promoted to anyone else meanwhile.
+	 */
+	@Override
+	public void checkout(Loan loan) {
+		transactionTemplate.executeWithoutResult(status -> {
+			List<Hold> queue = lockQueue(loan.getBook().getId());
+			if (queue.isEmpty()) {
+				return;
+			}
+			Hold first = queue.get(0);
+			if (!Objects.equals(first.getCustomer(), loan.getCustomer())) {
+				throw new BusinessException("Book is reserved for another customer");
+			}
+			first.setStatus(HoldStatus.FULFILLED);
+		});
+	}
+
+	@Override
+	public void onLoanEvent(LoanEvent event) {
+		if (event.getType() == LoanEvent.Type.RETURNED && event.getBookId() != null) {
+			transactionTemplate.executeWithoutResult(status -> promote(lockQueue(event.getBookId())));
+		}
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${application.holds.expiry-interval-ms:3600000}")
+	public int expireReadyHolds() {
+		return (int) jobRunner.run(EXPIRY_JOB, this::expire);
+	}
+
+	private long expire() {
+		LocalDate today = LocalDate.now();
+		long expired = 0;
+		for (Long bookId : repository.findBooksWithReadyHoldsBefore(today)) {
+			boolean closed = transactionTemplate.execute(status -> {
+				List<Hold> queue = lockQueue(bookId);
+				Hold first = queue.isEmpty() ? null : queue.get(0);
+				if (first == null || first.getStatus() != HoldStatus.READY || !first.getReadyUntil().isBefore(today)) {
+					return false;
+				}
+				first.setStatus(HoldStatus.EXPIRED);
+				promote(queue);
+				return true;
+			});
+			if (closed) {
+				expired++;
+			}
+		}
+		return expired;
+	}
+
+	private List<Hold> lockQueue(Long bookId) {
+		List<Hold> queue = new ArrayList<>(repository.lockQueue(bookId));
+		queue.sort(QUEUE_ORDER);
+		return queue;
+	}
+
+	/**
+	 * Reserves the book for the first waiting hold of a locked queue, unless it
+	 * is already reserved or on loan, and mails its customer after the commit.
+	 * Called again for the same return it does nothing, so redelivered loan
+	 * events are harmless.
+	 */
+	private void promote(List<Hold> queue) {
+		if (queue.stream().anyMatch(hold -> hold.getStatus() == HoldStatus.READY)) {
+			return;
+		}
+		Hold next = queue.stream().filter(hold -> hold.getStatus() == HoldStatus.WAITING).findFirst().orElse(null);
+		if (next == null || loanRepository.existsByBookAndOpen(next.getBook())) {
+			return;
+		}
+		next.setStatus(HoldStatus.READY);
+		next.setReadyUntil(LocalDate.now().plusDays(readyDays));
+		AfterCommit.run(() -> notify(next));
+	}
+
+	private void notify(Hold hold) {
+		if (hold.getCustomerEmail() == null) {
+			return;
+		}
+		try {
+			emailService.sendEmail(subject, message + ": " + hold.getBook().getTitle()
+					+ ". It is reserved for you until " + hold.getReadyUntil() + ".", hold.getCustomerEmail());
+		} catch (RuntimeException e) {
+			log.error("Could not notify hold {} that it is ready", hold.getId(), e);
+		}
+	}
+
+}
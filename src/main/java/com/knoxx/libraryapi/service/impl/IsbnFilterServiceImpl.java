@@ -0,0 +1,224 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.knoxx.libraryapi.api.service.IsbnFilterService;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.util.ScalableBloomFilter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bloom filter of every known ISBN key, so checks for a new or mistyped ISBN
+ * are answered without a database round trip. Until the filter is built every
+ * ISBN might exist. Keys are added before the book is written, which keeps the
+ * filter free of false negatives; deleted books stay in it as false positives
+ * until it is rebuilt, which happens once deletions pass
+ * {@code stale-ratio} of its entries. Keys added while a rebuild reads the
+ * books may belong to books it does not see yet, so they are kept aside and
+ * added to the new filter before it replaces the old one. Books written by
+ * other instances or straight into the table are read in by id every
+ * {@code reconcile-interval-ms}, and the whole filter is rebuilt every
+ * {@code rebuild-interval-ms} for ids that committed out of order.
+ */
+@Service
+@Slf4j
+public class IsbnFilterServiceImpl implements IsbnFilterService, MeterBinder {
+
+	private static final int LOAD_BATCH_SIZE = 10_000;
+
+	private final BookRepository repository;
+
+	private final int initialCapacity;
+
+	private final double falsePositiveRate;
+
+	private final double staleRatio;
+
+	private final long rebuildIntervalMillis;
+
+	private final LongAdder negatives = new LongAdder();
+
+	private final LongAdder falsePositives = new LongAdder();
+
+	private final LongAdder removed = new LongAdder();
+
+	private final Object rebuildLock = new Object();
+
+	private volatile ScalableBloomFilter filter;
+
+	private Set<Long> pending;
+
+	private volatile long loadedId;
+
+	private volatile long builtAt;
+
+	public IsbnFilterServiceImpl(BookRepository repository,
+			@Value("${application.books.isbn-filter.initial-capacity:100000}") int initialCapacity,
+			@Value("${application.books.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate,
+			@Value("${application.books.isbn-filter.stale-ratio:0.2}") double staleRatio,
+			@Value("${application.books.isbn-filter.rebuild-interval-ms:3600000}") long rebuildIntervalMillis) {
+		this.repository = repository;
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveRate = falsePositiveRate;
+		this.staleRatio = staleRatio;
+		this.rebuildIntervalMillis = rebuildIntervalMillis;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("library.books.isbn_filter.entries", this, service -> service.filter == null ? 0
+				: service.filter.size()).register(registry);
+		Gauge.builder("library.books.isbn_filter.stages", this, service -> service.filter == null ? 0
+				: service.filter.stages()).register(registry);
+		Gauge.builder("library.books.isbn_filter.memory", this, service -> service.filter == null ? 0
+				: service.filter.memoryBytes()).baseUnit("bytes").register(registry);
+		Gauge.builder("library.books.isbn_filter.false_positive_rate.expected", this,
+				service -> service.filter == null ? 0 : service.filter.expectedFalsePositiveRate())
+				.description("False-positive rate estimated from how full the filter is").register(registry);
+		Gauge.builder("library.books.isbn_filter.false_positive_rate.observed", this,
+				IsbnFilterServiceImpl::observedFalsePositiveRate)
+				.description("Share of absent ISBNs that still went to the database").register(registry);
+		FunctionCounter.builder("library.books.isbn_filter.negatives", negatives, LongAdder::sum)
+				.description("ISBN checks answered without the database").register(registry);
+		FunctionCounter.builder("library.books.isbn_filter.false_positives", falsePositives, LongAdder::sum)
+				.register(registry);
+	}
+
+	@Override
+	public boolean isReady() {
+		return filter != null;
+	}
+
+	@Override
+	public boolean mightExist(Long isbnKey) {
+		ScalableBloomFilter current = filter;
+		if (current == null || isbnKey == null || current.mightContain(isbnKey)) {
+			return true;
+		}
+		negatives.increment();
+		return false;
+	}
+
+	@Override
+	public synchronized void added(Long isbnKey) {
+		if (isbnKey == null) {
+			return;
+		}
+		if (filter != null) {
+			filter.add(isbnKey);
+		}
+		if (pending != null) {
+			pending.add(isbnKey);
+		}
+	}
+
+	@Override
+	public void removed(Long isbnKey) {
+		if (isbnKey != null) {
+			removed.increment();
+		}
+	}
+
+	@Override
+	public void falsePositive() {
+		if (filter != null) {
+			falsePositives.increment();
+		}
+	}
+
+	@Override
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.nanoTime();
+			ScalableBloomFilter fresh = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+			synchronized (this) {
+				pending = new HashSet<>();
+			}
+			long lastId;
+			try {
+				lastId = load(fresh, 0);
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					pending = null;
+				}
+				throw e;
+			}
+			synchronized (this) {
+				pending.forEach(fresh::add);
+				filter = fresh;
+				pending = null;
+			}
+			loadedId = lastId;
+			builtAt = System.currentTimeMillis();
+			removed.reset();
+			log.info("Built the ISBN filter from {} books in {} ms, {} KB", fresh.size(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), fresh.memoryBytes() / 1024);
+		}
+	}
+
+	/**
+	 * Adds the books written since the last read, whoever wrote them. An id
+	 * handed out before the last read but committed after it is only picked up
+	 * by the next full rebuild.
+	 */
+	@Scheduled(fixedDelayString = "${application.books.isbn-filter.reconcile-interval-ms:10000}")
+	public void reconcile() {
+		synchronized (rebuildLock) {
+			ScalableBloomFilter current = filter;
+			if (current != null) {
+				loadedId = load(current, loadedId);
+			}
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${application.books.isbn-filter.check-interval-ms:60000}")
+	public void rebuildIfStale() {
+		ScalableBloomFilter current = filter;
+		if (current != null && (removed.sum() > staleRatio * Math.max(1, current.size())
+				|| System.currentTimeMillis() - builtAt >= rebuildIntervalMillis)) {
+			rebuild();
+		}
+	}
+
+	// adds the keys of the books after the given id and returns the last id read
+	private long load(ScalableBloomFilter target, long after) {
+		List<Object[]> batch;
+		do {
+			batch = repository.findIsbnKeysAfter(after, PageRequest.of(0, LOAD_BATCH_SIZE));
+			// added() writes to the live filter under the same lock
+			synchronized (this) {
+				for (Object[] row : batch) {
+					after = (Long) row[0];
+					if (row[1] != null) {
+						target.add((Long) row[1]);
+					}
+				}
+			}
+		} while (batch.size() == LOAD_BATCH_SIZE);
+		return after;
+	}
+
+	private double observedFalsePositiveRate() {
+		long positives = falsePositives.sum();
+		long total = positives + negatives.sum();
+		return total == 0 ? 0 : (double) positives / total;
+	}
+
+}
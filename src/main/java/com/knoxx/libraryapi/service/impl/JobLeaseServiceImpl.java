@@ -0,0 +1,56 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.api.service.JobLeaseService;
+import com.knoxx.libraryapi.entity.JobLease;
+import com.knoxx.libraryapi.repository.JobLeaseRepository;
+
+/**
+ * Leases stored in {@code job_lease}, so that a job runs on one instance at a
+ * time. A lease that is not renewed passes to another instance once it runs
+ * out, so the instances' clocks must agree to well within the lease length.
+ */
+@Service
+public class JobLeaseServiceImpl implements JobLeaseService {
+
+	private final JobLeaseRepository repository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final String owner = UUID.randomUUID().toString();
+
+	public JobLeaseServiceImpl(JobLeaseRepository repository, PlatformTransactionManager transactionManager) {
+		this.repository = repository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	public boolean tryAcquire(String name, long leaseMillis) {
+		LocalDateTime now = LocalDateTime.now();
+		LocalDateTime until = now.plus(leaseMillis, ChronoUnit.MILLIS);
+		try {
+			return transactionTemplate.execute(status -> {
+				if (repository.renew(name, owner, now, until) > 0) {
+					return true;
+				}
+				if (repository.existsById(name)) {
+					return false;
+				}
+				repository.saveAndFlush(JobLease.builder().name(name).owner(owner).leaseUntil(until).build());
+				return true;
+			});
+		} catch (DataIntegrityViolationException e) {
+			// another instance created the lease first
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import com.knoxx.libraryapi.api.dto.LateLoanDigestDTO;
+import com.knoxx.libraryapi.api.dto.LateLoanItemDTO;
+import com.knoxx.libraryapi.api.service.LateLoanDigestService;
+import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.entity.Loan;
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+@Service
+public class LateLoanDigestServiceImpl implements LateLoanDigestService {
+
+	static final String TEMPLATE_LOCATION = "templates/late-loans-digest.mustache";
+
+	private final LoanService loanService;
+
+	private final String message;
+
+	private final Template template;
+
+	public LateLoanDigestServiceImpl(LoanService loanService,
+			@Value("${application.mail.lateloans.message}") String message) {
+		this.loanService = loanService;
+		this.message = message;
+		this.template = compile(new ClassPathResource(TEMPLATE_LOCATION));
+	}
+
+	@Override
+	public List<LateLoanDigestDTO> groupByCustomer(List<Loan> lateLoans) {
+		Map<String, LateLoanDigestDTO> digests = new LinkedHashMap<>();
+		for (Loan loan : lateLoans) {
+			if (loan.getCustomerEmail() == null) {
+				continue;
+			}
+			LateLoanDigestDTO digest = digests.computeIfAbsent(loan.getCustomerEmail(),
+					email -> LateLoanDigestDTO.builder().customer(loan.getCustomer()).email(email)
+							.items(new ArrayList<>()).build());
+			digest.getItems().add(LateLoanItemDTO.builder().title(loan.getBook().getTitle())
+					.isbn(loan.getBook().getIsbn()).dueDate(loanService.getDueDate(loan)).build());
+		}
+		return new ArrayList<>(digests.values());
+	}
+
+	@Override
+	public String render(LateLoanDigestDTO digest) {
+		Map<String, Object> context = new HashMap<>();
+		context.put("customer", digest.getCustomer());
+		context.put("message", message);
+		context.put("items", digest.getItems());
+		return template.execute(context);
+	}
+
+	private static Template compile(Resource templateResource) {
+		try (Reader reader = new InputStreamReader(templateResource.getInputStream(), StandardCharsets.UTF_8)) {
+			return Mustache.compiler().escapeHTML(false).compile(reader);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not load mail template " + templateResource, e);
+		}
+	}
+
+}
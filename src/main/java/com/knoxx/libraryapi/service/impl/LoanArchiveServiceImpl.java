@@ -0,0 +1,83 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.api.service.LoanArchiveService;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanArchive;
+import com.knoxx.libraryapi.job.JobRunner;
+import com.knoxx.libraryapi.repository.LoanArchiveRepository;
+import com.knoxx.libraryapi.repository.LoanRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class LoanArchiveServiceImpl implements LoanArchiveService {
+
+	static final String ARCHIVE_JOB = "loan-archive";
+
+	private final LoanRepository loanRepository;
+
+	private final LoanArchiveRepository archiveRepository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final Integer afterDays;
+
+	private final Integer batchSize;
+
+	private final JobRunner jobRunner;
+
+	public LoanArchiveServiceImpl(LoanRepository loanRepository, LoanArchiveRepository archiveRepository,
+			PlatformTransactionManager transactionManager, JobRunner jobRunner,
+			@Value("${application.loans.archive.after-days:365}") Integer afterDays,
+			@Value("${application.loans.archive.batch-size:1000}") Integer batchSize) {
+		this.loanRepository = loanRepository;
+		this.archiveRepository = archiveRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.afterDays = afterDays;
+		this.batchSize = batchSize;
+		this.jobRunner = jobRunner;
+	}
+
+	@Override
+	@Scheduled(cron = "${application.loans.archive.cron:0 30 1 * * ?}")
+	public int archiveClosedLoans() {
+		return (int) jobRunner.run(ARCHIVE_JOB, this::archive);
+	}
+
+	private long archive() {
+		LocalDate today = LocalDate.now();
+		LocalDate before = today.minusDays(afterDays);
+		int archived = 0;
+		int moved;
+		do {
+			moved = transactionTemplate.execute(status -> archiveBatch(before, today));
+			archived += moved;
+		} while (moved == batchSize);
+
+		log.info("Archived {} loans closed before {}", archived, before);
+		return archived;
+	}
+
+	private int archiveBatch(LocalDate before, LocalDate today) {
+		List<Loan> loans = loanRepository.findClosedBefore(before, PageRequest.of(0, batchSize));
+		if (loans.isEmpty()) {
+			return 0;
+		}
+		archiveRepository.saveAll(loans.stream().map(loan -> LoanArchive.of(loan, today)).collect(Collectors.toList()));
+		loanRepository.deleteByIds(loans.stream().map(Loan::getId).collect(Collectors.toList()));
+		return loans.size();
+	}
+
+}
@@ -0,0 +1,290 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.api.service.JobLeaseService;
+import com.knoxx.libraryapi.api.service.LoanEventDispatcher;
+import com.knoxx.libraryapi.api.service.LoanEventListener;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.repository.LoanEventRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Delivers the loan event outbox to the listeners, in id order per book. Only
+ * the instance holding the {@code loan-events} lease dispatches, so two
+ * instances do not deliver the same events. A gap in the ids may be an event
+ * whose transaction has not committed yet, so the events after it wait until
+ * it fills or is older than {@code gap-timeout-ms}, which only a rolled back
+ * transaction leaves behind. An event a listener fails on is kept and retried
+ * after {@code retry-delay-ms}, and the later events of its book wait behind
+ * it. After {@code max-attempts} it stays in the table as a dead letter and is
+ * skipped. A retry goes to every listener, so listeners must tolerate
+ * redelivery.
+ */
+@Service
+@Slf4j
+public class LoanEventDispatcherImpl implements LoanEventDispatcher {
+
+	static final String LEASE = "loan-events";
+
+	private final LoanEventRepository eventRepository;
+
+	private final ObjectProvider<LoanEventListener> listenerProvider;
+
+	private final JobLeaseService jobLeases;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final Integer batchSize;
+
+	private final ExecutorService[] lanes;
+
+	private final int maxAttempts;
+
+	private final long retryDelayMillis;
+
+	private final long gapTimeoutMillis;
+
+	private final long leaseMillis;
+
+	private final Counter dispatched;
+
+	private final Counter failures;
+
+	private final Counter deadLetters;
+
+	private final Timer batchTimer;
+
+	private List<LoanEventListener> listeners;
+
+	// the highest id read with no gap below it, -1 until the first settled event
+	private long settledId = -1;
+
+	public LoanEventDispatcherImpl(LoanEventRepository eventRepository,
+			ObjectProvider<LoanEventListener> listenerProvider, JobLeaseService jobLeases,
+			PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+			@Value("${application.loans.events.batch-size:1000}") Integer batchSize,
+			@Value("${application.loans.events.lanes:4}") Integer lanes,
+			@Value("${application.loans.events.max-attempts:10}") int maxAttempts,
+			@Value("${application.loans.events.retry-delay-ms:5000}") long retryDelayMillis,
+			@Value("${application.loans.events.gap-timeout-ms:5000}") long gapTimeoutMillis,
+			@Value("${application.loans.events.lease-ms:30000}") long leaseMillis) {
+		this.eventRepository = eventRepository;
+		this.listenerProvider = listenerProvider;
+		this.jobLeases = jobLeases;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = batchSize;
+		this.lanes = new ExecutorService[lanes];
+		AtomicInteger threads = new AtomicInteger();
+		for (int i = 0; i < lanes; i++) {
+			this.lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "loan-events-" + threads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		this.maxAttempts = maxAttempts;
+		this.retryDelayMillis = retryDelayMillis;
+		this.gapTimeoutMillis = gapTimeoutMillis;
+		this.leaseMillis = leaseMillis;
+		this.dispatched = meterRegistry.counter("library.loan_events.dispatched");
+		this.failures = meterRegistry.counter("library.loan_events.listener_failures");
+		this.deadLetters = meterRegistry.counter("library.loan_events.dead_letters");
+		this.batchTimer = meterRegistry.timer("library.loan_events.batch");
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${application.loans.events.poll-interval-ms:100}")
+	public synchronized int dispatchPending() {
+		int total = 0;
+		long after = 0;
+		// books whose next event waits for a retry
+		Set<Long> blocked = ConcurrentHashMap.newKeySet();
+		List<LoanEvent> batch;
+		do {
+			if (!jobLeases.tryAcquire(LEASE, leaseMillis)) {
+				// another instance dispatches, and the gaps it saw are unknown here
+				settledId = -1;
+				break;
+			}
+			batch = eventRepository.findPending(after, maxAttempts, PageRequest.of(0, batchSize));
+			if (batch.isEmpty()) {
+				break;
+			}
+			after = batch.get(batch.size() - 1).getId();
+			List<LoanEvent> settled = settledPrefix(batch);
+			if (!settled.isEmpty()) {
+				total += process(settled, blocked);
+			}
+			if (settled.size() < batch.size()) {
+				break;
+			}
+		} while (batch.size() == batchSize);
+		return total;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		for (ExecutorService lane : lanes) {
+			lane.shutdown();
+		}
+	}
+
+	private List<LoanEvent> settledPrefix(List<LoanEvent> batch) {
+		LocalDateTime settledBefore = LocalDateTime.now().minus(gapTimeoutMillis, ChronoUnit.MILLIS);
+		int end = 0;
+		for (LoanEvent event : batch) {
+			// lower ids are retries, which were read in order before
+			if (event.getId() > settledId) {
+				boolean gap = settledId < 0 || event.getId() != settledId + 1;
+				if (gap && event.getCreatedAt() != null && event.getCreatedAt().isAfter(settledBefore)) {
+					break;
+				}
+				settledId = event.getId();
+			}
+			end++;
+		}
+		return batch.subList(0, end);
+	}
+
+	private int process(List<LoanEvent> events, Set<Long> blocked) {
+		Outcome outcome = batchTimer.record(() -> dispatch(events, blocked));
+		if (!outcome.delivered.isEmpty() || !outcome.failed.isEmpty()) {
+			LocalDateTime nextAttempt = LocalDateTime.now().plus(retryDelayMillis, ChronoUnit.MILLIS);
+			transactionTemplate.executeWithoutResult(status -> {
+				if (!outcome.delivered.isEmpty()) {
+					remove(outcome.delivered);
+				}
+				if (!outcome.failed.isEmpty()) {
+					eventRepository.markFailed(
+							outcome.failed.stream().map(LoanEvent::getId).collect(Collectors.toList()), nextAttempt);
+				}
+			});
+		}
+		for (LoanEvent event : outcome.failed) {
+			if (event.getAttempts() + 1 >= maxAttempts) {
+				deadLetters.increment();
+				log.error("Gave up on loan event {} after {} attempts", event.getId(), maxAttempts);
+			}
+		}
+		dispatched.increment(outcome.delivered.size());
+		return outcome.delivered.size();
+	}
+
+	private void remove(List<Long> ids) {
+		Long first = ids.get(0);
+		Long last = ids.get(ids.size() - 1);
+		if (last - first + 1 == ids.size()) {
+			eventRepository.deleteRange(first, last);
+		} else {
+			eventRepository.deleteByIds(ids);
+		}
+	}
+
+	private Outcome dispatch(List<LoanEvent> events, Set<Long> blocked) {
+		List<LoanEventListener> targets = getListeners();
+		List<List<LoanEvent>> byLane = new ArrayList<>();
+		for (int i = 0; i < lanes.length; i++) {
+			byLane.add(new ArrayList<>());
+		}
+		events.forEach(event -> byLane.get(laneOf(event)).add(event));
+
+		LocalDateTime now = LocalDateTime.now();
+		List<CompletableFuture<Outcome>> pending = new ArrayList<>();
+		for (int i = 0; i < lanes.length; i++) {
+			List<LoanEvent> laneEvents = byLane.get(i);
+			if (!laneEvents.isEmpty()) {
+				pending.add(CompletableFuture.supplyAsync(() -> deliver(laneEvents, targets, blocked, now), lanes[i]));
+			}
+		}
+		CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+		Outcome outcome = new Outcome();
+		for (CompletableFuture<Outcome> lane : pending) {
+			outcome.delivered.addAll(lane.join().delivered);
+			outcome.failed.addAll(lane.join().failed);
+		}
+		Collections.sort(outcome.delivered);
+		return outcome;
+	}
+
+	private Outcome deliver(List<LoanEvent> events, List<LoanEventListener> targets, Set<Long> blocked,
+			LocalDateTime now) {
+		Outcome outcome = new Outcome();
+		for (LoanEvent event : events) {
+			long key = keyOf(event);
+			if (blocked.contains(key)) {
+				continue;
+			}
+			if (event.getNextAttemptAt() != null && event.getNextAttemptAt().isAfter(now)) {
+				blocked.add(key);
+				continue;
+			}
+			boolean delivered = true;
+			for (LoanEventListener listener : targets) {
+				try {
+					listener.onLoanEvent(event);
+				} catch (RuntimeException e) {
+					delivered = false;
+					failures.increment();
+					log.error("Listener {} failed on loan event {}", listener.getClass().getSimpleName(), event.getId(), e);
+				}
+			}
+			if (delivered) {
+				outcome.delivered.add(event.getId());
+			} else {
+				outcome.failed.add(event);
+				blocked.add(key);
+			}
+		}
+		return outcome;
+	}
+
+	private long keyOf(LoanEvent event) {
+		return event.getBookId() != null ? event.getBookId() : event.getLoanId();
+	}
+
+	private int laneOf(LoanEvent event) {
+		return (int) Math.floorMod(keyOf(event), (long) lanes.length);
+	}
+
+	private List<LoanEventListener> getListeners() {
+		if (listeners == null) {
+			listeners = listenerProvider.orderedStream().collect(Collectors.toList());
+		}
+		return listeners;
+	}
+
+	private static final class Outcome {
+
+		private final List<Long> delivered = new ArrayList<>();
+
+		private final List<LoanEvent> failed = new ArrayList<>();
+
+	}
+
+}
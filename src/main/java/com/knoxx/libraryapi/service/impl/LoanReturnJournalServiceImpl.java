@@ -0,0 +1,160 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.knoxx.libraryapi.api.service.LoanReturnJournalService;
+import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.events.AvailabilityBroadcaster;
+import com.knoxx.libraryapi.events.AvailabilityEvent;
+import com.knoxx.libraryapi.journal.ReturnJournal;
+import com.knoxx.libraryapi.journal.ReturnRecord;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class LoanReturnJournalServiceImpl implements LoanReturnJournalService {
+
+	private final LoanService loanService;
+
+	private final AvailabilityBroadcaster availabilityBroadcaster;
+
+	private final MeterRegistry meterRegistry;
+
+	private final boolean enabled;
+
+	private final Path path;
+
+	private final Integer capacityBytes;
+
+	private final Long flushIntervalMillis;
+
+	private final Long ackTimeoutMillis;
+
+	private final Integer applyBatchSize;
+
+	private ReturnJournal journal;
+
+	private List<ReturnRecord> failed = Collections.emptyList();
+
+	public LoanReturnJournalServiceImpl(LoanService loanService, AvailabilityBroadcaster availabilityBroadcaster,
+			MeterRegistry meterRegistry,
+			@Value("${application.loans.return-journal.enabled:false}") boolean enabled,
+			@Value("${application.loans.return-journal.path:data/return-journal.dat}") String path,
+			@Value("${application.loans.return-journal.capacity-bytes:16777216}") Integer capacityBytes,
+			@Value("${application.loans.return-journal.flush-interval-ms:5}") Long flushIntervalMillis,
+			@Value("${application.loans.return-journal.ack-timeout-ms:2000}") Long ackTimeoutMillis,
+			@Value("${application.loans.return-journal.apply-batch-size:500}") Integer applyBatchSize) {
+		this.loanService = loanService;
+		this.availabilityBroadcaster = availabilityBroadcaster;
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.path = Paths.get(path);
+		this.capacityBytes = capacityBytes;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.ackTimeoutMillis = ackTimeoutMillis;
+		this.applyBatchSize = applyBatchSize;
+	}
+
+	@PostConstruct
+	public void open() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		journal = ReturnJournal.open(path, capacityBytes, flushIntervalMillis);
+		Gauge.builder("library.return_journal.used_bytes", journal, ReturnJournal::getUsedBytes).register(meterRegistry);
+		log.info("Opened return journal {}, replaying returns after sequence {}", path, journal.getAppliedSeq());
+		applyPending();
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		if (journal != null) {
+			journal.flush();
+			applyPending();
+			journal.close();
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return journal != null;
+	}
+
+	@Override
+	public Submission submit(Long loanId, Boolean returned) {
+		CompletableFuture<Long> ack = journal.append(loanId, Boolean.TRUE.equals(returned));
+		if (ack == null) {
+			log.warn("Return journal is full, writing return of loan {} directly", loanId);
+			return Submission.FULL;
+		}
+		// the record is in the journal from here on and is applied with the
+		// next flush, failing the request would only make the client retry
+		try {
+			ack.get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+			return Submission.DURABLE;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Submission.ACCEPTED;
+		} catch (ExecutionException | TimeoutException e) {
+			log.warn("Return journal did not acknowledge loan {} in time, accepting it unacknowledged", loanId);
+			return Submission.ACCEPTED;
+		}
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${application.loans.return-journal.apply-interval-ms:200}")
+	public synchronized int applyPending() {
+		if (journal == null) {
+			return 0;
+		}
+		int applied = 0;
+		List<ReturnRecord> records;
+		while (!(records = failed.isEmpty() ? journal.drain(applyBatchSize) : failed).isEmpty()) {
+			Map<Long, Boolean> returns = new LinkedHashMap<>();
+			records.forEach(record -> returns.put(record.getLoanId(), record.isReturned()));
+			List<LoanEvent> changes;
+			try {
+				changes = loanService.applyReturns(returns);
+			} catch (RuntimeException e) {
+				log.error("Could not apply {} journaled returns, retrying on the next run", records.size(), e);
+				failed = records;
+				return applied;
+			}
+			failed = Collections.emptyList();
+			journal.markApplied(records.get(records.size() - 1).getSeq());
+			applied += records.size();
+			// published once the returns are committed, and only for loans they changed
+			changes.forEach(change -> availabilityBroadcaster.publish(
+					AvailabilityEvent.statusType(LoanStatus.of(returns.get(change.getLoanId()))), change.getLoanId(),
+					change.getBookId()));
+		}
+		return applied;
+	}
+
+}
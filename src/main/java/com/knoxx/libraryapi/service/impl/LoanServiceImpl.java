@@ -1,37 +1,85 @@
 package com.knoxx.libraryapi.service.impl;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.knoxx.libraryapi.api.dto.LoanFilterDTO;
+import com.knoxx.libraryapi.api.service.HoldService;
 import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.api.service.PopularityService;
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanArchive;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.entity.LoanStatus;
 import com.knoxx.libraryapi.exception.BusinessException;
+import com.knoxx.libraryapi.repository.LoanArchiveRepository;
+import com.knoxx.libraryapi.repository.LoanEventRepository;
 import com.knoxx.libraryapi.repository.LoanRepository;
+import com.knoxx.libraryapi.repository.OffsetPageRequest;
+import com.knoxx.libraryapi.util.AfterCommit;
+import com.knoxx.libraryapi.util.Isbn;
 
 @Service
 public class LoanServiceImpl implements LoanService {
 	
+	private static final int UPDATE_BATCH_SIZE = 500;
 	
 	private LoanRepository repository;
 
-	public LoanServiceImpl(LoanRepository repository) {
+	private LoanArchiveRepository archiveRepository;
+
+	private PopularityService popularityService;
+
+	private LoanEventRepository eventRepository;
+
+	private HoldService holdService;
+
+	private Integer defaultLoanDays;
+
+	public LoanServiceImpl(LoanRepository repository, LoanArchiveRepository archiveRepository,
+			PopularityService popularityService, LoanEventRepository eventRepository, HoldService holdService,
+			@Value("${application.loans.default-days:4}") Integer defaultLoanDays) {
 		this.repository = repository;
+		this.archiveRepository = archiveRepository;
+		this.popularityService = popularityService;
+		this.eventRepository = eventRepository;
+		this.holdService = holdService;
+		this.defaultLoanDays = defaultLoanDays;
 	}
 
 	
 	@Override
+	@Transactional
 	public Loan save(Loan loan) {
-		if(repository.existsByBookAndNotReturned(loan.getBook())) {
+		if(repository.existsByBookAndOpen(loan.getBook())) {
 			throw new BusinessException("Book already loaned");
 		}
-		return repository.save(loan);
+		holdService.checkout(loan);
+		loan.setStatus(LoanStatus.OPEN);
+		loan.setDueDate(getDueDate(loan));
+		Loan saved = repository.save(loan);
+		eventRepository.save(LoanEvent.of(LoanEvent.Type.CREATED, saved.getId(), saved.getBook().getId()));
+		AfterCommit.run(() -> popularityService.recordLoan(saved));
+		return saved;
 	}
 
 
@@ -42,28 +90,252 @@ public class LoanServiceImpl implements LoanService {
 
 
 	@Override
+	public Optional<Long> getBookId(Long id) {
+		return repository.findBookIdById(id);
+	}
+
+
+	@Override
+	@Transactional
 	public Loan update(Loan loan) {
-		return repository.save(loan);
+		if (loan.getStatus() == null) {
+			loan.setStatus(LoanStatus.OPEN);
+		}
+		if (!loan.getStatus().isClosed()) {
+			loan.setReturnedDate(null);
+		} else if (loan.getReturnedDate() == null) {
+			loan.setReturnedDate(LocalDate.now());
+		}
+		boolean changed = loan.getStatus() != loan.getStoredStatus();
+		Loan updated = repository.save(loan);
+		if (changed) {
+			eventRepository.save(LoanEvent.of(LoanEvent.statusType(updated.getStatus()), updated.getId(),
+					updated.getBook().getId()));
+		}
+		return updated;
 	}
 
 
 	@Override
+	@Transactional
+	public List<LoanEvent> applyReturns(Map<Long, Boolean> returns) {
+		Map<Boolean, List<Long>> idsByReturned = returns.entrySet().stream().collect(Collectors
+				.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+		LocalDate today = LocalDate.now();
+		List<LoanEvent> applied = new ArrayList<>();
+		idsByReturned.forEach((returned, ids) -> {
+			LoanStatus status = LoanStatus.of(returned);
+			for (int i = 0; i < ids.size(); i += UPDATE_BATCH_SIZE) {
+				List<Long> batch = ids.subList(i, Math.min(i + UPDATE_BATCH_SIZE, ids.size()));
+				List<Object[]> changes = repository.lockStatusChanges(batch, status);
+				if (changes.isEmpty()) {
+					continue;
+				}
+				repository.updateStatusUnlessLost(
+						changes.stream().map(row -> (Long) row[0]).collect(Collectors.toList()), status,
+						status.isClosed() ? today : null);
+				List<LoanEvent> events = changes.stream()
+						.map(row -> LoanEvent.of(LoanEvent.statusType(status), (Long) row[0], (Long) row[1]))
+						.collect(Collectors.toList());
+				eventRepository.saveAll(events);
+				applied.addAll(events);
+			}
+		});
+		return applied;
+	}
+
+
+	@Override
+	@Transactional(readOnly = true)
 	public Page<Loan> find(LoanFilterDTO filter, Pageable pageable) {
-		return repository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
+		Long isbnKey = Isbn.toKey(filter.getIsbn());
+		return withArchive(pageable,
+				page -> repository.findByBookIsbnOrCustomer(isbnKey, filter.getCustomer(), page),
+				page -> archiveRepository.findByBookIsbnOrCustomer(isbnKey, filter.getCustomer(), page),
+				page -> repository.findHistoryByBookIsbnOrCustomer(isbnKey, filter.getCustomer(), page));
+	}
+
+
+	@Override
+	@Transactional(readOnly = true)
+	public Slice<Loan> findSlice(LoanFilterDTO filter, Pageable pageable) {
+		Long isbnKey = Isbn.toKey(filter.getIsbn());
+		return withArchiveSlice(pageable,
+				page -> repository.findSliceByBookIsbnOrCustomer(isbnKey, filter.getCustomer(), page),
+				page -> archiveRepository.findSliceByBookIsbnOrCustomer(isbnKey, filter.getCustomer(), page),
+				page -> repository.findByBookIsbnOrCustomer(isbnKey, filter.getCustomer(), page),
+				page -> repository.findHistoryByBookIsbnOrCustomer(isbnKey, filter.getCustomer(), page));
 	}
 
 
 	@Override
+	@Transactional(readOnly = true)
 	public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
-		return repository.findByBook(book, pageable);
+		return withArchive(pageable, page -> repository.findByBook(book, page),
+				page -> archiveRepository.findByBook(book, page),
+				page -> repository.findHistoryByBook(book.getId(), page));
 	}
 
 
 	@Override
+	@Transactional(readOnly = true)
+	public Slice<Loan> getLoansByBookSlice(Book book, Pageable pageable) {
+		return withArchiveSlice(pageable, page -> repository.findSliceByBook(book, page),
+				page -> archiveRepository.findSliceByBook(book, page), page -> repository.findByBook(book, page),
+				page -> repository.findHistoryByBook(book.getId(), page));
+	}
+
+
+	/**
+	 * Reads a history page across the hot and archive tables. Unsorted, the hot
+	 * loans come first and the archived ones after them. Sorted, the database
+	 * merges both tables and returns only the ids on the page, and the loans are
+	 * then loaded by id.
+	 */
+	private Page<Loan> withArchive(Pageable pageable, Function<Pageable, Page<Loan>> hotQuery,
+			Function<Pageable, Page<LoanArchive>> archiveQuery, Function<Pageable, List<Object[]>> historyQuery) {
+		if (pageable.getSort().isSorted()) {
+			List<Loan> content = history(historyQuery.apply(pageable));
+			if (pageable.isUnpaged()) {
+				return new PageImpl<Loan>(content, pageable, content.size());
+			}
+			Pageable first = new OffsetPageRequest(0, 1, Sort.unsorted());
+			return new PageImpl<Loan>(content, pageable, hotQuery.apply(first).getTotalElements()
+					+ archiveQuery.apply(first).getTotalElements());
+		}
+
+		if (pageable.isUnpaged()) {
+			List<Loan> content = concat(hotQuery.apply(pageable), archiveQuery.apply(pageable));
+			return new PageImpl<Loan>(content, pageable, content.size());
+		}
+
+		Page<Loan> hot = hotQuery.apply(pageable);
+		List<Loan> content = new ArrayList<>(hot.getContent());
+		Page<LoanArchive> archived = archiveQuery.apply(archivePage(pageable, hot.getTotalElements(), content.size()));
+		if (content.size() < pageable.getPageSize()) {
+			archived.forEach(loan -> content.add(loan.toLoan()));
+		}
+		return new PageImpl<Loan>(content, pageable, hot.getTotalElements() + archived.getTotalElements());
+	}
+
+
+	/**
+	 * Same pages as {@link #withArchive} without counting either table. A sorted
+	 * page reads one id past its end; an unsorted page the hot loans fill does
+	 * not read the archive, and only an unsorted page past the last hot loan
+	 * counts the hot table to find where the archive starts.
+	 */
+	private Slice<Loan> withArchiveSlice(Pageable pageable, Function<Pageable, Slice<Loan>> hotQuery,
+			Function<Pageable, Slice<LoanArchive>> archiveQuery, Function<Pageable, Page<Loan>> countedHotQuery,
+			Function<Pageable, List<Object[]>> historyQuery) {
+		if (pageable.getSort().isSorted()) {
+			if (pageable.isUnpaged()) {
+				return new SliceImpl<Loan>(history(historyQuery.apply(pageable)), pageable, false);
+			}
+			List<Object[]> rows = historyQuery
+					.apply(new OffsetPageRequest(pageable.getOffset(), pageable.getPageSize() + 1, pageable.getSort()));
+			boolean hasNext = rows.size() > pageable.getPageSize();
+			return new SliceImpl<Loan>(history(hasNext ? rows.subList(0, pageable.getPageSize()) : rows), pageable,
+					hasNext);
+		}
+
+		if (pageable.isUnpaged()) {
+			return new SliceImpl<Loan>(concat(hotQuery.apply(pageable), archiveQuery.apply(pageable)), pageable,
+					false);
+		}
+
+		Slice<Loan> hot = hotQuery.apply(pageable);
+		if (hot.hasNext()) {
+			return hot;
+		}
+		List<Loan> content = new ArrayList<>(hot.getContent());
+		long hotTotal = !content.isEmpty() || pageable.getOffset() == 0 ? pageable.getOffset() + content.size()
+				: countedHotQuery.apply(new OffsetPageRequest(0, 1, pageable.getSort())).getTotalElements();
+		Slice<LoanArchive> archived = archiveQuery.apply(archivePage(pageable, hotTotal, content.size()));
+		if (content.size() < pageable.getPageSize()) {
+			archived.forEach(loan -> content.add(loan.toLoan()));
+			return new SliceImpl<Loan>(content, pageable, archived.hasNext());
+		}
+		return new SliceImpl<Loan>(content, pageable, archived.hasContent());
+	}
+
+
+	// the archive rows that follow the hot ones on an unsorted page
+	private static Pageable archivePage(Pageable pageable, long hotTotal, int hotRows) {
+		long offset = Math.max(0, pageable.getOffset() - hotTotal);
+		int limit = Math.max(1, pageable.getPageSize() - hotRows);
+		return new OffsetPageRequest(offset, limit, pageable.getSort());
+	}
+
+
+	private static List<Loan> concat(Slice<Loan> hot, Slice<LoanArchive> archived) {
+		List<Loan> loans = new ArrayList<>(hot.getContent());
+		archived.forEach(loan -> loans.add(loan.toLoan()));
+		return loans;
+	}
+
+
+	// loads the [id, archived] rows of a history page in their order
+	private List<Loan> history(List<Object[]> rows) {
+		Map<Boolean, List<Long>> idsByArchived = rows.stream().collect(Collectors.partitioningBy(
+				row -> (Boolean) row[1], Collectors.mapping(row -> (Long) row[0], Collectors.toList())));
+		Map<Long, Loan> loans = new HashMap<>();
+		repository.findAllById(idsByArchived.get(false)).forEach(loan -> loans.put(loan.getId(), loan));
+		archiveRepository.findAllById(idsByArchived.get(true)).forEach(loan -> loans.put(loan.getId(), loan.toLoan()));
+		return rows.stream().map(row -> loans.get(row[0])).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+
+	@Override
+	@Transactional(readOnly = true)
 	public List<Loan> getAllLateLoans() {
-		final Integer loanDays = 4;
-		LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-		return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+		return repository.findByDueDateLessThanEqualAndOpen(LocalDate.now());
+	}
+
+
+	@Override
+	public LocalDate getDueDate(Loan loan) {
+		if (loan.getDueDate() != null) {
+			return loan.getDueDate();
+		}
+		Integer loanDays = loan.getBook() == null ? null : loan.getBook().getLoanDays();
+		return loan.getLoanDate().plusDays(loanDays != null ? loanDays : defaultLoanDays);
+	}
+
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Loan> getLateLoansSince(LocalDate lastRun) {
+		if (lastRun == null) {
+			return getAllLateLoans();
+		}
+		LocalDate today = LocalDate.now();
+		if (!lastRun.isBefore(today)) {
+			return Collections.emptyList();
+		}
+		return repository.findByDueDateBetweenAndOpen(lastRun, today);
+	}
+
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Loan> getLoansDueForReminder(Integer reminderDays) {
+		if (reminderDays == null || reminderDays <= 0) {
+			return Collections.emptyList();
+		}
+		LocalDate remindBefore = LocalDate.now().minusDays(reminderDays);
+		return repository.findByLastNotificationLessThanAndOpen(remindBefore);
+	}
+
+
+	@Override
+	@Transactional
+	public void markNotified(List<Loan> loans, LocalDate notifiedAt) {
+		List<Long> ids = loans.stream().map(Loan::getId).collect(Collectors.toList());
+		for (int i = 0; i < ids.size(); i += UPDATE_BATCH_SIZE) {
+			repository.updateLastNotification(ids.subList(i, Math.min(i + UPDATE_BATCH_SIZE, ids.size())),
+					notifiedAt);
+		}
 	}
 
 }
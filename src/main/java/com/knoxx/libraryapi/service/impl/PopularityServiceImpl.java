@@ -0,0 +1,220 @@
+package com.knoxx.libraryapi.service.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.api.dto.TopBookDTO;
+import com.knoxx.libraryapi.api.dto.TopCustomerDTO;
+import com.knoxx.libraryapi.api.service.PopularityService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanStatistic;
+import com.knoxx.libraryapi.entity.LoanStatistic.Kind;
+import com.knoxx.libraryapi.exception.BusinessException;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.repository.LoanStatisticRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class PopularityServiceImpl implements PopularityService {
+
+	private final LoanStatisticRepository statisticRepository;
+
+	private final BookRepository bookRepository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final List<String> windows;
+
+	private final Integer rankingSize;
+
+	// A flush resets the adders in place and drops the ones that stayed at zero
+	// since the previous flush, so only recently loaned subjects take memory
+	private final ConcurrentHashMap<Long, LongAdder> bookCounters = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, LongAdder> customerCounters = new ConcurrentHashMap<>();
+
+	private volatile LocalDate rankedDay;
+
+	private volatile Map<String, List<TopBookDTO>> topBooks = Collections.emptyMap();
+
+	private volatile Map<String, List<TopCustomerDTO>> topCustomers = Collections.emptyMap();
+
+	public PopularityServiceImpl(LoanStatisticRepository statisticRepository, BookRepository bookRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${application.stats.windows:1d,7d,30d}") List<String> windows,
+			@Value("${application.stats.ranking-size:100}") Integer rankingSize) {
+		this.statisticRepository = statisticRepository;
+		this.bookRepository = bookRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.windows = windows;
+		this.rankingSize = rankingSize;
+	}
+
+	@Override
+	public void recordLoan(Loan loan) {
+		if (loan.getBook() != null && loan.getBook().getId() != null) {
+			bookCounters.computeIfAbsent(loan.getBook().getId(), id -> new LongAdder()).increment();
+		}
+		if (loan.getCustomer() != null) {
+			customerCounters.computeIfAbsent(loan.getCustomer(), customer -> new LongAdder()).increment();
+		}
+	}
+
+	// the counts since the last flush would be lost with the instance
+	@PreDestroy
+	public void close() {
+		write(drain(bookCounters), drain(customerCounters));
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${application.stats.flush-interval:60000}")
+	public void flush() {
+		LocalDate today = LocalDate.now();
+		Map<Long, Long> bookDeltas = drain(bookCounters);
+		Map<String, Long> customerDeltas = drain(customerCounters);
+		if (bookDeltas.isEmpty() && customerDeltas.isEmpty()) {
+			// the windows still move on when the day changes
+			if (!today.equals(rankedDay)) {
+				refreshRankings();
+			}
+			return;
+		}
+
+		if (write(bookDeltas, customerDeltas)) {
+			refreshRankings();
+		}
+	}
+
+	private boolean write(Map<Long, Long> bookDeltas, Map<String, Long> customerDeltas) {
+		if (bookDeltas.isEmpty() && customerDeltas.isEmpty()) {
+			return true;
+		}
+		LocalDate today = LocalDate.now();
+		try {
+			transactionTemplate.execute(status -> {
+				bookDeltas.forEach((id, delta) -> increment(Kind.BOOK, today, String.valueOf(id), delta));
+				customerDeltas.forEach((customer, delta) -> increment(Kind.CUSTOMER, today, customer, delta));
+				return null;
+			});
+			return true;
+		} catch (RuntimeException e) {
+			log.warn("Could not flush loan statistics, keeping them for the next flush", e);
+			restore(bookCounters, bookDeltas);
+			restore(customerCounters, customerDeltas);
+			return false;
+		}
+	}
+
+	@Override
+	@EventListener(ApplicationReadyEvent.class)
+	public void refreshRankings() {
+		LocalDate today = LocalDate.now();
+		Map<String, List<TopBookDTO>> books = new HashMap<>();
+		Map<String, List<TopCustomerDTO>> customers = new HashMap<>();
+		for (String window : windows) {
+			LocalDate from = today.minusDays(windowDays(window) - 1);
+			books.put(window, rankBooks(statisticRepository.findTopSubjects(Kind.BOOK, from,
+					PageRequest.of(0, rankingSize))));
+			customers.put(window, statisticRepository.findTopSubjects(Kind.CUSTOMER, from, PageRequest.of(0, rankingSize))
+					.stream().map(row -> TopCustomerDTO.builder().customer((String) row[0]).loans((Long) row[1]).build())
+					.collect(Collectors.toList()));
+		}
+		this.topBooks = books;
+		this.topCustomers = customers;
+		this.rankedDay = today;
+	}
+
+	@Override
+	public List<TopBookDTO> getTopBooks(String window, int limit) {
+		return top(topBooks, window, limit);
+	}
+
+	@Override
+	public List<TopCustomerDTO> getTopCustomers(String window, int limit) {
+		return top(topCustomers, window, limit);
+	}
+
+	private <T> List<T> top(Map<String, List<T>> rankings, String window, int limit) {
+		if (!windows.contains(window)) {
+			throw new BusinessException("Unsupported window " + window + ", use one of " + windows);
+		}
+		List<T> ranking = rankings.getOrDefault(window, Collections.emptyList());
+		return ranking.subList(0, Math.max(0, Math.min(limit, ranking.size())));
+	}
+
+	private List<TopBookDTO> rankBooks(List<Object[]> rows) {
+		if (rows.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Long> ids = rows.stream().map(row -> Long.valueOf((String) row[0])).collect(Collectors.toList());
+		Map<Long, Book> books = bookRepository.findAllById(ids).stream()
+				.collect(Collectors.toMap(Book::getId, Function.identity()));
+
+		List<TopBookDTO> ranking = new ArrayList<>();
+		for (Object[] row : rows) {
+			Book book = books.get(Long.valueOf((String) row[0]));
+			if (book != null) {
+				ranking.add(TopBookDTO.builder().id(book.getId()).title(book.getTitle()).author(book.getAuthor())
+						.ISBN(book.getIsbn()).loans((Long) row[1]).build());
+			}
+		}
+		return Collections.unmodifiableList(ranking);
+	}
+
+	private void increment(Kind kind, LocalDate day, String subject, Long delta) {
+		if (statisticRepository.increment(kind, day, subject, delta) == 0) {
+			statisticRepository.save(LoanStatistic.builder().kind(kind).day(day).subject(subject).total(delta).build());
+		}
+	}
+
+	// sumThenReset() keeps the adder in place for the loans recorded meanwhile. An
+	// adder that was already at zero is removed only if it is still the mapped one,
+	// and a loan that reached it just before the removal is carried over.
+	private static <K> Map<K, Long> drain(ConcurrentHashMap<K, LongAdder> counters) {
+		Map<K, Long> deltas = new HashMap<>();
+		counters.forEach((key, adder) -> {
+			long delta = adder.sumThenReset();
+			if (delta == 0 && counters.remove(key, adder)) {
+				delta = adder.sumThenReset();
+			}
+			if (delta != 0) {
+				deltas.put(key, delta);
+			}
+		});
+		return deltas;
+	}
+
+	private static <K> void restore(ConcurrentHashMap<K, LongAdder> counters, Map<K, Long> deltas) {
+		deltas.forEach((key, delta) -> counters.computeIfAbsent(key, k -> new LongAdder()).add(delta));
+	}
+
+	static int windowDays(String window) {
+		if (window == null || !window.matches("\\d+d")) {
+			throw new BusinessException("Invalid window " + window + ", expected a number of days such as 7d");
+		}
+		return Integer.parseInt(window.substring(0, window.length() - 1));
+	}
+
+}
@@ -1,39 +1,116 @@
 package com.knoxx.libraryapi.service.impl;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.knoxx.libraryapi.api.dto.LateLoanDigestDTO;
 import com.knoxx.libraryapi.api.service.EmailService;
+import com.knoxx.libraryapi.api.service.LateLoanDigestService;
 import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.entity.JobWatermark;
 import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.job.JobRunner;
+import com.knoxx.libraryapi.repository.JobWatermarkRepository;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ScheduleServiceImpl {
 	
 	private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
+
+	static final String LATE_LOANS_JOB = "late-loans";
 	
 	private final LoanService loanService;
 	
 	private final EmailService emailService;
+
+	private final LateLoanDigestService digestService;
+
+	private final JobWatermarkRepository watermarkRepository;
+
+	private final JobRunner jobRunner;
 	
-	@Value("${application.mail.lateloans.message}")
-	private String message = "";
+	@Value("${application.mail.lateloans.reminder-days:7}")
+	private Integer reminderDays;
 	
 	@Scheduled(cron = CRON_LATE_LOANS)
 	public void sendEmailToLateLoan() {
-		List<Loan> allLateLoans = loanService.getAllLateLoans();
-		List<String> mailsList = allLateLoans.stream().map(loan -> loan.getCustomerEmail()).collect(Collectors.toList());
-		
-		
-		emailService.sendEmails(message, mailsList);
+		jobRunner.run(LATE_LOANS_JOB, this::notifyLateLoans);
+	}
+
+	/**
+	 * Mails one digest per customer and marks its loans notified as soon as it
+	 * is sent, so a failed digest does not hold back the others. The watermark
+	 * only moves past the due dates of loans whose digest went out; the failed
+	 * ones are picked up again by the next run, and the loans already notified
+	 * on or after their due date are skipped then.
+	 */
+	long notifyLateLoans() {
+		LocalDate today = LocalDate.now();
+		LocalDate lastRun = watermarkRepository.findById(LATE_LOANS_JOB).map(JobWatermark::getLastRun).orElse(null);
+
+		Map<Long, Loan> lateLoans = new LinkedHashMap<>();
+		loanService.getLateLoansSince(lastRun).stream().filter(loan -> !notifiedSinceDue(loan))
+				.forEach(loan -> lateLoans.put(loan.getId(), loan));
+		loanService.getLoansDueForReminder(reminderDays).forEach(loan -> lateLoans.putIfAbsent(loan.getId(), loan));
+
+		List<Loan> failed = Collections.synchronizedList(new ArrayList<>());
+		if (!lateLoans.isEmpty()) {
+			List<Loan> allLateLoans = new ArrayList<>(lateLoans.values());
+			Map<String, List<Loan>> loansByEmail = allLateLoans.stream().filter(loan -> loan.getCustomerEmail() != null)
+					.collect(Collectors.groupingBy(Loan::getCustomerEmail));
+			List<LateLoanDigestDTO> digests = digestService.groupByCustomer(allLateLoans);
+			AtomicLong failedDigests = new AtomicLong();
+			jobRunner.forEachPartitioned(digests, digest -> {
+				List<Loan> loans = loansByEmail.get(digest.getEmail());
+				try {
+					emailService.sendEmail(digestService.render(digest), digest.getEmail());
+					loanService.markNotified(loans, today);
+				} catch (RuntimeException e) {
+					log.error("Could not send the late loans digest to {}", digest.getEmail(), e);
+					failedDigests.incrementAndGet();
+					failed.addAll(loans);
+				}
+			});
+			// nothing to send without an email, as before
+			List<Loan> unaddressed = allLateLoans.stream().filter(loan -> loan.getCustomerEmail() == null)
+					.collect(Collectors.toList());
+			if (!unaddressed.isEmpty()) {
+				loanService.markNotified(unaddressed, today);
+			}
+			jobRunner.failed(LATE_LOANS_JOB, failedDigests.get());
+		}
+
+		LocalDate watermark = today;
+		for (Loan loan : failed) {
+			LocalDate dueDate = loanService.getDueDate(loan);
+			// reminders are found by their last notification, not by the watermark
+			if ((lastRun == null || dueDate.isAfter(lastRun)) && dueDate.minusDays(1).isBefore(watermark)) {
+				watermark = dueDate.minusDays(1);
+			}
+		}
+		log.info("Late loans run notified {} of {} loans since {}", lateLoans.size() - failed.size(),
+				lateLoans.size(), lastRun);
+		watermarkRepository.save(JobWatermark.builder().name(LATE_LOANS_JOB).lastRun(watermark).build());
+		return lateLoans.size() - failed.size();
+	}
+
+	private boolean notifiedSinceDue(Loan loan) {
+		return loan.getLastNotification() != null && !loan.getLastNotification().isBefore(loanService.getDueDate(loan));
 	}
-	
 
 }
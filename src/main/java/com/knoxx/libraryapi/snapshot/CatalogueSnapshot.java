@@ -0,0 +1,329 @@
+package com.knoxx.libraryapi.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.util.Isbn;
+
+/**
+ * Read-only, memory-mapped snapshot of the book catalogue.
+ *
+ * The file holds a 64 byte header, the titles and authors as length-prefixed
+ * UTF-8 each followed by the loan period of the book, a table of fixed-size
+ * slots (id, ISBN key, record offset) sorted by id and the slot numbers sorted
+ * by ISBN key. Lookups are binary searches over the mapped file, so opening a
+ * snapshot costs a checksum pass and nothing is copied onto the heap until a
+ * book is read.
+ */
+public class CatalogueSnapshot {
+
+	static final int MAGIC = 0x4C435331;
+
+	static final int VERSION = 2;
+
+	static final int HEADER_SIZE = 64;
+
+	static final int SLOT_SIZE = 20;
+
+	private static final int NULL_TEXT = 0xFFFF;
+
+	private static final int NULL_LOAN_DAYS = 0xFFFF;
+
+	private static final long FIRST_ISBN_KEY = 9_780_000_000_000L;
+
+	private final MappedByteBuffer buffer;
+
+	private final long createdAt;
+
+	private final int size;
+
+	private final int slotsOffset;
+
+	private final int isbnOffset;
+
+	private final int isbnCount;
+
+	private CatalogueSnapshot(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+		this.createdAt = buffer.getLong(8);
+		this.size = buffer.getInt(16);
+		this.slotsOffset = buffer.getInt(20);
+		this.isbnOffset = buffer.getInt(24);
+		this.isbnCount = buffer.getInt(28);
+	}
+
+	public static CatalogueSnapshot open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a catalogue snapshot: " + path);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("Not a catalogue snapshot: " + path);
+			}
+			if (buffer.getInt(32) != checksum(buffer)) {
+				throw new IOException("Catalogue snapshot is corrupt: " + path);
+			}
+			return new CatalogueSnapshot(buffer);
+		}
+	}
+
+	public static Writer create(Path path, long createdAt) throws IOException {
+		return new Writer(path, createdAt);
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Optional<Book> findById(long id) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long found = buffer.getLong(slot(mid));
+			if (found < id) {
+				low = mid + 1;
+			} else if (found > id) {
+				high = mid - 1;
+			} else {
+				return Optional.of(read(mid));
+			}
+		}
+		return Optional.empty();
+	}
+
+	public Optional<Book> findByIsbnKey(long isbnKey) {
+		int low = 0;
+		int high = isbnCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int slot = buffer.getInt(isbnOffset + mid * 4);
+			long found = buffer.getLong(slot(slot) + 8);
+			if (found < isbnKey) {
+				low = mid + 1;
+			} else if (found > isbnKey) {
+				high = mid - 1;
+			} else {
+				return Optional.of(read(slot));
+			}
+		}
+		return Optional.empty();
+	}
+
+	public void forEach(Consumer<Book> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(read(i));
+		}
+	}
+
+	private int slot(int index) {
+		return slotsOffset + index * SLOT_SIZE;
+	}
+
+	private Book read(int index) {
+		int slot = slot(index);
+		long isbnKey = buffer.getLong(slot + 8);
+		int offset = buffer.getInt(slot + 16);
+		int titleLength = buffer.getShort(offset) & 0xFFFF;
+		String title = text(offset + 2, titleLength);
+		int authorOffset = offset + 2 + (titleLength == NULL_TEXT ? 0 : titleLength);
+		int authorLength = buffer.getShort(authorOffset) & 0xFFFF;
+		String author = text(authorOffset + 2, authorLength);
+		int loanDays = buffer.getShort(authorOffset + 2 + (authorLength == NULL_TEXT ? 0 : authorLength)) & 0xFFFF;
+		return Book.builder().id(buffer.getLong(slot)).title(title).author(author)
+				.loanDays(loanDays == NULL_LOAN_DAYS ? null : loanDays)
+				.isbn(isbnKey == 0 ? null : Isbn.format(isbnKey)).isbnKey(isbnKey == 0 ? null : isbnKey).build();
+	}
+
+	private String text(int offset, int length) {
+		if (length == NULL_TEXT) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		ByteBuffer body = buffer.duplicate();
+		body.position(HEADER_SIZE);
+		crc.update(body);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Streams books in ascending id order into a temporary file and moves it
+	 * over the snapshot on {@link #commit()}, so readers never see a partial
+	 * file.
+	 */
+	public static class Writer implements Closeable {
+
+		private final Path path;
+
+		private final Path temporary;
+
+		private final FileChannel channel;
+
+		private final long createdAt;
+
+		private final ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+
+		private final CRC32 crc = new CRC32();
+
+		private long position = HEADER_SIZE;
+
+		private long[] ids = new long[1024];
+
+		private long[] isbnKeys = new long[1024];
+
+		private int[] offsets = new int[1024];
+
+		private int size;
+
+		private boolean committed;
+
+		private Writer(Path path, long createdAt) throws IOException {
+			this.path = path;
+			this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+			this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			this.createdAt = createdAt;
+			channel.position(HEADER_SIZE);
+		}
+
+		public void add(long id, Long isbnKey, String title, String author, Integer loanDays) throws IOException {
+			if (loanDays != null && (loanDays < 0 || loanDays >= NULL_LOAN_DAYS)) {
+				throw new IllegalArgumentException("Loan period does not fit a catalogue snapshot: " + loanDays);
+			}
+			if (size > 0 && id <= ids[size - 1]) {
+				throw new IllegalArgumentException("Books must be added in ascending id order: " + id);
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				isbnKeys = Arrays.copyOf(isbnKeys, size * 2);
+				offsets = Arrays.copyOf(offsets, size * 2);
+			}
+			ids[size] = id;
+			isbnKeys[size] = isbnKey == null ? 0 : isbnKey;
+			offsets[size] = checkedOffset();
+			size++;
+			putText(title);
+			putText(author);
+			ensure(2);
+			out.putShort((short) (loanDays == null ? NULL_LOAN_DAYS : loanDays));
+		}
+
+		public CatalogueSnapshot commit() throws IOException {
+			int slotsOffset = checkedOffset();
+			for (int i = 0; i < size; i++) {
+				ensure(SLOT_SIZE);
+				out.putLong(ids[i]).putLong(isbnKeys[i]).putInt(offsets[i]);
+			}
+			int isbnOffset = checkedOffset();
+			long[] byIsbn = isbnOrder();
+			for (long entry : byIsbn) {
+				ensure(4);
+				out.putInt((int) (entry & 0xFFFFFFF));
+			}
+			drain();
+			checkedOffset();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putLong(createdAt).putInt(size).putInt(slotsOffset).putInt(isbnOffset)
+					.putInt(byIsbn.length).putInt((int) crc.getValue());
+			header.rewind();
+			channel.write(header, 0);
+			channel.force(true);
+			channel.close();
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			committed = true;
+			return open(path);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (channel.isOpen()) {
+				channel.close();
+			}
+			if (!committed) {
+				Files.deleteIfExists(temporary);
+			}
+		}
+
+		// ISBN keys are 978/979 prefixed, so the distance from the first one
+		// fits in 35 bits and the slot number is packed below it
+		private long[] isbnOrder() {
+			long[] entries = new long[size];
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (isbnKeys[i] >= FIRST_ISBN_KEY) {
+					entries[count++] = (isbnKeys[i] - FIRST_ISBN_KEY) << 28 | i;
+				}
+			}
+			long[] sorted = Arrays.copyOf(entries, count);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+
+		private void putText(String text) throws IOException {
+			if (text == null) {
+				ensure(2);
+				out.putShort((short) NULL_TEXT);
+				return;
+			}
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length >= NULL_TEXT) {
+				throw new IllegalArgumentException("Text is too long for a catalogue snapshot: " + bytes.length);
+			}
+			ensure(2 + bytes.length);
+			out.putShort((short) bytes.length).put(bytes);
+		}
+
+		private int checkedOffset() throws IOException {
+			long offset = position + out.position();
+			if (offset > Integer.MAX_VALUE || size >= 1 << 28) {
+				throw new IOException("Catalogue is too large for a snapshot");
+			}
+			return (int) offset;
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (out.remaining() < bytes) {
+				drain();
+			}
+		}
+
+		private void drain() throws IOException {
+			out.flip();
+			crc.update(out.array(), 0, out.limit());
+			position += out.limit();
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+			out.clear();
+		}
+
+	}
+
+}
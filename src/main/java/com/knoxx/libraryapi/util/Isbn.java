@@ -0,0 +1,92 @@
+package com.knoxx.libraryapi.util;
+
+/**
+ * ISBN normalization. Hyphens and spaces are ignored, ISBN-10 is converted to
+ * its 978-prefixed ISBN-13, and the 978/979 prefix and check digits are
+ * verified. A valid ISBN is kept as its 13 digits read as a number, which
+ * fits comfortably in a long.
+ */
+public final class Isbn {
+
+	private static final long BOOKLAND = 978_000_000_000L;
+
+	private Isbn() {
+	}
+
+	/**
+	 * Returns the numeric ISBN-13 key, or {@code null} when the value is not a
+	 * valid ISBN-10 or ISBN-13.
+	 */
+	public static Long toKey(String isbn) {
+		if (isbn == null) {
+			return null;
+		}
+		char[] digits = new char[13];
+		int length = 0;
+		for (int i = 0; i < isbn.length(); i++) {
+			char c = isbn.charAt(i);
+			if (c == '-' || c == ' ') {
+				continue;
+			}
+			boolean digit = c >= '0' && c <= '9';
+			boolean tenthCheck = (c == 'X' || c == 'x') && length == 9;
+			if (length == 13 || !digit && !tenthCheck) {
+				return null;
+			}
+			digits[length++] = c;
+		}
+		if (length == 10) {
+			return fromIsbn10(digits);
+		}
+		if (length != 13 || digits[9] == 'X' || digits[9] == 'x') {
+			return null;
+		}
+		long key = 0;
+		for (int i = 0; i < 12; i++) {
+			key = key * 10 + (digits[i] - '0');
+		}
+		long prefix = key / 1_000_000_000L;
+		if (prefix != 978 && prefix != 979) {
+			return null;
+		}
+		long full = withCheckDigit(key);
+		return full % 10 == digits[12] - '0' ? full : null;
+	}
+
+	/**
+	 * Appends the ISBN-13 check digit to a 12-digit prefix.
+	 */
+	public static long withCheckDigit(long prefix) {
+		int sum = 0;
+		long remaining = prefix;
+		for (int i = 11; i >= 0; i--) {
+			sum += (int) (remaining % 10) * (i % 2 == 0 ? 1 : 3);
+			remaining /= 10;
+		}
+		return prefix * 10 + (10 - sum % 10) % 10;
+	}
+
+	public static String format(long key) {
+		char[] digits = new char[13];
+		long remaining = key;
+		for (int i = 12; i >= 0; i--) {
+			digits[i] = (char) ('0' + remaining % 10);
+			remaining /= 10;
+		}
+		return new String(digits);
+	}
+
+	private static Long fromIsbn10(char[] digits) {
+		int sum = 0;
+		long body = 0;
+		for (int i = 0; i < 10; i++) {
+			int value = digits[i] == 'X' || digits[i] == 'x' ? 10 : digits[i] - '0';
+			sum += value * (10 - i);
+			if (i < 9) {
+				body = body * 10 + value;
+			}
+		}
+		return sum % 11 == 0 ? withCheckDigit(BOOKLAND + body) : null;
+	}
+
+}
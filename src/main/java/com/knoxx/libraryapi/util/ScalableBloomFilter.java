@@ -0,0 +1,156 @@
+package com.knoxx.libraryapi.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of long keys that grows as keys are added: when the current
+ * stage holds its capacity a new stage with twice the capacity and half the
+ * false-positive rate is appended, so the compound rate stays under the
+ * configured one however many keys arrive.
+ *
+ * Lookups are lock-free; additions are serialized.
+ */
+public class ScalableBloomFilter {
+
+	private static final double TIGHTENING = 0.5;
+
+	private static final long SECOND_HASH_SEED = 0x9E3779B97F4A7C15L;
+
+	private final double falsePositiveRate;
+
+	private volatile Stage[] stages;
+
+	private volatile long size;
+
+	public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+		if (initialCapacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("Invalid Bloom filter sizing: " + initialCapacity + ", "
+					+ falsePositiveRate);
+		}
+		this.falsePositiveRate = falsePositiveRate;
+		this.stages = new Stage[] { new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING)) };
+	}
+
+	public boolean mightContain(long key) {
+		long h1 = mix(key);
+		long h2 = mix(h1 ^ SECOND_HASH_SEED) | 1;
+		for (Stage stage : stages) {
+			if (stage.mightContain(h1, h2)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized void add(long key) {
+		if (mightContain(key)) {
+			return;
+		}
+		Stage[] current = stages;
+		Stage last = current[current.length - 1];
+		if (last.count >= last.capacity) {
+			last = new Stage(last.capacity * 2, last.falsePositiveRate * TIGHTENING);
+			Stage[] grown = Arrays.copyOf(current, current.length + 1);
+			grown[current.length] = last;
+			stages = grown;
+		}
+		long h1 = mix(key);
+		last.add(h1, mix(h1 ^ SECOND_HASH_SEED) | 1);
+		size++;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public int stages() {
+		return stages.length;
+	}
+
+	public long memoryBytes() {
+		long bytes = 0;
+		for (Stage stage : stages) {
+			bytes += stage.bits.length() * 8L;
+		}
+		return bytes;
+	}
+
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	/**
+	 * Estimates the current false-positive rate from how full each stage is.
+	 */
+	public double expectedFalsePositiveRate() {
+		double missAll = 1;
+		for (Stage stage : stages) {
+			missAll *= 1 - Math.pow((double) stage.setBits / stage.bitCount, stage.hashes);
+		}
+		return 1 - missAll;
+	}
+
+	// Stafford variant 13 of the 64-bit finalizer
+	private static long mix(long key) {
+		long h = key;
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+
+	private static final class Stage {
+
+		private final long capacity;
+
+		private final double falsePositiveRate;
+
+		private final long bitCount;
+
+		private final int hashes;
+
+		private final AtomicLongArray bits;
+
+		private long count;
+
+		private volatile long setBits;
+
+		private Stage(long capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+			this.bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) / 64));
+			this.bitCount = bits.length() * 64L;
+			this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+		}
+
+		private boolean mightContain(long h1, long h2) {
+			long combined = h1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = (combined & Long.MAX_VALUE) % bitCount;
+				if ((bits.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+					return false;
+				}
+				combined += h2;
+			}
+			return true;
+		}
+
+		private void add(long h1, long h2) {
+			long combined = h1;
+			long added = 0;
+			for (int i = 0; i < hashes; i++) {
+				long bit = (combined & Long.MAX_VALUE) % bitCount;
+				long mask = 1L << bit;
+				if ((bits.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m) & mask) == 0) {
+					added++;
+				}
+				combined += h2;
+			}
+			count++;
+			setBits += added;
+		}
+
+	}
+
+}
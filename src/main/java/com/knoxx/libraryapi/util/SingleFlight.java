@@ -0,0 +1,88 @@
+package com.knoxx.libraryapi.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class SingleFlight<K, V> {
+
+	private final String name;
+
+	private final UnaryOperator<V> share;
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final LongAdder calls = new LongAdder();
+
+	private final LongAdder executions = new LongAdder();
+
+	public SingleFlight(String name, UnaryOperator<V> share) {
+		this.name = name;
+		this.share = share;
+	}
+
+	public V execute(K key, Supplier<V> loader) {
+		CompletableFuture<V> call = new CompletableFuture<>();
+		CompletableFuture<V> leader = inFlight.putIfAbsent(key, call);
+		calls.increment();
+		if (leader != null) {
+			return share.apply(await(leader));
+		}
+
+		executions.increment();
+		try {
+			V value = loader.get();
+			call.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			call.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, call);
+		}
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getExecutions() {
+		return executions.sum();
+	}
+
+	public double getCoalescingRatio() {
+		long total = calls.sum();
+		return total == 0 ? 0 : 1 - (double) executions.sum() / total;
+	}
+
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("library.singleflight.calls", this, SingleFlight::getCalls).tag("name", name)
+				.register(registry);
+		FunctionCounter.builder("library.singleflight.executions", this, SingleFlight::getExecutions)
+				.tag("name", name).register(registry);
+		Gauge.builder("library.singleflight.coalescing.ratio", this, SingleFlight::getCoalescingRatio)
+				.tag("name", name).register(registry);
+	}
+
+	private static <V> V await(CompletableFuture<V> leader) {
+		try {
+			return leader.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+}
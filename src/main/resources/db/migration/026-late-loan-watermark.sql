@@ -0,0 +1,8 @@
+-- Adds the job watermark and the notification date of each loan, so the
+-- late-loan run only reads loans that became late since the last one.
+
+create table job_watermark (name varchar(100) not null, last_run date, primary key (name));
+
+alter table loan add column last_notification date;
+create index idx_loan_loan_date on loan (loan_date);
+create index idx_loan_last_notification on loan (last_notification);
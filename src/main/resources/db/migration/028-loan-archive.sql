@@ -0,0 +1,7 @@
+-- Adds the table old loans are moved to. The archive job fills it.
+
+create table loan_archive (id bigint not null, isbn varchar(100), customer varchar(255),
+	customer_email varchar(255), id_book bigint, loan_date date, returned boolean, last_notification date,
+	archived_at date, primary key (id));
+create index idx_loan_archive_book on loan_archive (id_book);
+alter table loan_archive add constraint fk_loan_archive_book foreign key (id_book) references book;
@@ -0,0 +1,13 @@
+-- Adds the daily loan counters behind the top books and customers, counted
+-- from the loans already stored.
+
+create table loan_statistic (id bigint generated by default as identity, day date, kind varchar(20),
+	subject varchar(255), total bigint, primary key (id));
+alter table loan_statistic add constraint idx_loan_statistic_kind_day unique (kind, day, subject);
+
+insert into loan_statistic (day, kind, subject, total)
+	select loan_date, 'BOOK', cast(id_book as varchar(255)), count(*) from loan
+	where loan_date is not null and id_book is not null group by loan_date, id_book;
+insert into loan_statistic (day, kind, subject, total)
+	select loan_date, 'CUSTOMER', customer, count(*) from loan
+	where loan_date is not null and customer is not null group by loan_date, customer;
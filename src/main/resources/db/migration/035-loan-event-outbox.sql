@@ -0,0 +1,9 @@
+-- Adds the loan event outbox and the lease that picks the instance
+-- dispatching it.
+
+create table loan_event (id bigint generated by default as identity, type varchar(20), loan_id bigint,
+	book_id bigint, created_at timestamp, attempts integer default 0 not null, next_attempt_at timestamp,
+	primary key (id));
+
+create table job_lease (name varchar(100) not null, owner varchar(36), lease_until timestamp,
+	primary key (name));
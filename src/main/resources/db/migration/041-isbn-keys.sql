@@ -0,0 +1,46 @@
+-- Stores each book's ISBN as a numeric ISBN-13 key and drops the ISBN copied
+-- onto every loan.
+
+alter table book add column isbn_key bigint;
+
+-- Backfills the keys the way com.knoxx.libraryapi.util.Isbn computes them:
+-- hyphens and spaces are ignored, ISBN-10 becomes its 978-prefixed ISBN-13,
+-- and the prefix and check digits are verified. Invalid ISBNs keep a null key.
+create table isbn_weight (position int primary key, isbn10 int, isbn13 int);
+insert into isbn_weight values (1, 10, 1), (2, 9, 3), (3, 8, 1), (4, 7, 3), (5, 6, 1), (6, 5, 3), (7, 4, 1),
+	(8, 3, 3), (9, 2, 1), (10, 1, 3), (11, 0, 1), (12, 0, 3);
+
+alter table book add column isbn_digits varchar(255);
+update book set isbn_digits = replace(replace(isbn, '-', ''), ' ', '');
+update book set isbn_digits = null
+	where not regexp_like(isbn_digits, '^([0-9]{9}[0-9Xx]|[0-9]{13})$');
+
+-- a valid ISBN-10 keeps its first nine digits behind the 978 prefix, the
+-- ISBN-13 check digit is computed below
+update book set isbn_digits = '978' || left(isbn_digits, 9) || '?'
+	where id in (select d.id from book d join isbn_weight w on w.position <= 10
+		where length(d.isbn_digits) = 10 group by d.id
+		having mod(sum(w.isbn10 * case when upper(substring(d.isbn_digits, w.position, 1)) = 'X' then 10
+			else cast(substring(d.isbn_digits, w.position, 1) as int) end), 11) = 0);
+update book set isbn_digits = null where length(isbn_digits) = 10;
+
+update book b set isbn_key = (select k.isbn_key from (select d.id,
+		cast(left(d.isbn_digits, 12) as bigint) * 10
+			+ mod(10 - mod(sum(w.isbn13 * cast(substring(d.isbn_digits, w.position, 1) as int)), 10), 10) isbn_key
+		from book d join isbn_weight w on true where regexp_like(d.isbn_digits, '^97[89][0-9]{9}[0-9?]$')
+		group by d.id, d.isbn_digits) k where k.id = b.id);
+update book set isbn_key = null
+	where right(isbn_digits, 1) <> '?' and right(isbn_digits, 1) <> right(cast(isbn_key as varchar), 1);
+
+-- the same book stored as ISBN-10 and ISBN-13 keeps the key on the first row only
+update book b set isbn_key = null
+	where exists (select 1 from book o where o.isbn_key = b.isbn_key and o.id < b.id);
+update book set isbn = cast(isbn_key as varchar) where isbn_key is not null;
+
+alter table book drop column isbn_digits;
+drop table isbn_weight;
+
+alter table book add constraint idx_book_isbn_key unique (isbn_key);
+
+alter table loan drop column isbn;
+alter table loan_archive drop column isbn;
@@ -0,0 +1,18 @@
+-- Adds stored due dates and per-book loan periods. Loans from before stored
+-- due dates get their book's loan period, or the default loan period when the
+-- book has none; change the 4 below if application.loans.default-days differs.
+-- To backfill with per-book periods, add book.loan_days and fill it before
+-- running the script.
+
+alter table book add column if not exists loan_days integer;
+alter table loan add column due_date date;
+alter table loan_archive add column due_date date;
+
+update loan l set due_date = dateadd('DAY',
+		coalesce((select b.loan_days from book b where b.id = l.id_book), 4), l.loan_date)
+	where due_date is null;
+update loan_archive l set due_date = dateadd('DAY',
+		coalesce((select b.loan_days from book b where b.id = l.id_book), 4), l.loan_date)
+	where due_date is null;
+
+create index idx_loan_returned_due_date on loan (returned, due_date);
@@ -0,0 +1,21 @@
+-- Moves loans from the nullable returned flag to the status column. A null
+-- flag meant an open loan. The return date of loans returned before the
+-- migration is unknown and stays null.
+
+alter table loan add column status varchar(8);
+alter table loan add column returned_date date;
+update loan set status = case when returned = true then 'RETURNED' else 'OPEN' end;
+alter table loan alter column status set not null;
+
+drop index if exists idx_loan_loan_date;
+drop index if exists idx_loan_returned_due_date;
+create index idx_loan_book_status on loan (id_book, status);
+create index idx_loan_status_returned_date on loan (status, returned_date);
+create index idx_loan_status_due_date on loan (status, due_date);
+alter table loan drop column returned;
+
+alter table loan_archive add column status varchar(8);
+alter table loan_archive add column returned_date date;
+update loan_archive set status = case when returned = true then 'RETURNED' else 'OPEN' end;
+alter table loan_archive alter column status set not null;
+alter table loan_archive drop column returned;
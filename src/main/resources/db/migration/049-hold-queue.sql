@@ -0,0 +1,8 @@
+-- Adds the hold queue of each book.
+
+create table book_hold (id bigint generated by default as identity, id_book bigint, customer varchar(255),
+	customer_email varchar(255), status varchar(9) not null, created_at timestamp, ready_until date,
+	primary key (id));
+create index idx_book_hold_status on book_hold (status, id);
+create index idx_book_hold_book_status on book_hold (id_book, status);
+alter table book_hold add constraint fk_book_hold_book foreign key (id_book) references book;
@@ -0,0 +1,93 @@
+package com.knoxx.libraryapi.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.service.impl.BookSuggestionServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@Tag("benchmark")
+public class BookSuggestionBenchmarkTest {
+
+	private static final int BOOKS = 100_000;
+
+	private static final int QUERIES = 200_000;
+
+	private static final long TARGET_P99_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+	@Test
+	@DisplayName("Should suggest from 100k books with a p99 under half a millisecond - Benchmark")
+	public void suggestBenchmark() {
+		Random random = new Random(40);
+		String[] words = new String[2_000];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = word(random, 3 + random.nextInt(7));
+		}
+		List<Object[]> books = new ArrayList<>();
+		List<String> texts = new ArrayList<>();
+		for (int i = 0; i < BOOKS; i++) {
+			StringBuilder title = new StringBuilder();
+			for (int w = 1 + random.nextInt(5); w > 0; w--) {
+				title.append(title.length() == 0 ? "" : " ").append(words[random.nextInt(words.length)]);
+			}
+			String author = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+			books.add(new Object[] { title.toString(), author });
+			texts.add(title.toString());
+			texts.add(author);
+		}
+		BookRepository repository = Mockito.mock(BookRepository.class);
+		Mockito.when(repository.findAllTitlesAndAuthors()).thenReturn(books);
+		BookSuggestionServiceImpl service = new BookSuggestionServiceImpl(repository, 400_000, 20);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service.bindTo(registry);
+		service.rebuild();
+
+		String[] prefixes = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			String text = texts.get(random.nextInt(texts.size()));
+			prefixes[i] = text.substring(0, Math.min(text.length(), 1 + random.nextInt(6)));
+		}
+		for (int i = 0; i < QUERIES; i++) {
+			service.suggest(prefixes[i], 10);
+		}
+		long[] nanos = new long[QUERIES];
+		long suggestions = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			long start = System.nanoTime();
+			suggestions += service.suggest(prefixes[i], 10).size();
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		long p50 = nanos[QUERIES / 2];
+		long p99 = nanos[QUERIES * 99 / 100];
+		System.out.printf("%d suggestions for %d prefixes: p50 %d us, p99 %d us, max %d us, %.0f entries, %.1f MB%n",
+				suggestions, QUERIES, TimeUnit.NANOSECONDS.toMicros(p50), TimeUnit.NANOSECONDS.toMicros(p99),
+				TimeUnit.NANOSECONDS.toMicros(nanos[QUERIES - 1]),
+				registry.get("library.books.suggest.entries").gauge().value(),
+				registry.get("library.books.suggest.memory").gauge().value() / (1024 * 1024));
+
+		assertThat(p99).isLessThan(TARGET_P99_NANOS);
+	}
+
+	private static String word(Random random, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(26));
+		}
+		chars[0] = Character.toUpperCase(chars[0]);
+		return new String(chars);
+	}
+
+}
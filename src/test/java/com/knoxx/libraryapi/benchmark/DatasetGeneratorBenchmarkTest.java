@@ -0,0 +1,56 @@
+package com.knoxx.libraryapi.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.knoxx.libraryapi.dataset.DatasetGenerator;
+import com.knoxx.libraryapi.dataset.DatasetSpec;
+import com.knoxx.libraryapi.dataset.DatasetSummary;
+
+@Tag("benchmark")
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext
+public class DatasetGeneratorBenchmarkTest {
+
+	private static final long LOANS = 1_000_000;
+
+	private static final double TARGET_LOANS_PER_SECOND = 10_000_000 / 600.0;
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Test
+	@DisplayName("Should load loans fast enough to seed 10M rows in ten minutes - Benchmark")
+	public void generateDatasetBenchmark() {
+		DatasetSpec spec = DatasetSpec.builder().books(100_000).loans(LOANS).build();
+
+		DatasetSummary summary = new DatasetGenerator(dataSource, transactionManager, LocalDate.now(), 4)
+				.generate(spec);
+
+		double perSecond = LOANS * 1000.0 / summary.getElapsedMillis();
+		System.out.printf("Generated %d books and %d loans in %d ms (%.0f loans/s)%n", summary.getBooks(),
+				summary.getLoans(), summary.getElapsedMillis(), perSecond);
+
+		assertThat(perSecond).isGreaterThanOrEqualTo(TARGET_LOANS_PER_SECOND);
+	}
+
+}
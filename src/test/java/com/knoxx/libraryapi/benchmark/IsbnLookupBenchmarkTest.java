@@ -0,0 +1,127 @@
+package com.knoxx.libraryapi.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.knoxx.libraryapi.util.Isbn;
+
+/**
+ * Compares the numeric ISBN key index with the string column it replaces, on
+ * file-backed H2 databases so index sizes show up in the file size.
+ */
+@Tag("benchmark")
+public class IsbnLookupBenchmarkTest {
+
+	private static final int BOOKS = 100_000;
+
+	private static final int LOOKUPS = 100_000;
+
+	private static final int SCAN_LOOKUPS = 200;
+
+	private static final Path DIRECTORY = Paths.get("target", "isbn-benchmark");
+
+	@Test
+	@DisplayName("Should look up books by numeric ISBN key faster than by string - Benchmark")
+	public void isbnLookupBenchmark() throws Exception {
+		Files.createDirectories(DIRECTORY);
+		long table = databaseSize("plain", null);
+		long keyIndex = databaseSize("key", "isbn_key") - table;
+		long stringIndex = databaseSize("string", "isbn") - table;
+		System.out.printf("ISBN index size for %d books: key %d KB, string %d KB%n", BOOKS, keyIndex / 1024,
+				stringIndex / 1024);
+
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:isbn-benchmark")) {
+			load(connection);
+			double scan = lookups(connection, "select id from book where isbn = ?", SCAN_LOOKUPS, false);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create unique index idx_book_isbn on book (isbn)");
+				statement.execute("create unique index idx_book_isbn_key on book (isbn_key)");
+			}
+			double string = lookups(connection, "select id from book where isbn = ?", LOOKUPS, false);
+			double key = lookups(connection, "select id from book where isbn_key = ?", LOOKUPS, true);
+			System.out.printf("ISBN lookups: unindexed string %.1f us, indexed string %.1f us, numeric key %.1f us%n",
+					scan, string, key);
+
+			assertThat(key).isLessThan(scan / 10);
+			assertThat(keyIndex).isLessThanOrEqualTo(stringIndex);
+		}
+	}
+
+	private long databaseSize(String name, String indexedColumn) throws SQLException {
+		File file = DIRECTORY.resolve(name + ".mv.db").toFile();
+		file.delete();
+		try (Connection connection = DriverManager
+				.getConnection("jdbc:h2:" + DIRECTORY.toAbsolutePath().resolve(name));
+				Statement statement = connection.createStatement()) {
+			load(connection);
+			if (indexedColumn != null) {
+				statement.execute("create unique index idx_book_" + indexedColumn + " on book (" + indexedColumn + ")");
+			}
+			statement.execute("shutdown compact");
+		}
+		return file.length();
+	}
+
+	private static void load(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table book (id bigint auto_increment primary key, title varchar(255), "
+					+ "author varchar(255), isbn varchar(13), isbn_key bigint)");
+		}
+		try (PreparedStatement insert = connection
+				.prepareStatement("insert into book (title, author, isbn, isbn_key) values (?, ?, ?, ?)")) {
+			for (int i = 0; i < BOOKS; i++) {
+				long key = key(i);
+				insert.setString(1, "Title " + i);
+				insert.setString(2, "Author " + i % 1_000);
+				insert.setString(3, Isbn.format(key));
+				insert.setLong(4, key);
+				insert.addBatch();
+				if (i % 5_000 == 4_999) {
+					insert.executeBatch();
+				}
+			}
+			insert.executeBatch();
+		}
+	}
+
+	private static double lookups(Connection connection, String sql, int count, boolean numeric) throws SQLException {
+		Random random = new Random(41);
+		long found = 0;
+		long start = System.nanoTime();
+		try (PreparedStatement select = connection.prepareStatement(sql)) {
+			for (int i = 0; i < count; i++) {
+				long key = key(random.nextInt(BOOKS));
+				if (numeric) {
+					select.setLong(1, key);
+				} else {
+					select.setString(1, Isbn.format(key));
+				}
+				try (ResultSet result = select.executeQuery()) {
+					found += result.next() ? 1 : 0;
+				}
+			}
+		}
+		assertThat(found).isEqualTo(count);
+		return (System.nanoTime() - start) / 1000.0 / count;
+	}
+
+	private static long key(int book) {
+		return Isbn.withCheckDigit(978_000_000_000L + book * 7L);
+	}
+
+}
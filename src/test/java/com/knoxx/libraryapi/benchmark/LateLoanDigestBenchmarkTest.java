@@ -0,0 +1,102 @@
+package com.knoxx.libraryapi.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.knoxx.libraryapi.api.dto.LateLoanDigestDTO;
+import com.knoxx.libraryapi.api.service.LateLoanDigestService;
+import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.job.JobRunner;
+import com.knoxx.libraryapi.service.LateLoanDigestServiceTest;
+import com.knoxx.libraryapi.service.impl.LateLoanDigestServiceImpl;
+
+@Tag("benchmark")
+public class LateLoanDigestBenchmarkTest {
+
+	private static final int DIGESTS = 100_000;
+
+	private static final int ROUNDS = 5;
+
+	@Test
+	@DisplayName("Should render 100k digests per minute on a single thread - Benchmark")
+	public void renderDigestsBenchmark() {
+		LoanService loanService = Mockito.mock(LoanService.class);
+		Mockito.when(loanService.getDueDate(Mockito.any(Loan.class))).thenReturn(LocalDate.now().minusDays(3));
+		LateLoanDigestService service = new LateLoanDigestServiceImpl(loanService, "Please, return it!");
+
+		List<Loan> loans = new ArrayList<>();
+		for (int i = 0; i < DIGESTS; i++) {
+			loans.add(LateLoanDigestServiceTest.createLateLoan("customer" + i + "@email.com", "Title " + i));
+			loans.add(LateLoanDigestServiceTest.createLateLoan("customer" + i + "@email.com", "Other title " + i));
+		}
+		List<LateLoanDigestDTO> digests = service.groupByCustomer(loans);
+
+		long best = Long.MAX_VALUE;
+		long bytes = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (LateLoanDigestDTO digest : digests) {
+				bytes += service.render(digest).length();
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		double perMinute = digests.size() * TimeUnit.MINUTES.toNanos(1) / (double) best;
+		System.out.printf("Rendered %d digests in %d ms (%.0f digests/min, %d chars)%n", digests.size(),
+				TimeUnit.NANOSECONDS.toMillis(best), perMinute, bytes);
+
+		assertThat(perMinute).isGreaterThanOrEqualTo(DIGESTS);
+	}
+
+	@Test
+	@DisplayName("Should render digests faster in fork-join partitions than on one thread - Benchmark")
+	public void partitionedRenderBenchmark() {
+		LoanService loanService = Mockito.mock(LoanService.class);
+		Mockito.when(loanService.getDueDate(Mockito.any(Loan.class))).thenReturn(LocalDate.now().minusDays(3));
+		LateLoanDigestService service = new LateLoanDigestServiceImpl(loanService, "Please, return it!");
+		int cores = Runtime.getRuntime().availableProcessors();
+		JobRunner runner = new JobRunner(cores, 500);
+
+		List<Loan> loans = new ArrayList<>();
+		for (int i = 0; i < DIGESTS; i++) {
+			loans.add(LateLoanDigestServiceTest.createLateLoan("customer" + i + "@email.com", "Title " + i));
+		}
+		List<LateLoanDigestDTO> digests = service.groupByCustomer(loans);
+
+		LongAdder chars = new LongAdder();
+		long serial = Long.MAX_VALUE;
+		long partitioned = Long.MAX_VALUE;
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				digests.forEach(digest -> chars.add(service.render(digest).length()));
+				serial = Math.min(serial, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				runner.forEachPartitioned(digests, digest -> chars.add(service.render(digest).length()));
+				partitioned = Math.min(partitioned, System.nanoTime() - start);
+			}
+		} finally {
+			runner.shutdown();
+		}
+
+		double speedup = (double) serial / partitioned;
+		System.out.printf("Rendered %d digests on %d cores: serial %d ms, partitioned %d ms, speedup %.2fx (%d chars)%n",
+				digests.size(), cores, TimeUnit.NANOSECONDS.toMillis(serial), TimeUnit.NANOSECONDS.toMillis(partitioned),
+				speedup, chars.sum());
+
+		assertThat(speedup).isGreaterThan(cores == 1 ? 0.8 : Math.min(cores, 4) * 0.6);
+	}
+
+}
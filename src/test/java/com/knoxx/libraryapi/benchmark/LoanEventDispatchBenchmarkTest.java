@@ -0,0 +1,101 @@
+package com.knoxx.libraryapi.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.knoxx.libraryapi.api.service.LoanEventListener;
+import com.knoxx.libraryapi.repository.JobLeaseRepository;
+import com.knoxx.libraryapi.repository.LoanEventRepository;
+import com.knoxx.libraryapi.service.impl.JobLeaseServiceImpl;
+import com.knoxx.libraryapi.service.impl.LoanEventDispatcherImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@Tag("benchmark")
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LoanEventDispatchBenchmarkTest {
+
+	private static final int EVENTS = 100_000;
+
+	private static final int BOOKS = 2_000;
+
+	private static final double TARGET_EVENTS_PER_SECOND = 20_000;
+
+	@Autowired
+	private LoanEventRepository eventRepository;
+
+	@Autowired
+	private JobLeaseRepository jobLeaseRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Test
+	@DisplayName("Should dispatch 20k outbox events per second in order per book - Benchmark")
+	public void dispatchEventsBenchmark() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		// older than the gap timeout, so the first event does not wait to settle
+		Timestamp created = new Timestamp(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < EVENTS; i++) {
+			rows.add(new Object[] { "CREATED", (long) i, (long) (i % BOOKS), created });
+		}
+		jdbcTemplate.batchUpdate("insert into loan_event (type, loan_id, book_id, created_at, attempts) values (?, ?, ?, ?, 0)",
+				rows);
+
+		Map<Long, Long> lastLoanByBook = new ConcurrentHashMap<>();
+		List<Long> outOfOrder = Collections.synchronizedList(new ArrayList<>());
+		LoanEventListener listener = event -> {
+			Long previous = lastLoanByBook.put(event.getBookId(), event.getLoanId());
+			if (previous != null && previous > event.getLoanId()) {
+				outOfOrder.add(event.getId());
+			}
+		};
+		LoanEventDispatcherImpl dispatcher = new LoanEventDispatcherImpl(eventRepository,
+				new StaticListableBeanFactory(Collections.singletonMap("listener", listener))
+						.getBeanProvider(LoanEventListener.class),
+				new JobLeaseServiceImpl(jobLeaseRepository, transactionManager), transactionManager,
+				new SimpleMeterRegistry(), 1000, 4, 10, 5000, 5000, 30000);
+
+		long start = System.nanoTime();
+		int dispatched = dispatcher.dispatchPending();
+		long elapsed = System.nanoTime() - start;
+		dispatcher.shutdown();
+
+		double perSecond = dispatched * TimeUnit.SECONDS.toNanos(1) / (double) elapsed;
+		System.out.printf("Dispatched %d loan events in %d ms (%.0f events/s)%n", dispatched,
+				TimeUnit.NANOSECONDS.toMillis(elapsed), perSecond);
+
+		assertThat(dispatched).isEqualTo(EVENTS);
+		assertThat(outOfOrder).isEmpty();
+		assertThat(eventRepository.count()).isZero();
+		assertThat(perSecond).isGreaterThanOrEqualTo(TARGET_EVENTS_PER_SECOND);
+	}
+
+}
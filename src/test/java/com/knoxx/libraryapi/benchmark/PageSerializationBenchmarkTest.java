@@ -0,0 +1,85 @@
+package com.knoxx.libraryapi.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.knoxx.libraryapi.api.dto.BookDTO;
+import com.knoxx.libraryapi.api.dto.LoanDTO;
+import com.knoxx.libraryapi.api.dto.PageResponse;
+
+/**
+ * Serializes the same page of loans as the Spring Data page the list
+ * endpoints used to return and as the lean page response, with and without
+ * Afterburner.
+ */
+@Tag("benchmark")
+public class PageSerializationBenchmarkTest {
+
+	private static final int PAGE_SIZE = 20;
+
+	private static final int WARMUP = 20_000;
+
+	private static final int PAGES = 100_000;
+
+	private static final int ROUNDS = 5;
+
+	@Test
+	@DisplayName("Should serialize a lean page in fewer bytes and less time - Benchmark")
+	public void pageSerializationBenchmark() throws Exception {
+		List<LoanDTO> loans = new ArrayList<>();
+		for (long i = 0; i < PAGE_SIZE; i++) {
+			BookDTO book = BookDTO.builder().id(i).title("Title " + i).author("Author " + i).ISBN("9780306406157")
+					.build();
+			loans.add(LoanDTO.builder().id(i).ISBN(book.getISBN()).customer("Customer " + i)
+					.email("customer" + i + "@email.com").book(book).build());
+		}
+		PageImpl<LoanDTO> springPage = new PageImpl<>(loans, PageRequest.of(3, PAGE_SIZE), 10_000);
+
+		ObjectMapper reflective = Jackson2ObjectMapperBuilder.json().build();
+		ObjectMapper afterburner = Jackson2ObjectMapperBuilder.json().modulesToInstall(new AfterburnerModule()).build();
+
+		int springBytes = reflective.writeValueAsBytes(springPage).length;
+		int leanBytes = reflective.writeValueAsBytes(PageResponse.of(springPage, true)).length;
+		int uncountedBytes = reflective.writeValueAsBytes(PageResponse.of(springPage, false)).length;
+		double spring = serialize(reflective, springPage, false);
+		double lean = serialize(reflective, springPage, true);
+		double burnt = serialize(afterburner, springPage, true);
+
+		System.out.printf("Page of %d loans: Spring page %d bytes, lean page %d bytes (%d without count)%n", PAGE_SIZE,
+				springBytes, leanBytes, uncountedBytes);
+		System.out.printf("Serialization per page: Spring page %.1f us, lean page %.1f us, lean page with "
+				+ "Afterburner %.1f us%n", spring, lean, burnt);
+
+		assertThat(leanBytes).isLessThan(springBytes);
+		assertThat(burnt).isLessThan(spring);
+	}
+
+	private static double serialize(ObjectMapper mapper, PageImpl<LoanDTO> page, boolean lean) throws Exception {
+		long bytes = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			bytes += mapper.writeValueAsBytes(lean ? PageResponse.of(page, true) : page).length;
+		}
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < PAGES / ROUNDS; i++) {
+				bytes += mapper.writeValueAsBytes(lean ? PageResponse.of(page, true) : page).length;
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		assertThat(bytes).isPositive();
+		return best / 1000.0 / (PAGES / ROUNDS);
+	}
+
+}
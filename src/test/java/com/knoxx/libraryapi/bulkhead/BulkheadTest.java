@@ -0,0 +1,87 @@
+package com.knoxx.libraryapi.bulkhead;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BulkheadTest {
+
+	private final AtomicInteger decorated = new AtomicInteger();
+
+	private final Bulkhead bulkhead = new Bulkhead("reporting", 1, 1, task -> {
+		decorated.incrementAndGet();
+		return task;
+	});
+
+	@AfterEach
+	public void tearDown() {
+		bulkhead.shutdown();
+	}
+
+	@Test
+	@DisplayName("Should run decorated tasks on the bulkhead threads - Bulkhead")
+	public void submitTest() throws Exception {
+		CompletableFuture<String> result = bulkhead.submit(() -> Thread.currentThread().getName());
+
+		assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("reporting-bulkhead-1");
+		assertThat(decorated.get()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Should turn tasks away once the threads are busy and the queue is full - Bulkhead")
+	public void fullTest() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		bulkhead.bindTo(registry);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Integer> running = bulkhead.submit(() -> {
+			started.countDown();
+			await(release);
+			return 1;
+		});
+		started.await(5, TimeUnit.SECONDS);
+		CompletableFuture<Integer> queued = bulkhead.submit(() -> 2);
+
+		assertThat(bulkhead.getSaturation()).isEqualTo(1.0);
+		assertThatThrownBy(() -> bulkhead.submit(() -> 3)).isInstanceOf(BulkheadFullException.class)
+				.hasMessage("Server busy with reporting requests, try again later");
+		assertThat(registry.get("library.bulkhead.rejected").tag("bulkhead", "reporting").functionCounter().count())
+				.isEqualTo(1);
+
+		release.countDown();
+		assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+		assertThat(registry.get("library.bulkhead.queue_wait").timer().count()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should complete the future exceptionally when the task fails - Bulkhead")
+	public void failureTest() {
+		CompletableFuture<Object> result = bulkhead.submit(() -> {
+			throw new IllegalStateException("boom");
+		});
+
+		assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
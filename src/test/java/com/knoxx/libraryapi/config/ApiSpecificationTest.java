@@ -0,0 +1,81 @@
+package com.knoxx.libraryapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+@SpringBootTest(properties = "application.swagger.enabled=true")
+@AutoConfigureMockMvc
+public class ApiSpecificationTest {
+
+	static final Path SPECIFICATION = Paths.get("src/main/resources/static/api-docs/library-api.json");
+
+	static final Path COMPRESSED_SPECIFICATION = Paths.get("src/main/resources/static/api-docs/library-api.json.gz");
+
+	@Autowired
+	MockMvc mvc;
+
+	@Test
+	@DisplayName("Should keep the static API specification in sync with the controllers - Config")
+	public void staticSpecificationIsCurrentTest() throws Exception {
+		ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+				.enable(SerializationFeature.INDENT_OUTPUT);
+
+		String generated = mvc.perform(MockMvcRequestBuilders.get("/v2/api-docs")).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		JsonNode specification = mapper.readTree(generated);
+		((ObjectNode) specification).remove("host");
+		String expected = mapper.writeValueAsString(mapper.treeToValue(specification, Object.class)) + "\n";
+
+		// only an explicit update writes to the source tree
+		if (Boolean.getBoolean("api-spec.update")) {
+			write(expected);
+		}
+
+		assertThat(SPECIFICATION).as("Static API specification is missing, generate it with -Dapi-spec.update=true")
+				.exists();
+		assertThat(new String(Files.readAllBytes(SPECIFICATION), "UTF-8"))
+				.as("Static API specification is stale, regenerate it with -Dapi-spec.update=true")
+				.isEqualTo(expected);
+	}
+
+	@Test
+	@DisplayName("Should serve the static API specification compressed and cacheable - Config")
+	public void serveStaticSpecificationTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/api-docs/library-api.json").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, Matchers.containsString("max-age=3600")));
+	}
+
+	private void write(String specification) throws Exception {
+		Files.createDirectories(SPECIFICATION.getParent());
+		byte[] bytes = specification.getBytes("UTF-8");
+		Files.write(SPECIFICATION, bytes);
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(COMPRESSED_SPECIFICATION))) {
+			out.write(bytes);
+		}
+	}
+
+}
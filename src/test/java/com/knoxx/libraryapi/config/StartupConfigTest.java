@@ -0,0 +1,51 @@
+package com.knoxx.libraryapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.knoxx.libraryapi.service.impl.BookServiceImpl;
+import com.knoxx.libraryapi.service.impl.CatalogueSnapshotServiceImpl;
+import com.knoxx.libraryapi.service.impl.HoldServiceImpl;
+import com.knoxx.libraryapi.service.impl.LoanReturnJournalServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class StartupConfigTest {
+
+	@Test
+	@DisplayName("Should keep startup warmers out of lazy initialization - Config")
+	public void eagerBeansTest() {
+		LazyInitializationExcludeFilter filter = StartupConfig.eagerBeansLazyInitializationExcludeFilter();
+
+		assertThat(filter.isExcluded("holdService", null, HoldServiceImpl.class)).isTrue();
+		assertThat(filter.isExcluded("catalogueSnapshotService", null, CatalogueSnapshotServiceImpl.class)).isTrue();
+		assertThat(filter.isExcluded("loanReturnJournalService", null, LoanReturnJournalServiceImpl.class)).isTrue();
+		assertThat(filter.isExcluded("bookService", null, BookServiceImpl.class)).isFalse();
+	}
+
+	@Test
+	@DisplayName("Should keep reporting the startup time after a garbage collection - Config")
+	public void readyTimeGaugeTest() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBean(MeterRegistry.class, () -> registry);
+		context.registerBean(StartupConfig.class);
+		context.refresh();
+
+		context.getBean(StartupConfig.class).onReady(new ApplicationReadyEvent(new SpringApplication(), new String[0], context));
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+
+		assertThat(registry.get("library.startup.ready.time").timeGauge().value()).isNotNaN().isPositive();
+		context.close();
+	}
+
+}
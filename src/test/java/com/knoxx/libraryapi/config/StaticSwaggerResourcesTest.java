@@ -0,0 +1,32 @@
+package com.knoxx.libraryapi.config;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StaticSwaggerResourcesTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Test
+	@DisplayName("Should point swagger-ui at the static specification when scanning is off - Config")
+	public void staticSwaggerResourcesTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/v2/api-docs")).andExpect(status().isNotFound());
+		mvc.perform(MockMvcRequestBuilders.get("/swagger-resources")).andExpect(status().isOk())
+				.andExpect(jsonPath("[0].location").value("/api-docs/library-api.json"));
+		mvc.perform(MockMvcRequestBuilders.get("/swagger-resources/configuration/ui")).andExpect(status().isOk())
+				.andExpect(jsonPath("jsonEditor").value(false));
+		mvc.perform(MockMvcRequestBuilders.get("/api-docs/library-api.json")).andExpect(status().isOk());
+	}
+
+}
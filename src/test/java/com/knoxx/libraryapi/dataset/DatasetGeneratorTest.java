@@ -0,0 +1,110 @@
+package com.knoxx.libraryapi.dataset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DatasetGeneratorTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2021, 3, 15);
+
+	private static final int LOAN_DAYS = 14;
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	public void tearDown() {
+		clean();
+	}
+
+	@Test
+	@DisplayName("Should generate skewed, consistent loans with at most one open loan per book - Dataset")
+	public void generateDatasetTest() {
+		DatasetSpec spec = DatasetSpec.builder().books(2_000).loans(50_000).customers(5_000).build();
+
+		DatasetSummary summary = generator().generate(spec);
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		assertThat(count("select count(*) from book")).isEqualTo(2_000);
+		assertThat(count("select count(*) from loan")).isEqualTo(50_000);
+		assertThat(count("select count(*) from loan where status = 'OPEN'")).isEqualTo(summary.getOpenLoans())
+				.isPositive();
+		assertThat(count("select count(*) from (select id_book from loan where status = 'OPEN' "
+				+ "group by id_book having count(*) > 1)")).isZero();
+		assertThat(jdbcTemplate.queryForObject("select count(*) from loan where status = 'OPEN' and loan_date <= ?",
+				Long.class, TODAY.minusDays(LOAN_DAYS))).isEqualTo(summary.getOverdueLoans())
+						.isPositive();
+		assertThat(count("select count(*) from loan where due_date <> dateadd('DAY', " + LOAN_DAYS + ", loan_date)"))
+				.isZero();
+
+		List<Long> loansPerBook = jdbcTemplate.queryForList(
+				"select count(*) from loan group by id_book order by count(*) desc limit 20", Long.class);
+		assertThat(loansPerBook.stream().mapToLong(Long::longValue).sum()).isGreaterThan(50_000 * 3 / 10);
+		assertThat(count("select count(distinct customer) from loan")).isLessThan(5_000);
+		assertThat(count("select count(*) from book where isbn_key is null or cast(isbn as bigint) <> isbn_key"))
+				.isZero();
+	}
+
+	@Test
+	@DisplayName("Should generate the same rows for the same seed - Dataset")
+	public void deterministicDatasetTest() {
+		DatasetSpec spec = DatasetSpec.builder().books(500).loans(10_000).customers(1_000).build();
+
+		generator().generate(spec);
+		List<String> first = fingerprint();
+		clean();
+		generator().generate(spec);
+
+		assertThat(fingerprint()).isEqualTo(first);
+	}
+
+	@Test
+	@DisplayName("Should build valid ISBN-13 numbers and default to a million loans - Dataset")
+	public void isbnAndDefaultsTest() {
+		assertThat(DatasetGenerator.isbn13(30640615)).isEqualTo("9780306406157");
+		assertThat(new DatasetSpec().getLoans()).isEqualTo(1_000_000);
+	}
+
+	private DatasetGenerator generator() {
+		return new DatasetGenerator(dataSource, transactionManager, TODAY, LOAN_DAYS);
+	}
+
+	private List<String> fingerprint() {
+		return new JdbcTemplate(dataSource).queryForList(
+				"select concat(b.isbn, '|', l.customer, '|', l.loan_date, '|', l.status, '|', l.last_notification) "
+						+ "from loan l join book b on b.id = l.id_book order by l.id",
+				String.class);
+	}
+
+	private long count(String sql) {
+		return new JdbcTemplate(dataSource).queryForObject(sql, Long.class);
+	}
+
+	private void clean() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.update("delete from loan");
+		jdbcTemplate.update("delete from book");
+	}
+
+}
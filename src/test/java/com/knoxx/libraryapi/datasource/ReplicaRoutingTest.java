@@ -0,0 +1,134 @@
+package com.knoxx.libraryapi.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.knoxx.libraryapi.api.service.BookService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.repository.LoanRepository;
+
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+		"application.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+		"application.datasource.replica.max-lag-ms=500",
+		"application.datasource.replica.heartbeat-interval-ms=3600000" })
+@ActiveProfiles("test")
+public class ReplicaRoutingTest {
+
+	@TempDir
+	Path directory;
+
+	@Autowired
+	BookService bookService;
+
+	@Autowired
+	BookRepository bookRepository;
+
+	@Autowired
+	LoanRepository loanRepository;
+
+	@Autowired
+	ReplicaLagMonitor lagMonitor;
+
+	@Autowired
+	ReadYourWritesTracker readYourWrites;
+
+	@Autowired
+	ReplicaPools replicaPools;
+
+	@BeforeEach
+	public void setUp() {
+		loanRepository.deleteAll();
+		bookRepository.deleteAll();
+		replicate();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		readYourWrites.unbind();
+	}
+
+	@Test
+	@DisplayName("Should serve read-only searches from the replica - Routing")
+	public void readOnlySearchFromReplicaTest() {
+		bookService.save(Book.builder().title("Primary only").author("Fulano").isbn("9780306406157").build());
+		new JdbcTemplate(replicaPools.getReplica())
+				.update("insert into book (title, author, isbn) values ('Replica only', 'Fulano', '002')");
+
+		assertThat(searchTitles()).containsExactly("Replica only");
+	}
+
+	@Test
+	@DisplayName("Should read a client's own writes from the primary until the replica catches up - Routing")
+	public void readYourWritesTest() {
+		readYourWrites.bind("key:writer");
+		bookService.save(Book.builder().title("Checked out").author("Fulano").isbn("0-306-40615-2").build());
+
+		assertThat(searchTitles()).containsExactly("Checked out");
+
+		readYourWrites.bind("key:other");
+		assertThat(searchTitles()).isEmpty();
+
+		replicate();
+		new JdbcTemplate(replicaPools.getReplica())
+				.update("insert into book (title, author, isbn) values ('Replica only', 'Fulano', '004')");
+		readYourWrites.bind("key:writer");
+		assertThat(searchTitles()).containsExactlyInAnyOrder("Checked out", "Replica only");
+		assertThat(readYourWrites.getPinnedClients()).isZero();
+	}
+
+	@Test
+	@DisplayName("Should fall back to the primary when the replica lags beyond the tolerance - Routing")
+	public void laggingReplicaTest() throws InterruptedException {
+		bookService.save(Book.builder().title("Primary only").author("Fulano").isbn("9781861972712").build());
+		assertThat(searchTitles()).isEmpty();
+
+		Thread.sleep(600);
+		lagMonitor.heartbeat();
+
+		assertThat(lagMonitor.isReplicaUsable()).isFalse();
+		assertThat(searchTitles()).containsExactly("Primary only");
+	}
+
+	@Test
+	@DisplayName("Should read the rows an update or a hold promotion acts on from the primary - Routing")
+	public void readModifyWriteLookupsFromPrimaryTest() {
+		Book book = bookService.save(Book.builder().title("Primary only").author("Fulano").isbn("9780306406157").build());
+		new JdbcTemplate(replicaPools.getPrimary()).update("insert into loan (id_book, customer, loan_date, due_date, "
+				+ "status) values (?, 'Fulano', current_date, current_date, 'OPEN')", book.getId());
+
+		assertThat(lagMonitor.isReplicaUsable()).isTrue();
+		assertThat(bookRepository.findById(book.getId())).isPresent();
+		assertThat(loanRepository.existsByBookAndOpen(book)).isTrue();
+	}
+
+	private List<String> searchTitles() {
+		return bookService.find(new Book(), PageRequest.of(0, 10)).getContent().stream().map(Book::getTitle)
+				.collect(Collectors.toList());
+	}
+
+	private void replicate() {
+		lagMonitor.heartbeat();
+		String script = directory.resolve("snapshot.sql").toString();
+		new JdbcTemplate(replicaPools.getPrimary()).execute("SCRIPT TO '" + script + "'");
+		JdbcTemplate replica = new JdbcTemplate(replicaPools.getReplica());
+		replica.execute("DROP ALL OBJECTS");
+		replica.execute("RUNSCRIPT FROM '" + script + "'");
+		lagMonitor.heartbeat();
+	}
+
+}
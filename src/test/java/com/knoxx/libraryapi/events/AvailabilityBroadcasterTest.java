@@ -0,0 +1,153 @@
+package com.knoxx.libraryapi.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AvailabilityBroadcasterTest {
+
+	ScheduledExecutorService senders = new ScheduledThreadPoolExecutor(1);
+
+	CountDownLatch stalled = new CountDownLatch(1);
+
+	@AfterEach
+	public void tearDown() {
+		stalled.countDown();
+		senders.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Should disconnect a subscriber whose buffer is full without blocking the publisher - Events")
+	public void slowSubscriberEvictionTest() throws Exception {
+		AvailabilityBroadcaster broadcaster = new AvailabilityBroadcaster(16, 2, 10, 60_000, senders, 0, 0, SseEmitter::new);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		broadcaster.bindTo(registry);
+		senders.execute(() -> await(stalled));
+		broadcaster.subscribe(null);
+
+		broadcaster.publish(AvailabilityEvent.Type.CHECKED_OUT, 1l, 10l);
+		broadcaster.publish(AvailabilityEvent.Type.RETURNED, 1l, 10l);
+		assertThat(broadcaster.getSubscribers()).isEqualTo(1);
+		broadcaster.publish(AvailabilityEvent.Type.CHECKED_OUT, 2l, 10l);
+
+		assertThat(broadcaster.getSubscribers()).isZero();
+		assertThat(registry.get("library.events.availability.evicted").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("library.events.availability.published").functionCounter().count()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Should refuse subscribers over the limit - Events")
+	public void subscriberLimitTest() {
+		AvailabilityBroadcaster broadcaster = new AvailabilityBroadcaster(16, 2, 1, 60_000, senders, 0, 0, SseEmitter::new);
+
+		assertThat(broadcaster.subscribe(null)).isPresent();
+		assertThat(broadcaster.subscribe(null)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Should not let concurrent subscribers pass the limit - Events")
+	public void concurrentSubscriberLimitTest() throws Exception {
+		AvailabilityBroadcaster broadcaster = new AvailabilityBroadcaster(16, 2, 4, 60_000, senders, 0, 0, SseEmitter::new);
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> subscribed = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			subscribed.add(clients.submit(() -> {
+				start.await();
+				return broadcaster.subscribe(null).isPresent();
+			}));
+		}
+		start.countDown();
+		int accepted = 0;
+		for (Future<Boolean> future : subscribed) {
+			accepted += future.get() ? 1 : 0;
+		}
+		clients.shutdown();
+
+		assertThat(accepted).isEqualTo(4);
+		assertThat(broadcaster.getSubscribers()).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("Should disconnect a subscriber whose socket never drains and keep serving the others - Events")
+	public void stalledSendTest() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		AtomicInteger delivered = new AtomicInteger();
+		AtomicInteger created = new AtomicInteger();
+		AvailabilityBroadcaster broadcaster = new AvailabilityBroadcaster(16, 8, 10, 60_000, senders, 0, 100,
+				timeout -> created.getAndIncrement() == 0 ? new SseEmitter(timeout) {
+					@Override
+					public void send(SseEventBuilder builder) {
+						// the client stopped reading, and the write does not give up when interrupted
+						writing.countDown();
+						awaitUninterruptibly(stalled);
+					}
+				} : new SseEmitter(timeout) {
+					@Override
+					public void send(SseEventBuilder builder) {
+						delivered.incrementAndGet();
+					}
+				});
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		broadcaster.bindTo(registry);
+		broadcaster.subscribe(null);
+		broadcaster.subscribe(null);
+
+		broadcaster.publish(AvailabilityEvent.Type.CHECKED_OUT, 1l, 10l);
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		waitFor(() -> registry.get("library.events.availability.evicted").functionCounter().count() == 1);
+		broadcaster.publish(AvailabilityEvent.Type.RETURNED, 1l, 10l);
+		waitFor(() -> delivered.get() == 2);
+
+		assertThat(broadcaster.getSubscribers()).isEqualTo(1);
+		assertThat(delivered.get()).isEqualTo(2);
+		broadcaster.shutdown();
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (latch.getCount() > 0) {
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
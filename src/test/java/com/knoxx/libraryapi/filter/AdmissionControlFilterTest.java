@@ -0,0 +1,185 @@
+package com.knoxx.libraryapi.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knoxx.libraryapi.api.filter.AdmissionControlFilter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AdmissionControlFilterTest {
+
+	AdmissionControlFilter filter;
+
+	SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	public void setUp() {
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.filter = new AdmissionControlFilter(1, 2, 100, Collections.singleton("known"), 1, 1,
+				new ObjectMapper(), meterRegistry);
+	}
+
+	@Test
+	@DisplayName("Should reject a client over its rate with 429 before reaching the controller - Filter")
+	public void rateLimitTest() throws Exception {
+		assertThat(perform("GET", "/api/loans", "10.0.0.1").getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+		assertThat(perform("GET", "/api/loans", "10.0.0.1").getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+
+		MockHttpServletResponse rejected = perform("GET", "/api/loans", "10.0.0.1");
+
+		assertThat(rejected.getStatus()).isEqualTo(429);
+		assertThat(rejected.getContentAsString()).contains("Too many requests");
+		assertThat(perform("GET", "/api/loans", "10.0.0.2").getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+		assertThat(meterRegistry.get("library.admission.requests").tag("endpoint", "read")
+				.tag("outcome", "rate_limited").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Should rate limit rotating unknown API keys by address and bound the clients - Filter")
+	public void rotatingApiKeysTest() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		filter = new AdmissionControlFilter(1, 2, 2, Collections.singleton("known"), 1, 1, new ObjectMapper(),
+				meterRegistry);
+
+		for (int i = 0; i < 2; i++) {
+			assertThat(perform("GET", "/api/loans", "10.0.0.1", "key-" + i).getStatus())
+					.isEqualTo(HttpServletResponse.SC_OK);
+		}
+		assertThat(perform("GET", "/api/loans", "10.0.0.1", "key-2").getStatus()).isEqualTo(429);
+		assertThat(perform("GET", "/api/loans", "10.0.0.1", "known").getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+
+		MockHttpServletResponse rejected = perform("GET", "/api/loans", "10.0.0.2", null);
+
+		assertThat(rejected.getStatus()).isEqualTo(429);
+		assertThat(rejected.getContentAsString()).contains("Too many clients");
+		assertThat(meterRegistry.get("library.admission.clients").gauge().value()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should admit a new client once idle ones are evicted in the background - Filter")
+	public void evictIdleClientsTest() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		filter = new AdmissionControlFilter(1000, 1, 1, Collections.emptySet(), 1, 1, new ObjectMapper(),
+				meterRegistry);
+
+		assertThat(perform("GET", "/api/loans", "10.0.0.1").getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+		assertThat(perform("GET", "/api/loans", "10.0.0.2").getStatus()).isEqualTo(429);
+
+		Thread.sleep(10);
+		filter.evictIdleClients();
+
+		assertThat(perform("GET", "/api/loans", "10.0.0.2").getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+		assertThat(meterRegistry.get("library.admission.clients").gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Should never track more clients than the limit under concurrent arrivals - Filter")
+	public void concurrentClientsTest() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		filter = new AdmissionControlFilter(1, 2, 100, Collections.emptySet(), 1000, 1000, new ObjectMapper(),
+				meterRegistry);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Integer>> statuses = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < 400; i++) {
+				String address = "10.0." + (i / 250) + "." + (i % 250);
+				statuses.add(executor.submit(() -> perform("GET", "/api/loans", address).getStatus()));
+			}
+			int admitted = 0;
+			for (Future<Integer> status : statuses) {
+				admitted += status.get() == HttpServletResponse.SC_OK ? 1 : 0;
+			}
+
+			assertThat(admitted).isEqualTo(100);
+			assertThat(meterRegistry.get("library.admission.clients").gauge().value()).isEqualTo(100);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Should shed checkouts with 503 when the checkout concurrency is exhausted - Filter")
+	public void concurrencyLimitTest() throws Exception {
+		MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+		MockHttpServletRequest outer = request("POST", "/api/loans", "10.0.0.1");
+		MockFilterChain chain = new MockFilterChain() {
+			@Override
+			public void doFilter(javax.servlet.ServletRequest request, javax.servlet.ServletResponse response) {
+				try {
+					nested[0] = perform("POST", "/api/loans", "10.0.0.2");
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+
+		filter.doFilter(outer, new MockHttpServletResponse(), chain);
+
+		assertThat(nested[0].getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		assertThat(perform("POST", "/api/loans", "10.0.0.3").getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+	}
+
+	@Test
+	@DisplayName("Should not hold a read permit for an event stream - Filter")
+	public void eventStreamTest() throws Exception {
+		MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+		MockFilterChain chain = new MockFilterChain() {
+			@Override
+			public void doFilter(javax.servlet.ServletRequest request, javax.servlet.ServletResponse response) {
+				try {
+					nested[0] = perform("GET", "/api/loans", "10.0.0.2");
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+
+		filter.doFilter(request("GET", "/api/events/availability", "10.0.0.1"), new MockHttpServletResponse(), chain);
+
+		assertThat(nested[0].getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+		assertThat(meterRegistry.get("library.admission.requests").tag("endpoint", "stream")
+				.tag("outcome", "admitted").counter().count())
+				.isEqualTo(1);
+	}
+
+	private MockHttpServletResponse perform(String method, String uri, String address) throws Exception {
+		return perform(method, uri, address, null);
+	}
+
+	private MockHttpServletResponse perform(String method, String uri, String address, String apiKey)
+			throws Exception {
+		MockHttpServletRequest request = request(method, uri, address);
+		if (apiKey != null) {
+			request.addHeader("X-API-Key", apiKey);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	private MockHttpServletRequest request(String method, String uri, String address) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		request.setRemoteAddr(address);
+		return request;
+	}
+
+}
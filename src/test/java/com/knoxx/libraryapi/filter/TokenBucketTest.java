@@ -0,0 +1,49 @@
+package com.knoxx.libraryapi.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.knoxx.libraryapi.api.filter.ConcurrencyLimiter;
+import com.knoxx.libraryapi.api.filter.TokenBucket;
+
+public class TokenBucketTest {
+
+	@Test
+	@DisplayName("Should allow a burst and then refill at the configured rate - Filter")
+	public void burstAndRefillTest() {
+		AtomicLong clock = new AtomicLong(1000);
+		TokenBucket bucket = new TokenBucket(10, 3, clock::get);
+
+		assertThat(bucket.tryAcquire()).isTrue();
+		assertThat(bucket.tryAcquire()).isTrue();
+		assertThat(bucket.tryAcquire()).isTrue();
+		assertThat(bucket.tryAcquire()).isFalse();
+
+		clock.addAndGet(100);
+		assertThat(bucket.tryAcquire()).isTrue();
+		assertThat(bucket.tryAcquire()).isFalse();
+		assertThat(bucket.isFull()).isFalse();
+
+		clock.addAndGet(60_000);
+		assertThat(bucket.isFull()).isTrue();
+	}
+
+	@Test
+	@DisplayName("Should cap the number of requests in flight - Filter")
+	public void concurrencyLimiterTest() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+
+		limiter.release();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.getInFlight()).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.knoxx.libraryapi.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JobRunnerTest {
+
+	private final JobRunner runner = new JobRunner(2, 10);
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@AfterEach
+	public void tearDown() {
+		runner.shutdown();
+	}
+
+	@Test
+	@DisplayName("Should record the duration and items of a job - Job")
+	public void runTest() {
+		runner.bindTo(registry);
+
+		assertThat(runner.run("late-loans", () -> 42)).isEqualTo(42);
+		runner.run("late-loans", () -> 8);
+
+		assertThat(registry.get("library.jobs.duration").tag("job", "late-loans").timer().count()).isEqualTo(2);
+		assertThat(registry.get("library.jobs.items").tag("job", "late-loans").counter().count()).isEqualTo(50);
+		assertThat(registry.find("library.jobs.failures").counter()).isNull();
+	}
+
+	@Test
+	@DisplayName("Should count a failed run and rethrow its error - Job")
+	public void failureTest() {
+		runner.bindTo(registry);
+
+		assertThatThrownBy(() -> runner.run("loan-archive", () -> {
+			throw new IllegalStateException("boom");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(registry.get("library.jobs.failures").tag("job", "loan-archive").counter().count()).isEqualTo(1);
+		assertThat(registry.get("library.jobs.duration").tag("job", "loan-archive").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Should process every item once across the worker partitions - Job")
+	public void partitionTest() {
+		List<Integer> items = IntStream.range(0, 1_000).boxed().collect(Collectors.toList());
+		Set<Integer> seen = ConcurrentHashMap.newKeySet();
+		LongAdder calls = new LongAdder();
+
+		runner.forEachPartitioned(items, item -> {
+			seen.add(item);
+			calls.increment();
+		});
+
+		assertThat(calls.sum()).isEqualTo(1_000);
+		assertThat(seen).hasSize(1_000);
+	}
+
+	@Test
+	@DisplayName("Should rethrow the failure of a partition - Job")
+	public void partitionFailureTest() {
+		List<Integer> items = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+		assertThatThrownBy(() -> runner.forEachPartitioned(items, item -> {
+			if (item == 57) {
+				throw new IllegalArgumentException("item " + item);
+			}
+		})).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("item 57");
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.knoxx.libraryapi.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ReturnJournalDurabilityTest {
+
+	private static final int ACKS_BEFORE_KILL = 2_000;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Should recover every acknowledged return after the writer process is killed - Journal")
+	public void killedWriterTest() throws Exception {
+		Path path = directory.resolve("returns.dat");
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process writer = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				ReturnJournalWriter.class.getName(), path.toString()).redirectErrorStream(true).start();
+
+		Set<Long> acknowledged = new HashSet<>();
+		try (BufferedReader output = new BufferedReader(
+				new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while (acknowledged.size() < ACKS_BEFORE_KILL && (line = output.readLine()) != null) {
+				if (line.startsWith("ACK ")) {
+					acknowledged.add(Long.valueOf(line.substring(4)));
+				}
+			}
+			writer.destroyForcibly();
+			assertThat(writer.waitFor(30, TimeUnit.SECONDS)).isTrue();
+		}
+		assertThat(acknowledged).hasSize(ACKS_BEFORE_KILL);
+
+		try (ReturnJournal journal = ReturnJournal.open(path, 64 * 1024 * 1024, 2)) {
+			Set<Long> recovered = journal.drain(Integer.MAX_VALUE).stream().map(ReturnRecord::getLoanId)
+					.collect(Collectors.toSet());
+
+			assertThat(recovered).containsAll(acknowledged);
+		}
+	}
+
+}
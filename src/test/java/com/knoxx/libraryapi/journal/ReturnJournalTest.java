@@ -0,0 +1,79 @@
+package com.knoxx.libraryapi.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ReturnJournalTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Should acknowledge appends once flushed and hand them out in order - Journal")
+	public void appendAndDrainTest() throws Exception {
+		try (ReturnJournal journal = ReturnJournal.open(directory.resolve("returns.dat"), 4096, 1)) {
+			CompletableFuture<Long> first = journal.append(10, true);
+			CompletableFuture<Long> second = journal.append(11, false);
+
+			assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+			assertThat(first.get()).isEqualTo(1);
+
+			List<ReturnRecord> records = journal.drain(10);
+			assertThat(records).extracting(ReturnRecord::getLoanId).containsExactly(10l, 11l);
+			assertThat(records.get(0).isReturned()).isTrue();
+			assertThat(records.get(1).isReturned()).isFalse();
+		}
+	}
+
+	@Test
+	@DisplayName("Should replay only the returns that were not applied yet after reopening - Journal")
+	public void recoveryTest() throws Exception {
+		Path path = directory.resolve("returns.dat");
+		try (ReturnJournal journal = ReturnJournal.open(path, 4096, 1)) {
+			for (long loanId = 1; loanId <= 5; loanId++) {
+				journal.append(loanId, true);
+			}
+			journal.flush();
+			journal.markApplied(journal.drain(2).get(1).getSeq());
+		}
+
+		try (ReturnJournal journal = ReturnJournal.open(path, 4096, 1)) {
+			assertThat(journal.getAppliedSeq()).isEqualTo(2);
+			assertThat(journal.drain(10)).extracting(ReturnRecord::getLoanId).containsExactly(3l, 4l, 5l);
+
+			assertThat(journal.append(6, true).get(5, TimeUnit.SECONDS)).isEqualTo(6);
+		}
+	}
+
+	@Test
+	@DisplayName("Should reuse the journal space once every return is applied - Journal")
+	public void compactionTest() throws Exception {
+		Path path = directory.resolve("returns.dat");
+		int capacity = ReturnJournal.HEADER_SIZE + 3 * ReturnJournal.RECORD_SIZE;
+		try (ReturnJournal journal = ReturnJournal.open(path, capacity, 1)) {
+			journal.append(1, true);
+			journal.append(2, true);
+			journal.append(3, true);
+			assertThat(journal.append(4, true)).isNull();
+
+			journal.flush();
+			journal.markApplied(journal.drain(10).get(2).getSeq());
+			assertThat(journal.getUsedBytes()).isEqualTo(ReturnJournal.HEADER_SIZE);
+
+			journal.append(4, true).get(5, TimeUnit.SECONDS);
+		}
+
+		try (ReturnJournal journal = ReturnJournal.open(path, capacity, 1)) {
+			assertThat(journal.drain(10)).extracting(ReturnRecord::getLoanId).containsExactly(4l);
+		}
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.knoxx.libraryapi.journal;
+
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Child process used by {@link ReturnJournalDurabilityTest}: appends returns
+ * from several threads and prints every acknowledged loan id until killed.
+ */
+public class ReturnJournalWriter {
+
+	public static void main(String[] args) throws Exception {
+		ReturnJournal journal = ReturnJournal.open(Paths.get(args[0]), 64 * 1024 * 1024, 2);
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			final long first = t;
+			executor.execute(() -> {
+				for (long loanId = first + 1;; loanId += threads) {
+					journal.append(loanId, true).join();
+					synchronized (System.out) {
+						System.out.println("ACK " + loanId);
+						System.out.flush();
+					}
+				}
+			});
+		}
+	}
+
+}
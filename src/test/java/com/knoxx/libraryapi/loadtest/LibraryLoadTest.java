@@ -0,0 +1,199 @@
+package com.knoxx.libraryapi.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.sql.DataSource;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knoxx.libraryapi.api.dto.LoanDTO;
+import com.knoxx.libraryapi.api.dto.ReturnedBookDTO;
+import com.knoxx.libraryapi.loadtest.OpenModelLoadDriver.ScenarioResult;
+
+/**
+ * Boots the application on a random port with a generated dataset and drives
+ * a mixed workload over HTTP: catalogue browsing, a checkout storm in the
+ * middle of the run, returns of open loans and deep paging through the loan
+ * history of the busiest customers. Run it with {@code mvn test -Ploadtest};
+ * sizes, rates and durations are overridable with {@code -Dloadtest.*}.
+ */
+@Tag("loadtest")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"application.dataset.seed.enabled=true",
+		"application.dataset.seed.books=${loadtest.books:20000}",
+		"application.dataset.seed.loans=${loadtest.loans:200000}",
+		"application.dataset.seed.customers=${loadtest.customers:5000}",
+		"application.admission.rate-per-second=10000",
+		"application.admission.burst=10000",
+		"logging.file.name=target/load-test/application.log" })
+public class LibraryLoadTest {
+
+	private static final String[] BUSY_CUSTOMERS = { "customer1", "customer2", "customer3", "customer4",
+			"customer5" };
+
+	private static final int PAGE_SIZE = 20;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ConcurrentLinkedQueue<Long> openLoans = new ConcurrentLinkedQueue<>();
+
+	private final Map<String, Integer> customerPages = new LinkedHashMap<>();
+
+	private List<String> isbns;
+
+	private CloseableHttpClient client;
+
+	@BeforeEach
+	public void setUp() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		isbns = jdbcTemplate.queryForList("select isbn from book order by id", String.class);
+		openLoans.addAll(jdbcTemplate.queryForList("select id from loan where status = 'OPEN'", Long.class));
+		for (String customer : BUSY_CUSTOMERS) {
+			Long loans = jdbcTemplate.queryForObject("select count(*) from loan where customer = ?", Long.class,
+					customer);
+			customerPages.put(customer, (int) Math.max(1, (loans + PAGE_SIZE - 1) / PAGE_SIZE));
+		}
+		int workers = Integer.getInteger("loadtest.workers", 64);
+		client = HttpClients.custom().setMaxConnTotal(workers).setMaxConnPerRoute(workers).build();
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		client.close();
+	}
+
+	@Test
+	@DisplayName("Should serve a mixed open-model workload without server errors - Load test")
+	public void mixedWorkload() throws Exception {
+		long warmup = Long.getLong("loadtest.warmup-seconds", 10);
+		long duration = Long.getLong("loadtest.duration-seconds", 60);
+		int workers = Integer.getInteger("loadtest.workers", 64);
+		double browseRate = rate("browse", 20);
+		double checkoutRate = rate("checkout", 2);
+		double stormFactor = rate("storm-factor", 10);
+		double returnRate = rate("return", 2);
+		double pagingRate = rate("paging", 0.2);
+		double stormFrom = warmup + duration * 0.4;
+		double stormTo = warmup + duration * 0.6;
+
+		List<LoadScenario> scenarios = Arrays.asList(
+				LoadScenario.constant("browse", browseRate, random -> send(new HttpGet(
+						url("/api/books?page=" + random.nextInt(isbns.size() / PAGE_SIZE) + "&size=" + PAGE_SIZE)))),
+				LoadScenario.storm("checkout", checkoutRate, stormFactor, stormFrom, stormTo,
+						random -> checkout(isbns.get(random.nextInt(isbns.size())), random.nextInt(5000) + 1)),
+				LoadScenario.constant("return", returnRate, random -> giveBack()),
+				LoadScenario.constant("deep-paging", pagingRate, random -> {
+					String customer = BUSY_CUSTOMERS[random.nextInt(BUSY_CUSTOMERS.length)];
+					int pages = customerPages.get(customer);
+					int page = pages - 1 - random.nextInt(Math.max(1, pages / 10));
+					return send(new HttpGet(
+							url("/api/loans?customer=" + customer + "&page=" + page + "&size=" + PAGE_SIZE)));
+				}));
+
+		List<ScenarioResult> results = new OpenModelLoadDriver(scenarios, workers).run(warmup, duration);
+
+		Map<String, String> settings = new LinkedHashMap<>();
+		settings.put("books", String.valueOf(isbns.size()));
+		settings.put("warmup-seconds", String.valueOf(warmup));
+		settings.put("duration-seconds", String.valueOf(duration));
+		settings.put("workers", String.valueOf(workers));
+		settings.put("rate.browse", String.valueOf(browseRate));
+		settings.put("rate.checkout", checkoutRate + " (x" + stormFactor + " from " + stormFrom + "s to " + stormTo
+				+ "s)");
+		settings.put("rate.return", String.valueOf(returnRate));
+		settings.put("rate.deep-paging", String.valueOf(pagingRate));
+		Optional<Path> baseline = Optional.ofNullable(System.getProperty("loadtest.baseline")).map(Paths::get);
+		String report = new LoadTestReport(Paths.get("target", "load-test")).write(settings, results, baseline);
+		System.out.println(report);
+
+		for (ScenarioResult result : results) {
+			assertThat(result.getHistogram().getTotalCount()).as(result.getName()).isPositive();
+			assertThat(result.getErrors()).as(result.getName()).isZero();
+		}
+	}
+
+	private int checkout(String isbn, int customer) throws Exception {
+		LoanDTO dto = LoanDTO.builder().ISBN(isbn).customer("customer" + customer)
+				.email("customer" + customer + "@example.com").build();
+		HttpPost post = new HttpPost(url("/api/loans"));
+		post.setEntity(new StringEntity(objectMapper.writeValueAsString(dto), ContentType.APPLICATION_JSON));
+		HttpResponse response = client.execute(post);
+		try {
+			int status = response.getStatusLine().getStatusCode();
+			if (status == 201) {
+				openLoans.add(Long.valueOf(EntityUtils.toString(response.getEntity())));
+			}
+			return status;
+		} finally {
+			EntityUtils.consumeQuietly(response.getEntity());
+		}
+	}
+
+	private int giveBack() throws Exception {
+		Long id = openLoans.poll();
+		if (id == null) {
+			return 204;
+		}
+		HttpPatch patch = new HttpPatch(url("/api/loans/" + id));
+		patch.setEntity(new StringEntity(objectMapper.writeValueAsString(ReturnedBookDTO.builder().returned(true).build()),
+				ContentType.APPLICATION_JSON));
+		return send(patch);
+	}
+
+	private int send(HttpUriRequest request) throws IOException {
+		HttpResponse response = client.execute(request);
+		try {
+			return response.getStatusLine().getStatusCode();
+		} finally {
+			EntityUtils.consumeQuietly(response.getEntity());
+		}
+	}
+
+	private String url(String path) {
+		return "http://localhost:" + port + path;
+	}
+
+	private static double rate(String name, double defaultValue) {
+		String value = System.getProperty("loadtest.rate." + name);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.knoxx.libraryapi.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A named request mix entry. Arrivals follow a Poisson process whose rate (per
+ * second) may change with the elapsed run time in seconds.
+ */
+public class LoadScenario {
+
+	@FunctionalInterface
+	public interface Request {
+
+		/**
+		 * Issues one request and returns its HTTP status.
+		 */
+		int execute(ThreadLocalRandom random) throws Exception;
+
+	}
+
+	private final String name;
+
+	private final DoubleUnaryOperator rate;
+
+	private final Request request;
+
+	private LoadScenario(String name, DoubleUnaryOperator rate, Request request) {
+		this.name = name;
+		this.rate = rate;
+		this.request = request;
+	}
+
+	public static LoadScenario constant(String name, double perSecond, Request request) {
+		return new LoadScenario(name, elapsed -> perSecond, request);
+	}
+
+	/**
+	 * Runs at {@code perSecond}, multiplied by {@code factor} between
+	 * {@code from} and {@code to} seconds into the run.
+	 */
+	public static LoadScenario storm(String name, double perSecond, double factor, double from, double to,
+			Request request) {
+		return new LoadScenario(name, elapsed -> elapsed >= from && elapsed < to ? perSecond * factor : perSecond,
+				request);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public double rateAt(double elapsedSeconds) {
+		return rate.applyAsDouble(elapsedSeconds);
+	}
+
+	public Request getRequest() {
+		return request;
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.knoxx.libraryapi.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.Histogram;
+
+import com.knoxx.libraryapi.loadtest.OpenModelLoadDriver.ScenarioResult;
+
+/**
+ * Writes one directory per run with a summary table, the run settings, a
+ * {@code summary.properties} file and the full percentile distribution of
+ * every scenario ({@code .hgrm}, plottable with HdrHistogram tooling). The
+ * table is compared against the previous run in the same parent directory,
+ * or against the run given as baseline.
+ */
+public class LoadTestReport {
+
+	private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final Path root;
+
+	public LoadTestReport(Path root) {
+		this.root = root;
+	}
+
+	public String write(Map<String, String> settings, List<ScenarioResult> results, Optional<Path> baseline)
+			throws IOException {
+		Path run = root.resolve(RUN_NAME.format(LocalDateTime.now()));
+		Files.createDirectories(run);
+		Properties previous = load(baseline.isPresent() ? baseline : previousRun(run));
+
+		Properties summary = new Properties();
+		settings.forEach((key, value) -> summary.setProperty("settings." + key, value));
+		StringWriter text = new StringWriter();
+		PrintWriter out = new PrintWriter(text);
+		out.printf("Load test %s%n", run.getFileName());
+		settings.forEach((key, value) -> out.printf("  %s = %s%n", key, value));
+		out.println();
+		out.printf("%-12s %9s %9s %8s %8s %6s %9s %9s %9s %9s %9s %12s%n", "scenario", "offered/s", "done/s", "ok",
+				"4xx", "err", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "p99 vs prev");
+		for (ScenarioResult result : results) {
+			Histogram histogram = result.getHistogram();
+			String name = result.getName();
+			summary.setProperty(name + ".offered", format(result.getOfferedPerSecond()));
+			summary.setProperty(name + ".completed", format(result.getCompletedPerSecond()));
+			summary.setProperty(name + ".ok", String.valueOf(result.getOk()));
+			summary.setProperty(name + ".rejected", String.valueOf(result.getRejected()));
+			summary.setProperty(name + ".errors", String.valueOf(result.getErrors()));
+			out.printf("%-12s %9.1f %9.1f %8d %8d %6d", name, result.getOfferedPerSecond(),
+					result.getCompletedPerSecond(), result.getOk(), result.getRejected(), result.getErrors());
+			for (double percentile : PERCENTILES) {
+				double millis = histogram.getValueAtPercentile(percentile) / 1000.0;
+				summary.setProperty(name + ".p" + percentile, format(millis));
+				out.printf(" %9.2f", millis);
+			}
+			double max = histogram.getMaxValue() / 1000.0;
+			summary.setProperty(name + ".max", format(max));
+			out.printf(" %9.2f %12s%n", max, delta(previous.getProperty(name + ".p99.0"),
+					histogram.getValueAtPercentile(99) / 1000.0));
+
+			try (OutputStream hgrm = Files.newOutputStream(run.resolve(name + ".hgrm"));
+					PrintStream stream = new PrintStream(hgrm)) {
+				histogram.outputPercentileDistribution(stream, 1000.0);
+			}
+		}
+		out.flush();
+
+		try (OutputStream stream = Files.newOutputStream(run.resolve("summary.properties"))) {
+			summary.store(stream, "Load test summary, latencies in milliseconds");
+		}
+		Files.write(run.resolve("report.txt"), text.toString().getBytes());
+		return text.toString();
+	}
+
+	private Optional<Path> previousRun(Path run) throws IOException {
+		try (Stream<Path> runs = Files.list(root)) {
+			return runs.filter(path -> Files.isRegularFile(path.resolve("summary.properties")))
+					.filter(path -> path.getFileName().toString().compareTo(run.getFileName().toString()) < 0)
+					.max(Path::compareTo);
+		}
+	}
+
+	private static Properties load(Optional<Path> run) throws IOException {
+		Properties properties = new Properties();
+		if (run.isPresent()) {
+			try (InputStream stream = Files.newInputStream(run.get().resolve("summary.properties"))) {
+				properties.load(stream);
+			}
+		}
+		return properties;
+	}
+
+	private static String delta(String previous, double current) {
+		if (previous == null) {
+			return "-";
+		}
+		double before = Double.parseDouble(previous);
+		return before == 0 ? "-" : String.format("%+.1f%%", (current - before) * 100 / before);
+	}
+
+	private static String format(double value) {
+		return String.format("%.3f", value);
+	}
+
+}
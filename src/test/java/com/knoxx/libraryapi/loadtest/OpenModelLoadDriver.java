@@ -0,0 +1,212 @@
+package com.knoxx.libraryapi.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Drives scenarios with an open workload model: every scenario schedules
+ * Poisson arrivals on its own thread and hands them to a shared worker pool,
+ * without waiting for earlier responses. Latency is measured from the
+ * scheduled arrival, so time spent queued behind a slow server is recorded
+ * instead of silently lowering the offered load.
+ */
+public class OpenModelLoadDriver {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+	private final List<LoadScenario> scenarios;
+
+	private final int workers;
+
+	public OpenModelLoadDriver(List<LoadScenario> scenarios, int workers) {
+		this.scenarios = scenarios;
+		this.workers = workers;
+	}
+
+	/**
+	 * Runs the warm-up followed by the measured window and returns one result per
+	 * scenario, in scenario order. Only arrivals scheduled in the measured window
+	 * are recorded.
+	 */
+	public List<ScenarioResult> run(long warmupSeconds, long durationSeconds) throws InterruptedException {
+		AtomicInteger threads = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+			Thread thread = new Thread(runnable, "load-worker-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+		long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+		List<ScenarioRun> runs = new ArrayList<>();
+		for (LoadScenario scenario : scenarios) {
+			ScenarioRun run = new ScenarioRun(scenario, pool, start, measureFrom, end);
+			run.arrivals.start();
+			runs.add(run);
+		}
+		for (ScenarioRun run : runs) {
+			run.arrivals.join();
+		}
+		pool.shutdown();
+		if (!pool.awaitTermination(2, TimeUnit.MINUTES)) {
+			pool.shutdownNow();
+		}
+
+		List<ScenarioResult> results = new ArrayList<>();
+		for (ScenarioRun run : runs) {
+			results.add(new ScenarioResult(run.scenario.getName(), run.scheduled.sum() / (double) durationSeconds,
+					durationSeconds, run.recorder.getIntervalHistogram(), run.ok.sum(), run.rejected.sum(),
+					run.errors.sum()));
+		}
+		return results;
+	}
+
+	private static class ScenarioRun {
+
+		private final LoadScenario scenario;
+
+		private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+		private final LongAdder scheduled = new LongAdder();
+
+		private final LongAdder ok = new LongAdder();
+
+		private final LongAdder rejected = new LongAdder();
+
+		private final LongAdder errors = new LongAdder();
+
+		private final Thread arrivals;
+
+		ScenarioRun(LoadScenario scenario, ExecutorService pool, long start, long measureFrom, long end) {
+			this.scenario = scenario;
+			this.arrivals = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long next = start;
+				while (true) {
+					double rate = scenario.rateAt((next - start) / 1e9);
+					if (rate <= 0) {
+						next += TimeUnit.MILLISECONDS.toNanos(100);
+					} else {
+						next += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+					}
+					if (next >= end) {
+						return;
+					}
+					long wait = next - System.nanoTime();
+					if (wait > 0) {
+						LockSupport.parkNanos(wait);
+					}
+					if (rate > 0) {
+						long intended = next;
+						boolean measured = intended >= measureFrom;
+						if (measured) {
+							scheduled.increment();
+						}
+						pool.execute(() -> execute(intended, measured));
+					}
+				}
+			}, "load-arrivals-" + scenario.getName());
+			this.arrivals.setDaemon(true);
+		}
+
+		private void execute(long intended, boolean measured) {
+			int status;
+			try {
+				status = scenario.getRequest().execute(ThreadLocalRandom.current());
+			} catch (Exception e) {
+				status = -1;
+			}
+			if (!measured) {
+				return;
+			}
+			recorder.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+					Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended))));
+			if (status >= 200 && status < 400) {
+				ok.increment();
+			} else if (status >= 400 && status < 500) {
+				rejected.increment();
+			} else {
+				errors.increment();
+			}
+		}
+
+	}
+
+	public static class ScenarioResult {
+
+		private final String name;
+
+		private final double offeredPerSecond;
+
+		private final long durationSeconds;
+
+		private final Histogram histogram;
+
+		private final long ok;
+
+		private final long rejected;
+
+		private final long errors;
+
+		ScenarioResult(String name, double offeredPerSecond, long durationSeconds, Histogram histogram, long ok,
+				long rejected, long errors) {
+			this.name = name;
+			this.offeredPerSecond = offeredPerSecond;
+			this.durationSeconds = durationSeconds;
+			this.histogram = histogram;
+			this.ok = ok;
+			this.rejected = rejected;
+			this.errors = errors;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public double getOfferedPerSecond() {
+			return offeredPerSecond;
+		}
+
+		public double getCompletedPerSecond() {
+			return histogram.getTotalCount() / (double) durationSeconds;
+		}
+
+		/**
+		 * Latency histogram in microseconds.
+		 */
+		public Histogram getHistogram() {
+			return histogram;
+		}
+
+		public long getOk() {
+			return ok;
+		}
+
+		/**
+		 * 4xx responses, such as checkouts of a book that is already loaned.
+		 */
+		public long getRejected() {
+			return rejected;
+		}
+
+		/**
+		 * 5xx responses and requests that failed without a response.
+		 */
+		public long getErrors() {
+			return errors;
+		}
+
+	}
+
+}
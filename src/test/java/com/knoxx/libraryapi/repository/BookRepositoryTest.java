@@ -2,6 +2,7 @@ package com.knoxx.libraryapi.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.DisplayName;
@@ -11,13 +12,20 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
 import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.util.Isbn;
 
 @ExtendWith(MockitoExtension.class)
 @ActiveProfiles("tests")
-@DataJpaTest
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.knoxx.libraryapi.repository.StatementCapture" })
 public class BookRepositoryTest {
 	
 	@Autowired
@@ -29,13 +37,11 @@ public class BookRepositoryTest {
 	@Test
 	@DisplayName("Should return true when ISBN already exists - Repository")
 	public void returnTrueWhenISBNExist() {
-		String isbn = "123";
-		
-		Book book = createNewBook(isbn);
+		Book book = createNewBook("9780306406157");
 		
 		entityManager.persist(book);
 		
-		boolean exists = repository.existsByIsbn(isbn);
+		boolean exists = repository.existsByIsbnKey(9780306406157l);
 		
 		assertThat(exists).isTrue();
 	}
@@ -44,9 +50,7 @@ public class BookRepositoryTest {
 	@Test
 	@DisplayName("Should return true when ISBN does not exist - Repository")
 	public void returnFalseWhenISBNDoesNotExist() {
-		String isbn = "123";
-		
-		boolean exist = repository.existsByIsbn(isbn);
+		boolean exist = repository.existsByIsbnKey(9780306406157l);
 		
 		assertThat(exist).isFalse();
 	}
@@ -97,8 +101,32 @@ public class BookRepositoryTest {
 	}
 	
 	
+	@Test
+	@DisplayName("Should find a slice of books by example without counting them - Repository")
+	public void findSliceTest() {
+		entityManager.persist(createNewBook("9780306406157"));
+		entityManager.persist(createNewBook("9781861972712"));
+		entityManager.persist(Book.builder().author("Outro").title("Memorias").isbn("9780131103627")
+				.isbnKey(9780131103627l).build());
+		entityManager.flush();
+		Example<Book> example = Example.of(Book.builder().author("aut").build(), ExampleMatcher.matching()
+				.withIgnoreCase().withIgnoreNullValues().withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+
+		StatementCapture.start();
+		Slice<Book> first = repository.findSlice(example, PageRequest.of(0, 1, Sort.by("isbnKey")));
+		Slice<Book> last = repository.findSlice(example, PageRequest.of(1, 1, Sort.by("isbnKey")));
+		List<String> statements = StatementCapture.stop();
+
+		assertThat(first.getContent()).extracting(Book::getIsbnKey).containsExactly(9780306406157l);
+		assertThat(first.hasNext()).isTrue();
+		assertThat(last.getContent()).extracting(Book::getIsbnKey).containsExactly(9781861972712l);
+		assertThat(last.hasNext()).isFalse();
+		assertThat(statements).hasSize(2).noneMatch(sql -> sql.toLowerCase().contains("count("));
+	}
+	
+	
 	public Book createNewBook(String isbn) {
-		return Book.builder().author("Autor").title("As Aventuras").isbn(isbn).build();
+		return Book.builder().author("Autor").title("As Aventuras").isbn(isbn).isbnKey(Isbn.toKey(isbn)).build();
 	}
 	
 
@@ -3,8 +3,10 @@ package com.knoxx.libraryapi.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
+import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,10 +16,14 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanArchive;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.util.Isbn;
 
 @ExtendWith(MockitoExtension.class)
 @ActiveProfiles("Test")
@@ -30,14 +36,16 @@ public class LoanRepositoryTest {
 	@Autowired
 	private TestEntityManager entityManager;
 
+	private long nextIsbn = 978030640615L;
+
 	@Test
 	@DisplayName("Should verify if the book is still loaned - Repository")
-	public void existsByBookAndNotReturnedTest() {
+	public void existsByBookAndOpenTest() {
 
 		Loan loan = createAndPersisteLoan(LocalDate.now());
 		Book book = loan.getBook();
 
-		boolean exists = repository.existsByBookAndNotReturned(book);
+		boolean exists = repository.existsByBookAndOpen(book);
 
 		assertThat(exists).isTrue();
 
@@ -48,7 +56,7 @@ public class LoanRepositoryTest {
 	public void findByBookIsbnOrCustomerTest() {
 		Loan loan = createAndPersisteLoan(LocalDate.now());
 
-		Page<Loan> result = repository.findByBookIsbnOrCustomer(loan.getISBN(), loan.getCustomer(),
+		Page<Loan> result = repository.findByBookIsbnOrCustomer(loan.getBook().getIsbnKey(), "Ciclano",
 				PageRequest.of(0, 10));
 		
 		assertThat(result.getContent()).hasSize(1);
@@ -58,12 +66,66 @@ public class LoanRepositoryTest {
 
 	}
 
+	@Test
+	@DisplayName("Should not let a journaled return overwrite a loan marked lost after it - Repository")
+	public void journaledReturnAfterLostTest() {
+		Loan lost = createAndPersisteLoan(LocalDate.now());
+		Loan open = createAndPersisteLoan(LocalDate.now());
+		lost.setStatus(LoanStatus.LOST);
+		entityManager.flush();
+
+		int updated = repository.updateStatusUnlessLost(Arrays.asList(lost.getId(), open.getId()),
+				LoanStatus.RETURNED, LocalDate.now());
+		entityManager.clear();
+
+		assertThat(updated).isEqualTo(1);
+		assertThat(repository.findById(lost.getId()).get().getStatus()).isEqualTo(LoanStatus.LOST);
+		assertThat(repository.findById(open.getId()).get().getStatus()).isEqualTo(LoanStatus.RETURNED);
+	}
+
+	@Test
+	@DisplayName("Should leave a loan and its returned date alone when a return is repeated - Repository")
+	public void repeatedReturnTest() {
+		Loan returned = createAndPersisteLoan(LocalDate.now().minusDays(10));
+		returned.setStatus(LoanStatus.RETURNED);
+		returned.setReturnedDate(LocalDate.now().minusDays(5));
+		Loan open = createAndPersisteLoan(LocalDate.now());
+		entityManager.flush();
+		List<Long> ids = Arrays.asList(returned.getId(), open.getId());
+
+		List<Object[]> changes = repository.lockStatusChanges(ids, LoanStatus.RETURNED);
+		int updated = repository.updateStatusUnlessLost(ids, LoanStatus.RETURNED, LocalDate.now());
+		entityManager.clear();
+
+		assertThat(changes).extracting(row -> row[0], row -> row[1])
+				.containsExactly(Assertions.tuple(open.getId(), open.getBook().getId()));
+		assertThat(updated).isEqualTo(1);
+		assertThat(repository.findById(returned.getId()).get().getReturnedDate())
+				.isEqualTo(LocalDate.now().minusDays(5));
+	}
+
+	@Test
+	@DisplayName("Should remember the stored status of a loaded loan - Repository")
+	public void storedStatusTest() {
+		Loan loan = createAndPersisteLoan(LocalDate.now());
+		entityManager.flush();
+		entityManager.clear();
+
+		Loan found = repository.findById(loan.getId()).get();
+		found.setStatus(LoanStatus.RETURNED);
+
+		assertThat(found.getStoredStatus()).isEqualTo(LoanStatus.OPEN);
+	}
+
 	private Loan createAndPersisteLoan(LocalDate loanDate) {
-		Book book = Book.builder().author("Autor").title("As Aventuras").isbn("123").build();
+		long isbnKey = Isbn.withCheckDigit(nextIsbn++);
+		Book book = Book.builder().author("Autor").title("As Aventuras").isbn(Isbn.format(isbnKey)).isbnKey(isbnKey)
+				.build();
 
 		entityManager.persist(book);
 
-		Loan loan = Loan.builder().customer("Fulano").loanDate(loanDate).book(book).build();
+		Loan loan = Loan.builder().customer("Fulano").loanDate(loanDate).dueDate(loanDate.plusDays(4)).status(LoanStatus.OPEN)
+				.book(book).build();
 
 		entityManager.persist(loan);
 		return loan;
@@ -71,11 +133,11 @@ public class LoanRepositoryTest {
 	
 	
 	@Test
-	@DisplayName("Should get loan where loan date is less or equals to 3 days and not returned - Repository")
-	public void findByLoanDateLessThanAndNotReturned() {
+	@DisplayName("Should get open loans due by today - Repository")
+	public void findByDueDateLessThanEqualAndOpen() {
 		Loan loan = createAndPersisteLoan(LocalDate.now().minusDays(5));
 		
-		List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+		List<Loan> result = repository.findByDueDateLessThanEqualAndOpen(LocalDate.now());
 		
 		
 		assertThat(result).hasSize(1).contains(loan);
@@ -83,13 +145,89 @@ public class LoanRepositoryTest {
 	
 	@Test
 	@DisplayName("Should return empty when there is no delayed loan - Repository")
-	public void notFindByLoanDateLessThanAndNotReturned() {
+	public void notFindByDueDateLessThanEqualAndOpen() {
 		createAndPersisteLoan(LocalDate.now());
+		Loan returned = createAndPersisteLoan(LocalDate.now().minusDays(10));
+		returned.setStatus(LoanStatus.RETURNED);
 		
-		List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+		List<Loan> result = repository.findByDueDateLessThanEqualAndOpen(LocalDate.now());
 		
 		
 		assertThat(result).isEmpty();
 	}
 
+	@Test
+	@DisplayName("Should get only loans that became late inside the watermark window - Repository")
+	public void findByDueDateBetweenAndOpen() {
+		Loan newLateLoan = createAndPersisteLoan(LocalDate.now().minusDays(5));
+		createAndPersisteLoan(LocalDate.now().minusDays(10));
+		
+		List<Loan> result = repository.findByDueDateBetweenAndOpen(LocalDate.now().minusDays(2),
+				LocalDate.now());
+		
+		assertThat(result).hasSize(1).contains(newLateLoan);
+	}
+	
+	@Test
+	@DisplayName("Should get late loans due for a reminder notification - Repository")
+	public void findByLastNotificationLessThanAndOpen() {
+		Loan notifiedLoan = createAndPersisteLoan(LocalDate.now().minusDays(20));
+		Loan recentlyNotifiedLoan = createAndPersisteLoan(LocalDate.now().minusDays(20));
+		
+		repository.updateLastNotification(Arrays.asList(notifiedLoan.getId()), LocalDate.now().minusDays(8));
+		repository.updateLastNotification(Arrays.asList(recentlyNotifiedLoan.getId()), LocalDate.now().minusDays(1));
+		entityManager.clear();
+		
+		List<Loan> result = repository.findByLastNotificationLessThanAndOpen(LocalDate.now().minusDays(7));
+		
+		assertThat(result).extracting(Loan::getId).containsExactly(notifiedLoan.getId());
+	}
+
+	@Test
+	@DisplayName("Should find loans closed long enough ago to be archived - Repository")
+	public void findClosedBefore() {
+		Loan oldReturnedLoan = createAndPersisteLoan(LocalDate.now().minusDays(400));
+		oldReturnedLoan.setStatus(LoanStatus.RETURNED);
+		oldReturnedLoan.setReturnedDate(LocalDate.now().minusDays(390));
+		Loan oldLostLoan = createAndPersisteLoan(LocalDate.now().minusDays(400));
+		oldLostLoan.setStatus(LoanStatus.LOST);
+		oldLostLoan.setReturnedDate(LocalDate.now().minusDays(380));
+		Loan legacyReturnedLoan = createAndPersisteLoan(LocalDate.now().minusDays(400));
+		legacyReturnedLoan.setStatus(LoanStatus.RETURNED);
+		createAndPersisteLoan(LocalDate.now().minusDays(400));
+		Loan lateReturnedLoan = createAndPersisteLoan(LocalDate.now().minusDays(400));
+		lateReturnedLoan.setStatus(LoanStatus.RETURNED);
+		lateReturnedLoan.setReturnedDate(LocalDate.now().minusDays(10));
+		entityManager.flush();
+		
+		List<Loan> result = repository.findClosedBefore(LocalDate.now().minusDays(365), PageRequest.of(0, 10));
+		
+		assertThat(result).containsExactly(oldReturnedLoan, oldLostLoan, legacyReturnedLoan);
+	}
+
+	@Test
+	@DisplayName("Should sort and page a book history across the hot and archived loans - Repository")
+	public void findHistoryByBook() {
+		Loan first = createAndPersisteLoan(LocalDate.now().minusDays(30));
+		Book book = first.getBook();
+		Loan archived = Loan.builder().id(first.getId() + 1000).customer("Ciclano").book(book)
+				.loanDate(LocalDate.now().minusDays(20)).status(LoanStatus.RETURNED).build();
+		entityManager.persist(LoanArchive.of(archived, LocalDate.now()));
+		Loan last = Loan.builder().customer("Beltrano").book(book).loanDate(LocalDate.now().minusDays(10))
+				.status(LoanStatus.OPEN).build();
+		entityManager.persist(last);
+		entityManager.flush();
+
+		PageRequest newestFirst = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "loanDate"));
+		List<Object[]> page = repository.findHistoryByBook(book.getId(), newestFirst);
+		List<Object[]> next = repository.findHistoryByBook(book.getId(), newestFirst.next());
+
+		assertThat(page).extracting(row -> row[0], row -> row[1]).containsExactly(
+				Assertions.tuple(last.getId(), false), Assertions.tuple(archived.getId(), true));
+		assertThat(next).extracting(row -> row[0]).containsExactly(first.getId());
+		Throwable exception = Assertions.catchThrowable(
+				() -> repository.findHistoryByBook(book.getId(), PageRequest.of(0, 2, Sort.by("book.title"))));
+		assertThat(exception).hasRootCauseInstanceOf(IllegalArgumentException.class);
+	}
+
 }
@@ -0,0 +1,92 @@
+package com.knoxx.libraryapi.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+public class LoanStatusMigrationTest {
+	@Test
+	@DisplayName("Should add due dates and migrate the returned flag to loan statuses - Repository")
+	public void migrateReturnedFlagTest() throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:loan-status-migration");
+				Statement statement = connection.createStatement()) {
+			createSchemaBeforeDueDates(statement);
+
+			ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/047-loan-due-dates.sql"));
+			ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/048-loan-status.sql"));
+
+			assertThat(strings(statement, "select status from loan order by id")).containsExactly("RETURNED", "OPEN",
+					"OPEN");
+			assertThat(strings(statement, "select status from loan_archive")).containsExactly("RETURNED");
+			assertThat(strings(statement, "select due_date from loan order by id")).containsExactly("2020-01-05",
+					"2020-01-05", "2020-01-05");
+			assertThat(strings(statement, "select due_date from loan_archive")).containsExactly("2020-01-03");
+			assertThat(strings(statement, "select loan_days from book")).containsOnly((String) null);
+			assertThat(strings(statement, "select index_name from information_schema.indexes "
+					+ "where table_name = 'LOAN' and index_name like 'IDX_LOAN_%' order by index_name"))
+					.containsOnly("IDX_LOAN_BOOK_STATUS", "IDX_LOAN_LAST_NOTIFICATION", "IDX_LOAN_STATUS_DUE_DATE",
+							"IDX_LOAN_STATUS_RETURNED_DATE");
+			assertThatThrownBy(() -> statement.execute("select returned from loan")).isInstanceOf(SQLException.class);
+			assertThatThrownBy(() -> statement.execute("insert into loan (id_book, customer) values (4, 'd')"))
+					.isInstanceOf(SQLException.class);
+		}
+	}
+
+	@Test
+	@DisplayName("Should backfill due dates with the loan periods set on books ahead of the migration - Repository")
+	public void backfillBookLoanDaysTest() throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:loan-due-date-migration");
+				Statement statement = connection.createStatement()) {
+			createSchemaBeforeDueDates(statement);
+			statement.execute("alter table book add column loan_days integer");
+			statement.execute("update book set loan_days = 14 where id = 2");
+
+			ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/047-loan-due-dates.sql"));
+
+			assertThat(strings(statement, "select due_date from loan order by id")).containsExactly("2020-01-05",
+					"2020-01-15", "2020-01-05");
+		}
+	}
+
+	// the tables as they were before loans stored due dates
+	private static void createSchemaBeforeDueDates(Statement statement) throws SQLException {
+		statement.execute("create table book (id bigint primary key, title varchar(255), author varchar(255), "
+				+ "isbn varchar(13), isbn_key bigint)");
+		statement.execute("create table loan (id bigint auto_increment primary key, id_book bigint, "
+				+ "customer varchar(255), customer_email varchar(255), loan_date date, returned boolean, "
+				+ "last_notification date)");
+		statement.execute("create index idx_loan_loan_date on loan (loan_date)");
+		statement.execute("create index idx_loan_last_notification on loan (last_notification)");
+		statement.execute("create table loan_archive (id bigint primary key, id_book bigint, customer varchar(255), "
+				+ "customer_email varchar(255), loan_date date, returned boolean, last_notification date, "
+				+ "archived_at date)");
+		statement.execute("insert into book (id, title) values (1, 'a'), (2, 'b'), (3, 'c')");
+		statement.execute("insert into loan (id_book, customer, loan_date, returned) values "
+				+ "(1, 'a', '2020-01-01', true), (2, 'b', '2020-01-01', false), (3, 'c', '2020-01-01', null)");
+		statement.execute("insert into loan_archive (id, id_book, customer, loan_date, returned) "
+				+ "values (9, 1, 'a', '2019-12-30', true)");
+	}
+
+	private static List<String> strings(Statement statement, String sql) throws SQLException {
+		List<String> values = new ArrayList<>();
+		try (ResultSet result = statement.executeQuery(sql)) {
+			while (result.next()) {
+				values.add(result.getString(1));
+			}
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,333 @@
+package com.knoxx.libraryapi.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.util.Isbn;
+
+/**
+ * Runs every book and loan repository method against a seeded dataset and
+ * compares the number of statements and the tables read by full scans with
+ * {@code query-plans/baseline.properties}. Regenerate the baseline with
+ * {@code -Dquery-plans.update=true}; the captured SQL and H2 plans are written
+ * to {@code target/query-plans/report.txt}.
+ */
+@ActiveProfiles("test")
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.knoxx.libraryapi.repository.StatementCapture" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class QueryPlanRegressionTest {
+
+	static final Path BASELINE = Paths.get("src/test/resources/query-plans/baseline.properties");
+
+	static final Path REPORT = Paths.get("target/query-plans/report.txt");
+
+	private static final int BOOKS = 1_000;
+
+	private static final int LOANS = 20_000;
+
+	private static final Pattern ACCESS = Pattern
+			.compile("\"PUBLIC\"\\.\"(\\w+)\"(?:\\s+\"?\\w+\"?)?\\s*/\\*\\s*(PUBLIC\\.[\\w.]+)");
+
+	@Autowired
+	BookRepository bookRepository;
+
+	@Autowired
+	LoanRepository loanRepository;
+
+	@Autowired
+	LoanArchiveRepository loanArchiveRepository;
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	public void tearDown() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.update("delete from loan");
+		jdbcTemplate.update("delete from book");
+	}
+
+	@Test
+	@DisplayName("Should keep statement counts and index usage of every repository method - Repository")
+	public void queryPlansTest() throws Exception {
+		seed();
+
+		LocalDate today = LocalDate.now();
+		Book book = bookRepository.findById(firstId("book")).get();
+		List<Long> loanIds = new JdbcTemplate(dataSource).queryForList("select id from loan order by id limit 50",
+				Long.class);
+
+		Map<String, Runnable> cases = new LinkedHashMap<>();
+		cases.put("book.findById", () -> bookRepository.findById(book.getId()));
+		cases.put("book.existsByIsbnKey", () -> bookRepository.existsByIsbnKey(book.getIsbnKey()));
+		cases.put("book.findByIsbnKey", () -> bookRepository.findByIsbnKey(book.getIsbnKey()));
+		cases.put("book.findAllByExample",
+				() -> bookRepository.findAll(Example.of(Book.builder().author("author 7").build(),
+						ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+								.withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)),
+						PageRequest.of(0, 10)));
+		cases.put("book.findSlice",
+				() -> bookRepository.findSlice(Example.of(Book.builder().author("author 7").build(),
+						ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+								.withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)),
+						PageRequest.of(0, 10)));
+		cases.put("book.findAllTitlesAndAuthors", () -> bookRepository.findAllTitlesAndAuthors());
+		cases.put("book.findIsbnKeysAfter", () -> bookRepository.findIsbnKeysAfter(0l, PageRequest.of(0, 100)));
+		cases.put("book.findCatalogueAfter",
+				() -> bookRepository.findCatalogueAfter(book.getId(), PageRequest.of(0, 100)));
+		cases.put("loan.findById", () -> loanRepository.findById(loanIds.get(0)));
+		cases.put("loan.existsByBookAndOpen", () -> loanRepository.existsByBookAndOpen(book));
+		cases.put("loan.findByBookIsbnOrCustomer",
+				() -> loanRepository.findByBookIsbnOrCustomer(book.getIsbnKey(), "customer 7", PageRequest.of(0, 10)));
+		cases.put("loan.findByBook", () -> loanRepository.findByBook(book, PageRequest.of(0, 10)));
+		cases.put("loan.findSliceByBookIsbnOrCustomer", () -> loanRepository
+				.findSliceByBookIsbnOrCustomer(book.getIsbnKey(), "customer 7", PageRequest.of(0, 10)));
+		cases.put("loan.findSliceByBook", () -> loanRepository.findSliceByBook(book, PageRequest.of(0, 10)));
+		cases.put("loan.findHistoryByBook", () -> loanRepository.findHistoryByBook(book.getId(),
+				PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "loanDate"))));
+		cases.put("loan.findHistoryByBookIsbnOrCustomer", () -> loanRepository.findHistoryByBookIsbnOrCustomer(
+				book.getIsbnKey(), "customer 7", PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "loanDate"))));
+		cases.put("loan.findByDueDateLessThanEqualAndOpen",
+				() -> loanRepository.findByDueDateLessThanEqualAndOpen(today));
+		cases.put("loan.findByDueDateBetweenAndOpen",
+				() -> loanRepository.findByDueDateBetweenAndOpen(today.minusDays(1), today));
+		cases.put("loan.findByLastNotificationLessThanAndOpen",
+				() -> loanRepository.findByLastNotificationLessThanAndOpen(today.minusDays(7)));
+		cases.put("loan.findClosedBefore",
+				() -> loanRepository.findClosedBefore(today.minusDays(365), PageRequest.of(0, 100)));
+		cases.put("loan.lockStatusChanges", () -> loanRepository.lockStatusChanges(loanIds, LoanStatus.RETURNED));
+		cases.put("loan.findBookIdById", () -> loanRepository.findBookIdById(loanIds.get(0)));
+		cases.put("loan.updateStatusUnlessLost",
+				() -> loanRepository.updateStatusUnlessLost(loanIds, LoanStatus.RETURNED, today));
+		cases.put("loan.updateLastNotification", () -> loanRepository.updateLastNotification(loanIds, today));
+		cases.put("loan.deleteByIds", () -> loanRepository.deleteByIds(loanIds));
+		cases.put("loanArchive.findByBookIsbnOrCustomer", () -> loanArchiveRepository
+				.findByBookIsbnOrCustomer(book.getIsbnKey(), "customer 7", PageRequest.of(0, 10)));
+		cases.put("loanArchive.findByBook", () -> loanArchiveRepository.findByBook(book, PageRequest.of(0, 10)));
+		cases.put("loanArchive.findSliceByBookIsbnOrCustomer", () -> loanArchiveRepository
+				.findSliceByBookIsbnOrCustomer(book.getIsbnKey(), "customer 7", PageRequest.of(0, 10)));
+		cases.put("loanArchive.findSliceByBook",
+				() -> loanArchiveRepository.findSliceByBook(book, PageRequest.of(0, 10)));
+
+		Properties measured = new Properties();
+		StringWriter report = new StringWriter();
+		PrintWriter out = new PrintWriter(report);
+		for (Map.Entry<String, Runnable> entry : cases.entrySet()) {
+			measure(entry.getKey(), entry.getValue(), measured, out);
+		}
+		out.flush();
+		Files.createDirectories(REPORT.getParent());
+		Files.write(REPORT, report.toString().getBytes("UTF-8"));
+
+		if (Boolean.getBoolean("query-plans.update") || !Files.exists(BASELINE)) {
+			writeBaseline(measured);
+		}
+		Properties baseline = new Properties();
+		try (InputStream in = Files.newInputStream(BASELINE)) {
+			baseline.load(in);
+		}
+
+		List<String> regressions = new ArrayList<>();
+		for (String name : cases.keySet()) {
+			int statements = Integer.parseInt(measured.getProperty(name + ".statements"));
+			String expectedStatements = baseline.getProperty(name + ".statements");
+			if (expectedStatements == null) {
+				regressions.add(name + " has no baseline");
+				continue;
+			}
+			if (statements > Integer.parseInt(expectedStatements)) {
+				regressions.add(name + " now issues " + statements + " statements instead of " + expectedStatements);
+			}
+			TreeSet<String> scans = tables(measured.getProperty(name + ".scans"));
+			scans.removeAll(tables(baseline.getProperty(name + ".scans")));
+			if (!scans.isEmpty()) {
+				regressions.add(name + " lost index usage on " + scans);
+			}
+		}
+		assertThat(regressions).as("Query plan regressions, see %s", REPORT).isEmpty();
+	}
+
+	private void measure(String name, Runnable invocation, Properties measured, PrintWriter out) throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		List<String> statements;
+		statistics.clear();
+		StatementCapture.start();
+		try {
+			transaction.executeWithoutResult(status -> {
+				invocation.run();
+				status.setRollbackOnly();
+			});
+		} finally {
+			statements = StatementCapture.stop();
+		}
+		long prepared = statistics.getPrepareStatementCount();
+
+		TreeSet<String> scans = new TreeSet<>();
+		out.printf("== %s: %d statement(s)%n", name, prepared);
+		for (String sql : statements.stream().distinct().collect(Collectors.toList())) {
+			String plan = explain(sql);
+			out.printf("%s%n%s%n%n", sql, plan);
+			Matcher matcher = ACCESS.matcher(plan);
+			while (matcher.find()) {
+				if (matcher.group(2).endsWith(".tableScan")) {
+					scans.add(matcher.group(1));
+				}
+			}
+		}
+		measured.setProperty(name + ".statements", String.valueOf(prepared));
+		measured.setProperty(name + ".scans", String.join(",", scans));
+	}
+
+	private String explain(String sql) {
+		return new JdbcTemplate(dataSource).execute((Connection connection) -> {
+			try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+				ParameterMetaData parameters = statement.getParameterMetaData();
+				for (int i = 1; i <= parameters.getParameterCount(); i++) {
+					bind(statement, i, parameters.getParameterType(i));
+				}
+				try (ResultSet result = statement.executeQuery()) {
+					result.next();
+					return result.getString(1);
+				}
+			}
+		});
+	}
+
+	private static void bind(PreparedStatement statement, int index, int type) throws SQLException {
+		switch (type) {
+		case Types.BIGINT:
+		case Types.INTEGER:
+		case Types.SMALLINT:
+		case Types.TINYINT:
+			statement.setLong(index, 1);
+			break;
+		case Types.DECIMAL:
+		case Types.NUMERIC:
+			statement.setBigDecimal(index, BigDecimal.ONE);
+			break;
+		case Types.BOOLEAN:
+		case Types.BIT:
+			statement.setBoolean(index, true);
+			break;
+		case Types.DATE:
+			statement.setDate(index, Date.valueOf(LocalDate.now()));
+			break;
+		case Types.TIMESTAMP:
+			statement.setTimestamp(index, new Timestamp(System.currentTimeMillis()));
+			break;
+		default:
+			statement.setString(index, "1");
+		}
+	}
+
+	private void seed() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		Random random = new Random(37);
+		List<Object[]> books = new ArrayList<>();
+		for (int i = 0; i < BOOKS; i++) {
+			long isbnKey = Isbn.withCheckDigit(978_000_000_000L + i);
+			books.add(new Object[] { "title " + i, "author " + (i % 200), Isbn.format(isbnKey), isbnKey });
+		}
+		jdbcTemplate.batchUpdate("insert into book (title, author, isbn, isbn_key) values (?, ?, ?, ?)", books);
+		long firstBook = firstId("book");
+
+		List<Object[]> loans = new ArrayList<>();
+		LocalDate today = LocalDate.now();
+		for (int i = 0; i < LOANS; i++) {
+			long bookId = firstBook + random.nextInt(BOOKS);
+			LocalDate loanDate = today.minusDays(random.nextInt(400));
+			boolean returned = random.nextDouble() < 0.95;
+			Date lastNotification = !returned && random.nextBoolean() ? Date.valueOf(today.minusDays(random.nextInt(30)))
+					: null;
+			loans.add(new Object[] { bookId, "customer " + random.nextInt(2_000), Date.valueOf(loanDate),
+					Date.valueOf(loanDate.plusDays(4)), returned ? "RETURNED" : "OPEN",
+					returned ? Date.valueOf(loanDate.plusDays(2)) : null, lastNotification });
+		}
+		jdbcTemplate.batchUpdate("insert into loan (id_book, customer, loan_date, due_date, status, returned_date, "
+				+ "last_notification) values (?, ?, ?, ?, ?, ?, ?)", loans);
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	private long firstId(String table) {
+		return new JdbcTemplate(dataSource).queryForObject("select min(id) from " + table, Long.class);
+	}
+
+	private static TreeSet<String> tables(String value) {
+		TreeSet<String> tables = new TreeSet<>();
+		if (value != null && !value.isEmpty()) {
+			tables.addAll(Arrays.asList(value.split(",")));
+		}
+		return tables;
+	}
+
+	private static void writeBaseline(Properties measured) throws IOException {
+		Files.createDirectories(BASELINE.getParent());
+		List<String> lines = new ArrayList<>();
+		new TreeSet<>(measured.stringPropertyNames())
+				.forEach(key -> lines.add(key + "=" + measured.getProperty(key)));
+		try (OutputStream out = Files.newOutputStream(BASELINE)) {
+			out.write((String.join("\n", lines) + "\n").getBytes("UTF-8"));
+		}
+	}
+
+}
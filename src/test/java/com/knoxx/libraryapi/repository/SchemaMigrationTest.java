@@ -0,0 +1,137 @@
+package com.knoxx.libraryapi.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.knoxx.libraryapi.util.Isbn;
+
+/**
+ * Applies every script in {@code db/migration}, in file name order, to the
+ * first release's schema and compares the result with the schema Hibernate
+ * creates from the entities.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SchemaMigrationTest {
+
+	private static final String COLUMNS = "select table_name, column_name, type_name, is_nullable "
+			+ "from information_schema.columns where table_schema = 'PUBLIC' order by table_name, column_name";
+
+	private static final String INDEXES = "select table_name, index_name, column_name from information_schema.indexes "
+			+ "where table_schema = 'PUBLIC' and index_name like 'IDX_%' and index_type_name <> 'UNIQUE INDEX' "
+			+ "order by index_name, ordinal_position";
+
+	private static final String UNIQUE_CONSTRAINTS = "select table_name, constraint_name, column_list "
+			+ "from information_schema.constraints where table_schema = 'PUBLIC' and constraint_type = 'UNIQUE' "
+			+ "order by constraint_name";
+
+	@Autowired
+	DataSource dataSource;
+
+	@Test
+	@DisplayName("Should migrate the first release's schema to the one the entities map - Repository")
+	public void migrateBaselineSchemaTest() throws SQLException, IOException {
+		try (Connection migrated = DriverManager.getConnection("jdbc:h2:mem:schema-migration");
+				Connection mapped = dataSource.getConnection();
+				Statement statement = migrated.createStatement()) {
+			ScriptUtils.executeSqlScript(migrated, new ClassPathResource("db/baseline-schema.sql"));
+			statement.execute("insert into book (id, title, author, isbn) values (1, 'As Aventuras', 'Fulano', "
+					+ "'9780306406157')");
+			statement.execute("insert into loan (isbn, customer, id_book, loan_date, returned) values "
+					+ "('9780306406157', 'Fulano', 1, '2020-01-01', true), "
+					+ "('9780306406157', 'Ciclano', 1, '2020-01-10', null)");
+
+			for (Resource script : migrations()) {
+				ScriptUtils.executeSqlScript(migrated, script);
+			}
+
+			assertThat(rows(migrated, COLUMNS)).isNotEmpty().containsExactlyElementsOf(rows(mapped, COLUMNS));
+			assertThat(rows(migrated, INDEXES)).containsExactlyElementsOf(rows(mapped, INDEXES));
+			assertThat(rows(migrated, UNIQUE_CONSTRAINTS)).containsExactlyElementsOf(rows(mapped, UNIQUE_CONSTRAINTS));
+			assertThat(rows(migrated, "select status, due_date from loan order by id"))
+					.containsExactly("RETURNED 2020-01-05", "OPEN 2020-01-14");
+			assertThat(rows(migrated, "select kind, subject, total from loan_statistic order by kind, subject"))
+					.containsExactly("BOOK 1 1", "BOOK 1 1", "CUSTOMER Ciclano 1", "CUSTOMER Fulano 1");
+		}
+	}
+
+	@Test
+	@DisplayName("Should backfill the ISBN keys the way the service computes them - Repository")
+	public void backfillIsbnKeysTest() throws SQLException, IOException {
+		List<String> isbns = Arrays.asList("9780306406157", "978-1-86197-271-2", "0-8044-2957-x", "1 86197 271 7",
+				"979-10-90636-07-1", "9780306406158", "9770306406158", "030640615X", "12345", "0306406152x", null);
+		try (Connection migrated = DriverManager.getConnection("jdbc:h2:mem:isbn-key-migration");
+				Statement statement = migrated.createStatement()) {
+			ScriptUtils.executeSqlScript(migrated, new ClassPathResource("db/baseline-schema.sql"));
+			for (int i = 0; i < isbns.size(); i++) {
+				String isbn = isbns.get(i) == null ? "null" : "'" + isbns.get(i) + "'";
+				statement.execute("insert into book (id, title, author, isbn) values (" + (i + 1)
+						+ ", 'As Aventuras', 'Fulano', " + isbn + ")");
+			}
+
+			for (Resource script : migrations()) {
+				ScriptUtils.executeSqlScript(migrated, script);
+			}
+
+			List<String> expected = new ArrayList<>();
+			for (int i = 0; i < isbns.size(); i++) {
+				Long key = Isbn.toKey(isbns.get(i));
+				// the ISBN-10 of book 2 is a duplicate
+				key = i == 3 ? null : key;
+				expected.add((i + 1) + " " + (key == null ? isbns.get(i) : Isbn.format(key)) + " " + key);
+			}
+			assertThat(rows(migrated, "select id, isbn, isbn_key from book order by id"))
+					.containsExactlyElementsOf(expected);
+			assertThat(Isbn.toKey(isbns.get(3))).isEqualTo(Isbn.toKey(isbns.get(1)));
+		}
+	}
+
+	private static List<Resource> migrations() throws IOException {
+		List<Resource> scripts = new ArrayList<>(Arrays.asList(
+				new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/*.sql")));
+		scripts.sort(Comparator.comparing(Resource::getFilename));
+		return scripts;
+	}
+
+	private static List<String> rows(Connection connection, String sql) throws SQLException {
+		List<String> rows = new ArrayList<>();
+		try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+			ResultSetMetaData metaData = result.getMetaData();
+			while (result.next()) {
+				List<String> values = new ArrayList<>();
+				for (int i = 1; i <= metaData.getColumnCount(); i++) {
+					values.add(result.getString(i));
+				}
+				rows.add(String.join(" ", values));
+			}
+		}
+		return rows;
+	}
+
+}
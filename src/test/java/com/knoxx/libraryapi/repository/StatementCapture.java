@@ -0,0 +1,40 @@
+package com.knoxx.libraryapi.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector recording the SQL issued while a capture is
+ * active, registered through {@code hibernate.session_factory.statement_inspector}.
+ */
+public class StatementCapture implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final List<String> STATEMENTS = new ArrayList<>();
+
+	private static volatile boolean capturing;
+
+	public static synchronized void start() {
+		STATEMENTS.clear();
+		capturing = true;
+	}
+
+	public static synchronized List<String> stop() {
+		capturing = false;
+		return new ArrayList<>(STATEMENTS);
+	}
+
+	@Override
+	public String inspect(String sql) {
+		if (capturing) {
+			synchronized (StatementCapture.class) {
+				STATEMENTS.add(sql);
+			}
+		}
+		return sql;
+	}
+
+}
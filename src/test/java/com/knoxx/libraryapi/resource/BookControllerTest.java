@@ -1,9 +1,16 @@
 package com.knoxx.libraryapi.resource;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -18,19 +25,33 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.knoxx.libraryapi.api.dto.BookDTO;
+import com.knoxx.libraryapi.api.dto.HoldDTO;
+import com.knoxx.libraryapi.api.dto.SuggestionDTO;
+import com.knoxx.libraryapi.api.dto.TopBookDTO;
 import com.knoxx.libraryapi.api.resource.BookController;
 import com.knoxx.libraryapi.api.service.BookService;
+import com.knoxx.libraryapi.api.service.BookSuggestionService;
+import com.knoxx.libraryapi.api.service.HoldService;
 import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.api.service.PopularityService;
+import com.knoxx.libraryapi.bulkhead.Bulkhead;
+import com.knoxx.libraryapi.bulkhead.BulkheadFullException;
 import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Hold;
+import com.knoxx.libraryapi.entity.HoldStatus;
+import com.knoxx.libraryapi.entity.Loan;
 import com.knoxx.libraryapi.exception.BusinessException;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,6 +71,18 @@ public class BookControllerTest {
 	@MockBean
 	LoanService loanService;
 
+	@MockBean
+	PopularityService popularityService;
+
+	@MockBean
+	BookSuggestionService suggestionService;
+
+	@MockBean
+	Bulkhead reportingBulkhead;
+
+	@MockBean
+	HoldService holdService;
+
 	@Test
 	@DisplayName("Should create a new book successfully - Controller")
 	public void createBookControllerTest() throws Exception {
@@ -188,6 +221,22 @@ public class BookControllerTest {
 
 	}
 
+	@Test
+	@DisplayName("Should keep the loan period of a book when the update leaves it out - Controller")
+	public void updateBookKeepsLoanDaysTest() throws Exception {
+		Book book = Book.builder().id(1l).author("Arthur").title("As Aventuras").isbn("9780306406157")
+				.isbnKey(9780306406157l).loanDays(14).build();
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		BDDMockito.given(service.update(Mockito.any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
+		String json = new ObjectMapper().writeValueAsString(
+				BookDTO.builder().title("As Aventuras").author("Fulano").ISBN("9780306406157").build());
+
+		mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1")).accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON).content(json)).andExpect(status().isOk())
+				.andExpect(jsonPath("author").value("Fulano"))
+				.andExpect(jsonPath("loanDays").value(14));
+	}
+
 	@Test
 	@DisplayName("Should throw exception trying to update a empty book - Controller")
 	public void updateEmptyBookTest() throws Exception {
@@ -212,7 +261,7 @@ public class BookControllerTest {
 				.isbn(createNewBook().getISBN()).build();
 
 		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
-				.willReturn(new PageImpl<Book>(java.util.Arrays.asList(book), PageRequest.of(0, 100), 1));
+				.willReturn(new PageImpl<Book>(java.util.Arrays.asList(book), PageRequest.of(0, 20), 1));
 
 		String queryString = String.format("?title=%s&author=%s&page=0&size100", book.getTitle(), book.getAuthor());
 
@@ -222,15 +271,163 @@ public class BookControllerTest {
 		mvc.perform(request).andExpect(status().isOk())
 		.andExpect(jsonPath("content", Matchers.hasSize(1)))
 		.andExpect(jsonPath("totalElements").value(1))
-		.andExpect(jsonPath("pageable.pageSize").value(20))
-		.andExpect(jsonPath("pageable.pageNumber").value(0));
+		.andExpect(jsonPath("size").value(20))
+		.andExpect(jsonPath("page").value(0))
+		.andExpect(jsonPath("hasNext").value(false))
+		.andExpect(jsonPath("pageable").doesNotExist());
 		
 	}
+
+	@Test
+	@DisplayName("Should find books without counting them when count is not wanted - Controller")
+	public void findBooksWithoutCountTest() throws Exception {
+		Book book = Book.builder().id(1l).author("Arthur").title("As Aventuras").isbn("9780306406157").build();
+		BDDMockito.given(service.findSlice(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+				.willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=1&count=false"))
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("content", Matchers.hasSize(1)))
+				.andExpect(jsonPath("hasNext").value(true))
+				.andExpect(jsonPath("totalElements").doesNotExist());
+		Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+	}
 	
 	
 	
 	
 
+	@Test
+	@DisplayName("Should get the most borrowed books of a window - Controller")
+	public void topBooksTest() throws Exception {
+		TopBookDTO top = TopBookDTO.builder().id(1l).title("As Aventuras").author("Arthur").ISBN("123456").loans(42l)
+				.build();
+
+		BDDMockito.given(popularityService.getTopBooks("7d", 10)).willReturn(java.util.Arrays.asList(top));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/top?window=7d")).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", Matchers.hasSize(1)))
+				.andExpect(jsonPath("$[0].id").value(1))
+				.andExpect(jsonPath("$[0].loans").value(42));
+	}
+
+	@Test
+	@DisplayName("Should return bad request for an unsupported top books window - Controller")
+	public void topBooksInvalidWindowTest() throws Exception {
+		BDDMockito.given(popularityService.getTopBooks("2y", 10))
+				.willThrow(new BusinessException("Invalid window 2y, expected a number of days such as 7d"));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/top?window=2y")).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("errors", Matchers.hasSize(1)));
+	}
+
+	@Test
+	@DisplayName("Should suggest titles and authors by prefix - Controller")
+	public void suggestTest() throws Exception {
+		SuggestionDTO suggestion = SuggestionDTO.builder().text("As Aventuras").field("title").books(2).build();
+
+		BDDMockito.given(suggestionService.suggest("as av", 5)).willReturn(java.util.Arrays.asList(suggestion));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/suggest?prefix=as av&limit=5"))
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", Matchers.hasSize(1)))
+				.andExpect(jsonPath("$[0].text").value("As Aventuras"))
+				.andExpect(jsonPath("$[0].books").value(2));
+	}
+
+	@Test
+	@DisplayName("Should list the loans of a book on the reporting bulkhead - Controller")
+	public void loansByBookTest() throws Exception {
+		Book book = Book.builder().id(1l).title("As Aventuras").author("Arthur").isbn("9780306406157").build();
+		Loan loan = Loan.builder().id(2l).customer("Fulano").book(book).loanDate(LocalDate.now()).build();
+		BDDMockito.given(reportingBulkhead.submit(Mockito.any())).willAnswer(
+				invocation -> CompletableFuture.completedFuture(invocation.<Supplier<?>>getArgument(0).get()));
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		BDDMockito.given(loanService.getLoansByBook(Mockito.eq(book), Mockito.any(Pageable.class)))
+				.willReturn(new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 20), 1));
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans"))
+				.accept(MediaType.APPLICATION_JSON)).andExpect(request().asyncStarted()).andReturn();
+
+		mvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(jsonPath("content", Matchers.hasSize(1)))
+				.andExpect(jsonPath("content[0].isbn").value("9780306406157"));
+	}
+
+	@Test
+	@DisplayName("Should list the loans of a book without counting them when count is not wanted - Controller")
+	public void loansByBookWithoutCountTest() throws Exception {
+		Book book = Book.builder().id(1l).title("As Aventuras").author("Arthur").isbn("9780306406157").build();
+		Loan loan = Loan.builder().id(2l).customer("Fulano").book(book).loanDate(LocalDate.now()).build();
+		BDDMockito.given(reportingBulkhead.submit(Mockito.any())).willAnswer(
+				invocation -> CompletableFuture.completedFuture(invocation.<Supplier<?>>getArgument(0).get()));
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		BDDMockito.given(loanService.getLoansByBookSlice(Mockito.eq(book), Mockito.any(Pageable.class)))
+				.willReturn(new SliceImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 20), false));
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans?count=false"))
+				.accept(MediaType.APPLICATION_JSON)).andExpect(request().asyncStarted()).andReturn();
+
+		mvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(jsonPath("content", Matchers.hasSize(1)))
+				.andExpect(jsonPath("totalElements").doesNotExist());
+		Mockito.verify(loanService, Mockito.never()).getLoansByBook(Mockito.any(Book.class), Mockito.any(Pageable.class));
+	}
+
+	@Test
+	@DisplayName("Should answer 503 when the reporting bulkhead is full - Controller")
+	public void reportingBulkheadFullTest() throws Exception {
+		BDDMockito.given(reportingBulkhead.submit(Mockito.any())).willThrow(new BulkheadFullException("reporting"));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/loans")).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+				.andExpect(jsonPath("errors[0]").value("Server busy with reporting requests, try again later"));
+	}
+
+
+	@Test
+	@DisplayName("Should place a hold on a book and show its place in the queue - Controller")
+	public void placeHoldTest() throws Exception {
+		Book book = Book.builder().id(1l).title("As Aventuras").build();
+		Hold ready = Hold.builder().id(1l).book(book).customer("Ciclano").status(HoldStatus.READY).build();
+		Hold hold = Hold.builder().id(2l).book(book).customer("Fulano").customerEmail("fulano@email.com")
+				.status(HoldStatus.WAITING).build();
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		BDDMockito.given(holdService.place(book, "Fulano", "fulano@email.com")).willReturn(hold);
+		BDDMockito.given(holdService.getQueue(book)).willReturn(Arrays.asList(ready, hold));
+
+		String json = new ObjectMapper()
+				.writeValueAsString(HoldDTO.builder().customer("Fulano").email("fulano@email.com").build());
+
+		mvc.perform(MockMvcRequestBuilders.post(BOOK_API.concat("/1/holds")).contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON).content(json))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("id").value(2))
+				.andExpect(jsonPath("status").value("WAITING"))
+				.andExpect(jsonPath("position").value(2));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/holds")).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", Matchers.hasSize(2)))
+				.andExpect(jsonPath("$[0].customer").value("Ciclano"))
+				.andExpect(jsonPath("$[0].status").value("READY"));
+	}
+
+	@Test
+	@DisplayName("Should cancel a hold and return 404 for an unknown one - Controller")
+	public void cancelHoldTest() throws Exception {
+		Book book = Book.builder().id(1l).build();
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		BDDMockito.given(holdService.cancel(book, 2l)).willReturn(true);
+
+		mvc.perform(MockMvcRequestBuilders.delete(BOOK_API.concat("/1/holds/2"))).andExpect(status().isNoContent());
+		mvc.perform(MockMvcRequestBuilders.delete(BOOK_API.concat("/1/holds/3"))).andExpect(status().isNotFound());
+	}
+
 	private BookDTO createNewBook() {
 		return BookDTO.builder().id(1l).title("As Aventuras").author("Arthur").ISBN("123456").build();
 	}
@@ -0,0 +1,50 @@
+package com.knoxx.libraryapi.resource;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knoxx.libraryapi.api.dto.BookDTO;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BookSuggestionUpdateTest {
+
+	static String BOOK_API = "/api/books";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Test
+	@DisplayName("Should move the suggestions of an updated book to its new author - Controller")
+	public void updateThenSuggestTest() throws Exception {
+		BookDTO book = BookDTO.builder().title("Oldtitle").author("Oldauthor").ISBN("9781861972712").build();
+		String created = mvc.perform(MockMvcRequestBuilders.post(BOOK_API).contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(book))).andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		Long id = new ObjectMapper().readValue(created, BookDTO.class).getId();
+
+		book.setAuthor("Newauthor");
+		mvc.perform(MockMvcRequestBuilders.put(BOOK_API + "/" + id).contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(book))).andExpect(status().isOk())
+				.andExpect(jsonPath("author").value("Newauthor"));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/suggest").param("prefix", "old"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("[*].text", Matchers.contains("Oldtitle")));
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/suggest").param("prefix", "new"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("[*].text", Matchers.contains("Newauthor")));
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.knoxx.libraryapi.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.knoxx.libraryapi.api.resource.EventController;
+import com.knoxx.libraryapi.config.AvailabilityEventsConfig;
+import com.knoxx.libraryapi.events.AvailabilityBroadcaster;
+import com.knoxx.libraryapi.events.AvailabilityEvent;
+
+@ActiveProfiles("test")
+@WebMvcTest(controllers = EventController.class)
+@Import(AvailabilityEventsConfig.class)
+@AutoConfigureMockMvc
+public class EventControllerTest {
+
+	static final String AVAILABILITY_API = "/api/events/availability";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	AvailabilityBroadcaster broadcaster;
+
+	@Test
+	@DisplayName("Should stream checkouts and returns as server-sent events - Controller")
+	public void availabilityStreamTest() throws Exception {
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(AVAILABILITY_API)
+				.accept(MediaType.TEXT_EVENT_STREAM)).andExpect(request().asyncStarted()).andReturn();
+
+		AvailabilityEvent event = broadcaster.publish(AvailabilityEvent.Type.CHECKED_OUT, 1l, 10l);
+
+		// the sender writes the id, name and data lines of an event one after the other
+		String stream = awaitContent(result.getResponse(), "\"bookId\":10");
+		assertThat(stream).contains("id:" + event.getId() + "\n").contains("event:CHECKED_OUT\n")
+				.contains("\"loanId\":1");
+		assertThat(result.getResponse().getHeader("Cache-Control")).isEqualTo("no-store");
+	}
+
+	@Test
+	@DisplayName("Should replay the events after Last-Event-ID - Controller")
+	public void resumeTest() throws Exception {
+		AvailabilityEvent seen = broadcaster.publish(AvailabilityEvent.Type.CHECKED_OUT, 2l, 20l);
+		AvailabilityEvent missed = broadcaster.publish(AvailabilityEvent.Type.RETURNED, 2l, 20l);
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(AVAILABILITY_API)
+				.header("Last-Event-ID", seen.getId()).accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted()).andReturn();
+
+		String stream = awaitContent(result.getResponse(), "id:" + missed.getId() + "\n");
+		assertThat(stream).doesNotContain("id:" + seen.getId() + "\n").contains("event:RETURNED\n");
+	}
+
+	@Test
+	@DisplayName("Should ask a client to resync when its events are from before a restart - Controller")
+	public void resyncTest() throws Exception {
+		AvailabilityEvent event = broadcaster.publish(AvailabilityEvent.Type.CHECKED_OUT, 3l, 30l);
+		String previousStartup = "0-" + event.getSequence();
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(AVAILABILITY_API)
+				.header("Last-Event-ID", previousStartup).accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted()).andReturn();
+
+		assertThat(awaitContent(result.getResponse(), "event:RESYNC\n")).contains("\"type\":\"RESYNC\"");
+	}
+
+	private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 5_000;
+		String content = response.getContentAsString();
+		while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			content = response.getContentAsString();
+		}
+		assertThat(content).contains(expected);
+		return content;
+	}
+
+}
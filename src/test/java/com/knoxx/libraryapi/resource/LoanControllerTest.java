@@ -1,7 +1,10 @@
 package com.knoxx.libraryapi.resource;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.LocalDate;
@@ -18,12 +21,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -33,15 +39,23 @@ import com.knoxx.libraryapi.api.dto.LoanFilterDTO;
 import com.knoxx.libraryapi.api.dto.ReturnedBookDTO;
 import com.knoxx.libraryapi.api.resource.LoanControllers;
 import com.knoxx.libraryapi.api.service.BookService;
+import com.knoxx.libraryapi.api.service.LoanReturnJournalService;
+import com.knoxx.libraryapi.api.service.LoanReturnJournalService.Submission;
 import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.api.service.PopularityService;
+import com.knoxx.libraryapi.config.BulkheadConfig;
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.events.AvailabilityBroadcaster;
+import com.knoxx.libraryapi.events.AvailabilityEvent;
 import com.knoxx.libraryapi.exception.BusinessException;
 import com.knoxx.libraryapi.service.LoanServiceTest;
 
 @ExtendWith(MockitoExtension.class)
 @ActiveProfiles("Test")
 @WebMvcTest(controllers = LoanControllers.class)
+@Import(BulkheadConfig.class)
 @AutoConfigureMockMvc
 public class LoanControllerTest {
 
@@ -56,6 +70,15 @@ public class LoanControllerTest {
 	@MockBean
 	LoanService loanService;
 
+	@MockBean
+	PopularityService popularityService;
+
+	@MockBean
+	LoanReturnJournalService returnJournalService;
+
+	@MockBean
+	AvailabilityBroadcaster availabilityBroadcaster;
+
 	@Test
 	@DisplayName("Should loan a book - Controller")
 	public void loanBookTest() throws Exception {
@@ -64,7 +87,7 @@ public class LoanControllerTest {
 
 		Book book = Book.builder().id(1l).isbn("123").build();
 
-		Loan loan = createNewLoan("123", book);
+		Loan loan = createNewLoan(book);
 		loan.setId(1l);
 
 		String json = new ObjectMapper().writeValueAsString(dto);
@@ -78,6 +101,8 @@ public class LoanControllerTest {
 
 		mvc.perform(request).andExpect(status().isCreated()).andExpect(content().string("1"));
 
+		Mockito.verify(availabilityBroadcaster).publish(AvailabilityEvent.Type.CHECKED_OUT, 1l, 1l);
+
 	}
 
 	@Test
@@ -127,7 +152,7 @@ public class LoanControllerTest {
 
 		ReturnedBookDTO dto = ReturnedBookDTO.builder().returned(true).build();
 
-		Loan loan = Loan.builder().id(1l).build();
+		Loan loan = Loan.builder().id(1l).book(Book.builder().id(2l).build()).build();
 		BDDMockito.given(loanService.getById(Mockito.anyLong())).willReturn(Optional.of(loan));
 
 		String json = new ObjectMapper().writeValueAsString(dto);
@@ -136,6 +161,68 @@ public class LoanControllerTest {
 				.contentType(MediaType.APPLICATION_JSON).content(json)).andExpect(status().isOk());
 
 		Mockito.verify(loanService, Mockito.times(1)).update(loan);
+		Mockito.verify(availabilityBroadcaster).publish(AvailabilityEvent.Type.RETURNED, 1l, 2l);
+
+	}
+
+	@Test
+	@DisplayName("Should return a book through the return journal - Controller")
+	public void returnBookThroughJournalTest() throws Exception {
+
+		ReturnedBookDTO dto = ReturnedBookDTO.builder().returned(true).build();
+
+		BDDMockito.given(returnJournalService.isEnabled()).willReturn(true);
+		BDDMockito.given(loanService.getBookId(1l)).willReturn(Optional.of(2l));
+		BDDMockito.given(returnJournalService.submit(1l, true)).willReturn(Submission.DURABLE);
+
+		String json = new ObjectMapper().writeValueAsString(dto);
+
+		mvc.perform(MockMvcRequestBuilders.patch(LOAN_API.concat("/1")).accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON).content(json)).andExpect(status().isOk());
+
+		Mockito.verify(returnJournalService).submit(1l, true);
+		Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
+		Mockito.verifyNoInteractions(availabilityBroadcaster);
+
+	}
+
+	@Test
+	@DisplayName("Should accept a journaled return the journal did not acknowledge in time - Controller")
+	public void returnBookUnacknowledgedTest() throws Exception {
+
+		ReturnedBookDTO dto = ReturnedBookDTO.builder().returned(true).build();
+
+		BDDMockito.given(returnJournalService.isEnabled()).willReturn(true);
+		BDDMockito.given(loanService.getBookId(1l)).willReturn(Optional.of(2l));
+		BDDMockito.given(returnJournalService.submit(1l, true)).willReturn(Submission.ACCEPTED);
+
+		String json = new ObjectMapper().writeValueAsString(dto);
+
+		mvc.perform(MockMvcRequestBuilders.patch(LOAN_API.concat("/1")).accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON).content(json)).andExpect(status().isAccepted());
+
+		Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
+
+	}
+
+	@Test
+	@DisplayName("Should mark a loan lost without the return journal - Controller")
+	public void markLoanLostTest() throws Exception {
+
+		ReturnedBookDTO dto = ReturnedBookDTO.builder().status(LoanStatus.LOST).build();
+
+		Loan loan = Loan.builder().id(1l).book(Book.builder().id(2l).build()).build();
+		BDDMockito.given(returnJournalService.isEnabled()).willReturn(true);
+		BDDMockito.given(loanService.getById(1l)).willReturn(Optional.of(loan));
+
+		String json = new ObjectMapper().writeValueAsString(dto);
+
+		mvc.perform(MockMvcRequestBuilders.patch(LOAN_API.concat("/1")).accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON).content(json)).andExpect(status().isOk());
+
+		assertThat(loan.getStatus()).isEqualTo(LoanStatus.LOST);
+		Mockito.verify(returnJournalService, Mockito.never()).submit(Mockito.anyLong(), Mockito.anyBoolean());
+		Mockito.verify(loanService).update(loan);
 
 	}
 
@@ -162,7 +249,7 @@ public class LoanControllerTest {
 		loan.setId(id);
 
 		BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
-				.willReturn(new PageImpl<Loan>(java.util.Arrays.asList(loan), PageRequest.of(0, 100), 1));
+				.willReturn(new PageImpl<Loan>(java.util.Arrays.asList(loan), PageRequest.of(0, 20), 1));
 
 		String queryString = String.format("?isbn=%s&customer=%s&page=0&size100", loan.getBook().getIsbn(),
 				loan.getCustomer());
@@ -170,14 +257,34 @@ public class LoanControllerTest {
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(LOAN_API.concat(queryString))
 				.accept(MediaType.APPLICATION_JSON);
 
-		mvc.perform(request).andExpect(status().isOk()).andExpect(jsonPath("content", Matchers.hasSize(1)))
-				.andExpect(jsonPath("totalElements").value(1)).andExpect(jsonPath("pageable.pageSize").value(20))
-				.andExpect(jsonPath("pageable.pageNumber").value(0));
+		MvcResult result = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+
+		mvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(jsonPath("content", Matchers.hasSize(1)))
+				.andExpect(jsonPath("totalElements").value(1)).andExpect(jsonPath("size").value(20))
+				.andExpect(jsonPath("page").value(0)).andExpect(jsonPath("hasNext").value(false))
+				.andExpect(jsonPath("pageable").doesNotExist())
+				.andExpect(jsonPath("content[0].isbn").value(loan.getBook().getIsbn()));
+
+	}
+
+	@Test
+	@DisplayName("Should find loans without counting them when count is not wanted - Controller")
+	public void findLoansWithoutCountTest() throws Exception {
+		Loan loan = LoanServiceTest.createLoan("123");
+		loan.setId(1l);
+		BDDMockito.given(loanService.findSlice(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+				.willReturn(new SliceImpl<Loan>(java.util.Arrays.asList(loan), PageRequest.of(0, 1), true));
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?customer=Fulano&size=1&count=false"))
+				.accept(MediaType.APPLICATION_JSON)).andExpect(request().asyncStarted()).andReturn();
 
+		mvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(jsonPath("content", Matchers.hasSize(1)))
+				.andExpect(jsonPath("hasNext").value(true)).andExpect(jsonPath("totalElements").doesNotExist());
+		Mockito.verify(loanService, Mockito.never()).find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class));
 	}
 
-	public Loan createNewLoan(String ISBN, Book book) {
-		return Loan.builder().ISBN(ISBN).customer("Fulano").book(book).loanDate(LocalDate.now()).build();
+	public Loan createNewLoan(Book book) {
+		return Loan.builder().customer("Fulano").book(book).loanDate(LocalDate.now()).build();
 	}
 
 }
@@ -4,8 +4,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,30 +20,53 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 
 import com.knoxx.libraryapi.api.service.BookService;
+import com.knoxx.libraryapi.api.service.BookSuggestionService;
+import com.knoxx.libraryapi.api.service.CatalogueSnapshotService;
+import com.knoxx.libraryapi.api.service.IsbnFilterService;
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.exception.BusinessException;
 import com.knoxx.libraryapi.repository.BookRepository;
 import com.knoxx.libraryapi.service.impl.BookServiceImpl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 @ActiveProfiles("test")
 public class BookServiceTest {
 
+	private static final String ISBN = "9780306406157";
+
+	private static final Long ISBN_KEY = 9780306406157L;
+
 	BookService service;
 
 	private BookRepository repository;
 
+	private BookSuggestionService suggestionService;
+
+	private CatalogueSnapshotService snapshotService;
+
+	private IsbnFilterService isbnFilter;
+
 	@BeforeEach
 	public void setUp() {
 		this.repository = Mockito.mock(BookRepository.class);
-		this.service = new BookServiceImpl(repository);
+		this.suggestionService = Mockito.mock(BookSuggestionService.class);
+		this.snapshotService = Mockito.mock(CatalogueSnapshotService.class);
+		this.isbnFilter = Mockito.mock(IsbnFilterService.class);
+		Mockito.lenient().when(isbnFilter.mightExist(Mockito.any())).thenReturn(true);
+		this.service = new BookServiceImpl(repository, suggestionService, snapshotService, isbnFilter);
 	}
 
 	@Test
@@ -45,18 +74,34 @@ public class BookServiceTest {
 	public void saveBookServiceTest() {
 
 		Book book = createValidBook();
-		when(repository.existsByIsbn(Mockito.anyString())).thenReturn(false);
+		book.setIsbn("0-306-40615-2");
+		when(repository.existsByIsbnKey(ISBN_KEY)).thenReturn(false);
 
-		when(repository.save(book))
-				.thenReturn(Book.builder().id(1l).title("As Aventuras").author("Fulano").isbn("123").build());
+		when(repository.save(book)).thenReturn(Book.builder().id(1l).title("As Aventuras").author("Fulano")
+				.isbn(ISBN).isbnKey(ISBN_KEY).build());
 
 		Book savedBook = service.save(book);
 
 		assertThat(savedBook.getId()).isNotNull();
-		assertThat(savedBook.getIsbn()).isEqualTo("123");
+		assertThat(savedBook.getIsbn()).isEqualTo(ISBN);
 		assertThat(savedBook.getTitle()).isEqualTo("As Aventuras");
 		assertThat(savedBook.getAuthor()).isEqualTo("Fulano");
+		assertThat(book.getIsbn()).isEqualTo(ISBN);
+		assertThat(book.getIsbnKey()).isEqualTo(ISBN_KEY);
+
+	}
 
+	@Test
+	@DisplayName("Should throw an exception when trying to create a book with an invalid ISBN - Service")
+	public void shouldNotSaveABookWithInvalidISBN() {
+
+		Book book = createValidBook();
+		book.setIsbn("978-0-306-40615-8");
+
+		Throwable exception = Assertions.catchThrowable(() -> service.save(book));
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Invalid ISBN");
+
+		verify(repository, Mockito.never()).save(book);
 	}
 
 	@Test
@@ -64,7 +109,7 @@ public class BookServiceTest {
 	public void shouldNotSaveABookWithDuplicatedISBN() {
 
 		Book book = createValidBook();
-		when(repository.existsByIsbn(Mockito.anyString())).thenReturn(true);
+		when(repository.existsByIsbnKey(ISBN_KEY)).thenReturn(true);
 
 		Throwable exception = Assertions.catchThrowable(() -> service.save(book));
 		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("ISBN Ja cadastrado!");
@@ -72,6 +117,18 @@ public class BookServiceTest {
 		verify(repository, Mockito.never()).save(book);
 	}
 
+	@Test
+	@DisplayName("Should report a duplicated ISBN when a concurrent insert wins the unique index - Service")
+	public void shouldNotSaveABookWithConcurrentlyInsertedISBN() {
+
+		Book book = createValidBook();
+		when(repository.existsByIsbnKey(ISBN_KEY)).thenReturn(false);
+		when(repository.save(book)).thenThrow(new DataIntegrityViolationException("idx_book_isbn_key"));
+
+		Throwable exception = Assertions.catchThrowable(() -> service.save(book));
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("ISBN Ja cadastrado!");
+	}
+
 	@Test
 	@DisplayName("Should get book by id - Service")
 	public void getByIdTest() {
@@ -137,8 +194,9 @@ public class BookServiceTest {
 
 		Book book = createValidBook();
 
-		Book updatedBook = Book.builder().id(1L).author("Pipoca").title("As Aventuras").isbn("123").build();
+		Book updatedBook = Book.builder().id(1L).author("Pipoca").title("As Aventuras").isbn(ISBN).isbnKey(ISBN_KEY).build();
 
+		when(repository.findById(book.getId())).thenReturn(Optional.of(createValidBook()));
 		when(repository.save(book)).thenReturn(updatedBook);
 
 		Book afterUpdateBook = service.update(book);
@@ -147,6 +205,31 @@ public class BookServiceTest {
 		assertThat(afterUpdateBook.getAuthor()).isEqualTo("Pipoca");
 		assertThat(afterUpdateBook.getTitle()).isEqualTo(book.getTitle());
 		assertThat(afterUpdateBook.getIsbn()).isEqualTo(book.getIsbn());
+		verify(suggestionService).remove(Mockito.argThat(previous -> "Fulano".equals(previous.getAuthor())));
+		verify(suggestionService).index(updatedBook);
+	}
+
+	@Test
+	@DisplayName("Should normalize the ISBN of an updated book and reject an invalid one - Service")
+	public void updateBookIsbnTest() {
+		Book book = createValidBook();
+		book.setIsbn("0-306-40615-2");
+		book.setIsbnKey(null);
+		when(repository.findById(book.getId())).thenReturn(Optional.of(createValidBook()));
+		when(repository.save(book)).thenReturn(book);
+
+		service.update(book);
+
+		assertThat(book.getIsbn()).isEqualTo(ISBN);
+		assertThat(book.getIsbnKey()).isEqualTo(ISBN_KEY);
+		verify(isbnFilter, Mockito.never()).removed(Mockito.any());
+
+		Book invalid = createValidBook();
+		invalid.setIsbn("9780306406158");
+		Throwable exception = Assertions.catchThrowable(() -> service.update(invalid));
+
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Invalid ISBN");
+		verify(repository, Mockito.never()).save(invalid);
 	}
 
 	@Test
@@ -182,27 +265,121 @@ public class BookServiceTest {
 
 	}
 
+	@Test
+	@DisplayName("Should filter a slice of books without counting them - Service")
+	public void findBookSliceTest() {
+		Book book = createValidBook();
+		PageRequest pageRequest = PageRequest.of(0, 10);
+		when(repository.findSlice(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+				.thenReturn(new SliceImpl<Book>(java.util.Arrays.asList(book), pageRequest, false));
+
+		Slice<Book> result = service.findSlice(book, pageRequest);
+
+		assertThat(result.getContent()).containsExactly(book);
+		verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+	}
+
 	@Test
 	@DisplayName("Should return a book by ISBN")
 	public void getBookByISBNTest() {
 
-		String isbn = "123";
+		String isbn = "978-0-306-40615-7";
 
-		when(repository.findByIsbn(isbn)).thenReturn(
-				Optional.of(Book.builder().id(1L).author("Fulano").title("As Aventuras").isbn("123").build()));
+		when(repository.findByIsbnKey(ISBN_KEY)).thenReturn(Optional.of(createValidBook()));
 		
 		Optional<Book> book = service.getBookByISBN(isbn);
 		
 		assertThat(book.isPresent()).isTrue();
 		assertThat(book.get().getId()).isEqualTo(1l);
-		assertThat(book.get().getIsbn()).isEqualTo("123");
+		assertThat(book.get().getIsbn()).isEqualTo(ISBN);
 		
-		verify(repository, Mockito.times(1)).findByIsbn(isbn);
+		verify(repository, Mockito.times(1)).findByIsbnKey(ISBN_KEY);
+		assertThat(service.getBookByISBN("123")).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Should skip the database when the ISBN filter rules the ISBN out - Service")
+	public void isbnFilterNegativeTest() {
+		when(isbnFilter.mightExist(ISBN_KEY)).thenReturn(false);
+		Book book = createValidBook();
+		book.setId(null);
+		when(repository.save(book)).thenReturn(createValidBook());
+
+		assertThat(service.getBookByISBN(ISBN)).isEmpty();
+		service.save(book);
+
+		verify(repository, Mockito.never()).findByIsbnKey(ISBN_KEY);
+		verify(repository, Mockito.never()).existsByIsbnKey(ISBN_KEY);
+		verify(isbnFilter).added(ISBN_KEY);
+	}
+
+	@Test
+	@DisplayName("Should answer lookups from the catalogue snapshot while it is served - Service")
+	public void snapshotLookupTest() {
+		when(snapshotService.findById(1l)).thenReturn(Optional.of(createValidBook()));
+		when(snapshotService.findByIsbnKey(ISBN_KEY)).thenReturn(Optional.of(createValidBook()));
+
+		assertThat(service.getById(1l)).map(Book::getAuthor).contains("Fulano");
+		assertThat(service.getBookByISBN(ISBN)).map(Book::getId).contains(1l);
+		verify(repository, Mockito.never()).findById(1l);
+		verify(repository, Mockito.never()).findByIsbnKey(ISBN_KEY);
+
+		service.delete(createValidBook());
+		verify(snapshotService).changed(1l);
+	}
+
+	@Test
+	@DisplayName("Should share one repository lookup between concurrent callers of the same id - Service")
+	public void coalesceConcurrentGetByIdTest() throws Exception {
+		int callers = 16;
+		MeterRegistry registry = new SimpleMeterRegistry();
+		((BookServiceImpl) service).bindTo(registry);
+		CountDownLatch release = new CountDownLatch(1);
+		Book book = createValidBook();
+
+		when(repository.findById(1l)).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return Optional.of(book);
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		try {
+			List<Future<Optional<Book>>> results = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				results.add(executor.submit(() -> service.getById(1l)));
+			}
+			while (registry.get("library.singleflight.calls").tag("name", "book-by-id").functionCounter()
+					.count() < callers) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+
+			for (Future<Optional<Book>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS).get().getTitle()).isEqualTo("As Aventuras");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		verify(repository, Mockito.times(1)).findById(1l);
+		assertThat(registry.get("library.singleflight.coalescing.ratio").tag("name", "book-by-id").gauge().value())
+				.isEqualTo(1 - 1.0 / callers);
+	}
+
+	@Test
+	@DisplayName("Should run a new lookup once the previous one finished - Service")
+	public void sequentialGetByIsbnTest() {
+		when(repository.findByIsbnKey(ISBN_KEY)).thenReturn(Optional.of(createValidBook()));
+
+		service.getBookByISBN(ISBN);
+		service.getBookByISBN(ISBN);
 
+		verify(repository, Mockito.times(2)).findByIsbnKey(ISBN_KEY);
 	}
 
 	private Book createValidBook() {
-		return Book.builder().id(1L).author("Fulano").title("As Aventuras").isbn("123").build();
+		return Book.builder().id(1L).author("Fulano").title("As Aventuras").isbn(ISBN).isbnKey(ISBN_KEY).build();
 	}
 
 }
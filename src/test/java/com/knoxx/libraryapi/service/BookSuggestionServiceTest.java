@@ -0,0 +1,100 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.knoxx.libraryapi.api.dto.SuggestionDTO;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.service.impl.BookSuggestionServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+@ActiveProfiles("test")
+public class BookSuggestionServiceTest {
+
+	BookSuggestionServiceImpl service;
+
+	BookRepository repository;
+
+	@BeforeEach
+	public void setUp() {
+		this.repository = Mockito.mock(BookRepository.class);
+		this.service = new BookSuggestionServiceImpl(repository, 5, 3);
+	}
+
+	@Test
+	@DisplayName("Should suggest titles and authors by normalized prefix, exact matches first - Service")
+	public void suggestTest() {
+		when(repository.findAllTitlesAndAuthors()).thenReturn(Arrays.asList(
+				new Object[] { "O Cortiço", "Aluísio Azevedo" },
+				new Object[] { "O Cortiço e outros", "Aluísio Azevedo" },
+				new Object[] { "Dom Casmurro", "Machado de Assis" }));
+		service.rebuild();
+
+		List<SuggestionDTO> suggestions = service.suggest("  o  CORTICO", 10);
+
+		assertThat(suggestions).extracting(SuggestionDTO::getText, SuggestionDTO::getField)
+				.containsExactly(tuple("O Cortiço", "title"), tuple("O Cortiço e outros", "title"));
+		assertThat(service.suggest("alu", 10)).extracting(SuggestionDTO::getText, SuggestionDTO::getBooks)
+				.containsExactly(tuple("Aluísio Azevedo", 2));
+		assertThat(service.suggest("", 10)).isEmpty();
+		assertThat(service.suggest("x", 10)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Should follow book writes and stay within its entry bound - Service")
+	public void writesAndBoundTest() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service.bindTo(registry);
+
+		service.index(Book.builder().title("As Aventuras").author("Fulano").build());
+		service.index(Book.builder().title("As Aventuras de Pi").author("Fulano").build());
+		service.remove(Book.builder().title("As Aventuras").author("Fulano").build());
+
+		assertThat(service.suggest("as", 10)).extracting(SuggestionDTO::getText).containsExactly("As Aventuras de Pi");
+		assertThat(service.suggest("fu", 10)).extracting(SuggestionDTO::getBooks).containsExactly(1);
+
+		for (int i = 0; i < 10; i++) {
+			service.index(Book.builder().title("Volume " + i).author("Fulano").build());
+		}
+
+		assertThat(registry.get("library.books.suggest.entries").gauge().value()).isEqualTo(5);
+		assertThat(registry.get("library.books.suggest.dropped").functionCounter().count()).isEqualTo(7);
+		assertThat(registry.get("library.books.suggest.memory").gauge().value()).isPositive();
+		assertThat(service.suggest("volume", 10)).hasSize(3);
+	}
+
+	@Test
+	@DisplayName("Should return the prefix matches carried by the most books first - Service")
+	public void rankByBooksTest() {
+		service.index(Book.builder().title("Aa").author("Ab").build());
+		service.index(Book.builder().title("Ac").author("Ad").build());
+		service.index(Book.builder().title("Ac").author("Ad").build());
+		service.index(Book.builder().title("Ac").author("Ae").build());
+
+		assertThat(service.suggest("a", 2)).extracting(SuggestionDTO::getText, SuggestionDTO::getBooks)
+				.containsExactly(tuple("Ac", 3), tuple("Ad", 2));
+
+		service.index(Book.builder().title("Ae").author("Ae").build());
+		service.index(Book.builder().title("Ae").author("Ae").build());
+
+		assertThat(service.suggest("a", 3)).extracting(SuggestionDTO::getText, SuggestionDTO::getField)
+				.containsExactly(tuple("Ac", "title"), tuple("Ae", "author"), tuple("Ad", "author"));
+		assertThat(service.suggest("a", 10)).hasSize(3);
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import com.knoxx.libraryapi.api.service.BookSuggestionService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.service.impl.CatalogueSnapshotServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CatalogueSnapshotServiceTest {
+
+	@TempDir
+	Path directory;
+
+	BookRepository repository;
+
+	BookSuggestionService suggestionService;
+
+	@BeforeEach
+	public void setUp() {
+		this.repository = Mockito.mock(BookRepository.class);
+		this.suggestionService = Mockito.mock(BookSuggestionService.class);
+	}
+
+	@Test
+	@DisplayName("Should warm up from the last snapshot and skip books changed since - Service")
+	public void warmStartTest() {
+		when(repository.findCatalogueAfter(eq(0l), any(Pageable.class))).thenReturn(Arrays.asList(
+				new Object[] { 1l, 9780306406157L, "As Aventuras", "Fulano", null },
+				new Object[] { 2l, 9790000000001L, "O Cortiço", "Aluísio Azevedo", 14 }));
+		when(repository.findCatalogueAfter(eq(2l), any(Pageable.class))).thenReturn(Collections.emptyList());
+
+		assertThat(service().write()).isEqualTo(2);
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		CatalogueSnapshotServiceImpl service = service();
+		service.bindTo(registry);
+		service.open();
+
+		assertThat(service.isServing()).isTrue();
+		verify(suggestionService).rebuild(anyList());
+		assertThat(service.findById(2l)).map(Book::getTitle).contains("O Cortiço");
+		assertThat(service.findByIsbnKey(9780306406157L)).map(Book::getId).contains(1l);
+
+		service.changed(1l);
+
+		assertThat(service.findById(1l)).isEmpty();
+		assertThat(service.findByIsbnKey(9780306406157L)).isEmpty();
+		assertThat(registry.get("library.books.snapshot.hits").functionCounter().count()).isEqualTo(2);
+		assertThat(registry.get("library.books.snapshot.serving").gauge().value()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should serve nothing when there is no snapshot yet - Service")
+	public void coldStartTest() {
+		CatalogueSnapshotServiceImpl service = service();
+		service.open();
+		service.onReady();
+
+		assertThat(service.isServing()).isFalse();
+		assertThat(service.findById(1l)).isEmpty();
+		verify(suggestionService).rebuild();
+	}
+
+	private CatalogueSnapshotServiceImpl service() {
+		return new CatalogueSnapshotServiceImpl(repository, suggestionService, true,
+				directory.resolve("catalogue.snapshot").toString(), 2);
+	}
+
+}
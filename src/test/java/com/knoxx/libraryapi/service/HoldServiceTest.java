@@ -0,0 +1,240 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.knoxx.libraryapi.api.service.EmailService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Hold;
+import com.knoxx.libraryapi.entity.HoldStatus;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.exception.BusinessException;
+import com.knoxx.libraryapi.job.JobRunner;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.repository.HoldRepository;
+import com.knoxx.libraryapi.repository.LoanRepository;
+import com.knoxx.libraryapi.service.impl.HoldServiceImpl;
+
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class HoldServiceTest {
+
+	@Autowired
+	HoldRepository repository;
+
+	@Autowired
+	LoanRepository loanRepository;
+
+	@Autowired
+	BookRepository bookRepository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	HoldServiceImpl service;
+
+	EmailService emailService;
+
+	Book book;
+
+	@BeforeEach
+	public void setUp() {
+		this.emailService = Mockito.mock(EmailService.class);
+		this.service = createService(3);
+		this.book = bookRepository.save(Book.builder().title("As Aventuras").author("Fulano").isbn("9780306406157")
+				.isbnKey(9780306406157L).build());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		repository.deleteAll();
+		loanRepository.deleteAll();
+		bookRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Should queue holds on a loaned book in the order they are placed - Service")
+	public void placeHoldTest() {
+		lend("Beltrano");
+
+		service.place(book, "Fulano", "fulano@email.com");
+		service.place(book, "Ciclano", "ciclano@email.com");
+		Throwable exception = Assertions.catchThrowable(() -> service.place(book, "Fulano", "fulano@email.com"));
+
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Customer already holds this book");
+		assertThat(service.getQueue(book)).extracting(Hold::getCustomer).containsExactly("Fulano", "Ciclano");
+		assertThat(service.getQueue(book)).extracting(Hold::getStatus).containsOnly(HoldStatus.WAITING);
+		Mockito.verifyNoInteractions(emailService);
+	}
+
+	@Test
+	@DisplayName("Should reserve a returned book for the next hold and notify it - Service")
+	public void returnPromotesNextHoldTest() {
+		Loan loan = lend("Beltrano");
+		Hold first = service.place(book, "Fulano", "fulano@email.com");
+		service.place(book, "Ciclano", "ciclano@email.com");
+
+		giveBack(loan);
+		service.onLoanEvent(LoanEvent.of(LoanEvent.Type.RETURNED, loan.getId(), book.getId()));
+		service.onLoanEvent(LoanEvent.of(LoanEvent.Type.RETURNED, loan.getId(), book.getId()));
+
+		assertThat(reload(first).getStatus()).isEqualTo(HoldStatus.READY);
+		assertThat(reload(first).getReadyUntil()).isEqualTo(LocalDate.now().plusDays(3));
+		verify(emailService).sendEmail(Mockito.eq("Your hold is ready"), Mockito.contains("As Aventuras"),
+				Mockito.eq("fulano@email.com"));
+		assertThat(service.getQueue(book)).extracting(Hold::getCustomer).containsExactly("Fulano", "Ciclano");
+
+		Loan other = Loan.builder().book(book).customer("Beltrano").build();
+		Throwable exception = Assertions.catchThrowable(() -> service.checkout(other));
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Book is reserved for another customer");
+
+		service.checkout(Loan.builder().book(book).customer("Fulano").build());
+		assertThat(reload(first).getStatus()).isEqualTo(HoldStatus.FULFILLED);
+		assertThat(service.getQueue(book)).extracting(Hold::getCustomer).containsExactly("Ciclano");
+	}
+
+	@Test
+	@DisplayName("Should let only the first hold check out a book whose return is not delivered yet - Service")
+	public void checkoutBeforeReturnIsDeliveredTest() {
+		Loan loan = lend("Beltrano");
+		Hold first = service.place(book, "Fulano", "fulano@email.com");
+		Hold second = service.place(book, "Ciclano", "ciclano@email.com");
+		giveBack(loan);
+
+		Loan other = Loan.builder().book(book).customer("Beltrano").build();
+		Throwable exception = Assertions.catchThrowable(() -> service.checkout(other));
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Book is reserved for another customer");
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Loan checkout = Loan.builder().book(book).customer("Fulano").build();
+			service.checkout(checkout);
+			lend(checkout);
+		});
+		service.onLoanEvent(LoanEvent.of(LoanEvent.Type.RETURNED, loan.getId(), book.getId()));
+
+		assertThat(reload(first).getStatus()).isEqualTo(HoldStatus.FULFILLED);
+		assertThat(reload(second).getStatus()).isEqualTo(HoldStatus.WAITING);
+		assertThat(service.getQueue(book)).extracting(Hold::getId).containsExactly(second.getId());
+	}
+
+	@Test
+	@DisplayName("Should keep the hold queued when the checkout rolls back - Service")
+	public void rolledBackCheckoutTest() {
+		Hold hold = service.place(book, "Fulano", "fulano@email.com");
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			service.checkout(Loan.builder().book(book).customer("Fulano").build());
+			status.setRollbackOnly();
+		});
+
+		assertThat(reload(hold).getStatus()).isEqualTo(HoldStatus.READY);
+		assertThat(service.getQueue(book)).extracting(Hold::getId).containsExactly(hold.getId());
+
+		transactionTemplate.executeWithoutResult(
+				status -> service.checkout(Loan.builder().book(book).customer("Fulano").build()));
+
+		assertThat(reload(hold).getStatus()).isEqualTo(HoldStatus.FULFILLED);
+		assertThat(service.getQueue(book)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Should reserve an available book as soon as the hold is placed - Service")
+	public void placeHoldOnAvailableBookTest() {
+		Hold hold = service.place(book, "Fulano", "fulano@email.com");
+
+		assertThat(hold.getStatus()).isEqualTo(HoldStatus.READY);
+		verify(emailService).sendEmail(Mockito.anyString(), Mockito.anyString(), Mockito.eq("fulano@email.com"));
+	}
+
+	@Test
+	@DisplayName("Should pass the book to the next hold when the ready one is cancelled - Service")
+	public void cancelReadyHoldTest() {
+		Hold first = service.place(book, "Fulano", "fulano@email.com");
+		Hold second = service.place(book, "Ciclano", "ciclano@email.com");
+
+		assertThat(service.cancel(book, first.getId())).isTrue();
+		assertThat(service.cancel(book, 99l)).isFalse();
+
+		assertThat(reload(first).getStatus()).isEqualTo(HoldStatus.CANCELLED);
+		assertThat(reload(second).getStatus()).isEqualTo(HoldStatus.READY);
+		verify(emailService).sendEmail(Mockito.anyString(), Mockito.anyString(), Mockito.eq("ciclano@email.com"));
+	}
+
+	@Test
+	@DisplayName("Should expire ready holds that were not picked up - Service")
+	public void expireReadyHoldsTest() {
+		service = createService(-1);
+		Hold first = service.place(book, "Fulano", "fulano@email.com");
+		Hold second = service.place(book, "Ciclano", "ciclano@email.com");
+
+		int expired = service.expireReadyHolds();
+
+		assertThat(expired).isEqualTo(1);
+		assertThat(reload(first).getStatus()).isEqualTo(HoldStatus.EXPIRED);
+		assertThat(reload(second).getStatus()).isEqualTo(HoldStatus.READY);
+	}
+
+	@Test
+	@DisplayName("Should share the hold queue between instances - Service")
+	public void sharedQueueTest() {
+		HoldServiceImpl other = createService(3);
+		lend("Beltrano");
+
+		service.place(book, "Fulano", "fulano@email.com");
+		Throwable exception = Assertions.catchThrowable(() -> other.place(book, "Fulano", "fulano@email.com"));
+
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Customer already holds this book");
+		assertThat(other.getQueue(book)).extracting(Hold::getCustomer).containsExactly("Fulano");
+		Throwable checkout = Assertions
+				.catchThrowable(() -> other.checkout(Loan.builder().book(book).customer("Ciclano").build()));
+		assertThat(checkout).isInstanceOf(BusinessException.class).hasMessage("Book is reserved for another customer");
+	}
+
+	private Loan lend(String customer) {
+		return lend(Loan.builder().book(book).customer(customer).build());
+	}
+
+	private Loan lend(Loan loan) {
+		loan.setLoanDate(LocalDate.now());
+		loan.setDueDate(LocalDate.now().plusDays(4));
+		loan.setStatus(LoanStatus.OPEN);
+		return loanRepository.save(loan);
+	}
+
+	private void giveBack(Loan loan) {
+		loan.setStatus(LoanStatus.RETURNED);
+		loan.setReturnedDate(LocalDate.now());
+		loanRepository.save(loan);
+	}
+
+	private Hold reload(Hold hold) {
+		return repository.findById(hold.getId()).get();
+	}
+
+	private HoldServiceImpl createService(int readyDays) {
+		return new HoldServiceImpl(repository, loanRepository, emailService, new JobRunner(1, 100),
+				transactionManager, readyDays, "Your hold is ready",
+				"The book you placed a hold on is waiting for you");
+	}
+
+}
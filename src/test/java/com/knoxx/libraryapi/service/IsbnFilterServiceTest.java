@@ -0,0 +1,141 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.service.impl.IsbnFilterServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class IsbnFilterServiceTest {
+
+	BookRepository repository;
+
+	IsbnFilterServiceImpl service;
+
+	SimpleMeterRegistry registry;
+
+	@BeforeEach
+	public void setUp() {
+		this.repository = Mockito.mock(BookRepository.class);
+		this.service = new IsbnFilterServiceImpl(repository, 100, 0.01, 0.5, 3_600_000);
+		this.registry = new SimpleMeterRegistry();
+		service.bindTo(registry);
+	}
+
+	@Test
+	@DisplayName("Should let every ISBN through until the filter is built - Service")
+	public void notReadyTest() {
+		assertThat(service.isReady()).isFalse();
+		assertThat(service.mightExist(9780306406157L)).isTrue();
+
+		service.falsePositive();
+
+		assertThat(registry.get("library.books.isbn_filter.false_positives").functionCounter().count()).isZero();
+	}
+
+	@Test
+	@DisplayName("Should rule out unknown ISBNs and report its rates and memory - Service")
+	public void rebuildTest() {
+		when(repository.findIsbnKeysAfter(eq(0l), any(Pageable.class))).thenReturn(rows(9780306406157L, 9781861972712L));
+		service.rebuild();
+		service.added(9790000000001L);
+
+		assertThat(service.mightExist(9780306406157L)).isTrue();
+		assertThat(service.mightExist(9790000000001L)).isTrue();
+		assertThat(service.mightExist(9780000000002L)).isFalse();
+		service.falsePositive();
+
+		assertThat(registry.get("library.books.isbn_filter.entries").gauge().value()).isEqualTo(3);
+		assertThat(registry.get("library.books.isbn_filter.negatives").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("library.books.isbn_filter.false_positive_rate.observed").gauge().value())
+				.isEqualTo(0.5);
+		assertThat(registry.get("library.books.isbn_filter.false_positive_rate.expected").gauge().value())
+				.isBetween(0.0, 0.01);
+		assertThat(registry.get("library.books.isbn_filter.memory").gauge().value()).isPositive();
+	}
+
+	@Test
+	@DisplayName("Should keep a key added while the books are read during a rebuild - Service")
+	public void addedDuringRebuildTest() {
+		when(repository.findIsbnKeysAfter(eq(0l), any(Pageable.class))).thenReturn(rows(9780306406157L));
+		service.rebuild();
+		when(repository.findIsbnKeysAfter(eq(0l), any(Pageable.class))).thenAnswer(invocation -> {
+			// the book is not committed yet, so the rebuild does not read it
+			service.added(9781861972712L);
+			return rows(9780306406157L);
+		});
+
+		service.rebuild();
+
+		assertThat(service.mightExist(9781861972712L)).isTrue();
+		assertThat(registry.get("library.books.isbn_filter.entries").gauge().value()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should rebuild once enough books were deleted - Service")
+	public void staleRebuildTest() {
+		when(repository.findIsbnKeysAfter(eq(0l), any(Pageable.class))).thenReturn(rows(9780306406157L, 9781861972712L));
+		service.rebuild();
+
+		service.removed(9780306406157L);
+		service.rebuildIfStale();
+		service.removed(9781861972712L);
+		service.rebuildIfStale();
+
+		verify(repository, times(2)).findIsbnKeysAfter(eq(0l), any(Pageable.class));
+	}
+
+	@Test
+	@DisplayName("Should pick up books written by another instance or straight into the table - Service")
+	public void reconcileTest() {
+		when(repository.findIsbnKeysAfter(eq(0l), any(Pageable.class))).thenReturn(rows(9780306406157L));
+		service.rebuild();
+		when(repository.findIsbnKeysAfter(eq(1l), any(Pageable.class)))
+				.thenReturn(Collections.singletonList(new Object[] { 5l, 9781861972712L }));
+		assertThat(service.mightExist(9781861972712L)).isFalse();
+
+		service.reconcile();
+		service.reconcile();
+
+		assertThat(service.mightExist(9781861972712L)).isTrue();
+		verify(repository).findIsbnKeysAfter(eq(5l), any(Pageable.class));
+	}
+
+	@Test
+	@DisplayName("Should rebuild the whole filter once the rebuild interval has passed - Service")
+	public void periodicRebuildTest() {
+		service = new IsbnFilterServiceImpl(repository, 100, 0.01, 0.5, 0);
+		when(repository.findIsbnKeysAfter(eq(0l), any(Pageable.class))).thenReturn(rows(9780306406157L));
+		service.rebuild();
+
+		service.rebuildIfStale();
+
+		verify(repository, times(2)).findIsbnKeysAfter(eq(0l), any(Pageable.class));
+	}
+
+	// rows of book ids from 1 with the given keys
+	private static List<Object[]> rows(Long... keys) {
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < keys.length; i++) {
+			rows.add(new Object[] { i + 1l, keys[i] });
+		}
+		return rows;
+	}
+
+}
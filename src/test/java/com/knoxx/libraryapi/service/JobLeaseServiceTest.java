@@ -0,0 +1,50 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.knoxx.libraryapi.repository.JobLeaseRepository;
+import com.knoxx.libraryapi.service.impl.JobLeaseServiceImpl;
+
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JobLeaseServiceTest {
+
+	@Autowired
+	private JobLeaseRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	public void tearDown() {
+		repository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Should give a lease to one instance until it runs out - Service")
+	public void tryAcquireTest() throws InterruptedException {
+		JobLeaseServiceImpl first = new JobLeaseServiceImpl(repository, transactionManager);
+		JobLeaseServiceImpl second = new JobLeaseServiceImpl(repository, transactionManager);
+
+		assertThat(first.tryAcquire("job", 60_000)).isTrue();
+		assertThat(second.tryAcquire("job", 60_000)).isFalse();
+		assertThat(first.tryAcquire("job", 1)).isTrue();
+
+		Thread.sleep(10);
+
+		assertThat(second.tryAcquire("job", 60_000)).isTrue();
+		assertThat(first.tryAcquire("job", 60_000)).isFalse();
+	}
+
+}
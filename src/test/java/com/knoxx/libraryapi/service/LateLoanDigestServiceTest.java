@@ -0,0 +1,73 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.knoxx.libraryapi.api.dto.LateLoanDigestDTO;
+import com.knoxx.libraryapi.api.service.LateLoanDigestService;
+import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.service.impl.LateLoanDigestServiceImpl;
+
+@ExtendWith(MockitoExtension.class)
+@ActiveProfiles("test")
+public class LateLoanDigestServiceTest {
+
+	LateLoanDigestService service;
+
+	LoanService loanService;
+
+	@BeforeEach
+	public void setUp() {
+		this.loanService = Mockito.mock(LoanService.class);
+		this.service = new LateLoanDigestServiceImpl(loanService, "Please, return it as soon as possible!");
+	}
+
+	@Test
+	@DisplayName("Should group late loans in one digest per customer email - Service")
+	public void groupByCustomerTest() {
+		Loan first = createLateLoan("fulano@email.com", "As Aventuras");
+		Loan second = createLateLoan("fulano@email.com", "Outras Aventuras");
+		Loan third = createLateLoan("ciclano@email.com", "As Aventuras");
+
+		List<LateLoanDigestDTO> digests = service.groupByCustomer(Arrays.asList(first, second, third));
+
+		assertThat(digests).hasSize(2);
+		assertThat(digests.get(0).getEmail()).isEqualTo("fulano@email.com");
+		assertThat(digests.get(0).getItems()).extracting("title").containsExactly("As Aventuras", "Outras Aventuras");
+		assertThat(digests.get(1).getItems()).hasSize(1);
+	}
+
+	@Test
+	@DisplayName("Should render every late title and due date in the digest - Service")
+	public void renderDigestTest() {
+		LocalDate dueDate = LocalDate.now().minusDays(2);
+		Loan loan = createLateLoan("fulano@email.com", "As Aventuras");
+		Mockito.when(loanService.getDueDate(loan)).thenReturn(dueDate);
+
+		LateLoanDigestDTO digest = service.groupByCustomer(Arrays.asList(loan)).get(0);
+		String text = service.render(digest);
+
+		assertThat(text).contains("Hello Fulano").contains("Please, return it as soon as possible!")
+				.contains("As Aventuras").contains(dueDate.toString());
+	}
+
+	public static Loan createLateLoan(String email, String title) {
+		Book book = Book.builder().id(1l).author("Fulano").title(title).isbn("123").build();
+		return Loan.builder().customer("Fulano").customerEmail(email).book(book)
+				.loanDate(LocalDate.now().minusDays(10)).build();
+	}
+
+}
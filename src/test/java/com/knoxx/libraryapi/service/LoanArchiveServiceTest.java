@@ -0,0 +1,78 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.knoxx.libraryapi.api.service.LoanArchiveService;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanArchive;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.job.JobRunner;
+import com.knoxx.libraryapi.repository.LoanArchiveRepository;
+import com.knoxx.libraryapi.repository.LoanRepository;
+import com.knoxx.libraryapi.service.impl.LoanArchiveServiceImpl;
+
+@ExtendWith(MockitoExtension.class)
+@ActiveProfiles("test")
+public class LoanArchiveServiceTest {
+
+	LoanArchiveService service;
+
+	LoanRepository loanRepository;
+
+	LoanArchiveRepository archiveRepository;
+
+	@BeforeEach
+	public void setUp() {
+		this.loanRepository = Mockito.mock(LoanRepository.class);
+		this.archiveRepository = Mockito.mock(LoanArchiveRepository.class);
+		this.service = new LoanArchiveServiceImpl(loanRepository, archiveRepository,
+				Mockito.mock(PlatformTransactionManager.class), new JobRunner(1, 100), 365, 2);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	@DisplayName("Should move closed loans to the archive in batches - Service")
+	public void archiveClosedLoansTest() {
+		Loan first = createReturnedLoan(1l);
+		Loan second = createReturnedLoan(2l);
+		Loan third = createReturnedLoan(3l);
+		LocalDate before = LocalDate.now().minusDays(365);
+
+		when(loanRepository.findClosedBefore(before, PageRequest.of(0, 2)))
+				.thenReturn(Arrays.asList(first, second), Arrays.asList(third));
+
+		int archived = service.archiveClosedLoans();
+
+		assertThat(archived).isEqualTo(3);
+		ArgumentCaptor<List<LoanArchive>> archivedLoans = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(archiveRepository, Mockito.times(2)).saveAll(archivedLoans.capture());
+		assertThat(archivedLoans.getAllValues().get(0)).extracting(LoanArchive::getId).containsExactly(1l, 2l);
+		Mockito.verify(loanRepository).deleteByIds(Arrays.asList(1l, 2l));
+		Mockito.verify(loanRepository).deleteByIds(Collections.singletonList(3l));
+	}
+
+	private Loan createReturnedLoan(Long id) {
+		Loan loan = LoanServiceTest.createLoan("123");
+		loan.setId(id);
+		loan.setStatus(LoanStatus.RETURNED);
+		return loan;
+	}
+
+}
@@ -0,0 +1,163 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.knoxx.libraryapi.api.service.JobLeaseService;
+import com.knoxx.libraryapi.api.service.LoanEventListener;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.repository.LoanEventRepository;
+import com.knoxx.libraryapi.service.impl.LoanEventDispatcherImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+@ActiveProfiles("test")
+public class LoanEventDispatcherTest {
+
+	LoanEventDispatcherImpl dispatcher;
+
+	LoanEventRepository eventRepository;
+
+	JobLeaseService jobLeases;
+
+	Map<Long, List<Long>> received = new ConcurrentHashMap<>();
+
+	Set<Long> failing = ConcurrentHashMap.newKeySet();
+
+	@BeforeEach
+	public void setUp() {
+		this.eventRepository = Mockito.mock(LoanEventRepository.class);
+		this.jobLeases = Mockito.mock(JobLeaseService.class);
+		Mockito.lenient().when(jobLeases.tryAcquire(Mockito.anyString(), Mockito.anyLong())).thenReturn(true);
+		LoanEventListener listener = event -> {
+			if (failing.contains(event.getId())) {
+				throw new IllegalStateException("listener down");
+			}
+			received.computeIfAbsent(event.getBookId(), book -> Collections.synchronizedList(new ArrayList<>()))
+					.add(event.getId());
+		};
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(
+				Collections.singletonMap("listener", listener));
+		this.dispatcher = new LoanEventDispatcherImpl(eventRepository,
+				beanFactory.getBeanProvider(LoanEventListener.class), jobLeases,
+				Mockito.mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 4, 3, 10, 5000, 5000,
+				30000);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		dispatcher.shutdown();
+	}
+
+	@Test
+	@DisplayName("Should deliver pending events in order per book and remove them from the outbox - Service")
+	public void dispatchPendingTest() {
+		List<LoanEvent> first = new ArrayList<>();
+		List<LoanEvent> second = new ArrayList<>();
+		for (long id : new long[] { 1, 2, 3, 4, 5, 7 }) {
+			(id <= 4 ? first : second).add(event(id, id % 2 + 1, LocalDateTime.now().minusMinutes(1)));
+		}
+		when(eventRepository.findPending(0l, 10, PageRequest.of(0, 4))).thenReturn(first);
+		when(eventRepository.findPending(4l, 10, PageRequest.of(0, 4))).thenReturn(second);
+
+		int dispatched = dispatcher.dispatchPending();
+
+		assertThat(dispatched).isEqualTo(6);
+		assertThat(received.get(1l)).containsExactly(2l, 4l);
+		assertThat(received.get(2l)).containsExactly(1l, 3l, 5l, 7l);
+		Mockito.verify(eventRepository).deleteRange(1l, 4l);
+		Mockito.verify(eventRepository).deleteByIds(Arrays.asList(5l, 7l));
+	}
+
+	@Test
+	@DisplayName("Should hold back the events after an id whose transaction has not committed yet - Service")
+	public void gapTest() {
+		LocalDateTime now = LocalDateTime.now();
+		when(eventRepository.findPending(0l, 10, PageRequest.of(0, 4)))
+				.thenReturn(Arrays.asList(event(1, 1, now.minusMinutes(1)), event(2, 1, now), event(4, 1, now)));
+
+		int dispatched = dispatcher.dispatchPending();
+
+		assertThat(dispatched).isEqualTo(2);
+		assertThat(received.get(1l)).containsExactly(1l, 2l);
+		Mockito.verify(eventRepository).deleteRange(1l, 2l);
+
+		// the late event commits and fills the gap
+		when(eventRepository.findPending(0l, 10, PageRequest.of(0, 4)))
+				.thenReturn(Arrays.asList(event(3, 1, now), event(4, 1, now)));
+
+		dispatcher.dispatchPending();
+
+		assertThat(received.get(1l)).containsExactly(1l, 2l, 3l, 4l);
+	}
+
+	@Test
+	@DisplayName("Should keep an event whose listener failed and hold the later events of its book - Service")
+	public void listenerFailureTest() {
+		LocalDateTime created = LocalDateTime.now().minusMinutes(1);
+		when(eventRepository.findPending(0l, 10, PageRequest.of(0, 4)))
+				.thenReturn(Arrays.asList(event(1, 2, created), event(2, 1, created), event(3, 2, created),
+						event(4, 1, created)));
+		failing.add(2l);
+
+		int dispatched = dispatcher.dispatchPending();
+
+		assertThat(dispatched).isEqualTo(2);
+		assertThat(received.get(1l)).isNull();
+		assertThat(received.get(2l)).containsExactly(1l, 3l);
+		Mockito.verify(eventRepository).deleteByIds(Arrays.asList(1l, 3l));
+		Mockito.verify(eventRepository).markFailed(Mockito.eq(Collections.singletonList(2l)),
+				Mockito.any(LocalDateTime.class));
+
+		// the retry is due and the listener is back
+		failing.clear();
+		LoanEvent retry = event(2, 1, created);
+		retry.setAttempts(1);
+		retry.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+		when(eventRepository.findPending(0l, 10, PageRequest.of(0, 4)))
+				.thenReturn(Arrays.asList(retry, event(4, 1, created)));
+
+		dispatcher.dispatchPending();
+
+		assertThat(received.get(1l)).containsExactly(2l, 4l);
+		Mockito.verify(eventRepository).deleteByIds(Arrays.asList(2l, 4l));
+	}
+
+	@Test
+	@DisplayName("Should not dispatch while another instance holds the lease - Service")
+	public void leaseTest() {
+		when(jobLeases.tryAcquire(Mockito.anyString(), Mockito.anyLong())).thenReturn(false);
+
+		assertThat(dispatcher.dispatchPending()).isZero();
+
+		Mockito.verifyNoInteractions(eventRepository);
+	}
+
+	private static LoanEvent event(long id, long bookId, LocalDateTime createdAt) {
+		return LoanEvent.builder().id(id).bookId(bookId).loanId(id).type(LoanEvent.Type.CREATED).createdAt(createdAt)
+				.build();
+	}
+
+}
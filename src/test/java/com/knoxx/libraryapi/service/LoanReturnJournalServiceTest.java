@@ -0,0 +1,55 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import com.knoxx.libraryapi.api.service.LoanReturnJournalService.Submission;
+import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.events.AvailabilityBroadcaster;
+import com.knoxx.libraryapi.events.AvailabilityEvent;
+import com.knoxx.libraryapi.service.impl.LoanReturnJournalServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LoanReturnJournalServiceTest {
+
+	// a 64 byte header and one 32 byte record
+	static final int ONE_RECORD = 96;
+
+	@TempDir
+	Path directory;
+
+	LoanService loanService = Mockito.mock(LoanService.class);
+
+	AvailabilityBroadcaster availabilityBroadcaster = Mockito.mock(AvailabilityBroadcaster.class);
+
+	@Test
+	@DisplayName("Should accept a written return the journal did not acknowledge in time and still apply it - Service")
+	public void unacknowledgedReturnTest() throws Exception {
+		// the flusher does not run before the ack timeout
+		LoanReturnJournalServiceImpl service = new LoanReturnJournalServiceImpl(loanService, availabilityBroadcaster,
+				new SimpleMeterRegistry(),
+				true, directory.resolve("returns.dat").toString(), ONE_RECORD, 60_000l, 10l, 500);
+		service.open();
+		Mockito.when(loanService.applyReturns(Collections.singletonMap(1l, true)))
+				.thenReturn(Collections.singletonList(LoanEvent.of(LoanEvent.Type.RETURNED, 1l, 7l)));
+
+		assertThat(service.submit(1l, true)).isEqualTo(Submission.ACCEPTED);
+		assertThat(service.submit(2l, true)).isEqualTo(Submission.FULL);
+
+		service.close();
+
+		verify(loanService).applyReturns(Collections.singletonMap(1l, true));
+		verify(availabilityBroadcaster).publish(AvailabilityEvent.Type.RETURNED, 1l, 7l);
+	}
+
+}
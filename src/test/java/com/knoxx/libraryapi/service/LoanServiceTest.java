@@ -5,6 +5,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,14 +19,28 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.knoxx.libraryapi.api.dto.LoanFilterDTO;
+import com.knoxx.libraryapi.api.service.HoldService;
 import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.api.service.PopularityService;
 import com.knoxx.libraryapi.entity.Book;
 import com.knoxx.libraryapi.entity.Loan;
 import com.knoxx.libraryapi.exception.BusinessException;
+import com.knoxx.libraryapi.entity.LoanArchive;
+import com.knoxx.libraryapi.entity.LoanEvent;
+import com.knoxx.libraryapi.entity.LoanStatus;
+import com.knoxx.libraryapi.repository.LoanArchiveRepository;
+import com.knoxx.libraryapi.repository.LoanEventRepository;
 import com.knoxx.libraryapi.repository.LoanRepository;
+import com.knoxx.libraryapi.repository.OffsetPageRequest;
 import com.knoxx.libraryapi.service.impl.LoanServiceImpl;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,10 +51,23 @@ public class LoanServiceTest {
 
 	LoanRepository repository;
 
+	LoanArchiveRepository archiveRepository;
+
+	PopularityService popularityService;
+
+	LoanEventRepository eventRepository;
+
+	HoldService holdService;
+
 	@BeforeEach
 	public void setUp() {
 		this.repository = Mockito.mock(LoanRepository.class);
-		this.service = new LoanServiceImpl(repository);
+		this.archiveRepository = Mockito.mock(LoanArchiveRepository.class);
+		this.popularityService = Mockito.mock(PopularityService.class);
+		this.eventRepository = Mockito.mock(LoanEventRepository.class);
+		this.holdService = Mockito.mock(HoldService.class);
+		this.service = new LoanServiceImpl(repository, archiveRepository, popularityService, eventRepository,
+				holdService, 4);
 	}
 
 	@Test
@@ -50,20 +78,45 @@ public class LoanServiceTest {
 
 		Loan savingLoan = createLoan(isbn);
 
-		Loan savedLoan = Loan.builder().id(1l).ISBN(isbn).customer("Fulano").book(savingLoan.getBook())
+		Loan savedLoan = Loan.builder().id(1l).customer("Fulano").book(savingLoan.getBook())
 				.loanDate(LocalDate.now()).build();
 
-		when(repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(false);
+		when(repository.existsByBookAndOpen(savingLoan.getBook())).thenReturn(false);
 
 		when(repository.save(savingLoan)).thenReturn(savedLoan);
 
 		Loan loan = service.save(savingLoan);
 
 		assertThat(loan.getId()).isEqualTo(savedLoan.getId());
-		assertThat(loan.getISBN()).isEqualTo(savedLoan.getISBN());
+		assertThat(loan.getBook()).isEqualTo(savedLoan.getBook());
 		assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
 		assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
 
+		verify(holdService).checkout(savingLoan);
+		verify(popularityService).recordLoan(savedLoan);
+		verify(eventRepository).save(Mockito.argThat(event -> event.getType() == LoanEvent.Type.CREATED
+				&& event.getLoanId().equals(1l) && event.getBookId().equals(1l)));
+
+	}
+
+	@Test
+	@DisplayName("Should count a loan in the popularity rankings only once it commits - Service")
+	public void recordLoanAfterCommitTest() {
+		Loan savingLoan = createLoan("123");
+		Loan savedLoan = Loan.builder().id(1l).customer("Fulano").book(savingLoan.getBook()).build();
+		when(repository.save(savingLoan)).thenReturn(savedLoan);
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			service.save(savingLoan);
+			verify(popularityService, Mockito.never()).recordLoan(Mockito.any(Loan.class));
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		verify(popularityService).recordLoan(savedLoan);
 	}
 
 	@Test
@@ -74,7 +127,7 @@ public class LoanServiceTest {
 
 		Loan savingLoan = createLoan(isbn);
 
-		when(repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(true);
+		when(repository.existsByBookAndOpen(savingLoan.getBook())).thenReturn(true);
 
 		Throwable exception = Assertions.catchThrowable(() -> service.save(savingLoan));
 
@@ -83,6 +136,19 @@ public class LoanServiceTest {
 		verify(repository, Mockito.never()).save(savingLoan);
 
 	}
+
+	@Test
+	@DisplayName("Should not loan a book reserved for another customer - Service")
+	public void reservedBookSaveTest() {
+		Loan savingLoan = createLoan("123");
+		Mockito.doThrow(new BusinessException("Book is reserved for another customer")).when(holdService)
+				.checkout(savingLoan);
+
+		Throwable exception = Assertions.catchThrowable(() -> service.save(savingLoan));
+
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Book is reserved for another customer");
+		verify(repository, Mockito.never()).save(savingLoan);
+	}
 	
 	
 	@Test
@@ -114,7 +180,7 @@ public class LoanServiceTest {
 	@DisplayName("Should filter a loan - Service")
 	public void findLoanTest() {
 		
-		LoanFilterDTO filter = LoanFilterDTO.builder().customer("Fulano").isbn("123").build();
+		LoanFilterDTO filter = LoanFilterDTO.builder().customer("Fulano").isbn("978-0-306-40615-7").build();
 		
 		Loan loan = createLoan("123");
 		loan.setId(1l);
@@ -125,9 +191,11 @@ public class LoanServiceTest {
 
 		Page<Loan> page = new PageImpl<Loan>(list, pageRequest, list.size());
 
-		when(repository.findByBookIsbnOrCustomer(Mockito.anyString(),
-				Mockito.anyString(),
+		when(repository.findByBookIsbnOrCustomer(Mockito.eq(9780306406157l),
+				Mockito.eq("Fulano"),
 				Mockito.any(PageRequest.class))).thenReturn(page);
+		when(archiveRepository.findByBookIsbnOrCustomer(Mockito.eq(9780306406157l), Mockito.eq("Fulano"),
+				Mockito.any(Pageable.class))).thenReturn(Page.empty());
 
 		Page<Loan> result = service.find(filter, pageRequest);
 
@@ -147,16 +215,230 @@ public class LoanServiceTest {
 		
 		Loan loan = createLoan("123");
 		loan.setId(id);
-		loan.setReturned(true);
+		loan.setStatus(LoanStatus.RETURNED);
 		
 		Mockito.when( repository.save(loan) ).thenReturn(loan);
 		
 		Loan updatedLoan = service.update(loan);
 		
-		assertThat(updatedLoan.getReturned()).isTrue();
+		assertThat(updatedLoan.getStatus()).isEqualTo(LoanStatus.RETURNED);
+		assertThat(updatedLoan.getReturnedDate()).isEqualTo(LocalDate.now());
 		
 		Mockito.verify(repository).save(loan);
+		Mockito.verify(eventRepository).save(Mockito.argThat(event -> event.getType() == LoanEvent.Type.RETURNED
+				&& event.getLoanId().equals(id)));
+		
+	}
+
+	@Test
+	@DisplayName("Should not write a loan event when the status did not change - Service")
+	public void updateUnchangedStatusTest() {
+		Loan loan = Loan.builder().id(1l).book(Book.builder().id(1l).build()).status(LoanStatus.RETURNED)
+				.storedStatus(LoanStatus.RETURNED).build();
+		when(repository.save(loan)).thenReturn(loan);
+
+		service.update(loan);
+
+		Mockito.verify(repository).save(loan);
+		Mockito.verify(eventRepository, Mockito.never()).save(Mockito.any(LoanEvent.class));
+	}
+
+	@Test
+	@DisplayName("Should close a lost loan and clear the return date of a reopened one - Service")
+	public void updateLostAndReopenedLoanTest() {
+		Loan lost = createLoan("123");
+		lost.setId(1l);
+		lost.setStatus(LoanStatus.LOST);
+		Loan reopened = createLoan("456");
+		reopened.setId(2l);
+		reopened.setReturnedDate(LocalDate.now().minusDays(1));
+		when(repository.save(Mockito.any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		service.update(lost);
+		service.update(reopened);
+
+		assertThat(lost.getReturnedDate()).isEqualTo(LocalDate.now());
+		assertThat(reopened.getStatus()).isEqualTo(LoanStatus.OPEN);
+		assertThat(reopened.getReturnedDate()).isNull();
+		Mockito.verify(eventRepository).save(Mockito.argThat(event -> event.getType() == LoanEvent.Type.LOST
+				&& event.getLoanId().equals(1l)));
+		Mockito.verify(eventRepository).save(Mockito.argThat(event -> event.getType() == LoanEvent.Type.REOPENED
+				&& event.getLoanId().equals(2l)));
+	}
+
+	
+	
+	@Test
+	@DisplayName("Should only look up loans that became late since the last run - Service")
+	public void getLateLoansSinceTest() {
+		Loan loan = createLoan("123");
+		LocalDate lastRun = LocalDate.now().minusDays(1);
+		
+		Mockito.when(repository.findByDueDateBetweenAndOpen(lastRun, LocalDate.now()))
+				.thenReturn(java.util.Arrays.asList(loan));
+		
+		List<Loan> result = service.getLateLoansSince(lastRun);
+		
+		assertThat(result).containsExactly(loan);
+		Mockito.verify(repository, Mockito.never()).findByDueDateLessThanEqualAndOpen(Mockito.any());
+	}
+	
+	@Test
+	@DisplayName("Should scan every late loan when there is no watermark yet - Service")
+	public void getLateLoansSinceWithoutWatermarkTest() {
+		service.getLateLoansSince(null);
 		
+		Mockito.verify(repository).findByDueDateLessThanEqualAndOpen(LocalDate.now());
+	}
+
+	@Test
+	@DisplayName("Should store the due date from the loan period of the book at checkout - Service")
+	public void saveDueDateTest() {
+		Loan defaultPeriod = createLoan("123");
+		Loan bookPeriod = createLoan("456");
+		bookPeriod.getBook().setLoanDays(14);
+		when(repository.save(Mockito.any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		service.save(defaultPeriod);
+		service.save(bookPeriod);
+
+		assertThat(defaultPeriod.getDueDate()).isEqualTo(LocalDate.now().plusDays(4));
+		assertThat(defaultPeriod.getStatus()).isEqualTo(LoanStatus.OPEN);
+		assertThat(bookPeriod.getDueDate()).isEqualTo(LocalDate.now().plusDays(14));
+		assertThat(service.getDueDate(bookPeriod)).isEqualTo(LocalDate.now().plusDays(14));
+	}
+
+	
+	
+	@Test
+	@DisplayName("Should complete a book history page with archived loans - Service")
+	public void getLoansByBookWithArchiveTest() {
+		Loan hotLoan = createLoan("123");
+		hotLoan.setId(2l);
+		Loan archivedLoan = createLoan("123");
+		archivedLoan.setId(1l);
+		archivedLoan.setStatus(LoanStatus.RETURNED);
+		Book book = hotLoan.getBook();
+		PageRequest pageRequest = PageRequest.of(0, 10);
+
+		when(repository.findByBook(book, pageRequest))
+				.thenReturn(new PageImpl<Loan>(java.util.Arrays.asList(hotLoan), pageRequest, 1));
+		when(archiveRepository.findByBook(book, new OffsetPageRequest(0, 9, pageRequest.getSort())))
+				.thenReturn(new PageImpl<LoanArchive>(
+						java.util.Arrays.asList(LoanArchive.of(archivedLoan, LocalDate.now())), pageRequest, 1));
+
+		Page<Loan> result = service.getLoansByBook(book, pageRequest);
+
+		assertThat(result.getTotalElements()).isEqualTo(2);
+		assertThat(result.getContent()).extracting(Loan::getId).containsExactly(2l, 1l);
+	}
+
+	@Test
+	@DisplayName("Should load a sorted history page in the order the database merged it - Service")
+	public void findSortedWithArchiveTest() {
+		LoanFilterDTO filter = LoanFilterDTO.builder().customer("Fulano").build();
+		Loan newest = createLoan("123");
+		newest.setId(3l);
+		newest.setLoanDate(LocalDate.now());
+		Loan archived = createLoan("123");
+		archived.setId(2l);
+		archived.setLoanDate(LocalDate.now().minusDays(1));
+		PageRequest pageRequest = PageRequest.of(1, 1, Sort.by(Sort.Direction.DESC, "loanDate"));
+		Pageable first = new OffsetPageRequest(0, 1, Sort.unsorted());
+
+		when(repository.findHistoryByBookIsbnOrCustomer(null, "Fulano", pageRequest))
+				.thenReturn(Collections.singletonList(new Object[] { 2l, true }));
+		when(archiveRepository.findAllById(Collections.singletonList(2l)))
+				.thenReturn(Collections.singletonList(LoanArchive.of(archived, LocalDate.now())));
+		when(repository.findByBookIsbnOrCustomer(null, "Fulano", first))
+				.thenReturn(new PageImpl<Loan>(Collections.singletonList(newest), first, 2));
+		when(archiveRepository.findByBookIsbnOrCustomer(null, "Fulano", first)).thenReturn(new PageImpl<LoanArchive>(
+				Collections.singletonList(LoanArchive.of(archived, LocalDate.now())), first, 1));
+
+		Page<Loan> result = service.find(filter, pageRequest);
+
+		assertThat(result.getTotalElements()).isEqualTo(3);
+		assertThat(result.getContent()).extracting(Loan::getId).containsExactly(2l);
+		verify(repository, Mockito.never()).findByBookIsbnOrCustomer(null, "Fulano", pageRequest);
+	}
+
+	
+	
+	@Test
+	@DisplayName("Should not read the archive when hot loans fill an uncounted page - Service")
+	public void getLoansByBookSliceTest() {
+		Loan loan = createLoan("123");
+		Book book = loan.getBook();
+		PageRequest pageRequest = PageRequest.of(0, 1);
+		when(repository.findSliceByBook(book, pageRequest))
+				.thenReturn(new SliceImpl<Loan>(java.util.Arrays.asList(loan), pageRequest, true));
+
+		Slice<Loan> result = service.getLoansByBookSlice(book, pageRequest);
+
+		assertThat(result.getContent()).containsExactly(loan);
+		assertThat(result.hasNext()).isTrue();
+		Mockito.verifyNoInteractions(archiveRepository);
+		Mockito.verify(repository, Mockito.never()).findByBook(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	@DisplayName("Should complete an uncounted page past the hot loans with archived ones - Service")
+	public void findSliceWithArchiveTest() {
+		LoanFilterDTO filter = LoanFilterDTO.builder().customer("Fulano").build();
+		Loan archivedLoan = createLoan("123");
+		archivedLoan.setId(1l);
+		PageRequest pageRequest = PageRequest.of(1, 2);
+		when(repository.findSliceByBookIsbnOrCustomer(null, "Fulano", pageRequest))
+				.thenReturn(new SliceImpl<Loan>(Collections.emptyList(), pageRequest, false));
+		when(repository.findByBookIsbnOrCustomer(null, "Fulano", new OffsetPageRequest(0, 1, Sort.unsorted())))
+				.thenReturn(new PageImpl<Loan>(java.util.Arrays.asList(createLoan("123")), PageRequest.of(0, 1), 1));
+		Pageable archivePage = new OffsetPageRequest(1, 2, Sort.unsorted());
+		when(archiveRepository.findSliceByBookIsbnOrCustomer(null, "Fulano", archivePage)).thenReturn(
+				new SliceImpl<LoanArchive>(java.util.Arrays.asList(LoanArchive.of(archivedLoan, LocalDate.now())),
+						archivePage, false));
+
+		Slice<Loan> result = service.findSlice(filter, pageRequest);
+
+		assertThat(result.getContent()).extracting(Loan::getId).containsExactly(1l);
+		assertThat(result.hasNext()).isFalse();
+	}
+
+	@Test
+	@DisplayName("Should apply journaled returns as batched updates of the loans they change - Service")
+	public void applyReturnsTest() {
+		java.util.Map<Long, Boolean> returns = new java.util.LinkedHashMap<>();
+		returns.put(1l, true);
+		returns.put(2l, true);
+		returns.put(3l, false);
+		returns.put(4l, false);
+		// loan 2 is already returned and loan 4 already open
+		when(repository.lockStatusChanges(java.util.Arrays.asList(1l, 2l), LoanStatus.RETURNED))
+				.thenReturn(java.util.Collections.singletonList(new Object[] { 1l, 10l }));
+		when(repository.lockStatusChanges(java.util.Arrays.asList(3l, 4l), LoanStatus.OPEN))
+				.thenReturn(java.util.Collections.singletonList(new Object[] { 3l, 30l }));
+
+		List<LoanEvent> applied = service.applyReturns(returns);
+
+		verify(repository).updateStatusUnlessLost(java.util.Arrays.asList(1l), LoanStatus.RETURNED, LocalDate.now());
+		verify(repository).updateStatusUnlessLost(java.util.Arrays.asList(3l), LoanStatus.OPEN, null);
+		verify(repository, Mockito.never()).save(Mockito.any(Loan.class));
+		assertThat(applied).extracting(LoanEvent::getLoanId, LoanEvent::getBookId, LoanEvent::getType)
+				.containsExactlyInAnyOrder(Assertions.tuple(1l, 10l, LoanEvent.Type.RETURNED),
+						Assertions.tuple(3l, 30l, LoanEvent.Type.REOPENED));
+		verify(eventRepository, Mockito.times(2)).saveAll(Mockito.<List<LoanEvent>>argThat(events -> events.size() == 1));
+	}
+
+	@Test
+	@DisplayName("Should leave loans a replayed return does not change untouched - Service")
+	public void replayedReturnsTest() {
+		when(repository.lockStatusChanges(java.util.Arrays.asList(1l), LoanStatus.RETURNED))
+				.thenReturn(java.util.Collections.emptyList());
+
+		List<LoanEvent> applied = service.applyReturns(java.util.Collections.singletonMap(1l, true));
+
+		assertThat(applied).isEmpty();
+		verify(repository, Mockito.never()).updateStatusUnlessLost(Mockito.any(), Mockito.any(), Mockito.any());
+		Mockito.verifyNoInteractions(eventRepository);
 	}
 
 	
@@ -164,7 +446,7 @@ public class LoanServiceTest {
 	public static Loan createLoan(String isbn) {
 		Book book = Book.builder().id(1l).author("Fulano").title("As Aventuras").isbn(isbn).build();
 
-		return Loan.builder().ISBN(isbn).customer("Fulano").book(book).loanDate(LocalDate.now()).build();
+		return Loan.builder().customer("Fulano").book(book).loanDate(LocalDate.now()).build();
 	}
 
 }
@@ -0,0 +1,129 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.knoxx.libraryapi.api.dto.TopBookDTO;
+import com.knoxx.libraryapi.api.service.PopularityService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.entity.LoanStatistic;
+import com.knoxx.libraryapi.entity.LoanStatistic.Kind;
+import com.knoxx.libraryapi.exception.BusinessException;
+import com.knoxx.libraryapi.repository.BookRepository;
+import com.knoxx.libraryapi.repository.LoanStatisticRepository;
+import com.knoxx.libraryapi.service.impl.PopularityServiceImpl;
+
+@ExtendWith(MockitoExtension.class)
+@ActiveProfiles("test")
+public class PopularityServiceTest {
+
+	PopularityService service;
+
+	LoanStatisticRepository statisticRepository;
+
+	BookRepository bookRepository;
+
+	@BeforeEach
+	public void setUp() {
+		this.statisticRepository = Mockito.mock(LoanStatisticRepository.class);
+		this.bookRepository = Mockito.mock(BookRepository.class);
+		this.service = new PopularityServiceImpl(statisticRepository, bookRepository,
+				Mockito.mock(PlatformTransactionManager.class), Arrays.asList("1d", "7d"), 10);
+	}
+
+	@Test
+	@DisplayName("Should flush accumulated loan counters into the summary table - Service")
+	public void flushTest() {
+		Loan loan = LoanServiceTest.createLoan("123");
+		service.recordLoan(loan);
+		service.recordLoan(loan);
+
+		when(statisticRepository.increment(Kind.BOOK, LocalDate.now(), "1", 2l)).thenReturn(0);
+		when(statisticRepository.increment(Kind.CUSTOMER, LocalDate.now(), "Fulano", 2l)).thenReturn(1);
+
+		service.flush();
+
+		ArgumentCaptor<LoanStatistic> inserted = ArgumentCaptor.forClass(LoanStatistic.class);
+		Mockito.verify(statisticRepository).save(inserted.capture());
+		assertThat(inserted.getValue().getKind()).isEqualTo(Kind.BOOK);
+		assertThat(inserted.getValue().getTotal()).isEqualTo(2l);
+
+		Mockito.clearInvocations(statisticRepository);
+		service.flush();
+		Mockito.verify(statisticRepository, Mockito.never()).increment(Mockito.any(), Mockito.any(), Mockito.any(),
+				Mockito.any());
+	}
+
+	@Test
+	@DisplayName("Should write the pending loan counters when the instance shuts down - Service")
+	public void closeTest() {
+		service.recordLoan(LoanServiceTest.createLoan("123"));
+		when(statisticRepository.increment(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(1);
+
+		((PopularityServiceImpl) service).close();
+
+		Mockito.verify(statisticRepository).increment(Kind.BOOK, LocalDate.now(), "1", 1l);
+		Mockito.verify(statisticRepository).increment(Kind.CUSTOMER, LocalDate.now(), "Fulano", 1l);
+		Mockito.verify(statisticRepository, Mockito.never()).findTopSubjects(Mockito.any(), Mockito.any(),
+				Mockito.any());
+	}
+
+	@Test
+	@DisplayName("Should refresh the rankings once a day when there is nothing to flush - Service")
+	public void idleFlushTest() {
+		service.flush();
+
+		Mockito.verify(statisticRepository, Mockito.times(4)).findTopSubjects(Mockito.any(), Mockito.any(),
+				Mockito.any());
+
+		Mockito.clearInvocations(statisticRepository);
+		service.flush();
+		Mockito.verifyNoInteractions(statisticRepository);
+	}
+
+	@Test
+	@DisplayName("Should serve the top books from the precomputed ranking - Service")
+	public void topBooksTest() {
+		Book book = Book.builder().id(1l).title("As Aventuras").author("Fulano").isbn("123").build();
+		List<Object[]> rows = Collections.singletonList(new Object[] { "1", 5l });
+
+		Mockito.lenient().when(statisticRepository.findTopSubjects(Kind.BOOK, LocalDate.now().minusDays(6), PageRequest.of(0, 10)))
+				.thenReturn(rows);
+		when(bookRepository.findAllById(Arrays.asList(1l))).thenReturn(Arrays.asList(book));
+
+		service.refreshRankings();
+		List<TopBookDTO> top = service.getTopBooks("7d", 5);
+
+		assertThat(top).hasSize(1);
+		assertThat(top.get(0).getTitle()).isEqualTo("As Aventuras");
+		assertThat(top.get(0).getLoans()).isEqualTo(5l);
+		assertThat(service.getTopBooks("1d", 5)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Should reject a window that is not precomputed - Service")
+	public void unsupportedWindowTest() {
+		Throwable exception = Assertions.catchThrowable(() -> service.getTopBooks("30d", 5));
+
+		assertThat(exception).isInstanceOf(BusinessException.class);
+	}
+
+}
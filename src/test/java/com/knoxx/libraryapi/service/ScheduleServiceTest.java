@@ -0,0 +1,92 @@
+package com.knoxx.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.knoxx.libraryapi.api.service.EmailService;
+import com.knoxx.libraryapi.api.service.LoanService;
+import com.knoxx.libraryapi.entity.Book;
+import com.knoxx.libraryapi.entity.JobWatermark;
+import com.knoxx.libraryapi.entity.Loan;
+import com.knoxx.libraryapi.job.JobRunner;
+import com.knoxx.libraryapi.repository.JobWatermarkRepository;
+import com.knoxx.libraryapi.service.impl.LateLoanDigestServiceImpl;
+import com.knoxx.libraryapi.service.impl.ScheduleServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ScheduleServiceTest {
+
+	ScheduleServiceImpl service;
+
+	LoanService loanService;
+
+	EmailService emailService;
+
+	JobWatermarkRepository watermarkRepository;
+
+	SimpleMeterRegistry registry;
+
+	@BeforeEach
+	public void setUp() {
+		this.loanService = Mockito.mock(LoanService.class);
+		this.emailService = Mockito.mock(EmailService.class);
+		this.watermarkRepository = Mockito.mock(JobWatermarkRepository.class);
+		this.registry = new SimpleMeterRegistry();
+		JobRunner jobRunner = new JobRunner(1, 100);
+		jobRunner.bindTo(registry);
+		when(loanService.getDueDate(Mockito.any(Loan.class)))
+				.thenAnswer(invocation -> invocation.<Loan>getArgument(0).getDueDate());
+		this.service = new ScheduleServiceImpl(loanService, emailService,
+				new LateLoanDigestServiceImpl(loanService, "Please, return it as soon as possible!"),
+				watermarkRepository, jobRunner);
+		ReflectionTestUtils.setField(service, "reminderDays", 7);
+	}
+
+	@Test
+	@DisplayName("Should mark each digest's loans once it is sent and retry the failed ones in the next run - Service")
+	public void failedDigestTest() {
+		LocalDate today = LocalDate.now();
+		LocalDate lastRun = today.minusDays(5);
+		Loan sent = lateLoan(1l, "fulano@email.com", today.minusDays(3));
+		Loan unsent = lateLoan(2l, "ciclano@email.com", today.minusDays(2));
+		Loan notifiedBefore = lateLoan(3l, "beltrano@email.com", today.minusDays(1));
+		notifiedBefore.setLastNotification(today);
+		when(watermarkRepository.findById("late-loans"))
+				.thenReturn(Optional.of(JobWatermark.builder().name("late-loans").lastRun(lastRun).build()));
+		when(loanService.getLateLoansSince(lastRun)).thenReturn(Arrays.asList(sent, unsent, notifiedBefore));
+		Mockito.doThrow(new IllegalStateException("mail server down")).when(emailService)
+				.sendEmail(Mockito.anyString(), Mockito.eq("ciclano@email.com"));
+
+		service.sendEmailToLateLoan();
+
+		verify(loanService).markNotified(Collections.singletonList(sent), today);
+		verify(loanService, Mockito.never()).markNotified(Mockito.argThat(loans -> loans.contains(unsent)),
+				Mockito.any());
+		verify(emailService, Mockito.never()).sendEmail(Mockito.anyString(), Mockito.eq("beltrano@email.com"));
+		assertThat(registry.get("library.jobs.failures").tag("job", "late-loans").counter().count()).isEqualTo(1);
+		ArgumentCaptor<JobWatermark> watermark = ArgumentCaptor.forClass(JobWatermark.class);
+		verify(watermarkRepository).save(watermark.capture());
+		assertThat(watermark.getValue().getLastRun()).isEqualTo(unsent.getDueDate().minusDays(1));
+	}
+
+	private static Loan lateLoan(Long id, String email, LocalDate dueDate) {
+		Book book = Book.builder().id(id).author("Fulano").title("As Aventuras").isbn("123").build();
+		return Loan.builder().id(id).customer("Fulano").customerEmail(email).book(book)
+				.loanDate(dueDate.minusDays(4)).dueDate(dueDate).build();
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.knoxx.libraryapi.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.knoxx.libraryapi.entity.Book;
+
+public class CatalogueSnapshotTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Should find books by id and ISBN key in a written snapshot - Snapshot")
+	public void writeAndLookupTest() throws Exception {
+		Path path = directory.resolve("catalogue.snapshot");
+		try (CatalogueSnapshot.Writer writer = CatalogueSnapshot.create(path, 1000)) {
+			writer.add(3, 9790000000001L, "O Cortiço", "Aluísio Azevedo", 14);
+			writer.add(7, 9780306406157L, "As Aventuras", null, null);
+			writer.add(9, null, null, "Fulano", null);
+			writer.commit();
+		}
+
+		CatalogueSnapshot snapshot = CatalogueSnapshot.open(path);
+
+		assertThat(snapshot.size()).isEqualTo(3);
+		assertThat(snapshot.getCreatedAt()).isEqualTo(1000);
+		Book book = snapshot.findById(3).get();
+		assertThat(book.getTitle()).isEqualTo("O Cortiço");
+		assertThat(book.getAuthor()).isEqualTo("Aluísio Azevedo");
+		assertThat(book.getIsbn()).isEqualTo("9790000000001");
+		assertThat(book.getLoanDays()).isEqualTo(14);
+		assertThat(snapshot.findByIsbnKey(9780306406157L)).map(Book::getId).contains(7l);
+		assertThat(snapshot.findById(7).get().getAuthor()).isNull();
+		assertThat(snapshot.findById(7).get().getLoanDays()).isNull();
+		assertThat(snapshot.findById(9).get().getIsbnKey()).isNull();
+		assertThat(snapshot.findById(4)).isEmpty();
+		assertThat(snapshot.findByIsbnKey(9780000000002L)).isEmpty();
+
+		List<Long> ids = new ArrayList<>();
+		snapshot.forEach(found -> ids.add(found.getId()));
+		assertThat(ids).containsExactly(3l, 7l, 9l);
+	}
+
+	@Test
+	@DisplayName("Should keep the previous snapshot until a new one is committed - Snapshot")
+	public void replaceTest() throws Exception {
+		Path path = directory.resolve("catalogue.snapshot");
+		try (CatalogueSnapshot.Writer writer = CatalogueSnapshot.create(path, 1)) {
+			writer.add(1, 9780306406157L, "As Aventuras", "Fulano", null);
+			writer.commit();
+		}
+		CatalogueSnapshot previous = CatalogueSnapshot.open(path);
+
+		try (CatalogueSnapshot.Writer writer = CatalogueSnapshot.create(path, 2)) {
+			writer.add(2, 9780306406157L, "As Aventuras", "Ciclano", null);
+			assertThat(CatalogueSnapshot.open(path).getCreatedAt()).isEqualTo(1);
+		}
+		assertThat(CatalogueSnapshot.open(path).getCreatedAt()).isEqualTo(1);
+		assertThat(directory.resolve("catalogue.snapshot.tmp")).doesNotExist();
+
+		try (CatalogueSnapshot.Writer writer = CatalogueSnapshot.create(path, 3)) {
+			writer.add(2, 9780306406157L, "As Aventuras", "Ciclano", null);
+			writer.commit();
+		}
+		assertThat(CatalogueSnapshot.open(path).findByIsbnKey(9780306406157L)).map(Book::getAuthor)
+				.contains("Ciclano");
+		assertThat(previous.findById(1)).map(Book::getAuthor).contains("Fulano");
+	}
+
+	@Test
+	@DisplayName("Should refuse a snapshot that fails its checksum - Snapshot")
+	public void corruptionTest() throws Exception {
+		Path path = directory.resolve("catalogue.snapshot");
+		try (CatalogueSnapshot.Writer writer = CatalogueSnapshot.create(path, 1)) {
+			writer.add(1, 9780306406157L, "As Aventuras", "Fulano", null);
+			writer.commit();
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 'X' }), CatalogueSnapshot.HEADER_SIZE + 2);
+		}
+
+		Throwable exception = catchThrowable(() -> CatalogueSnapshot.open(path));
+
+		assertThat(exception).isInstanceOf(IOException.class).hasMessageStartingWith("Catalogue snapshot is corrupt");
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.knoxx.libraryapi.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class IsbnTest {
+
+	@Test
+	@DisplayName("Should normalize ISBN-10 and ISBN-13 variants to the same key - Util")
+	public void normalizeTest() {
+		assertThat(Isbn.toKey("9780306406157")).isEqualTo(9780306406157L);
+		assertThat(Isbn.toKey("978-0-306-40615-7")).isEqualTo(9780306406157L);
+		assertThat(Isbn.toKey("0-306-40615-2")).isEqualTo(9780306406157L);
+		assertThat(Isbn.toKey("080442957X")).isEqualTo(9780804429573L);
+		assertThat(Isbn.toKey("979 10 90636 07 1")).isEqualTo(9791090636071L);
+		assertThat(Isbn.format(9780306406157L)).isEqualTo("9780306406157");
+	}
+
+	@Test
+	@DisplayName("Should reject malformed ISBNs and wrong check digits - Util")
+	public void rejectTest() {
+		assertThat(Isbn.toKey(null)).isNull();
+		assertThat(Isbn.toKey("")).isNull();
+		assertThat(Isbn.toKey("123")).isNull();
+		assertThat(Isbn.toKey("978-0-306-40615-8")).isNull();
+		assertThat(Isbn.toKey("0-306-40615-3")).isNull();
+		assertThat(Isbn.toKey("1234567890128")).isNull();
+		assertThat(Isbn.toKey("97803064061570")).isNull();
+		assertThat(Isbn.toKey("978030640615X")).isNull();
+		assertThat(Isbn.toKey("978O306406157")).isNull();
+	}
+
+}
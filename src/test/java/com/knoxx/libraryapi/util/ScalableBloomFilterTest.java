@@ -0,0 +1,45 @@
+package com.knoxx.libraryapi.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ScalableBloomFilterTest {
+
+	@Test
+	@DisplayName("Should never miss an added key and keep false positives under the target as it grows - Util")
+	public void growthTest() {
+		ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+		for (long i = 0; i < 50_000; i++) {
+			filter.add(Isbn.withCheckDigit(978_000_000_000L + i * 3));
+		}
+
+		for (long i = 0; i < 50_000; i++) {
+			assertThat(filter.mightContain(Isbn.withCheckDigit(978_000_000_000L + i * 3))).isTrue();
+		}
+		int falsePositives = 0;
+		for (long i = 0; i < 100_000; i++) {
+			if (filter.mightContain(Isbn.withCheckDigit(979_000_000_000L + i))) {
+				falsePositives++;
+			}
+		}
+		assertThat(filter.size()).isGreaterThan(49_500);
+		assertThat(filter.stages()).isEqualTo(6);
+		assertThat(falsePositives / 100_000.0).isLessThan(0.01);
+		assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.01);
+		assertThat(filter.memoryBytes()).isLessThan(200_000);
+	}
+
+	@Test
+	@DisplayName("Should count a key added twice once - Util")
+	public void duplicateTest() {
+		ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.01);
+		filter.add(9780306406157L);
+		filter.add(9780306406157L);
+
+		assertThat(filter.size()).isEqualTo(1);
+		assertThat(filter.mightContain(9780306406157L)).isTrue();
+	}
+
+}
@@ -0,0 +1,8 @@
+-- The schema Hibernate created for the first release, before any script in
+-- db/migration.
+
+create table book (id bigint generated by default as identity, author varchar(255), isbn varchar(255),
+	title varchar(255), primary key (id));
+create table loan (id bigint generated by default as identity, isbn varchar(100), customer varchar(255),
+	customer_email varchar(255), loan_date date, returned boolean, id_book bigint, primary key (id));
+alter table loan add constraint fk_loan_book foreign key (id_book) references book;